@@ -23,6 +23,15 @@ public enum AnalysisState
      */
     PROCESSING,
 
+    /**
+     * Indicates that an analysis is running, while the results of an earlier analysis are available.
+     * The earlier results are replaced once the analysis completes.
+     *
+     * This state is only available on the logical side that executes the analysis.
+     * EG.: On clients which connect to a dedicated server this state will never be available.
+     */
+    REVALIDATING,
+
     /**
      * Indicates that analysis has been completed, but that the data from this server side is being
      * synced to clients.
@@ -57,7 +66,7 @@ public enum AnalysisState
      * @return {@code True} when data is available, {@code False} when not.
      */
     public boolean hasData() {
-        return this == SYNCING || this == COMPLETED || this == POST_PROCESSING;
+        return this == REVALIDATING || this == SYNCING || this == COMPLETED || this == POST_PROCESSING;
     }
 
     /**
@@ -75,6 +84,6 @@ public enum AnalysisState
      * @return {@code True} when an analysis is running, {@code False} when not.
      */
     public boolean isAnalyzing() {
-        return this == PROCESSING;
+        return this == PROCESSING || this == REVALIDATING;
     }
 }
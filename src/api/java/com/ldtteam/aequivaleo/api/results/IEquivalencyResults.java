@@ -5,7 +5,10 @@ import com.ldtteam.aequivaleo.api.compound.CompoundInstance;
 import com.ldtteam.aequivaleo.api.compound.container.ICompoundContainer;
 import com.ldtteam.aequivaleo.api.compound.type.group.ICompoundTypeGroup;
 import net.minecraft.resources.ResourceKey;
+import net.minecraft.world.item.Item;
+import net.minecraft.world.item.ItemStack;
 import net.minecraft.world.level.Level;
+import net.minecraft.world.level.material.Fluid;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.Map;
@@ -52,6 +55,42 @@ public interface IEquivalencyResults
         return dataFor(unitContainer);
     }
 
+    /**
+     * Gives access to the calculation result of a single item.
+     * Unlike {@link #dataFor(Object)} this does not need to wrap the item in a container first.
+     *
+     * @param item The item in question.
+     * @return A sets containing the results if present, else an empty set is returned.
+     */
+    @NotNull
+    default Set<CompoundInstance> dataFor(@NotNull final Item item) {
+        return dataFor((Object) item);
+    }
+
+    /**
+     * Gives access to the calculation result of a single stack, ignoring its size.
+     * Unlike {@link #dataFor(Object)} this does not need to copy the stack and wrap it in a container first.
+     *
+     * @param stack The stack in question.
+     * @return A sets containing the results if present, else an empty set is returned.
+     */
+    @NotNull
+    default Set<CompoundInstance> dataFor(@NotNull final ItemStack stack) {
+        return dataFor((Object) stack);
+    }
+
+    /**
+     * Gives access to the calculation result of a single fluid.
+     * Unlike {@link #dataFor(Object)} this does not need to wrap the fluid in a container first.
+     *
+     * @param fluid The fluid in question.
+     * @return A sets containing the results if present, else an empty set is returned.
+     */
+    @NotNull
+    default Set<CompoundInstance> dataFor(@NotNull final Fluid fluid) {
+        return dataFor((Object) fluid);
+    }
+
     /**
      * Gives access to the calculation result of a single container, in the form of the processed cache result.
      * If the container is not in unit form, he will be turned into a container that is in unit form, by using a duplicate.
@@ -7,6 +7,7 @@ import com.google.common.collect.Sets;
 import com.google.gson.Gson;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonParseException;
+import com.ldtteam.aequivaleo.Aequivaleo;
 import com.ldtteam.aequivaleo.api.IAequivaleoAPI;
 import com.ldtteam.aequivaleo.api.analysis.AnalysisState;
 import com.ldtteam.aequivaleo.api.analysis.IBlacklistDimensionManager;
@@ -26,10 +27,13 @@ import com.ldtteam.aequivaleo.api.util.GroupingUtils;
 import com.ldtteam.aequivaleo.api.util.ModRegistries;
 import com.ldtteam.aequivaleo.bootstrap.WorldBootstrapper;
 import com.ldtteam.aequivaleo.compound.data.serializers.CompoundInstanceDataSerializer;
+import com.ldtteam.aequivaleo.compound.vector.CompoundTypeIndex;
 import com.ldtteam.aequivaleo.plugin.PluginManger;
 import com.ldtteam.aequivaleo.recipe.equivalency.RecipeCalculator;
 import com.ldtteam.aequivaleo.recipe.equivalency.data.GenericRecipeDataSerializer;
 import com.ldtteam.aequivaleo.results.EquivalencyResults;
+import com.ldtteam.aequivaleo.utils.CacheWriteQueue;
+import com.ldtteam.aequivaleo.utils.WorldCacheUtils;
 import com.ldtteam.aequivaleo.utils.WorldUtils;
 import com.mojang.datafixers.util.Pair;
 import com.mojang.serialization.DataResult;
@@ -48,6 +52,7 @@ import net.minecraft.util.profiling.ProfilerFiller;
 import net.minecraft.world.level.Level;
 import net.minecraftforge.event.AddReloadListenerEvent;
 import net.minecraftforge.event.server.ServerStartedEvent;
+import net.minecraftforge.event.server.ServerStoppedEvent;
 import net.minecraftforge.eventbus.api.EventPriority;
 import net.minecraftforge.eventbus.api.SubscribeEvent;
 import net.minecraftforge.fml.common.Mod;
@@ -112,6 +117,15 @@ public class AequivaleoReloadListener implements PreparableReloadListener {
         );
     }
 
+    @SubscribeEvent
+    public static void onServerStopped(final ServerStoppedEvent serverStoppedEvent) {
+        LOGGER.info("Flushing pending cache writes.");
+        CacheWriteQueue.getInstance().flush();
+
+        LOGGER.info("Discarding analysis snapshots.");
+        AnalysisSnapshotManager.clear();
+    }
+
     private final ReloadableServerResources serverResources;
     private final Gson gson;
 
@@ -497,6 +511,7 @@ public class AequivaleoReloadListener implements PreparableReloadListener {
         SYNCED_REGISTRIES.stream()
                 .map(Supplier::get)
                 .forEach(ISyncedRegistry::clear);
+        CompoundTypeIndex.invalidate();
     }
 
     private CompletableFuture<Unit> loadSyncRegistries(
@@ -669,7 +684,11 @@ public class AequivaleoReloadListener implements PreparableReloadListener {
                     worldAdditionalRecipes.forEach(IEquivalencyRecipeRegistry.getInstance(analysisOwner.getIdentifier())::register);
                 });
 
-                AnalysisStateManager.setStateIfNotError(getAnalysisOwners().stream().map(LevelAnalysisOwner::serverLevel).collect(Collectors.toList()), AnalysisState.PROCESSING);
+                final boolean servesStaleResults = serveStaleResults();
+                AnalysisStateManager.setStateIfNotError(
+                        getAnalysisOwners().stream().map(LevelAnalysisOwner::serverLevel).collect(Collectors.toList()),
+                        servesStaleResults ? AnalysisState.REVALIDATING : AnalysisState.PROCESSING
+                );
 
                 JGraphTBasedCompoundAnalyzer analyzer = new JGraphTBasedCompoundAnalyzer(getAnalysisOwners(), forceReload, true);
 
@@ -683,6 +702,33 @@ public class AequivaleoReloadListener implements PreparableReloadListener {
             LOGGER.info(String.format("Finished aequivaleo data reload for world: %s", WorldUtils.formatWorldNames(getAnalysisOwners())));
         }
 
+        /**
+         * Serves the results of the most recent cached analysis while the new analysis is running, if enabled and no
+         * results are available yet. The cached results are replaced once the new analysis completes.
+         *
+         * @return True when stale results are served.
+         */
+        private boolean serveStaleResults() {
+            if (!Aequivaleo.getInstance().getConfiguration().getServer().serveStaleResults.get()) {
+                return false;
+            }
+
+            final LevelAnalysisOwner primaryOwner = getAnalysisOwners().get(0);
+            if (!EquivalencyResults.getInstance(primaryOwner.getIdentifier()).isEmpty()) {
+                return false;
+            }
+
+            final Optional<Map<ICompoundContainer<?>, Set<CompoundInstance>>> staleResults = WorldCacheUtils.loadMostRecentCachedResults(primaryOwner);
+            if (staleResults.isEmpty()) {
+                return false;
+            }
+
+            LOGGER.info(String.format("Serving %d cached results for: %s while they are recalculated.", staleResults.get().size(), WorldUtils.formatWorldNames(getAnalysisOwners())));
+            getAnalysisOwners().forEach(world -> EquivalencyResults.getInstance(world.getIdentifier()).set(staleResults.get()));
+            EquivalencyResults.updateAllPlayers(getAnalysisOwners().stream().map(LevelAnalysisOwner::getIdentifier).collect(Collectors.toList()));
+            return true;
+        }
+
         public List<LevelAnalysisOwner> getAnalysisOwners() {
             return analysisOwners;
         }
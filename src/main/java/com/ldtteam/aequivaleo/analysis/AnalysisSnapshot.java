@@ -0,0 +1,136 @@
+package com.ldtteam.aequivaleo.analysis;
+
+import com.google.common.collect.ImmutableSet;
+import com.ldtteam.aequivaleo.analysis.jgrapht.aequivaleo.IGraph;
+import com.ldtteam.aequivaleo.analysis.jgrapht.aequivaleo.INode;
+import com.ldtteam.aequivaleo.analysis.jgrapht.cache.GraphFingerprint;
+import com.ldtteam.aequivaleo.analysis.jgrapht.cycles.CycleReductionMode;
+import com.ldtteam.aequivaleo.analysis.jgrapht.node.SourceNode;
+import com.ldtteam.aequivaleo.api.compound.CompoundInstance;
+import com.ldtteam.aequivaleo.api.compound.container.ICompoundContainer;
+import com.ldtteam.aequivaleo.api.recipe.equivalency.IEquivalencyRecipe;
+import com.ldtteam.aequivaleo.compound.information.CompoundInformationSnapshot;
+
+import java.util.*;
+
+/**
+ * The reduced and analyzed graph of a previous analysis, together with the inputs it was built from.
+ * Allows the next analysis to only re-propagate the nodes which are affected by changed root information.
+ */
+public final class AnalysisSnapshot
+{
+    private final ImmutableSet<IEquivalencyRecipe> recipes;
+    private final CompoundInformationSnapshot information;
+    private final CycleReductionMode cycleReductionMode;
+    private final boolean collapseEquivalenceClasses;
+    private final IGraph analysisGraph;
+    private final SourceNode sourceNode;
+    private final Map<ICompoundContainer<?>, INode> compoundNodes;
+    private final Set<INode> notDefinedGraphNodes;
+    private final GraphFingerprint fingerprint;
+    private final Map<INode, Optional<Set<CompoundInstance>>> preLockResults;
+
+    public AnalysisSnapshot(
+      final Collection<IEquivalencyRecipe> recipes,
+      final CompoundInformationSnapshot information,
+      final CycleReductionMode cycleReductionMode,
+      final boolean collapseEquivalenceClasses,
+      final IGraph analysisGraph,
+      final SourceNode sourceNode,
+      final Map<ICompoundContainer<?>, INode> compoundNodes,
+      final Set<INode> notDefinedGraphNodes,
+      final GraphFingerprint fingerprint,
+      final Map<INode, Optional<Set<CompoundInstance>>> preLockResults)
+    {
+        this.recipes = ImmutableSet.copyOf(recipes);
+        this.information = information;
+        this.cycleReductionMode = cycleReductionMode;
+        this.collapseEquivalenceClasses = collapseEquivalenceClasses;
+        this.analysisGraph = analysisGraph;
+        this.sourceNode = sourceNode;
+        this.compoundNodes = Collections.unmodifiableMap(new HashMap<>(compoundNodes));
+        this.notDefinedGraphNodes = Collections.unmodifiableSet(new HashSet<>(notDefinedGraphNodes));
+        this.fingerprint = fingerprint;
+        this.preLockResults = Collections.unmodifiableMap(new HashMap<>(preLockResults));
+    }
+
+    /**
+     * Checks if the graph of this snapshot is the graph that would be built from the given inputs.
+     * This is the case when the recipes, the containers which have root information and the settings with which the
+     * graph was reduced did not change. The root information itself is allowed to differ.
+     *
+     * @return {@code true} when the graph can be reused.
+     */
+    public boolean hasSameTopology(
+      final Collection<IEquivalencyRecipe> recipes,
+      final CompoundInformationSnapshot information,
+      final CycleReductionMode cycleReductionMode,
+      final boolean collapseEquivalenceClasses)
+    {
+        return this.cycleReductionMode == cycleReductionMode
+                 && this.collapseEquivalenceClasses == collapseEquivalenceClasses
+                 && this.information.getValueInformation().keySet().equals(information.getValueInformation().keySet())
+                 && this.information.getLockingInformation().keySet().equals(information.getLockingInformation().keySet())
+                 && this.information.getBaseInformation().keySet().equals(information.getBaseInformation().keySet())
+                 && this.recipes.size() == recipes.size()
+                 && this.recipes.containsAll(recipes);
+    }
+
+    /**
+     * Determines the containers whose value or base information differs from the information in this snapshot.
+     *
+     * @return The changed containers.
+     */
+    public Set<ICompoundContainer<?>> getChangedContainers(final CompoundInformationSnapshot information)
+    {
+        final Set<ICompoundContainer<?>> changed = new LinkedHashSet<>();
+        information.getValueInformation().forEach((container, instances) -> {
+            if (!instances.equals(this.information.getValueInformation().get(container)))
+            {
+                changed.add(container);
+            }
+        });
+        information.getBaseInformation().forEach((container, instances) -> {
+            if (!instances.equals(this.information.getBaseInformation().get(container)))
+            {
+                changed.add(container);
+            }
+        });
+        return changed;
+    }
+
+    public IGraph getAnalysisGraph()
+    {
+        return analysisGraph;
+    }
+
+    public SourceNode getSourceNode()
+    {
+        return sourceNode;
+    }
+
+    public Map<ICompoundContainer<?>, INode> getCompoundNodes()
+    {
+        return compoundNodes;
+    }
+
+    public Set<INode> getNotDefinedGraphNodes()
+    {
+        return notDefinedGraphNodes;
+    }
+
+    /**
+     * The fingerprint of the unreduced graph, used to key the results of an analysis of this graph with other information.
+     *
+     * @return The fingerprint.
+     */
+    public GraphFingerprint getFingerprint()
+    {
+        return fingerprint;
+    }
+
+    public Map<INode, Optional<Set<CompoundInstance>>> getPreLockResults()
+    {
+        return preLockResults;
+    }
+}
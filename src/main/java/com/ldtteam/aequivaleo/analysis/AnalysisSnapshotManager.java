@@ -0,0 +1,33 @@
+package com.ldtteam.aequivaleo.analysis;
+
+import com.google.common.collect.Maps;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.world.level.Level;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Map;
+
+public class AnalysisSnapshotManager
+{
+    private static final Map<ResourceKey<Level>, AnalysisSnapshot> SNAPSHOT_MAP = Maps.newConcurrentMap();
+
+    private AnalysisSnapshotManager()
+    {
+    }
+
+    @Nullable
+    public static AnalysisSnapshot removeSnapshot(final ResourceKey<Level> key)
+    {
+        return SNAPSHOT_MAP.remove(key);
+    }
+
+    public static void setSnapshot(final ResourceKey<Level> key, final AnalysisSnapshot snapshot)
+    {
+        SNAPSHOT_MAP.put(key, snapshot);
+    }
+
+    public static void clear()
+    {
+        SNAPSHOT_MAP.clear();
+    }
+}
@@ -1,15 +1,24 @@
 package com.ldtteam.aequivaleo.analysis;
 
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import com.ldtteam.aequivaleo.Aequivaleo;
 import com.ldtteam.aequivaleo.analysis.debug.GraphIOHandler;
 import com.ldtteam.aequivaleo.analysis.jgrapht.BuildRecipeGraph;
 import com.ldtteam.aequivaleo.analysis.jgrapht.aequivaleo.*;
 import com.ldtteam.aequivaleo.analysis.jgrapht.cache.CacheKey;
+import com.ldtteam.aequivaleo.analysis.jgrapht.cache.GraphFingerprint;
+import com.ldtteam.aequivaleo.analysis.jgrapht.cache.NodeIdentity;
+import com.ldtteam.aequivaleo.analysis.jgrapht.cache.ReducedTopology;
 import com.ldtteam.aequivaleo.analysis.jgrapht.clique.JGraphTCliqueReducer;
+import com.ldtteam.aequivaleo.analysis.jgrapht.cycles.CycleReductionMode;
 import com.ldtteam.aequivaleo.analysis.jgrapht.cycles.JGraphTCyclesReducer;
+import com.ldtteam.aequivaleo.analysis.jgrapht.cycles.JGraphTStronglyConnectedComponentsReducer;
 import com.ldtteam.aequivaleo.analysis.jgrapht.graph.AequivaleoGraph;
+import com.ldtteam.aequivaleo.analysis.jgrapht.graph.CompiledAnalysisGraph;
 import com.ldtteam.aequivaleo.analysis.jgrapht.iterator.AnalysisBFSGraphIterator;
+import com.ldtteam.aequivaleo.analysis.jgrapht.iterator.WavefrontAnalysisProcessor;
 import com.ldtteam.aequivaleo.analysis.jgrapht.node.*;
 import com.ldtteam.aequivaleo.api.compound.CompoundInstance;
 import com.ldtteam.aequivaleo.api.compound.container.ICompoundContainer;
@@ -17,19 +26,27 @@ import com.ldtteam.aequivaleo.api.recipe.equivalency.IEquivalencyRecipe;
 import com.ldtteam.aequivaleo.api.recipe.equivalency.ingredient.IRecipeIngredient;
 import com.ldtteam.aequivaleo.api.recipe.equivalency.ingredient.SimpleIngredientBuilder;
 import com.ldtteam.aequivaleo.api.util.AequivaleoLogger;
+import com.ldtteam.aequivaleo.api.util.StreamUtils;
 import com.ldtteam.aequivaleo.compound.container.registry.CompoundContainerFactoryManager;
 import com.ldtteam.aequivaleo.compound.information.CompoundInformationRegistry;
+import com.ldtteam.aequivaleo.compound.information.CompoundInformationSnapshot;
 import com.ldtteam.aequivaleo.utils.AnalysisLogHandler;
+import com.ldtteam.aequivaleo.utils.CacheWriteQueue;
 import com.ldtteam.aequivaleo.utils.WorldCacheUtils;
 import com.ldtteam.aequivaleo.utils.WorldUtils;
 import net.minecraftforge.fml.ModList;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.jgrapht.Graph;
+import org.jgrapht.Graphs;
 
 import java.util.*;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 public class JGraphTBasedCompoundAnalyzer
 {
@@ -38,6 +55,11 @@ public class JGraphTBasedCompoundAnalyzer
 
     private static final Object ANALYSIS_LOCK = new Object();
 
+    private static final int MIN_RECIPE_CHUNK_SIZE = 64;
+
+    //Smaller components are cheaper to analyze again than to store in their own cache file.
+    private static final int MIN_CACHED_COMPONENT_SIZE = 64;
+
     private final List<IAnalysisOwner> owners;
     private final IAnalysisOwner       primaryOwner;
     private final boolean              forceReload;
@@ -59,73 +81,50 @@ public class JGraphTBasedCompoundAnalyzer
     }
 
     public BuildRecipeGraph createGraph()
+    {
+        return createGraph(CompoundInformationRegistry.getInstance(primaryOwner.getIdentifier()).snapshot());
+    }
+
+    private BuildRecipeGraph createGraph(final CompoundInformationSnapshot information)
     {
         final Map<ICompoundContainer<?>, Set<CompoundInstance>> resultingCompounds = new TreeMap<>();
 
         final IGraph recipeGraph = new AequivaleoGraph();
+        final GraphFingerprint fingerprint = new GraphFingerprint();
 
-        final Map<ICompoundContainer<?>, INode> compoundNodes = new HashMap<>();
-        final Map<IRecipeIngredient, INode> ingredientNodes = new HashMap<>();
-
-        for (IEquivalencyRecipe recipe : EquivalencyRecipeRegistry.getInstance(primaryOwner.getIdentifier())
-          .get())
+        final Map<ICompoundContainer<?>, INode> compoundNodes;
+        final Map<IRecipeIngredient, INode> ingredientNodes;
+        final List<ResolvedRecipe> resolvedRecipes;
+        final List<IEquivalencyRecipe> recipes = new ArrayList<>(EquivalencyRecipeRegistry.getInstance(primaryOwner.getIdentifier()).get());
+        if (Aequivaleo.getInstance().getConfiguration().getServer().parallelGraphConstruction.get())
         {
-            if (recipe.getInputs().isEmpty())
-            {
-                LOGGER.warn(String.format("Skipping recipe with no ingredients: %s", recipe));
-                continue;
-            }
-
-            final INode recipeGraphNode = new RecipeNode(recipe);
-
-            recipeGraph.addVertex(recipeGraphNode);
-
-            //Process inputs
-            for (IRecipeIngredient input : recipe.getInputs())
-            {
-                final IRecipeIngredient unitIngredient = new SimpleIngredientBuilder().from(input).withCount(1).createIngredient();
-                ingredientNodes.putIfAbsent(unitIngredient, new IngredientNode(unitIngredient));
-
-                final INode inputNode = ingredientNodes.get(unitIngredient);
-                recipeGraph.addVertex(inputNode);
-
-                recipeGraph.addEdge(inputNode, recipeGraphNode);
-                recipeGraph.setEdgeWeight(inputNode, recipeGraphNode, input.getRequiredCount());
-
-                for (final ICompoundContainer<?> candidate : input.getCandidates())
-                {
-                    handleCompoundContainerAsInput(recipeGraph, compoundNodes, inputNode, candidate);
-                }
-            }
-
-            //Process outputs
-            for (ICompoundContainer<?> output : recipe.getRequiredKnownOutputs())
+            final Map<ICompoundContainer<?>, INode> concurrentCompoundNodes = Maps.newConcurrentMap();
+            final Map<IRecipeIngredient, INode> concurrentIngredientNodes = Maps.newConcurrentMap();
+            resolvedRecipes = resolveRecipesInParallel(recipes, concurrentCompoundNodes, concurrentIngredientNodes);
+            compoundNodes = new HashMap<>(concurrentCompoundNodes);
+            ingredientNodes = new HashMap<>(concurrentIngredientNodes);
+        }
+        else
+        {
+            compoundNodes = new HashMap<>();
+            ingredientNodes = new HashMap<>();
+            resolvedRecipes = new ArrayList<>(recipes.size());
+            for (IEquivalencyRecipe recipe : recipes)
             {
-                handleCompoundContainerAsInput(recipeGraph, compoundNodes, recipeGraphNode, output);
+                resolvedRecipes.add(resolveRecipe(recipe, compoundNodes, ingredientNodes));
             }
+        }
 
-            //Process outputs
-            for (ICompoundContainer<?> output : recipe.getOutputs())
+        //Always merged in recipe order, so the graph is identical regardless of how the recipes were resolved.
+        for (ResolvedRecipe resolvedRecipe : resolvedRecipes)
+        {
+            if (resolvedRecipe != null)
             {
-                final ICompoundContainer<?> unitOutputWrapper = createUnitWrapper(output);
-                if (compoundNodes.putIfAbsent(unitOutputWrapper, new ContainerNode(unitOutputWrapper)) == null)
-                {
-                    AnalysisLogHandler.debug(LOGGER, String.format("Added new output node for: %s", output));
-                }
-                else
-                {
-                    AnalysisLogHandler.debug(LOGGER, String.format("Reused existing output node for: %s", output));
-                }
-
-                final INode outputWrapperGraphNode = compoundNodes.get(unitOutputWrapper);
-                recipeGraph.addVertex(outputWrapperGraphNode);
-
-                recipeGraph.addEdge(recipeGraphNode, outputWrapperGraphNode);
-                recipeGraph.setEdgeWeight(recipeGraphNode, outputWrapperGraphNode, output.getContentsCount());
+                addResolvedRecipe(recipeGraph, fingerprint, resolvedRecipe);
             }
         }
 
-        for (ICompoundContainer<?> valueWrapper : CompoundInformationRegistry.getInstance(primaryOwner.getIdentifier()).getValueInformation().keySet())
+        for (ICompoundContainer<?> valueWrapper : information.getValueInformation().keySet())
         {
             INode node;
             if (!recipeGraph.containsVertex(new ContainerNode(valueWrapper)))
@@ -134,12 +133,12 @@ public class JGraphTBasedCompoundAnalyzer
 
                 final INode inputWrapperGraphNode = compoundNodes.get(valueWrapper);
                 node = inputWrapperGraphNode;
-                recipeGraph.addVertex(inputWrapperGraphNode);
+                addVertex(recipeGraph, fingerprint, inputWrapperGraphNode);
             }
             else
             {
                 final Set<IEdge> incomingEdgesToRemove = new HashSet<>(recipeGraph.incomingEdgesOf(compoundNodes.get(valueWrapper)));
-                recipeGraph.removeAllEdges(incomingEdgesToRemove);
+                removeEdges(recipeGraph, fingerprint, incomingEdgesToRemove);
                 node = compoundNodes.get(valueWrapper);
             }
 
@@ -148,10 +147,10 @@ public class JGraphTBasedCompoundAnalyzer
                 throw new IllegalStateException("Container node for value information needs to be in the graph node map!");
             }
 
-            node.forceSetResult(CompoundInformationRegistry.getInstance(primaryOwner.getIdentifier()).getValueInformation().get(valueWrapper));
+            node.forceSetResult(information.getValueInformation().get(valueWrapper));
         }
 
-        for (ICompoundContainer<?> valueWrapper : CompoundInformationRegistry.getInstance(primaryOwner.getIdentifier()).getBaseInformation().keySet())
+        for (ICompoundContainer<?> valueWrapper : information.getBaseInformation().keySet())
         {
             INode node;
             if (!recipeGraph.containsVertex(new ContainerNode(valueWrapper)))
@@ -160,12 +159,12 @@ public class JGraphTBasedCompoundAnalyzer
 
                 final INode inputWrapperGraphNode = compoundNodes.get(valueWrapper);
                 node = inputWrapperGraphNode;
-                recipeGraph.addVertex(inputWrapperGraphNode);
+                addVertex(recipeGraph, fingerprint, inputWrapperGraphNode);
             }
             else
             {
                 final Set<IEdge> incomingEdgesToRemove = new HashSet<>(recipeGraph.incomingEdgesOf(compoundNodes.get(valueWrapper)));
-                recipeGraph.removeAllEdges(incomingEdgesToRemove);
+                removeEdges(recipeGraph, fingerprint, incomingEdgesToRemove);
                 node = compoundNodes.get(valueWrapper);
             }
 
@@ -174,7 +173,7 @@ public class JGraphTBasedCompoundAnalyzer
                 throw new IllegalStateException("Container node for base information needs to be in the graph node map!");
             }
 
-            node.setBaseResult(CompoundInformationRegistry.getInstance(primaryOwner.getIdentifier()).getBaseInformation().get(valueWrapper));
+            node.setBaseResult(information.getBaseInformation().get(valueWrapper));
         }
 
         if (Aequivaleo.getInstance().getConfiguration().getServer().exportGraph.get())
@@ -187,8 +186,8 @@ public class JGraphTBasedCompoundAnalyzer
         final Set<INode> notDefinedGraphNodes = new HashSet<>();
         for (ContainerNode n : rootNodes)
         {
-            if (n.getWrapper().map(w -> getLockedInformationInstances(w).isEmpty()).orElse(false) && n.getWrapper()
-              .map(w -> getValueInformationInstances(w).isEmpty())
+            if (n.getWrapper().map(w -> getLockedInformationInstances(information, w).isEmpty()).orElse(false) && n.getWrapper()
+              .map(w -> getValueInformationInstances(information, w).isEmpty())
               .orElse(false))
             {
                 notDefinedGraphNodes.add(n);
@@ -196,12 +195,11 @@ public class JGraphTBasedCompoundAnalyzer
         }
 
         final SourceNode source = new SourceNode();
-        recipeGraph.addVertex(source);
+        addVertex(recipeGraph, fingerprint, source);
 
         for (ContainerNode rootNode : rootNodes)
         {
-            recipeGraph.addEdge(source, rootNode);
-            recipeGraph.setEdgeWeight(source, rootNode, 1d);
+            addEdge(recipeGraph, fingerprint, source, rootNode, 1d);
         }
 
         return new BuildRecipeGraph(
@@ -210,16 +208,37 @@ public class JGraphTBasedCompoundAnalyzer
           compoundNodes,
           ingredientNodes,
           notDefinedGraphNodes,
-          source);
+          source,
+          fingerprint);
     }
 
-    private IGraph reduceGraph(final IGraph recipeGraph, final SourceNode sourceNode)
+    private IGraph reduceGraph(final IGraph recipeGraph, final GraphFingerprint fingerprint, final SourceNode sourceNode)
     {
-
-        LOGGER.warn("Starting clique reduction.");
+        final CycleReductionMode cycleReductionMode = Aequivaleo.getInstance().getConfiguration().getServer().cycleReductionMode.get();
+        final boolean collapseEquivalenceClasses = Aequivaleo.getInstance().getConfiguration().getServer().collapseEquivalenceClasses.get();
+
+        //Reduction only depends on the topology of the graph, so its outcome can be reused as long as the topology does not change.
+        final Optional<Map<NodeIdentity, INode>> nodesByIdentity = Aequivaleo.getInstance().getConfiguration().getServer().cacheReducedTopology.get()
+          ? ReducedTopology.indexNodes(recipeGraph.vertexSet(), fingerprint::getIdentity)
+          : Optional.empty();
+        final String topologyId = nodesByIdentity.map(nodes -> CacheKey.forTopology(
+            ModList.get(),
+            fingerprint,
+            String.format("%s;%s", cycleReductionMode, collapseEquivalenceClasses)).getId())
+          .orElse(null);
+        final Optional<ReducedTopology> cachedTopology = nodesByIdentity.flatMap(nodes -> WorldCacheUtils.loadCachedTopology(primaryOwner, topologyId)
+          .filter(topology -> topology.canReplay(nodes)));
+        final ReducedTopology.Recorder recorder = topologyId != null && cachedTopology.isEmpty() ? new ReducedTopology.Recorder(fingerprint::getIdentity) : null;
 
         final JGraphTCliqueReducer<IGraph> cliqueReducer = new JGraphTCliqueReducer<>(
-          (graph, iNodes, iRecipeNodes, iRecipeInputNodes) -> new CliqueNode(graph, iNodes),
+          (graph, iNodes, iRecipeNodes, iRecipeInputNodes) -> {
+              final INode cliqueNode = new CliqueNode(graph, iNodes);
+              if (recorder != null)
+              {
+                  recorder.recordClique(iNodes, iRecipeNodes, iRecipeInputNodes, cliqueNode);
+              }
+              return cliqueNode;
+          },
           sets -> {
               if (sets.size() == 1)
               {
@@ -252,21 +271,63 @@ public class JGraphTBasedCompoundAnalyzer
                   .filter(Objects::nonNull)
                   .collect(Collectors.toSet()))
                 .orElseGet(Sets::newHashSet);
-          }, INode::onNeighborReplaced);
+          }, INode::onNeighborReplaced,
+          collapseEquivalenceClasses);
+
+        final BiFunction<IGraph, List<INode>, INode> innerNodeFactory = (graph, iNodes) -> createInnerNode(graph, iNodes, cycleReductionMode, recorder);
+        final JGraphTStronglyConnectedComponentsReducer<IGraph, INode, IEdge> componentsReducer = new JGraphTStronglyConnectedComponentsReducer<>(
+          innerNodeFactory,
+          INode::onNeighborReplaced);
+        final JGraphTCyclesReducer<IGraph, INode, IEdge> cyclesReducer = new JGraphTCyclesReducer<>(
+          innerNodeFactory,
+          INode::onNeighborReplaced);
 
-        cliqueReducer.reduce(recipeGraph);
+        if (cachedTopology.isPresent())
+        {
+            LOGGER.warn(String.format("Replaying %d cached reduction steps.", cachedTopology.get().getStepCount()));
+
+            cachedTopology.get().replay(
+              recipeGraph,
+              nodesByIdentity.get(),
+              (clique, recipesToRemove, inputNodesToDelete) -> cliqueReducer.replay(recipeGraph, clique, recipesToRemove, inputNodesToDelete),
+              (graph, iNodes, innerGraphReducer) -> {
+                  final BiFunction<IGraph, List<INode>, INode> replayedNodeFactory = (sourceGraph, vertices) -> new InnerNode(sourceGraph, vertices, innerGraphReducer);
+                  return cycleReductionMode == CycleReductionMode.STRONGLY_CONNECTED_COMPONENTS
+                    ? new JGraphTStronglyConnectedComponentsReducer<IGraph, INode, IEdge>(replayedNodeFactory, INode::onNeighborReplaced).replay(graph, iNodes)
+                    : new JGraphTCyclesReducer<IGraph, INode, IEdge>(replayedNodeFactory, INode::onNeighborReplaced).replay(graph, iNodes);
+              });
+
+            LOGGER.warn("Finished replaying the cached reduction.");
+        }
+        else
+        {
+            LOGGER.warn("Starting clique reduction.");
 
-        LOGGER.warn("Finished clique reduction.");
+            cliqueReducer.reduce(recipeGraph);
 
-        LOGGER.warn("Starting cycle reduction.");
+            LOGGER.warn("Finished clique reduction.");
 
-        final JGraphTCyclesReducer<IGraph, INode, IEdge> cyclesReducer = new JGraphTCyclesReducer<>(
-          InnerNode::new,
-          INode::onNeighborReplaced);
+            LOGGER.warn(String.format("Starting cycle reduction using: %s.", cycleReductionMode));
 
-        cyclesReducer.reduce(recipeGraph);
+            if (cycleReductionMode == CycleReductionMode.STRONGLY_CONNECTED_COMPONENTS)
+            {
+                componentsReducer.reduce(recipeGraph);
+            }
+            else
+            {
+                cyclesReducer.reduce(recipeGraph);
+            }
 
-        LOGGER.warn("Finished cycle reduction.");
+            LOGGER.warn("Finished cycle reduction.");
+
+            if (recorder != null && writeCachedData)
+            {
+                final ReducedTopology topology = recorder.build();
+                CacheWriteQueue.getInstance().submit(
+                  primaryOwner.getCacheDirectory().getAbsolutePath() + "#topology",
+                  () -> WorldCacheUtils.writeCachedTopology(primaryOwner, topologyId, topology));
+            }
+        }
 
         recipeGraph.removeVertex(sourceNode);
 
@@ -283,6 +344,38 @@ public class JGraphTBasedCompoundAnalyzer
         return recipeGraph;
     }
 
+    /**
+     * Creates the inner node which replaces the given nodes, recording its creation and the reduction of its inner graph.
+     * <p>
+     * A strongly connected component can contain exponentially many simple cycles, enumerating them to nest inner nodes
+     * would bring back the cost the component mode avoids. The inner analysis handles the cycles of a component directly,
+     * so in that mode the inner graph is left as is.
+     */
+    private static INode createInnerNode(
+      final IGraph graph,
+      final List<INode> iNodes,
+      final CycleReductionMode cycleReductionMode,
+      @Nullable final ReducedTopology.Recorder recorder)
+    {
+        final Consumer<IGraph> innerGraphReducer = cycleReductionMode == CycleReductionMode.STRONGLY_CONNECTED_COMPONENTS
+          ? innerGraph -> {}
+          : innerGraph -> new JGraphTCyclesReducer<IGraph, INode, IEdge>(
+              (sourceGraph, vertices) -> createInnerNode(sourceGraph, vertices, cycleReductionMode, recorder),
+              INode::onNeighborReplaced,
+              false).reduce(innerGraph);
+
+        if (recorder != null)
+        {
+            recorder.beginInner();
+        }
+        final INode innerNode = new InnerNode(graph, iNodes, innerGraphReducer);
+        if (recorder != null)
+        {
+            recorder.recordInner(iNodes, innerNode);
+        }
+        return innerNode;
+    }
+
     public void calculate()
     {
         if (this.primaryOwner == null)
@@ -290,19 +383,32 @@ public class JGraphTBasedCompoundAnalyzer
             throw new IllegalArgumentException("First passed world is null");
         }
 
-        final BuildRecipeGraph buildRecipeGraph = createGraph();
+        //Freeze the information once, everything below works off this snapshot.
+        final CompoundInformationSnapshot information = CompoundInformationRegistry.getInstance(primaryOwner.getIdentifier()).snapshot();
+
+        final boolean incrementalAnalysis = Aequivaleo.getInstance().getConfiguration().getServer().incrementalAnalysis.get();
+        if (!incrementalAnalysis)
+        {
+            AnalysisSnapshotManager.removeSnapshot(primaryOwner.getIdentifier());
+        }
+        else if (!forceReload && calculateIncrementally(information))
+        {
+            return;
+        }
+
+        final BuildRecipeGraph buildRecipeGraph = createGraph(information);
         final IGraph noneReducedGraph = buildRecipeGraph.getRecipeGraph();
         final Map<ICompoundContainer<?>, Set<CompoundInstance>> resultingCompounds = buildRecipeGraph.getResultingCompounds();
         final Map<ICompoundContainer<?>, INode> compoundNodes = buildRecipeGraph.getCompoundNodes();
         final Set<INode> notDefinedGraphNodes = buildRecipeGraph.getNotDefinedGraphNodes();
         final SourceNode source = buildRecipeGraph.getSourceNode();
 
-        final CacheKey key = new CacheKey(ModList.get(), noneReducedGraph);
-        final int graphHash = key.hashCode();
+        final CacheKey key = new CacheKey(ModList.get(), buildRecipeGraph.getFingerprint(), information);
+        final String cacheId = key.getId();
         if (!forceReload)
         {
             //We are allowed to lookup cached values
-            final Optional<Map<ICompoundContainer<?>, Set<CompoundInstance>>> cachedResults = WorldCacheUtils.loadCachedResults(primaryOwner, graphHash);
+            final Optional<Map<ICompoundContainer<?>, Set<CompoundInstance>>> cachedResults = WorldCacheUtils.loadCachedResults(primaryOwner, cacheId);
             if (cachedResults.isPresent())
             {
                 LOGGER.warn(String.format("Using cached results for: %s", WorldUtils.formatWorldNames(getOwners())));
@@ -312,29 +418,405 @@ public class JGraphTBasedCompoundAnalyzer
             }
         }
 
-        final IGraph recipeGraph = reduceGraph(noneReducedGraph, source);
+        final boolean cacheComponents = Aequivaleo.getInstance().getConfiguration().getServer().cacheComponents.get();
+        final Set<String> componentIds = new HashSet<>();
+        final Map<String, Set<ICompoundContainer<?>>> analyzedComponents = cacheComponents
+          ? loadCachedComponents(information, noneReducedGraph, buildRecipeGraph.getFingerprint(), source, resultingCompounds, notDefinedGraphNodes, componentIds)
+          : Collections.emptyMap();
+        final boolean analyzesPartialGraph = componentIds.size() > analyzedComponents.size();
+
+        //Loading cached components removed part of the graph, so only then the fingerprint needs to be taken again.
+        final GraphFingerprint reducedFingerprint = analyzesPartialGraph
+          ? buildRecipeGraph.getFingerprint().partOf(noneReducedGraph, noneReducedGraph.vertexSet())
+          : buildRecipeGraph.getFingerprint();
+        final IGraph recipeGraph = reduceGraph(noneReducedGraph, reducedFingerprint, source);
+        //The topology is frozen from here on, compile it so propagation does not pay for the hash based jgrapht lookups.
+        final IGraph analysisGraph = CompiledAnalysisGraph.compile(recipeGraph);
+
+        final StatCollector statCollector = new StatCollector(WorldUtils.formatWorldNames(getOwners()), analysisGraph.vertexSet().size());
+        propagateValues(analysisGraph, source, statCollector);
+        statCollector.onCalculationComplete();
 
-        final StatCollector statCollector = new StatCollector(WorldUtils.formatWorldNames(getOwners()), recipeGraph.vertexSet().size());
-        final AnalysisBFSGraphIterator analysisBFSGraphIterator = new AnalysisBFSGraphIterator(recipeGraph, source);
+        final Set<INode> rootNotDefinedGraphNodes = new HashSet<>(notDefinedGraphNodes);
+        final Map<INode, Optional<Set<CompoundInstance>>> preLockResults =
+          finishAnalysis(information, analysisGraph, compoundNodes, resultingCompounds, notDefinedGraphNodes, cacheId);
 
-        while (analysisBFSGraphIterator.hasNext())
+        if (cacheComponents && writeCachedData)
         {
-            analysisBFSGraphIterator.next().collectStats(statCollector);
+            CacheWriteQueue.getInstance().submit(primaryOwner.getCacheDirectory().getAbsolutePath() + "#components", () -> {
+                writeCachedComponents(analyzedComponents, resultingCompounds);
+                WorldCacheUtils.cleanupComponentCacheDirectory(primaryOwner, componentIds);
+            });
+        }
+
+        if (incrementalAnalysis && !analyzesPartialGraph)
+        {
+            storeSnapshot(information, analysisGraph, compoundNodes, rootNotDefinedGraphNodes, source, buildRecipeGraph.getFingerprint(), preLockResults);
+        }
+        else if (incrementalAnalysis)
+        {
+            //The graph is missing the components which were loaded from the cache, it can not be reused.
+            AnalysisSnapshotManager.removeSnapshot(primaryOwner.getIdentifier());
+        }
+    }
+
+    /**
+     * Splits the recipe graph into its weakly connected components, ignoring the source node, and loads the results of
+     * every component which is cached. Loaded components are removed from the graph and their results are added to the
+     * resulting compounds.
+     *
+     * @param componentIds Receives the cache ids of all cacheable components.
+     * @return The containers of the cacheable components which still need to be analyzed, keyed by their cache id.
+     */
+    private Map<String, Set<ICompoundContainer<?>>> loadCachedComponents(
+      final CompoundInformationSnapshot information,
+      final IGraph recipeGraph,
+      final GraphFingerprint fingerprint,
+      final SourceNode source,
+      final Map<ICompoundContainer<?>, Set<CompoundInstance>> resultingCompounds,
+      final Set<INode> notDefinedGraphNodes,
+      final Set<String> componentIds)
+    {
+        final Map<String, Set<ICompoundContainer<?>>> analyzedComponents = new HashMap<>();
+        int loadedComponentNodes = 0;
+        for (Set<INode> component : findComponents(recipeGraph, source))
+        {
+            if (component.size() < MIN_CACHED_COMPONENT_SIZE)
+            {
+                continue;
+            }
+
+            final Set<ICompoundContainer<?>> containers = new HashSet<>();
+            for (INode node : component)
+            {
+                if (node instanceof IContainerNode containerNode)
+                {
+                    containerNode.getWrapper().ifPresent(containers::add);
+                }
+            }
+
+            final String componentId = CacheKey.forComponent(ModList.get(), fingerprint.partOf(recipeGraph, component), information, containers).getId();
+            componentIds.add(componentId);
+
+            final Optional<Map<ICompoundContainer<?>, Set<CompoundInstance>>> cachedResults =
+              forceReload ? Optional.empty() : WorldCacheUtils.loadCachedComponentResults(primaryOwner, componentId);
+            if (cachedResults.isPresent())
+            {
+                resultingCompounds.putAll(cachedResults.get());
+                notDefinedGraphNodes.removeAll(component);
+                recipeGraph.removeAllVertices(component);
+                loadedComponentNodes += component.size();
+            }
+            else
+            {
+                analyzedComponents.put(componentId, containers);
+            }
+        }
+
+        LOGGER.warn(String.format("Loaded %d of %d cacheable graph components, with %d nodes, from the cache for: %s",
+          componentIds.size() - analyzedComponents.size(),
+          componentIds.size(),
+          loadedComponentNodes,
+          WorldUtils.formatWorldNames(getOwners())));
+        return analyzedComponents;
+    }
+
+    private List<Set<INode>> findComponents(final IGraph graph, final INode source)
+    {
+        final List<Set<INode>> components = new ArrayList<>();
+        final Set<INode> visited = new HashSet<>();
+        visited.add(source);
+        for (INode start : graph.vertexSet())
+        {
+            if (!visited.add(start))
+            {
+                continue;
+            }
+
+            final Set<INode> component = new HashSet<>();
+            final Queue<INode> queue = new ArrayDeque<>();
+            component.add(start);
+            queue.offer(start);
+            while (!queue.isEmpty())
+            {
+                final INode node = queue.poll();
+                for (IEdge edge : graph.edgesOf(node))
+                {
+                    final INode neighbor = Graphs.getOppositeVertex(graph, edge, node);
+                    if (visited.add(neighbor))
+                    {
+                        component.add(neighbor);
+                        queue.offer(neighbor);
+                    }
+                }
+            }
+            components.add(component);
+        }
+        return components;
+    }
+
+    private void writeCachedComponents(
+      final Map<String, Set<ICompoundContainer<?>>> analyzedComponents,
+      final Map<ICompoundContainer<?>, Set<CompoundInstance>> resultingCompounds)
+    {
+        analyzedComponents.forEach((componentId, containers) -> {
+            final Map<ICompoundContainer<?>, Set<CompoundInstance>> componentResults = new HashMap<>();
+            for (ICompoundContainer<?> container : containers)
+            {
+                final Set<CompoundInstance> result = resultingCompounds.get(container);
+                if (result != null)
+                {
+                    componentResults.put(container, result);
+                }
+            }
+
+            WorldCacheUtils.writeCachedComponentResults(primaryOwner, componentId, componentResults);
+        });
+    }
+
+    private boolean calculateIncrementally(final CompoundInformationSnapshot information)
+    {
+        final AnalysisSnapshot snapshot = AnalysisSnapshotManager.removeSnapshot(primaryOwner.getIdentifier());
+        if (snapshot == null)
+        {
+            return false;
+        }
+
+        final Map<ICompoundContainer<?>, ImmutableSet<CompoundInstance>> valueInformation = information.getValueInformation();
+        final Map<ICompoundContainer<?>, ImmutableSet<CompoundInstance>> baseInformation = information.getBaseInformation();
+        if (!snapshot.hasSameTopology(
+          EquivalencyRecipeRegistry.getInstance(primaryOwner.getIdentifier()).get(),
+          information,
+          Aequivaleo.getInstance().getConfiguration().getServer().cycleReductionMode.get(),
+          Aequivaleo.getInstance().getConfiguration().getServer().collapseEquivalenceClasses.get()))
+        {
+            LOGGER.warn(String.format("Recipes or root information containers changed for: %s. Running a full analysis.", WorldUtils.formatWorldNames(getOwners())));
+            return false;
+        }
+
+        final IGraph analysisGraph = snapshot.getAnalysisGraph();
+        final SourceNode source = snapshot.getSourceNode();
+
+        //Only a wavefront processes every node after all of its parents, which is what allows updating just the affected
+        //nodes. Without one, a full run propagates sequentially and its outcome depends on the order in which the whole
+        //graph is visited, so the whole graph is propagated again the same way.
+        if (!Aequivaleo.getInstance().getConfiguration().getServer().parallelPropagation.get()
+              || !new WavefrontAnalysisProcessor(analysisGraph, source).canProcess())
+        {
+            LOGGER.warn(String.format("Reusing the analysis graph of the previous analysis for: %s. Propagating all %d nodes again.",
+              WorldUtils.formatWorldNames(getOwners()),
+              analysisGraph.vertexSet().size()));
+
+            analysisGraph.vertexSet().forEach(INode::resetAnalysisState);
+            restoreRootInformation(analysisGraph.vertexSet(), valueInformation, baseInformation);
+
+            final StatCollector statCollector = new StatCollector(WorldUtils.formatWorldNames(getOwners()), analysisGraph.vertexSet().size());
+            propagateValues(analysisGraph, source, statCollector);
+            statCollector.onCalculationComplete();
+        }
+        else if (!propagateAffectedNodes(snapshot, information))
+        {
+            return false;
+        }
+
+        //The graph did not change, but the information did, so the results belong under a different key.
+        final String cacheId = new CacheKey(ModList.get(), snapshot.getFingerprint(), information).getId();
+        final Map<ICompoundContainer<?>, INode> compoundNodes = new HashMap<>(snapshot.getCompoundNodes());
+        final Map<INode, Optional<Set<CompoundInstance>>> preLockResults = finishAnalysis(
+          information,
+          analysisGraph,
+          compoundNodes,
+          new TreeMap<>(),
+          new HashSet<>(snapshot.getNotDefinedGraphNodes()),
+          cacheId);
+
+        storeSnapshot(information, analysisGraph, compoundNodes, snapshot.getNotDefinedGraphNodes(), source, snapshot.getFingerprint(), preLockResults);
+        return true;
+    }
+
+    /**
+     * Propagates the changed root information of the given snapshot to the nodes downstream of it, leaving all other
+     * nodes as they are. Requires the analysis graph to be processable by a wavefront.
+     *
+     * @return {@code false} when the changed containers could not be found in the graph.
+     */
+    private boolean propagateAffectedNodes(final AnalysisSnapshot snapshot, final CompoundInformationSnapshot information)
+    {
+        final IGraph analysisGraph = snapshot.getAnalysisGraph();
+        final Set<ICompoundContainer<?>> changedContainers = snapshot.getChangedContainers(information);
+        final Set<INode> changedRoots = new LinkedHashSet<>();
+        Map<INode, INode> owningNodes = null;
+        for (ICompoundContainer<?> changedContainer : changedContainers)
+        {
+            final INode node = snapshot.getCompoundNodes().get(changedContainer);
+            if (node != null && analysisGraph.containsVertex(node))
+            {
+                changedRoots.add(node);
+                continue;
+            }
+
+            if (owningNodes == null)
+            {
+                owningNodes = collectOwningNodes(analysisGraph.vertexSet(), null, new HashMap<>());
+            }
+
+            final INode owningNode = owningNodes.get(node);
+            if (owningNode == null)
+            {
+                LOGGER.warn(String.format("Could not find the graph node of the changed container: %s. Running a full analysis.", changedContainer));
+                return false;
+            }
+            changedRoots.add(owningNode);
+        }
+
+        //Undo the locking of the previous analysis, downstream nodes need to see the analyzed values.
+        snapshot.getPreLockResults().forEach((node, result) -> node.forceSetResult(result.orElse(null)));
+
+        final Set<INode> affectedNodes = collectDownstreamNodes(analysisGraph, changedRoots);
+        LOGGER.warn(String.format("Reusing the analysis graph of the previous analysis for: %s. Updating %d of %d nodes.",
+          WorldUtils.formatWorldNames(getOwners()),
+          affectedNodes.size(),
+          analysisGraph.vertexSet().size()));
+
+        if (affectedNodes.isEmpty())
+        {
+            return true;
+        }
+
+        final WavefrontAnalysisProcessor wavefrontAnalysisProcessor = new WavefrontAnalysisProcessor(analysisGraph, affectedNodes);
+        if (!wavefrontAnalysisProcessor.canProcess())
+        {
+            LOGGER.warn(String.format("The affected nodes of: %s contain a cycle. Running a full analysis.", WorldUtils.formatWorldNames(getOwners())));
+            return false;
+        }
+
+        affectedNodes.forEach(INode::resetAnalysisState);
+        restoreRootInformation(affectedNodes, information.getValueInformation(), information.getBaseInformation());
+
+        //The parents of the affected nodes did not change, so they only need to deliver their value again.
+        final Set<INode> unaffectedParents = new LinkedHashSet<>();
+        for (INode node : affectedNodes)
+        {
+            for (IEdge edge : analysisGraph.incomingEdgesOf(node))
+            {
+                final INode parent = analysisGraph.getEdgeSource(edge);
+                if (!affectedNodes.contains(parent))
+                {
+                    unaffectedParents.add(parent);
+                }
+            }
         }
+        unaffectedParents.forEach(parent -> parent.onReached(analysisGraph));
 
+        final StatCollector statCollector = new StatCollector(WorldUtils.formatWorldNames(getOwners()), affectedNodes.size());
+        wavefrontAnalysisProcessor.process(true, node -> node.collectStats(statCollector));
         statCollector.onCalculationComplete();
+        return true;
+    }
+
+    /**
+     * Sets the root information on the container nodes among the given nodes after their analysis state was reset,
+     * including the container nodes inside of clique and inner nodes, whose state is reset with them.
+     */
+    private void restoreRootInformation(
+      final Collection<INode> nodes,
+      final Map<ICompoundContainer<?>, ImmutableSet<CompoundInstance>> valueInformation,
+      final Map<ICompoundContainer<?>, ImmutableSet<CompoundInstance>> baseInformation)
+    {
+        for (INode node : nodes)
+        {
+            if (node instanceof IInnerNode innerNode)
+            {
+                restoreRootInformation(innerNode.getInnerNodes(), valueInformation, baseInformation);
+            }
+            else if (node instanceof IContainerNode containerNode && containerNode.getWrapper().isPresent())
+            {
+                final ICompoundContainer<?> wrapper = containerNode.getWrapper().get();
+                if (valueInformation.containsKey(wrapper))
+                {
+                    node.forceSetResult(valueInformation.get(wrapper));
+                }
+                if (baseInformation.containsKey(wrapper))
+                {
+                    node.setBaseResult(baseInformation.get(wrapper));
+                }
+            }
+        }
+    }
+
+    private Map<INode, INode> collectOwningNodes(final Collection<INode> nodes, final INode owningNode, final Map<INode, INode> owningNodes)
+    {
+        for (INode node : nodes)
+        {
+            final INode topLevelNode = owningNode == null ? node : owningNode;
+            owningNodes.put(node, topLevelNode);
+            if (node instanceof IInnerNode innerNode)
+            {
+                collectOwningNodes(innerNode.getInnerNodes(), topLevelNode, owningNodes);
+            }
+        }
+        return owningNodes;
+    }
+
+    private Set<INode> collectDownstreamNodes(final IGraph graph, final Set<INode> roots)
+    {
+        final Set<INode> downstreamNodes = new LinkedHashSet<>(roots);
+        final Queue<INode> queue = new ArrayDeque<>(roots);
+        while (!queue.isEmpty())
+        {
+            for (IEdge edge : graph.outgoingEdgesOf(queue.poll()))
+            {
+                final INode target = graph.getEdgeTarget(edge);
+                if (downstreamNodes.add(target))
+                {
+                    queue.offer(target);
+                }
+            }
+        }
+        return downstreamNodes;
+    }
 
-        for (ICompoundContainer<?> valueWrapper : CompoundInformationRegistry.getInstance(primaryOwner.getIdentifier()).getLockingInformation().keySet())
+    private void storeSnapshot(
+      final CompoundInformationSnapshot information,
+      final IGraph analysisGraph,
+      final Map<ICompoundContainer<?>, INode> compoundNodes,
+      final Set<INode> notDefinedGraphNodes,
+      final SourceNode sourceNode,
+      final GraphFingerprint fingerprint,
+      final Map<INode, Optional<Set<CompoundInstance>>> preLockResults)
+    {
+        AnalysisSnapshotManager.setSnapshot(primaryOwner.getIdentifier(), new AnalysisSnapshot(
+          EquivalencyRecipeRegistry.getInstance(primaryOwner.getIdentifier()).get(),
+          information,
+          Aequivaleo.getInstance().getConfiguration().getServer().cycleReductionMode.get(),
+          Aequivaleo.getInstance().getConfiguration().getServer().collapseEquivalenceClasses.get(),
+          analysisGraph,
+          sourceNode,
+          compoundNodes,
+          notDefinedGraphNodes,
+          fingerprint,
+          preLockResults
+        ));
+    }
+
+    private Map<INode, Optional<Set<CompoundInstance>>> finishAnalysis(
+      final CompoundInformationSnapshot information,
+      final IGraph analysisGraph,
+      final Map<ICompoundContainer<?>, INode> compoundNodes,
+      final Map<ICompoundContainer<?>, Set<CompoundInstance>> resultingCompounds,
+      final Set<INode> notDefinedGraphNodes,
+      final String cacheId)
+    {
+        final Map<INode, Optional<Set<CompoundInstance>>> preLockResults = new HashMap<>();
+        for (ICompoundContainer<?> valueWrapper : information.getLockingInformation().keySet())
         {
             INode node;
-            if (!recipeGraph.containsVertex(new ContainerNode(valueWrapper)))
+            if (!analysisGraph.containsVertex(new ContainerNode(valueWrapper)))
             {
                 LOGGER.debug(String.format("Adding missing locking node for container: %s", valueWrapper));
                 compoundNodes.putIfAbsent(valueWrapper, new ContainerNode(valueWrapper));
                 resultingCompounds.computeIfAbsent(valueWrapper, wrapper -> Sets.newHashSet())
-                  .addAll(Objects.requireNonNull(CompoundInformationRegistry.getInstance(primaryOwner.getIdentifier())
-                    .getLockingInformation()
-                    .get(valueWrapper)));
+                  .addAll(Objects.requireNonNull(information.getLockingInformation().get(valueWrapper)));
             }
             node = compoundNodes.get(valueWrapper);
 
@@ -343,10 +825,11 @@ public class JGraphTBasedCompoundAnalyzer
                 throw new IllegalStateException("Container node for locked information needs to be in the graph node map!");
             }
 
-            node.forceSetResult(CompoundInformationRegistry.getInstance(primaryOwner.getIdentifier()).getLockingInformation().get(valueWrapper));
+            preLockResults.putIfAbsent(node, node.getResultingValue());
+            node.forceSetResult(information.getLockingInformation().get(valueWrapper));
         }
 
-        extractCompoundInstancesFromGraph(recipeGraph.vertexSet(), resultingCompounds, notDefinedGraphNodes);
+        extractCompoundInstancesFromGraph(analysisGraph.vertexSet(), resultingCompounds, notDefinedGraphNodes);
 
         if (Aequivaleo.getInstance().getConfiguration().getServer().writeResultsToLog.get())
         {
@@ -360,7 +843,6 @@ public class JGraphTBasedCompoundAnalyzer
                         AequivaleoLogger.bigWarningMessage(String.format("Missing root information for: %s. Removing from recipe graph.",
                           ((IContainerNode) node).getWrapper().map(Object::toString).orElse("<UNKNOWN>")));
                     }
-                    recipeGraph.removeVertex(node);
                 }
                 AequivaleoLogger.endBigWarning(String.format("WARNING: Missing root equivalency data in world: %s", WorldUtils.formatWorldNames(getOwners())));
 
@@ -382,13 +864,38 @@ public class JGraphTBasedCompoundAnalyzer
             AequivaleoLogger.bigWarningSimple(String.format("Finished the analysis of: %s", WorldUtils.formatWorldNames(getOwners())));
         }
 
+        this.results = resultingCompounds;
         if (writeCachedData)
         {
-            LOGGER.warn(String.format("Writing results to cache for: %s", WorldUtils.formatWorldNames(getOwners())));
-            WorldCacheUtils.writeCachedResults(primaryOwner, graphHash, resultingCompounds);
-            LOGGER.warn(String.format("Written %d results to cache for: %s", resultingCompounds.size(), WorldUtils.formatWorldNames(getOwners())));
+            LOGGER.warn(String.format("Queueing results to be written to cache for: %s", WorldUtils.formatWorldNames(getOwners())));
+            CacheWriteQueue.getInstance().submit(primaryOwner.getCacheDirectory().getAbsolutePath() + "#results", () -> {
+                WorldCacheUtils.writeCachedResults(primaryOwner, cacheId, resultingCompounds);
+                LOGGER.warn(String.format("Written %d results to cache for: %s", resultingCompounds.size(), WorldUtils.formatWorldNames(getOwners())));
+            });
+        }
+        return preLockResults;
+    }
+
+    private void propagateValues(final IGraph recipeGraph, final SourceNode source, final StatCollector statCollector)
+    {
+        if (Aequivaleo.getInstance().getConfiguration().getServer().parallelPropagation.get())
+        {
+            final WavefrontAnalysisProcessor wavefrontAnalysisProcessor = new WavefrontAnalysisProcessor(recipeGraph, source);
+            if (wavefrontAnalysisProcessor.canProcess())
+            {
+                wavefrontAnalysisProcessor.process(true, node -> node.collectStats(statCollector));
+                return;
+            }
+
+            LOGGER.warn(String.format("The reduced recipe graph of: %s still contains cycles. Falling back to sequential propagation.", WorldUtils.formatWorldNames(getOwners())));
+        }
+
+        final AnalysisBFSGraphIterator analysisBFSGraphIterator = new AnalysisBFSGraphIterator(recipeGraph, source);
+
+        while (analysisBFSGraphIterator.hasNext())
+        {
+            analysisBFSGraphIterator.next().collectStats(statCollector);
         }
-        this.results = resultingCompounds;
     }
 
     private void extractCompoundInstancesFromGraph(
@@ -424,32 +931,170 @@ public class JGraphTBasedCompoundAnalyzer
         }
     }
 
-    private void handleCompoundContainerAsInput(
-      final Graph<INode, IEdge> recipeGraph,
-      final Map<ICompoundContainer<?>, INode> nodes,
+    private List<ResolvedRecipe> resolveRecipesInParallel(
+      final List<IEquivalencyRecipe> recipes,
+      final Map<ICompoundContainer<?>, INode> compoundNodes,
+      final Map<IRecipeIngredient, INode> ingredientNodes)
+    {
+        final ResolvedRecipe[] resolvedRecipes = new ResolvedRecipe[recipes.size()];
+        final int chunkSize = Math.max(MIN_RECIPE_CHUNK_SIZE, recipes.size() / (Runtime.getRuntime().availableProcessors() * 4));
+        final int chunkCount = (recipes.size() + chunkSize - 1) / chunkSize;
+
+        LOGGER.warn(String.format("Resolving %d recipes in %d chunks for: %s", recipes.size(), chunkCount, WorldUtils.formatWorldNames(getOwners())));
+        StreamUtils.execute(() -> IntStream.range(0, chunkCount).parallel().forEach(chunk -> {
+            final int end = Math.min(recipes.size(), (chunk + 1) * chunkSize);
+            for (int i = chunk * chunkSize; i < end; i++)
+            {
+                resolvedRecipes[i] = resolveRecipe(recipes.get(i), compoundNodes, ingredientNodes);
+            }
+        }));
+
+        return Arrays.asList(resolvedRecipes);
+    }
+
+    /**
+     * Resolves the nodes and edge weights of a recipe, without touching the graph.
+     * Nodes are interned in the given maps, which need to be concurrent when recipes are resolved in parallel.
+     *
+     * @return The resolved recipe, or null if the recipe has no inputs and is skipped.
+     */
+    @Nullable
+    private ResolvedRecipe resolveRecipe(
+      final IEquivalencyRecipe recipe,
+      final Map<ICompoundContainer<?>, INode> compoundNodes,
+      final Map<IRecipeIngredient, INode> ingredientNodes)
+    {
+        if (recipe.getInputs().isEmpty())
+        {
+            LOGGER.warn(String.format("Skipping recipe with no ingredients: %s", recipe));
+            return null;
+        }
+
+        final List<ResolvedInput> inputs = new ArrayList<>(recipe.getInputs().size());
+        for (IRecipeIngredient input : recipe.getInputs())
+        {
+            final IRecipeIngredient unitIngredient = new SimpleIngredientBuilder().from(input).withCount(1).createIngredient();
+            final INode inputNode = ingredientNodes.computeIfAbsent(unitIngredient, IngredientNode::new);
+
+            final List<ResolvedContainer> candidates = new ArrayList<>(input.getCandidates().size());
+            for (final ICompoundContainer<?> candidate : input.getCandidates())
+            {
+                candidates.add(resolveContainer(compoundNodes, candidate, "input"));
+            }
+
+            inputs.add(new ResolvedInput(inputNode, input.getRequiredCount(), candidates));
+        }
+
+        final List<ResolvedContainer> requiredKnownOutputs = new ArrayList<>(recipe.getRequiredKnownOutputs().size());
+        for (ICompoundContainer<?> output : recipe.getRequiredKnownOutputs())
+        {
+            requiredKnownOutputs.add(resolveContainer(compoundNodes, output, "input"));
+        }
+
+        final List<ResolvedContainer> outputs = new ArrayList<>(recipe.getOutputs().size());
+        for (ICompoundContainer<?> output : recipe.getOutputs())
+        {
+            outputs.add(resolveContainer(compoundNodes, output, "output"));
+        }
+
+        return new ResolvedRecipe(new RecipeNode(recipe), inputs, requiredKnownOutputs, outputs);
+    }
+
+    private ResolvedContainer resolveContainer(
+      final Map<ICompoundContainer<?>, INode> compoundNodes,
+      final ICompoundContainer<?> container,
+      final String role)
+    {
+        final ICompoundContainer<?> unitWrapper = createUnitWrapper(container);
+        final INode node = compoundNodes.computeIfAbsent(unitWrapper, wrapper -> {
+            AnalysisLogHandler.debug(LOGGER, String.format("Added new %s node for: %s", role, container));
+            return new ContainerNode(wrapper);
+        });
+
+        return new ResolvedContainer(node, container.getContentsCount());
+    }
+
+    private void addResolvedRecipe(final IGraph recipeGraph, final GraphFingerprint fingerprint, final ResolvedRecipe resolvedRecipe)
+    {
+        final INode recipeGraphNode = resolvedRecipe.recipeNode();
+        addVertex(recipeGraph, fingerprint, recipeGraphNode);
+
+        //Process inputs
+        for (ResolvedInput input : resolvedRecipe.inputs())
+        {
+            final INode inputNode = input.ingredientNode();
+            addVertex(recipeGraph, fingerprint, inputNode);
+            addEdge(recipeGraph, fingerprint, inputNode, recipeGraphNode, input.requiredCount());
+
+            for (final ResolvedContainer candidate : input.candidates())
+            {
+                addContainerAsInput(recipeGraph, fingerprint, inputNode, candidate);
+            }
+        }
+
+        //Process outputs
+        for (ResolvedContainer output : resolvedRecipe.requiredKnownOutputs())
+        {
+            addContainerAsInput(recipeGraph, fingerprint, recipeGraphNode, output);
+        }
+
+        //Process outputs
+        for (ResolvedContainer output : resolvedRecipe.outputs())
+        {
+            addVertex(recipeGraph, fingerprint, output.node());
+            addEdge(recipeGraph, fingerprint, recipeGraphNode, output.node(), output.count());
+        }
+    }
+
+    private void addContainerAsInput(
+      final IGraph recipeGraph,
+      final GraphFingerprint fingerprint,
       final INode target,
-      final ICompoundContainer<?> candidate
+      final ResolvedContainer candidate
     )
     {
-        final ICompoundContainer<?> unitWrapper = createUnitWrapper(candidate);
-        if (nodes.putIfAbsent(unitWrapper, new ContainerNode(unitWrapper)) == null)
+        addVertex(recipeGraph, fingerprint, candidate.node());
+
+        if (!recipeGraph.containsEdge(candidate.node(), target))
         {
-            AnalysisLogHandler.debug(LOGGER, String.format("Added new input node for: %s", candidate));
+            addEdge(recipeGraph, fingerprint, candidate.node(), target, candidate.count());
         }
-        else
+    }
+
+    private void addVertex(final IGraph recipeGraph, final GraphFingerprint fingerprint, final INode node)
+    {
+        if (recipeGraph.addVertex(node))
         {
-            AnalysisLogHandler.debug(LOGGER, String.format("Reused existing input node for: %s", candidate));
+            fingerprint.addVertex(node);
         }
+    }
 
-        final INode candidateNode = nodes.get(unitWrapper);
+    /**
+     * Adds the edge, or updates its weight if it already exists, keeping the fingerprint in sync.
+     */
+    private void addEdge(final IGraph recipeGraph, final GraphFingerprint fingerprint, final INode source, final INode target, final double weight)
+    {
+        final IEdge existingEdge = recipeGraph.getEdge(source, target);
+        if (existingEdge != null)
+        {
+            fingerprint.removeEdge(source, target, recipeGraph.getEdgeWeight(existingEdge));
+        }
+        else
+        {
+            recipeGraph.addEdge(source, target);
+        }
 
-        recipeGraph.addVertex(candidateNode);
+        recipeGraph.setEdgeWeight(source, target, weight);
+        fingerprint.addEdge(source, target, weight);
+    }
 
-        if (!recipeGraph.containsEdge(candidateNode, target))
+    private void removeEdges(final IGraph recipeGraph, final GraphFingerprint fingerprint, final Set<IEdge> edges)
+    {
+        for (IEdge edge : edges)
         {
-            recipeGraph.addEdge(candidateNode, target);
-            recipeGraph.setEdgeWeight(candidateNode, target, candidate.getContentsCount());
+            fingerprint.removeEdge(recipeGraph.getEdgeSource(edge), recipeGraph.getEdgeTarget(edge), recipeGraph.getEdgeWeight(edge));
         }
+        recipeGraph.removeAllEdges(edges);
     }
 
     public Map<ICompoundContainer<?>, Set<CompoundInstance>> calculateAndGet()
@@ -495,20 +1140,20 @@ public class JGraphTBasedCompoundAnalyzer
         return set;
     }
 
-    private Set<CompoundInstance> getLockedInformationInstances(@NotNull final ICompoundContainer<?> wrapper)
+    private Set<CompoundInstance> getLockedInformationInstances(
+      @NotNull final CompoundInformationSnapshot information,
+      @NotNull final ICompoundContainer<?> wrapper)
     {
-        final Set<CompoundInstance> lockedInstances = CompoundInformationRegistry.getInstance(primaryOwner.getIdentifier())
-          .getLockingInformation()
-          .get(createUnitWrapper(wrapper));
+        final Set<CompoundInstance> lockedInstances = information.getLockingInformation().get(createUnitWrapper(wrapper));
 
         return Objects.requireNonNullElseGet(lockedInstances, HashSet::new);
     }
 
-    private Set<CompoundInstance> getValueInformationInstances(@NotNull final ICompoundContainer<?> wrapper)
+    private Set<CompoundInstance> getValueInformationInstances(
+      @NotNull final CompoundInformationSnapshot information,
+      @NotNull final ICompoundContainer<?> wrapper)
     {
-        final Set<CompoundInstance> valueInstances = CompoundInformationRegistry.getInstance(primaryOwner.getIdentifier())
-          .getValueInformation()
-          .get(createUnitWrapper(wrapper));
+        final Set<CompoundInstance> valueInstances = information.getValueInformation().get(createUnitWrapper(wrapper));
 
         return Objects.requireNonNullElseGet(valueInstances, HashSet::new);
     }
@@ -517,4 +1162,10 @@ public class JGraphTBasedCompoundAnalyzer
     {
         return owners;
     }
+
+    private record ResolvedRecipe(INode recipeNode, List<ResolvedInput> inputs, List<ResolvedContainer> requiredKnownOutputs, List<ResolvedContainer> outputs) {}
+
+    private record ResolvedInput(INode ingredientNode, double requiredCount, List<ResolvedContainer> candidates) {}
+
+    private record ResolvedContainer(INode node, double count) {}
 }
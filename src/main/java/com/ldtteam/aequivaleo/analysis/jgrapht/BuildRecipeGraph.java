@@ -2,6 +2,7 @@ package com.ldtteam.aequivaleo.analysis.jgrapht;
 
 import com.ldtteam.aequivaleo.analysis.jgrapht.aequivaleo.IGraph;
 import com.ldtteam.aequivaleo.analysis.jgrapht.aequivaleo.INode;
+import com.ldtteam.aequivaleo.analysis.jgrapht.cache.GraphFingerprint;
 import com.ldtteam.aequivaleo.analysis.jgrapht.node.SourceNode;
 import com.ldtteam.aequivaleo.api.compound.CompoundInstance;
 import com.ldtteam.aequivaleo.api.compound.container.ICompoundContainer;
@@ -19,6 +20,7 @@ public class BuildRecipeGraph
     private final Map<IRecipeIngredient, INode> ingredientNodes;
     private final Set<INode> notDefinedGraphNodes;
     private final SourceNode          sourceNode;
+    private final GraphFingerprint    fingerprint;
 
     public BuildRecipeGraph(
       final IGraph recipeGraph,
@@ -26,7 +28,8 @@ public class BuildRecipeGraph
       final Map<ICompoundContainer<?>, INode> compoundNodes,
       final Map<IRecipeIngredient, INode> ingredientNodes,
       final Set<INode> notDefinedGraphNodes,
-      final SourceNode sourceNode)
+      final SourceNode sourceNode,
+      final GraphFingerprint fingerprint)
     {
         this.recipeGraph = recipeGraph;
         this.resultingCompounds = resultingCompounds;
@@ -34,6 +37,7 @@ public class BuildRecipeGraph
         this.ingredientNodes = ingredientNodes;
         this.notDefinedGraphNodes = notDefinedGraphNodes;
         this.sourceNode = sourceNode;
+        this.fingerprint = fingerprint;
     }
 
     public IGraph getRecipeGraph()
@@ -65,4 +69,9 @@ public class BuildRecipeGraph
     {
         return sourceNode;
     }
+
+    public GraphFingerprint getFingerprint()
+    {
+        return fingerprint;
+    }
 }
@@ -1,31 +1,172 @@
 package com.ldtteam.aequivaleo.analysis.jgrapht.cache;
 
-import com.ldtteam.aequivaleo.analysis.jgrapht.aequivaleo.IGraph;
+import com.google.common.collect.Maps;
+import com.ldtteam.aequivaleo.api.compound.CompoundInstance;
+import com.ldtteam.aequivaleo.api.compound.container.ICompoundContainer;
+import com.ldtteam.aequivaleo.compound.information.CompoundInformationSnapshot;
 import net.minecraftforge.fml.ModList;
-import net.minecraftforge.fml.loading.moddiscovery.ModInfo;
 import net.minecraftforge.forgespi.language.IModInfo;
 import org.apache.commons.lang3.Validate;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.HexFormat;
 import java.util.Map;
-import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
 import java.util.stream.Collectors;
 
+/**
+ * The key under which analysis results are cached.
+ * <p>
+ * The key is a 128-bit digest of the loaded mod versions, the fingerprint of the recipe graph and the root information
+ * the graph was analyzed with. It never walks the graph itself, so looking up a cached result is cheap.
+ */
 public final class CacheKey
 {
+    private static final long VALUE_TAG   = 1;
+    private static final long LOCKING_TAG = 2;
+    private static final long BASE_TAG    = 3;
 
-    private final Map<String, String> modVersions;
-    private final IGraph              graph;
+    private static final int ID_LENGTH = 16;
 
-    public CacheKey(final ModList modList, final IGraph graph)
+    private final String id;
+
+    public CacheKey(final ModList modList, final GraphFingerprint fingerprint, final CompoundInformationSnapshot information)
+    {
+        this(
+          collectModVersions(modList),
+          fingerprint,
+          information.getValueInformation(),
+          information.getLockingInformation(),
+          information.getBaseInformation());
+    }
+
+    private CacheKey(
+      final Map<String, String> properties,
+      final GraphFingerprint fingerprint,
+      final Map<ICompoundContainer<?>, ? extends Set<CompoundInstance>> valueInformation,
+      final Map<ICompoundContainer<?>, ? extends Set<CompoundInstance>> lockingInformation,
+      final Map<ICompoundContainer<?>, ? extends Set<CompoundInstance>> baseInformation)
+    {
+        Validate.notNull(fingerprint);
+
+        final MessageDigest digest = createDigest();
+        properties.forEach((name, value) -> {
+            digest.update(name.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(value.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+        });
+
+        final ByteBuffer buffer = ByteBuffer.allocate(4 * Long.BYTES + 2 * Integer.BYTES);
+        buffer.putLong(fingerprint.getLow());
+        buffer.putLong(fingerprint.getHigh());
+        buffer.putInt(fingerprint.getVertexCount());
+        buffer.putInt(fingerprint.getEdgeCount());
+        buffer.putLong(hashInformation(valueInformation, VALUE_TAG)
+                         + hashInformation(lockingInformation, LOCKING_TAG)
+                         + hashInformation(baseInformation, BASE_TAG));
+        buffer.putLong(valueInformation.size()
+                         + 31L * lockingInformation.size()
+                         + 961L * baseInformation.size());
+        digest.update(buffer.array());
+
+        final byte[] hash = digest.digest();
+        this.id = HexFormat.of().formatHex(hash, 0, ID_LENGTH);
+    }
+
+    /**
+     * Creates the key of a single weakly connected component of the recipe graph.
+     * <p>
+     * Only the root information of the containers in the component is included, so that changing the value of a
+     * container only invalidates the component it is part of. The versions of all loaded mods are included, since any
+     * of them can register the compound types, recipe types or handlers the component was analyzed with.
+     *
+     * @param modList     The loaded mods.
+     * @param fingerprint The fingerprint of the component.
+     * @param information The root information of the analysis.
+     * @param containers  The containers in the component.
+     * @return The key of the component.
+     */
+    public static CacheKey forComponent(
+      final ModList modList,
+      final GraphFingerprint fingerprint,
+      final CompoundInformationSnapshot information,
+      final Set<ICompoundContainer<?>> containers)
+    {
+        return new CacheKey(
+          collectModVersions(modList),
+          fingerprint,
+          Maps.filterKeys(information.getValueInformation(), containers::contains),
+          Maps.filterKeys(information.getLockingInformation(), containers::contains),
+          Maps.filterKeys(information.getBaseInformation(), containers::contains));
+    }
+
+    /**
+     * Creates the key of the reduced topology of a recipe graph.
+     * <p>
+     * Root information does not change how a graph is reduced, so it is not included. The settings which do change
+     * the reduction are included instead, next to the versions of all loaded mods.
+     *
+     * @param modList           The loaded mods.
+     * @param fingerprint       The fingerprint of the unreduced graph.
+     * @param reductionSettings The settings the graph is reduced with.
+     * @return The key of the reduced topology.
+     */
+    public static CacheKey forTopology(final ModList modList, final GraphFingerprint fingerprint, final String reductionSettings)
+    {
+        final Map<String, String> properties = collectModVersions(modList);
+        properties.put("reduction", reductionSettings);
+        return new CacheKey(properties, fingerprint, Collections.emptyMap(), Collections.emptyMap(), Collections.emptyMap());
+    }
+
+    private static Map<String, String> collectModVersions(final ModList modList)
     {
         Validate.notNull(modList);
-        Validate.notNull(graph);
 
-        this.modVersions = modList.getMods().stream().collect(Collectors.toMap(
-          IModInfo::getModId,
-          i -> i.getVersion().toString()
-        ));
-        this.graph = graph;
+        return modList.getMods().stream()
+          .collect(Collectors.toMap(
+            IModInfo::getModId,
+            i -> i.getVersion().toString(),
+            (left, right) -> left,
+            TreeMap::new
+          ));
+    }
+
+    private static MessageDigest createDigest()
+    {
+        try
+        {
+            return MessageDigest.getInstance("SHA-256");
+        }
+        catch (NoSuchAlgorithmException e)
+        {
+            throw new IllegalStateException("SHA-256 is not available.", e);
+        }
+    }
+
+    private static long hashInformation(final Map<ICompoundContainer<?>, ? extends Set<CompoundInstance>> information, final long tag)
+    {
+        long hash = 0;
+        for (Map.Entry<ICompoundContainer<?>, ? extends Set<CompoundInstance>> entry : information.entrySet())
+        {
+            hash += GraphFingerprint.mix(GraphFingerprint.mix(tag ^ StableHashing.container(entry.getKey())) ^ StableHashing.instances(entry.getValue()));
+        }
+        return hash;
+    }
+
+    /**
+     * The hex encoded digest, used as the name of the cache file.
+     *
+     * @return The id of the key.
+     */
+    public String getId()
+    {
+        return id;
     }
 
     @Override
@@ -39,13 +180,18 @@ public final class CacheKey
         {
             return false;
         }
-        return Objects.equals(modVersions, cacheKey.modVersions) &&
-                 Objects.equals(graph, cacheKey.graph);
+        return id.equals(cacheKey.id);
     }
 
     @Override
     public int hashCode()
     {
-        return Objects.hash(modVersions, graph);
+        return id.hashCode();
+    }
+
+    @Override
+    public String toString()
+    {
+        return "CacheKey{" + id + "}";
     }
 }
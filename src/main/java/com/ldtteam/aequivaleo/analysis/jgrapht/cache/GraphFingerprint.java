@@ -0,0 +1,164 @@
+package com.ldtteam.aequivaleo.analysis.jgrapht.cache;
+
+import com.ldtteam.aequivaleo.analysis.jgrapht.aequivaleo.IEdge;
+import com.ldtteam.aequivaleo.analysis.jgrapht.aequivaleo.IGraph;
+import com.ldtteam.aequivaleo.analysis.jgrapht.aequivaleo.INode;
+
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Order independent 128-bit fingerprint of a recipe graph.
+ * <p>
+ * Every vertex and edge is mixed into two independent 64-bit values, which are summed up.
+ * Since the sum does not depend on the insertion order, the fingerprint can be updated while the graph is build,
+ * and edges which are removed again can be subtracted.
+ * <p>
+ * Vertices are hashed by their {@link NodeIdentity}, so the fingerprint of a graph is the same after a restart.
+ * The identities are calculated once per vertex and shared with the fingerprints of parts of the graph.
+ * <p>
+ * Instances are not thread safe.
+ */
+public final class GraphFingerprint
+{
+    private static final long VERTEX_TAG = 0x5BD1E9955BD1E995L;
+    private static final long EDGE_TAG   = 0xC2B2AE3D27D4EB4FL;
+    private static final long LOW_SEED   = 0x9E3779B97F4A7C15L;
+    private static final long HIGH_SEED  = 0xD6E8FEB86659FD93L;
+
+    private final Map<INode, NodeIdentity> identities;
+
+    private long low;
+    private long high;
+    private int  vertexCount;
+    private int  edgeCount;
+
+    public GraphFingerprint()
+    {
+        this(new IdentityHashMap<>());
+    }
+
+    private GraphFingerprint(final Map<INode, NodeIdentity> identities)
+    {
+        this.identities = identities;
+    }
+
+    /**
+     * Calculates the fingerprint of a part of a graph, consisting of the given vertices and their outgoing edges.
+     *
+     * @param graph    The graph.
+     * @param vertices The vertices of the part.
+     * @return The fingerprint.
+     */
+    public static GraphFingerprint of(final IGraph graph, final Collection<INode> vertices)
+    {
+        return new GraphFingerprint().partOf(graph, vertices);
+    }
+
+    /**
+     * Calculates the fingerprint of a part of a graph like {@link #of(IGraph, Collection)}, reusing the identities of
+     * the vertices this fingerprint already knows.
+     *
+     * @param graph    The graph.
+     * @param vertices The vertices of the part.
+     * @return The fingerprint.
+     */
+    public GraphFingerprint partOf(final IGraph graph, final Collection<INode> vertices)
+    {
+        final GraphFingerprint fingerprint = new GraphFingerprint(identities);
+        for (INode vertex : vertices)
+        {
+            fingerprint.addVertex(vertex);
+            for (IEdge edge : graph.outgoingEdgesOf(vertex))
+            {
+                fingerprint.addEdge(vertex, graph.getEdgeTarget(edge), graph.getEdgeWeight(edge));
+            }
+        }
+        return fingerprint;
+    }
+
+    /**
+     * The identity of the given vertex, which is calculated once and then remembered.
+     *
+     * @param node The vertex.
+     * @return The identity.
+     */
+    public NodeIdentity getIdentity(final INode node)
+    {
+        return identities.computeIfAbsent(node, NodeIdentity::of);
+    }
+
+    public void addVertex(final INode node)
+    {
+        add(vertexHash(node));
+        vertexCount++;
+    }
+
+    public void addEdge(final INode source, final INode target, final double weight)
+    {
+        add(edgeHash(source, target, weight));
+        edgeCount++;
+    }
+
+    public void removeEdge(final INode source, final INode target, final double weight)
+    {
+        final long hash = edgeHash(source, target, weight);
+        low -= mix(hash ^ LOW_SEED);
+        high -= mix(hash ^ HIGH_SEED);
+        edgeCount--;
+    }
+
+    public long getLow()
+    {
+        return low;
+    }
+
+    public long getHigh()
+    {
+        return high;
+    }
+
+    public int getVertexCount()
+    {
+        return vertexCount;
+    }
+
+    public int getEdgeCount()
+    {
+        return edgeCount;
+    }
+
+    private void add(final long hash)
+    {
+        low += mix(hash ^ LOW_SEED);
+        high += mix(hash ^ HIGH_SEED);
+    }
+
+    private long vertexHash(final INode node)
+    {
+        final NodeIdentity identity = getIdentity(node);
+        return mix(mix(VERTEX_TAG ^ identity.low()) ^ identity.high());
+    }
+
+    private long edgeHash(final INode source, final INode target, final double weight)
+    {
+        final NodeIdentity sourceIdentity = getIdentity(source);
+        final NodeIdentity targetIdentity = getIdentity(target);
+        long hash = mix(EDGE_TAG ^ sourceIdentity.low());
+        hash = mix(hash ^ sourceIdentity.high());
+        hash = mix(hash ^ targetIdentity.low());
+        hash = mix(hash ^ targetIdentity.high());
+        return mix(hash ^ Double.doubleToLongBits(weight));
+    }
+
+    /**
+     * The finalization step of SplitMix64.
+     */
+    static long mix(long value)
+    {
+        value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+        value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+        return value ^ (value >>> 31);
+    }
+}
@@ -0,0 +1,127 @@
+package com.ldtteam.aequivaleo.analysis.jgrapht.cache;
+
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.ldtteam.aequivaleo.analysis.jgrapht.aequivaleo.INode;
+import com.ldtteam.aequivaleo.analysis.jgrapht.node.ContainerNode;
+import com.ldtteam.aequivaleo.analysis.jgrapht.node.IngredientNode;
+import com.ldtteam.aequivaleo.analysis.jgrapht.node.RecipeNode;
+import com.ldtteam.aequivaleo.analysis.jgrapht.node.SourceNode;
+import com.ldtteam.aequivaleo.api.recipe.equivalency.IEquivalencyRecipe;
+import com.ldtteam.aequivaleo.api.recipe.equivalency.ingredient.IRecipeIngredient;
+import net.minecraft.network.FriendlyByteBuf;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+
+/**
+ * The 128-bit identity of a node of an unreduced recipe graph, derived from its content.
+ * <p>
+ * Unlike the hash code of a node, the identity is the same after a restart, so it can be used to fingerprint a graph
+ * and to reference its nodes in data which is stored on disk.
+ *
+ * @param low  The lower 64 bits.
+ * @param high The upper 64 bits.
+ */
+public record NodeIdentity(long low, long high)
+{
+    private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+
+    private static final byte SOURCE_TAG     = 0;
+    private static final byte CONTAINER_TAG  = 1;
+    private static final byte INGREDIENT_TAG = 2;
+    private static final byte RECIPE_TAG     = 3;
+
+    /**
+     * Determines the identity of the given node.
+     *
+     * @param node The node.
+     * @return The identity.
+     * @throws IllegalArgumentException When the node is not part of an unreduced recipe graph.
+     */
+    public static NodeIdentity of(final INode node)
+    {
+        final Hasher hasher = HASH_FUNCTION.newHasher();
+        if (node instanceof final ContainerNode containerNode)
+        {
+            hasher.putByte(CONTAINER_TAG)
+              .putBytes(StableHashing.containerHash(containerNode.getWrapper().orElseThrow()).asBytes());
+        }
+        else if (node instanceof final IngredientNode ingredientNode)
+        {
+            hasher.putByte(INGREDIENT_TAG)
+              .putLong(ingredientHash(ingredientNode.getIngredient()));
+        }
+        else if (node instanceof final RecipeNode recipeNode)
+        {
+            final IEquivalencyRecipe recipe = recipeNode.getRecipe();
+            hasher.putByte(RECIPE_TAG)
+              .putString(recipe.getClass().getName(), StandardCharsets.UTF_8)
+              .putLong(Double.doubleToLongBits(recipe.getOffsetFactor()))
+              .putLong(ingredientsHash(recipe.getInputs()))
+              .putLong(StableHashing.containers(recipe.getRequiredKnownOutputs()))
+              .putLong(StableHashing.containers(recipe.getOutputs()));
+        }
+        else if (node instanceof SourceNode)
+        {
+            hasher.putByte(SOURCE_TAG);
+        }
+        else
+        {
+            throw new IllegalArgumentException("Only nodes of an unreduced recipe graph have an identity, got: " + node);
+        }
+
+        return of(hasher.hash());
+    }
+
+    /**
+     * Reads an identity written by {@link #write(FriendlyByteBuf)}.
+     *
+     * @param buffer The buffer to read from.
+     * @return The identity.
+     */
+    public static NodeIdentity read(final FriendlyByteBuf buffer)
+    {
+        return new NodeIdentity(buffer.readLong(), buffer.readLong());
+    }
+
+    public void write(final FriendlyByteBuf buffer)
+    {
+        buffer.writeLong(low);
+        buffer.writeLong(high);
+    }
+
+    private static NodeIdentity of(final HashCode hashCode)
+    {
+        final byte[] bytes = hashCode.asBytes();
+        long low = 0;
+        long high = 0;
+        for (int i = 0; i < Long.BYTES; i++)
+        {
+            low |= (bytes[i] & 0xFFL) << (8 * i);
+            high |= (bytes[i + Long.BYTES] & 0xFFL) << (8 * i);
+        }
+        return new NodeIdentity(low, high);
+    }
+
+    private static long ingredientHash(final IRecipeIngredient ingredient)
+    {
+        return HASH_FUNCTION.newHasher()
+          .putLong(StableHashing.containers(ingredient.getCandidates()))
+          .putLong(Double.doubleToLongBits(ingredient.getRequiredCount()))
+          .hash()
+          .asLong();
+    }
+
+    private static long ingredientsHash(final Collection<IRecipeIngredient> ingredients)
+    {
+        long hash = 0;
+        for (IRecipeIngredient ingredient : ingredients)
+        {
+            hash += ingredientHash(ingredient);
+        }
+        return HASH_FUNCTION.newHasher().putLong(hash).putInt(ingredients.size()).hash().asLong();
+    }
+}
@@ -0,0 +1,395 @@
+package com.ldtteam.aequivaleo.analysis.jgrapht.cache;
+
+import com.google.common.collect.Maps;
+import com.ldtteam.aequivaleo.analysis.jgrapht.aequivaleo.IGraph;
+import com.ldtteam.aequivaleo.analysis.jgrapht.aequivaleo.INode;
+import com.ldtteam.aequivaleo.analysis.jgrapht.aequivaleo.IRecipeInputNode;
+import com.ldtteam.aequivaleo.analysis.jgrapht.aequivaleo.IRecipeNode;
+import net.minecraft.network.FriendlyByteBuf;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * The outcome of reducing a recipe graph: the node sets which were replaced by clique and inner nodes, in the order
+ * in which they were replaced.
+ * <p>
+ * Nodes of the unreduced graph are referenced by their {@link NodeIdentity}, replacement nodes by the position of the
+ * step which created them, counted in the order in which the replacements were completed. An inner step also holds the
+ * steps which reduced the inner graph of its node. Replaying the steps on a graph with the same topology results in the
+ * same reduced graph, including the inner graphs, without searching for cliques and cycles again.
+ */
+public final class ReducedTopology
+{
+    private static final int MAGIC   = 0x41455154;
+    private static final int VERSION = 2;
+
+    private final List<Step> steps;
+    private final int        stepCount;
+
+    private ReducedTopology(final List<Step> steps)
+    {
+        this.steps = steps;
+        this.stepCount = countSteps(steps);
+    }
+
+    private static int countSteps(final List<Step> steps)
+    {
+        int count = steps.size();
+        for (Step step : steps)
+        {
+            count += countSteps(step.innerSteps());
+        }
+        return count;
+    }
+
+    /**
+     * Indexes the given nodes by their identity, which is how the steps of a reduction reference them.
+     *
+     * @param nodes      The nodes of the unreduced graph.
+     * @param identities Determines the identity of a node.
+     * @return The index, or empty if two of the nodes share an identity and can thus not be told apart.
+     */
+    public static Optional<Map<NodeIdentity, INode>> indexNodes(final Collection<INode> nodes, final Function<INode, NodeIdentity> identities)
+    {
+        final Map<NodeIdentity, INode> index = Maps.newHashMapWithExpectedSize(nodes.size());
+        for (INode node : nodes)
+        {
+            if (index.put(identities.apply(node), node) != null)
+            {
+                return Optional.empty();
+            }
+        }
+        return Optional.of(index);
+    }
+
+    /**
+     * Reads a reduction which was written with {@link #write(FriendlyByteBuf)}.
+     *
+     * @param buffer The buffer to read from.
+     * @return The reduction, or null if the data is not in the current format.
+     */
+    @Nullable
+    public static ReducedTopology read(final FriendlyByteBuf buffer)
+    {
+        if (buffer.readableBytes() < 2 * Integer.BYTES || buffer.readInt() != MAGIC || buffer.readInt() != VERSION)
+            return null;
+
+        return new ReducedTopology(readSteps(buffer));
+    }
+
+    private static List<Step> readSteps(final FriendlyByteBuf buffer)
+    {
+        final int stepCount = buffer.readVarInt();
+        final List<Step> steps = new ArrayList<>(stepCount);
+        for (int i = 0; i < stepCount; i++)
+        {
+            steps.add(new Step(
+              buffer.readEnum(StepType.class),
+              readReferences(buffer),
+              readReferences(buffer),
+              readReferences(buffer),
+              readSteps(buffer)
+            ));
+        }
+        return steps;
+    }
+
+    private static List<NodeReference> readReferences(final FriendlyByteBuf buffer)
+    {
+        final int count = buffer.readVarInt();
+        final List<NodeReference> references = new ArrayList<>(count);
+        for (int i = 0; i < count; i++)
+        {
+            //Replacements are stored shifted by one, zero marks a node of the unreduced graph.
+            final int replacement = buffer.readVarInt() - 1;
+            references.add(new NodeReference(replacement, replacement < 0 ? NodeIdentity.read(buffer) : null));
+        }
+        return references;
+    }
+
+    public void write(final FriendlyByteBuf buffer)
+    {
+        buffer.writeInt(MAGIC);
+        buffer.writeInt(VERSION);
+        writeSteps(buffer, steps);
+    }
+
+    private static void writeSteps(final FriendlyByteBuf buffer, final List<Step> steps)
+    {
+        buffer.writeVarInt(steps.size());
+        for (Step step : steps)
+        {
+            buffer.writeEnum(step.type());
+            writeReferences(buffer, step.nodes());
+            writeReferences(buffer, step.removedRecipes());
+            writeReferences(buffer, step.removedInputs());
+            writeSteps(buffer, step.innerSteps());
+        }
+    }
+
+    private static void writeReferences(final FriendlyByteBuf buffer, final List<NodeReference> references)
+    {
+        buffer.writeVarInt(references.size());
+        for (NodeReference reference : references)
+        {
+            buffer.writeVarInt(reference.replacement() + 1);
+            if (reference.identity() != null)
+            {
+                reference.identity().write(buffer);
+            }
+        }
+    }
+
+    /**
+     * The number of steps, including the steps which reduced inner graphs.
+     *
+     * @return The number of steps.
+     */
+    public int getStepCount()
+    {
+        return stepCount;
+    }
+
+    /**
+     * Checks if every step of this reduction only references nodes of the given graph, or replacements made by an
+     * earlier step. Replaying a reduction modifies the graph, so this is checked before anything is replayed.
+     *
+     * @param nodes The nodes of the unreduced graph, indexed by {@link #indexNodes(Collection, Function)}.
+     * @return True when this reduction can be replayed on the graph.
+     */
+    public boolean canReplay(final Map<NodeIdentity, INode> nodes)
+    {
+        return canReplay(steps, nodes, 0, true) == stepCount;
+    }
+
+    /**
+     * @return The number of replacements made once the given steps are replayed, or -1 if one of them can not be replayed.
+     */
+    private static int canReplay(final List<Step> steps, final Map<NodeIdentity, INode> nodes, final int replacementsBefore, final boolean topLevel)
+    {
+        int replacements = replacementsBefore;
+        for (Step step : steps)
+        {
+            //Cliques are only reduced in the recipe graph itself, not in inner graphs.
+            if (step.nodes().isEmpty() || (step.type() == StepType.CLIQUE && (!topLevel || !step.innerSteps().isEmpty())))
+            {
+                return -1;
+            }
+
+            //The inner graph is reduced while the replacement is created, so its replacements come first.
+            final int innerReplacements = canReplay(step.innerSteps(), nodes, replacements, false);
+            if (innerReplacements < 0
+                  || !canResolve(step.nodes(), nodes, innerReplacements, INode.class)
+                  || !canResolve(step.removedRecipes(), nodes, innerReplacements, IRecipeNode.class)
+                  || !canResolve(step.removedInputs(), nodes, innerReplacements, IRecipeInputNode.class))
+            {
+                return -1;
+            }
+            replacements = innerReplacements + 1;
+        }
+        return replacements;
+    }
+
+    private static boolean canResolve(final List<NodeReference> references, final Map<NodeIdentity, INode> nodes, final int replacements, final Class<?> type)
+    {
+        for (NodeReference reference : references)
+        {
+            if (reference.replacement() >= 0 ? reference.replacement() >= replacements : !type.isInstance(nodes.get(reference.identity())))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Replays this reduction. {@link #canReplay(Map)} needs to be checked first.
+     *
+     * @param graph          The unreduced graph.
+     * @param nodes          The nodes of the unreduced graph, indexed by {@link #indexNodes(Collection, Function)}.
+     * @param cliqueReplayer Replaces a clique in the graph, and returns the replacement.
+     * @param innerReplayer  Replaces a cycle or strongly connected component in a graph, and returns the replacement.
+     */
+    public void replay(final IGraph graph, final Map<NodeIdentity, INode> nodes, final CliqueReplayer cliqueReplayer, final InnerReplayer innerReplayer)
+    {
+        replay(steps, graph, nodes, new ArrayList<>(stepCount), cliqueReplayer, innerReplayer);
+    }
+
+    private static void replay(
+      final List<Step> steps,
+      final IGraph graph,
+      final Map<NodeIdentity, INode> nodes,
+      final List<INode> replacements,
+      final CliqueReplayer cliqueReplayer,
+      final InnerReplayer innerReplayer)
+    {
+        for (Step step : steps)
+        {
+            final List<INode> stepNodes = resolve(step.nodes(), nodes, replacements);
+            if (step.type() == StepType.CLIQUE)
+            {
+                replacements.add(cliqueReplayer.replay(
+                  new LinkedHashSet<>(stepNodes),
+                  resolveAs(step.removedRecipes(), nodes, replacements, IRecipeNode.class),
+                  resolveAs(step.removedInputs(), nodes, replacements, IRecipeInputNode.class)));
+            }
+            else
+            {
+                replacements.add(innerReplayer.replay(
+                  graph,
+                  stepNodes,
+                  innerGraph -> replay(step.innerSteps(), innerGraph, nodes, replacements, cliqueReplayer, innerReplayer)));
+            }
+        }
+    }
+
+    private static List<INode> resolve(final List<NodeReference> references, final Map<NodeIdentity, INode> nodes, final List<INode> replacements)
+    {
+        final List<INode> result = new ArrayList<>(references.size());
+        for (NodeReference reference : references)
+        {
+            result.add(reference.replacement() >= 0 ? replacements.get(reference.replacement()) : nodes.get(reference.identity()));
+        }
+        return result;
+    }
+
+    private static <T> Set<T> resolveAs(final List<NodeReference> references, final Map<NodeIdentity, INode> nodes, final List<INode> replacements, final Class<T> type)
+    {
+        final Set<T> result = new HashSet<>();
+        for (INode node : resolve(references, nodes, replacements))
+        {
+            result.add(type.cast(node));
+        }
+        return result;
+    }
+
+    @FunctionalInterface
+    public interface CliqueReplayer
+    {
+        INode replay(Set<INode> clique, Set<IRecipeNode> recipesToRemove, Set<IRecipeInputNode> inputNodesToDelete);
+    }
+
+    @FunctionalInterface
+    public interface InnerReplayer
+    {
+        /**
+         * Replaces the given nodes of the given graph with an inner node.
+         *
+         * @param graph             The graph, either the recipe graph or the inner graph of an inner node which is being created.
+         * @param nodes             The nodes to replace.
+         * @param innerGraphReducer Replays the reduction of the inner graph of the replacement, instead of reducing it again.
+         * @return The replacement.
+         */
+        INode replay(IGraph graph, List<INode> nodes, Consumer<IGraph> innerGraphReducer);
+    }
+
+    private enum StepType
+    {
+        CLIQUE,
+        INNER
+    }
+
+    /**
+     * A reference to a node, either to the replacement made by an earlier step, or to a node of the unreduced graph.
+     *
+     * @param replacement The position of the step which made the replacement, or -1 for a node of the unreduced graph.
+     * @param identity    The identity of the node of the unreduced graph, null for a replacement.
+     */
+    private record NodeReference(int replacement, @Nullable NodeIdentity identity) {}
+
+    private record Step(
+      StepType type,
+      List<NodeReference> nodes,
+      List<NodeReference> removedRecipes,
+      List<NodeReference> removedInputs,
+      List<Step> innerSteps) {}
+
+    /**
+     * Records the replacements made while a graph is reduced.
+     * The replacements need to be recorded in the order they are made, before the replaced nodes are removed from the graph.
+     * An inner node needs to be announced with {@link #beginInner()} before it is created, so that the reduction of its
+     * inner graph is recorded as part of its step.
+     */
+    public static final class Recorder
+    {
+        private final Function<INode, NodeIdentity> identities;
+        private final Deque<List<Step>>             openSteps        = new ArrayDeque<>();
+        private final Map<INode, Integer>           replacementSteps = new IdentityHashMap<>();
+
+        /**
+         * Creates a new recorder.
+         *
+         * @param identities Determines the identity of a node of the unreduced graph.
+         */
+        public Recorder(final Function<INode, NodeIdentity> identities)
+        {
+            this.identities = identities;
+            this.openSteps.push(new ArrayList<>());
+        }
+
+        public void recordClique(
+          final Set<INode> clique,
+          final Set<IRecipeNode> recipesToRemove,
+          final Set<IRecipeInputNode> inputNodesToDelete,
+          final INode replacement)
+        {
+            record(StepType.CLIQUE, clique, recipesToRemove, inputNodesToDelete, Collections.emptyList(), replacement);
+        }
+
+        /**
+         * Starts recording the reduction of the inner graph of the inner node which is about to be created.
+         */
+        public void beginInner()
+        {
+            openSteps.push(new ArrayList<>());
+        }
+
+        /**
+         * Records the creation of an inner node, announced by {@link #beginInner()}.
+         *
+         * @param nodes       The nodes the inner node replaces.
+         * @param replacement The inner node.
+         */
+        public void recordInner(final List<INode> nodes, final INode replacement)
+        {
+            if (openSteps.size() < 2)
+                throw new IllegalStateException("The inner node was not announced.");
+
+            record(StepType.INNER, nodes, Collections.emptySet(), Collections.emptySet(), List.copyOf(openSteps.pop()), replacement);
+        }
+
+        private void record(
+          final StepType type,
+          final Collection<INode> nodes,
+          final Collection<? extends INode> removedRecipes,
+          final Collection<? extends INode> removedInputs,
+          final List<Step> innerSteps,
+          final INode replacement)
+        {
+            Objects.requireNonNull(openSteps.peek()).add(new Step(type, reference(nodes), reference(removedRecipes), reference(removedInputs), innerSteps));
+            replacementSteps.put(replacement, replacementSteps.size());
+        }
+
+        private List<NodeReference> reference(final Collection<? extends INode> nodes)
+        {
+            final List<NodeReference> references = new ArrayList<>(nodes.size());
+            for (INode node : nodes)
+            {
+                final Integer step = replacementSteps.get(node);
+                references.add(step != null ? new NodeReference(step, null) : new NodeReference(-1, identities.apply(node)));
+            }
+            return references;
+        }
+
+        public ReducedTopology build()
+        {
+            if (openSteps.size() != 1)
+                throw new IllegalStateException("The reduction of an inner graph is still being recorded.");
+
+            return new ReducedTopology(List.copyOf(Objects.requireNonNull(openSteps.peek())));
+        }
+    }
+}
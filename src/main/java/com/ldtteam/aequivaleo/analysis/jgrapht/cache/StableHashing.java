@@ -0,0 +1,93 @@
+package com.ldtteam.aequivaleo.analysis.jgrapht.cache;
+
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import com.ldtteam.aequivaleo.api.compound.CompoundInstance;
+import com.ldtteam.aequivaleo.api.compound.container.ICompoundContainer;
+import com.ldtteam.aequivaleo.compound.container.registry.CompoundContainerFactoryManager;
+import io.netty.buffer.Unpooled;
+import net.minecraft.network.FriendlyByteBuf;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Objects;
+
+/**
+ * Hashes containers and compound instances by their content, so that the hashes are the same after a restart.
+ * <p>
+ * The hash codes of compound types are identity based and those of containers build on them, so they can not be used
+ * for anything which is stored on disk. Containers are hashed by their serialized form instead, with their factory
+ * identified by its registry name, and compound types by their registry name.
+ */
+public final class StableHashing
+{
+    private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+
+    private static final ThreadLocal<FriendlyByteBuf> SCRATCH_BUFFER = ThreadLocal.withInitial(() -> new FriendlyByteBuf(Unpooled.buffer()));
+
+    private StableHashing()
+    {
+        throw new IllegalStateException("Can not instantiate an instance of: StableHashing. This is a utility class");
+    }
+
+    /**
+     * The 128-bit hash of the serialized form of the given container.
+     *
+     * @param container The container.
+     * @return The hash.
+     */
+    public static HashCode containerHash(final ICompoundContainer<?> container)
+    {
+        final FriendlyByteBuf buffer = SCRATCH_BUFFER.get();
+        buffer.clear();
+        CompoundContainerFactoryManager.getInstance().writeWithRegistryName(container, buffer);
+        return HASH_FUNCTION.hashBytes(buffer.array(), buffer.arrayOffset() + buffer.readerIndex(), buffer.readableBytes());
+    }
+
+    public static long container(final ICompoundContainer<?> container)
+    {
+        return containerHash(container).asLong();
+    }
+
+    /**
+     * The order independent hash of the given containers.
+     *
+     * @param containers The containers.
+     * @return The hash.
+     */
+    public static long containers(final Collection<? extends ICompoundContainer<?>> containers)
+    {
+        long hash = 0;
+        for (ICompoundContainer<?> container : containers)
+        {
+            hash += container(container);
+        }
+        return HASH_FUNCTION.newHasher().putLong(hash).putInt(containers.size()).hash().asLong();
+    }
+
+    public static long instance(final CompoundInstance instance)
+    {
+        return HASH_FUNCTION.newHasher()
+          .putString(String.valueOf(Objects.requireNonNull(instance.getType().getRegistryName())), StandardCharsets.UTF_8)
+          .putLong(Double.doubleToLongBits(instance.getAmount()))
+          .hash()
+          .asLong();
+    }
+
+    /**
+     * The order independent hash of the given instances.
+     *
+     * @param instances The instances.
+     * @return The hash.
+     */
+    public static long instances(final Collection<CompoundInstance> instances)
+    {
+        long hash = 0;
+        for (CompoundInstance instance : instances)
+        {
+            hash += instance(instance);
+        }
+        return HASH_FUNCTION.newHasher().putLong(hash).putInt(instances.size()).hash().asLong();
+    }
+}
@@ -12,6 +12,7 @@ import com.ldtteam.aequivaleo.utils.AnalysisLogHandler;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.util.TriConsumer;
+import org.jetbrains.annotations.Nullable;
 import org.jgrapht.Graph;
 import org.jgrapht.alg.clique.BronKerboschCliqueFinder;
 import org.jgrapht.alg.interfaces.MaximalCliqueEnumerationAlgorithm;
@@ -27,24 +28,151 @@ public class JGraphTCliqueReducer<G extends Graph<INode, IEdge>>
     private final QuadFunction<G, Set<INode>, Set<IRecipeNode>, Set<IRecipeInputNode>, INode> vertexReplacerFunction;
     private final Function<List<Set<IRecipeNode>>, Set<IRecipeNode>> cliqueRecipeExtractor;
     private final TriConsumer<INode, INode, INode>                 onNeighborNodeReplacedCallback;
+    private final boolean                                          collapseEquivalenceClasses;
 
     public JGraphTCliqueReducer(
       final QuadFunction<G, Set<INode>, Set<IRecipeNode>, Set<IRecipeInputNode>, INode> vertexReplacerFunction,
       final Function<List<Set<IRecipeNode>>, Set<IRecipeNode>> cliqueRecipeExtractor,
       final TriConsumer<INode, INode, INode> onNeighborNodeReplacedCallback)
+    {
+        this(vertexReplacerFunction, cliqueRecipeExtractor, onNeighborNodeReplacedCallback, false);
+    }
+
+    /**
+     * Creates a new reducer.
+     *
+     * @param collapseEquivalenceClasses {@code true} to collapse every class of nodes which are connected through 1:1 equivalences
+     *                                   in both directions into a single node, before maximal cliques are searched.
+     */
+    public JGraphTCliqueReducer(
+      final QuadFunction<G, Set<INode>, Set<IRecipeNode>, Set<IRecipeInputNode>, INode> vertexReplacerFunction,
+      final Function<List<Set<IRecipeNode>>, Set<IRecipeNode>> cliqueRecipeExtractor,
+      final TriConsumer<INode, INode, INode> onNeighborNodeReplacedCallback,
+      final boolean collapseEquivalenceClasses)
     {
         this.vertexReplacerFunction = vertexReplacerFunction;
         this.cliqueRecipeExtractor = cliqueRecipeExtractor;
         this.onNeighborNodeReplacedCallback = onNeighborNodeReplacedCallback;
+        this.collapseEquivalenceClasses = collapseEquivalenceClasses;
     }
 
-    @SuppressWarnings({"SuspiciousMethodCalls", "DuplicatedCode"})
     public void reduce(final G graph)
     {
         final CliqueDetectionGraph detectionGraph = buildDetectionGraph(graph);
 
+        if (collapseEquivalenceClasses)
+        {
+            final List<Set<INode>> equivalenceClasses = findEquivalenceClasses(detectionGraph);
+            AnalysisLogHandler.debug(LOGGER, String.format("Collapsing %d equivalence classes.", equivalenceClasses.size()));
+            reduceCliques(graph, detectionGraph, equivalenceClasses);
+        }
+
         final MaximalCliqueEnumerationAlgorithm<INode, CliqueDetectionEdge> cliqueFinder = new BronKerboschCliqueFinder<>(detectionGraph);
-        final List<Set<INode>> foundCliques = Lists.newArrayList(cliqueFinder);
+        reduceCliques(graph, detectionGraph, Lists.newArrayList(cliqueFinder));
+    }
+
+    /**
+     * Finds the classes of nodes which are connected through 1:1 equivalences in both directions, using union-find.
+     * Two nodes are only joined if both directions are backed by recipes of the same type. Classes for which the
+     * recipe extractor can not pick a common recipe type are skipped, and left to the maximal clique search.
+     *
+     * @param detectionGraph The detection graph.
+     * @return The equivalence classes with more than one node.
+     */
+    private List<Set<INode>> findEquivalenceClasses(final CliqueDetectionGraph detectionGraph)
+    {
+        final Map<INode, INode> parents = Maps.newHashMap();
+        final Map<INode, Integer> sizes = Maps.newHashMap();
+        for (CliqueDetectionEdge edge : detectionGraph.edgeSet())
+        {
+            final INode source = detectionGraph.getEdgeSource(edge);
+            final INode target = detectionGraph.getEdgeTarget(edge);
+            final CliqueDetectionEdge reverseEdge = detectionGraph.getEdge(target, source);
+            if (reverseEdge == null || !shareRecipeType(edge, reverseEdge))
+            {
+                continue;
+            }
+
+            final INode sourceRoot = findRoot(parents, source);
+            final INode targetRoot = findRoot(parents, target);
+            if (sourceRoot == targetRoot)
+            {
+                continue;
+            }
+
+            final int sourceSize = sizes.getOrDefault(sourceRoot, 1);
+            final int targetSize = sizes.getOrDefault(targetRoot, 1);
+            if (sourceSize < targetSize)
+            {
+                parents.put(sourceRoot, targetRoot);
+                sizes.put(targetRoot, sourceSize + targetSize);
+            }
+            else
+            {
+                parents.put(targetRoot, sourceRoot);
+                sizes.put(sourceRoot, sourceSize + targetSize);
+            }
+        }
+
+        final Map<INode, Set<INode>> classes = new LinkedHashMap<>();
+        for (INode node : detectionGraph.vertexSet())
+        {
+            if (parents.containsKey(node) || sizes.containsKey(node))
+            {
+                classes.computeIfAbsent(findRoot(parents, node), root -> new LinkedHashSet<>()).add(node);
+            }
+        }
+
+        final List<Set<INode>> result = new ArrayList<>();
+        for (Set<INode> equivalenceClass : classes.values())
+        {
+            if (equivalenceClass.size() > 1)
+            {
+                result.add(equivalenceClass);
+            }
+        }
+        return result;
+    }
+
+    private static INode findRoot(final Map<INode, INode> parents, final INode node)
+    {
+        INode root = node;
+        INode parent;
+        while ((parent = parents.get(root)) != null)
+        {
+            root = parent;
+        }
+
+        //Path compression.
+        INode current = node;
+        while (current != root)
+        {
+            final INode next = parents.get(current);
+            parents.put(current, root);
+            current = next;
+        }
+
+        return root;
+    }
+
+    private static boolean shareRecipeType(final CliqueDetectionEdge edge, final CliqueDetectionEdge reverseEdge)
+    {
+        for (IRecipeNode recipeNode : edge.getRecipeNodes())
+        {
+            for (IRecipeNode reverseRecipeNode : reverseEdge.getRecipeNodes())
+            {
+                if (recipeNode.getRecipe().getClass().equals(reverseRecipeNode.getRecipe().getClass()))
+                {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    @SuppressWarnings({"SuspiciousMethodCalls", "DuplicatedCode"})
+    private void reduceCliques(final G graph, final CliqueDetectionGraph detectionGraph, final List<Set<INode>> foundCliques)
+    {
         foundCliques.sort(Comparator.comparing(Set::size));
         LinkedHashSet<Set<INode>> sortedCliques = new LinkedHashSet<>(foundCliques);
 
@@ -110,12 +238,7 @@ public class JGraphTCliqueReducer<G extends Graph<INode, IEdge>>
                 }
             }
 
-            final INode replacementNode = vertexReplacerFunction.apply(
-              graph,
-              clique,
-              recipesToRemove,
-              inputNodesToDelete
-            );
+            final INode replacementNode = replaceClique(graph, detectionGraph, clique, recipesToRemove, inputNodesToDelete);
 
             sortedCliques = updateRemainingCliquesAfterReplacement(
               sortedCliques,
@@ -123,147 +246,192 @@ public class JGraphTCliqueReducer<G extends Graph<INode, IEdge>>
               replacementNode
             );
 
-            final Map<IEdge, INode> incomingEdges = Maps.newHashMap();
-            final Map<IEdge, INode> outgoingEdges = Maps.newHashMap();
-            final Multimap<INode, IEdge> incomingEdgesTo = HashMultimap.create();
-            final Multimap<INode, IEdge> incomingEdgesOf = HashMultimap.create();
-            final Multimap<INode, IEdge> outgoingEdgesOf = HashMultimap.create();
-            final Multimap<INode, IEdge> outgoingEdgesTo = HashMultimap.create();
+            AnalysisLogHandler.debug(LOGGER, String.format(" > Removed clique: %s", clique));
+        }
+    }
 
-            final Multimap<INode, CliqueDetectionEdge> incomingEdgesOfDetection = HashMultimap.create();
-            final Multimap<INode, CliqueDetectionEdge> outgoingEdgesToDetection = HashMultimap.create();
+    /**
+     * Replaces a clique which was found by an earlier reduction of the same graph, without searching for cliques again.
+     *
+     * @param graph              The graph to reduce.
+     * @param clique             The nodes of the clique.
+     * @param recipesToRemove    The recipes which connect the nodes of the clique.
+     * @param inputNodesToDelete The input nodes which only lead into the removed recipes.
+     * @return The node which replaced the clique.
+     */
+    public INode replay(final G graph, final Set<INode> clique, final Set<IRecipeNode> recipesToRemove, final Set<IRecipeInputNode> inputNodesToDelete)
+    {
+        return replaceClique(graph, null, clique, recipesToRemove, inputNodesToDelete);
+    }
 
-            //Collect all the edges which are relevant to keep.
-            for (INode iNode : clique)
+    @SuppressWarnings({"SuspiciousMethodCalls", "DuplicatedCode"})
+    private INode replaceClique(
+      final G graph,
+      @Nullable final CliqueDetectionGraph detectionGraph,
+      final Set<INode> clique,
+      final Set<IRecipeNode> recipesToRemove,
+      final Set<IRecipeInputNode> inputNodesToDelete)
+    {
+        final INode replacementNode = vertexReplacerFunction.apply(
+          graph,
+          clique,
+          recipesToRemove,
+          inputNodesToDelete
+        );
+
+        final Map<IEdge, INode> incomingEdges = Maps.newHashMap();
+        final Map<IEdge, INode> outgoingEdges = Maps.newHashMap();
+        final Multimap<INode, IEdge> incomingEdgesTo = HashMultimap.create();
+        final Multimap<INode, IEdge> incomingEdgesOf = HashMultimap.create();
+        final Multimap<INode, IEdge> outgoingEdgesOf = HashMultimap.create();
+        final Multimap<INode, IEdge> outgoingEdgesTo = HashMultimap.create();
+
+        final Multimap<INode, CliqueDetectionEdge> incomingEdgesOfDetection = HashMultimap.create();
+        final Multimap<INode, CliqueDetectionEdge> outgoingEdgesToDetection = HashMultimap.create();
+
+        //Collect all the edges which are relevant to keep.
+        for (INode iNode : clique)
+        {
+            for (IEdge iEdge : graph.incomingEdgesOf(iNode))
             {
-                for (IEdge iEdge : graph.incomingEdgesOf(iNode))
+                if (!clique.contains(graph.getEdgeSource(iEdge)))
                 {
-                    if (!clique.contains(graph.getEdgeSource(iEdge)))
+                    if (!recipesToRemove.contains(graph.getEdgeSource(iEdge)))
                     {
-                        if (!recipesToRemove.contains(graph.getEdgeSource(iEdge)))
+                        if (!inputNodesToDelete.contains(graph.getEdgeSource(iEdge)))
                         {
-                            if (!inputNodesToDelete.contains(graph.getEdgeSource(iEdge)))
+                            if (!incomingEdgesTo.containsEntry(iNode, iEdge))
                             {
-                                if (!incomingEdgesTo.containsEntry(iNode, iEdge))
-                                {
-                                    incomingEdgesTo.put(iNode, iEdge);
-                                    incomingEdgesOf.put(graph.getEdgeSource(iEdge), iEdge);
-                                    incomingEdges.put(iEdge, graph.getEdgeSource(iEdge));
-                                }
+                                incomingEdgesTo.put(iNode, iEdge);
+                                incomingEdgesOf.put(graph.getEdgeSource(iEdge), iEdge);
+                                incomingEdges.put(iEdge, graph.getEdgeSource(iEdge));
                             }
                         }
                     }
                 }
+            }
 
-                for (IEdge iEdge : graph.outgoingEdgesOf(iNode))
+            for (IEdge iEdge : graph.outgoingEdgesOf(iNode))
+            {
+                if (!clique.contains(graph.getEdgeTarget(iEdge)))
                 {
-                    if (!clique.contains(graph.getEdgeTarget(iEdge)))
+                    if (!recipesToRemove.contains(graph.getEdgeTarget(iEdge)))
                     {
-                        if (!recipesToRemove.contains(graph.getEdgeTarget(iEdge)))
+                        if (!inputNodesToDelete.contains(graph.getEdgeTarget(iEdge)))
                         {
-                            if (!inputNodesToDelete.contains(graph.getEdgeTarget(iEdge)))
+                            if (!outgoingEdgesOf.containsEntry(iNode, iEdge))
                             {
-                                if (!outgoingEdgesOf.containsEntry(iNode, iEdge))
-                                {
-                                    outgoingEdgesOf.put(iNode, iEdge);
-                                    outgoingEdgesTo.put(graph.getEdgeTarget(iEdge), iEdge);
-                                    outgoingEdges.put(iEdge, graph.getEdgeTarget(iEdge));
-                                }
+                                outgoingEdgesOf.put(iNode, iEdge);
+                                outgoingEdgesTo.put(graph.getEdgeTarget(iEdge), iEdge);
+                                outgoingEdges.put(iEdge, graph.getEdgeTarget(iEdge));
                             }
                         }
                     }
                 }
+            }
 
-                for (CliqueDetectionEdge cliqueDetectionEdge : detectionGraph.incomingEdgesOf(iNode))
-                {
-                    if (!clique.contains(detectionGraph.getEdgeSource(cliqueDetectionEdge)))
-                    {
-                        incomingEdgesOfDetection.put(detectionGraph.getEdgeSource(cliqueDetectionEdge), cliqueDetectionEdge);
-                    }
-                }
+            //A replayed clique has no detection graph to keep up to date.
+            if (detectionGraph == null)
+            {
+                continue;
+            }
 
-                for (CliqueDetectionEdge edge : detectionGraph.outgoingEdgesOf(iNode))
+            for (CliqueDetectionEdge cliqueDetectionEdge : detectionGraph.incomingEdgesOf(iNode))
+            {
+                if (!clique.contains(detectionGraph.getEdgeSource(cliqueDetectionEdge)))
                 {
-                    if (!clique.contains(detectionGraph.getEdgeTarget(edge)))
-                    {
-                        outgoingEdgesToDetection.put(detectionGraph.getEdgeTarget(edge), edge);
-                    }
+                    incomingEdgesOfDetection.put(detectionGraph.getEdgeSource(cliqueDetectionEdge), cliqueDetectionEdge);
                 }
             }
 
-            for (IEdge iEdge : incomingEdges.keySet())
+            for (CliqueDetectionEdge edge : detectionGraph.outgoingEdgesOf(iNode))
             {
-                outgoingEdges.remove(iEdge);
+                if (!clique.contains(detectionGraph.getEdgeTarget(edge)))
+                {
+                    outgoingEdgesToDetection.put(detectionGraph.getEdgeTarget(edge), edge);
+                }
             }
+        }
 
-            AnalysisLogHandler.debug(LOGGER, String.format("  > Detected: %s as incoming edges to keep.", incomingEdges));
-            AnalysisLogHandler.debug(LOGGER, String.format("  > Detected: %s as outgoing edges to keep.", outgoingEdges));
+        for (IEdge iEdge : incomingEdges.keySet())
+        {
+            outgoingEdges.remove(iEdge);
+        }
+
+        AnalysisLogHandler.debug(LOGGER, String.format("  > Detected: %s as incoming edges to keep.", incomingEdges));
+        AnalysisLogHandler.debug(LOGGER, String.format("  > Detected: %s as outgoing edges to keep.", outgoingEdges));
 
-            //Create the new cycle construct.
-            graph.addVertex(replacementNode);
+        //Create the new cycle construct.
+        graph.addVertex(replacementNode);
+        if (detectionGraph != null)
+        {
             detectionGraph.addVertex(replacementNode);
-            for (INode node : incomingEdgesOf.keySet())
+        }
+        for (INode node : incomingEdgesOf.keySet())
+        {
+            double newEdgeWeight = 0.0;
+            for (IEdge edge : incomingEdgesOf.get(node))
             {
-                double newEdgeWeight = 0.0;
-                for (IEdge edge : incomingEdgesOf.get(node))
-                {
-                    double weight = graph.getEdgeWeight(edge);
-                    newEdgeWeight += weight;
-                }
-                graph.addEdge(node, replacementNode);
-                graph.setEdgeWeight(node, replacementNode, newEdgeWeight);
+                double weight = graph.getEdgeWeight(edge);
+                newEdgeWeight += weight;
             }
-            for (INode node : outgoingEdgesTo.keySet())
+            graph.addEdge(node, replacementNode);
+            graph.setEdgeWeight(node, replacementNode, newEdgeWeight);
+        }
+        for (INode node : outgoingEdgesTo.keySet())
+        {
+            double newEdgeWeight = 0.0;
+            for (IEdge edge : outgoingEdgesTo.get(node))
             {
-                double newEdgeWeight = 0.0;
-                for (IEdge edge : outgoingEdgesTo.get(node))
-                {
-                    double weight = graph.getEdgeWeight(edge);
-                    newEdgeWeight += weight;
-                }
-                graph.addEdge(replacementNode, node);
-                graph.setEdgeWeight(replacementNode, node, newEdgeWeight);
+                double weight = graph.getEdgeWeight(edge);
+                newEdgeWeight += weight;
             }
-            for (INode incomingSource : incomingEdgesOfDetection.keySet())
+            graph.addEdge(replacementNode, node);
+            graph.setEdgeWeight(replacementNode, node, newEdgeWeight);
+        }
+        for (INode incomingSource : incomingEdgesOfDetection.keySet())
+        {
+            double newEdgeWeight = 0.0;
+            final Set<IRecipeNode> newRecipes = new HashSet<>();
+            for (CliqueDetectionEdge cliqueDetectionEdge : incomingEdgesOfDetection.get(incomingSource))
             {
-                double newEdgeWeight = 0.0;
-                final Set<IRecipeNode> newRecipes = new HashSet<>();
-                for (CliqueDetectionEdge cliqueDetectionEdge : incomingEdgesOfDetection.get(incomingSource))
-                {
-                    double weight = detectionGraph.getEdgeWeight(cliqueDetectionEdge);
-                    newEdgeWeight += weight;
-                    newRecipes.addAll(cliqueDetectionEdge.getRecipeNodes());
-                }
-                detectionGraph.addEdge(incomingSource, replacementNode, new CliqueDetectionEdge(newRecipes));
-                detectionGraph.setEdgeWeight(incomingSource, replacementNode, newEdgeWeight);
+                double weight = detectionGraph.getEdgeWeight(cliqueDetectionEdge);
+                newEdgeWeight += weight;
+                newRecipes.addAll(cliqueDetectionEdge.getRecipeNodes());
             }
-            for (INode outgoingTarget : outgoingEdgesToDetection.keySet())
+            detectionGraph.addEdge(incomingSource, replacementNode, new CliqueDetectionEdge(newRecipes));
+            detectionGraph.setEdgeWeight(incomingSource, replacementNode, newEdgeWeight);
+        }
+        for (INode outgoingTarget : outgoingEdgesToDetection.keySet())
+        {
+            double newEdgeWeight = 0.0;
+            for (CliqueDetectionEdge cliqueDetectionEdge : outgoingEdgesToDetection.get(outgoingTarget))
             {
-                double newEdgeWeight = 0.0;
-                for (CliqueDetectionEdge cliqueDetectionEdge : outgoingEdgesToDetection.get(outgoingTarget))
-                {
-                    double weight = cliqueDetectionEdge.getWeight();
-                    newEdgeWeight += weight;
-                }
-                final Set<IRecipeNode> newRecipes = new HashSet<>();
-                for (CliqueDetectionEdge e : outgoingEdgesToDetection.get(outgoingTarget))
-                {
-                    newRecipes.addAll(e.getRecipeNodes());
-                }
-                detectionGraph.addEdge(replacementNode, outgoingTarget, new CliqueDetectionEdge(newRecipes));
-                detectionGraph.setEdgeWeight(replacementNode, outgoingTarget, newEdgeWeight);
+                double weight = cliqueDetectionEdge.getWeight();
+                newEdgeWeight += weight;
+            }
+            final Set<IRecipeNode> newRecipes = new HashSet<>();
+            for (CliqueDetectionEdge e : outgoingEdgesToDetection.get(outgoingTarget))
+            {
+                newRecipes.addAll(e.getRecipeNodes());
             }
+            detectionGraph.addEdge(replacementNode, outgoingTarget, new CliqueDetectionEdge(newRecipes));
+            detectionGraph.setEdgeWeight(replacementNode, outgoingTarget, newEdgeWeight);
+        }
 
-            removeNodes(graph, clique);
+        removeNodes(graph, clique);
+        if (detectionGraph != null)
+        {
             removeNodes(detectionGraph, clique);
-            removeNodes(graph, new HashSet<>(recipesToRemove));
-            removeNodes(graph, new HashSet<>(inputNodesToDelete));
+        }
+        removeNodes(graph, new HashSet<>(recipesToRemove));
+        removeNodes(graph, new HashSet<>(inputNodesToDelete));
 
-            incomingEdgesTo.forEach((cycleNode, edge) -> onNeighborNodeReplacedCallback.accept(incomingEdges.get(edge), cycleNode, replacementNode));
-            outgoingEdgesOf.forEach((cycleNode, edge) -> onNeighborNodeReplacedCallback.accept(outgoingEdges.get(edge), cycleNode, replacementNode));
+        incomingEdgesTo.forEach((cycleNode, edge) -> onNeighborNodeReplacedCallback.accept(incomingEdges.get(edge), cycleNode, replacementNode));
+        outgoingEdgesOf.forEach((cycleNode, edge) -> onNeighborNodeReplacedCallback.accept(outgoingEdges.get(edge), cycleNode, replacementNode));
 
-            AnalysisLogHandler.debug(LOGGER, String.format(" > Removed clique: %s", clique));
-        }
+
+        return replacementNode;
     }
 
     private <V, E> void removeNodes(final Graph<V, E> graph, final Set<V> nodes) {
@@ -60,6 +60,8 @@ public interface IAnalysisGraphNode<G extends Graph<S, E>, N, S extends IAnalysi
 
     void determineResult(G graph);
 
+    void resetAnalysisState();
+
     boolean hasMissingData(G graph, ICompoundTypeGroup group);
 
     default boolean hasParentsWithMissingData(G graph, ICompoundTypeGroup group) {
@@ -0,0 +1,17 @@
+package com.ldtteam.aequivaleo.analysis.jgrapht.cycles;
+
+/**
+ * Determines how cycles in the recipe graph are detected and collapsed during the reduction phase.
+ */
+public enum CycleReductionMode
+{
+    /**
+     * Enumerates every simple cycle in the graph and collapses them one by one, smallest first.
+     */
+    SIMPLE_CYCLES,
+    /**
+     * Collapses every non-trivial strongly connected component into a single node.
+     * Runs in linear time with respect to the size of the graph.
+     */
+    STRONGLY_CONNECTED_COMPONENTS;
+}
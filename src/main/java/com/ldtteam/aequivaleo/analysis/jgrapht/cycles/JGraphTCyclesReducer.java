@@ -1,9 +1,6 @@
 package com.ldtteam.aequivaleo.analysis.jgrapht.cycles;
 
 import com.google.common.annotations.VisibleForTesting;
-import com.google.common.collect.HashMultimap;
-import com.google.common.collect.Maps;
-import com.google.common.collect.Multimap;
 import com.ldtteam.aequivaleo.analysis.jgrapht.core.IAnalysisEdge;
 import com.ldtteam.aequivaleo.utils.AnalysisLogHandler;
 import org.apache.logging.log4j.LogManager;
@@ -79,7 +76,7 @@ public class JGraphTCyclesReducer<G extends Graph<V, E>, V, E extends IAnalysisE
 
             AnalysisLogHandler.debug(LOGGER, String.format(" > Removing cycle: %s", cycle));
 
-            final V replacementNode = vertexReplacerFunction.apply(graph, cycle);
+            final V replacementNode = replaceCycle(graph, cycle);
 
             sortedCycles = updateRemainingCyclesAfterReplacement(
               sortedCycles,
@@ -87,82 +84,27 @@ public class JGraphTCyclesReducer<G extends Graph<V, E>, V, E extends IAnalysisE
               replacementNode
             );
 
-            final Map<E, V> incomingEdges = Maps.newHashMap();
-            final Map<E, V> outgoingEdges = Maps.newHashMap();
-            final Multimap<V, E> incomingEdgesTo = HashMultimap.create();
-            final Multimap<V, E> incomingEdgesOf = HashMultimap.create();
-            final Multimap<V, E> outgoingEdgesOf = HashMultimap.create();
-            final Multimap<V, E> outgoingEdgesTo = HashMultimap.create();
-
-            //Collect all the edges which are relevant to keep.
-            for (V v : cycle)
-            {
-                for (E e : graph.incomingEdgesOf(v))
-                {
-                    if (!cycle.contains(graph.getEdgeSource(e)))
-                    {
-                        if (!incomingEdgesTo.containsEntry(v, e))
-                        {
-                            incomingEdgesTo.put(v, e);
-                            incomingEdgesOf.put(graph.getEdgeSource(e), e);
-                            incomingEdges.put(e, graph.getEdgeSource(e));
-                        }
-                    }
-                }
-
-                for (E edge : graph.outgoingEdgesOf(v))
-                {
-                    if (!cycle.contains(graph.getEdgeTarget(edge)))
-                    {
-                        if (!outgoingEdgesOf.containsEntry(v, edge))
-                        {
-                            outgoingEdgesOf.put(v, edge);
-                            outgoingEdgesTo.put(graph.getEdgeTarget(edge), edge);
-                            outgoingEdges.put(edge, graph.getEdgeTarget(edge));
-                        }
-                    }
-                }
-            }
-
-            AnalysisLogHandler.debug(LOGGER, String.format("  > Detected: %s as incoming edges to keep.", incomingEdges));
-            AnalysisLogHandler.debug(LOGGER, String.format("  > Detected: %s as outgoing edges to keep.", outgoingEdges));
-
-            //Create the new cycle construct.
-            graph.addVertex(replacementNode);
-            for (V incomingSource : incomingEdgesOf.keySet())
-            {
-                double newEdgeWeight = 0.0;
-                for (E e : incomingEdgesOf.get(incomingSource))
-                {
-                    double weight = e.getWeight();
-                    newEdgeWeight += weight;
-                }
-                graph.addEdge(incomingSource, replacementNode);
-                graph.setEdgeWeight(incomingSource, replacementNode, newEdgeWeight);
-            }
-            for (V outgoingTarget : outgoingEdgesTo.keySet())
-            {
-                double newEdgeWeight = 0.0;
-                for (E e : outgoingEdgesTo.get(outgoingTarget))
-                {
-                    double weight = e.getWeight();
-                    newEdgeWeight += weight;
-                }
-                graph.addEdge(replacementNode, outgoingTarget);
-                graph.setEdgeWeight(replacementNode, outgoingTarget, newEdgeWeight);
-            }
-
-            graph.removeAllVertices(cycle);
-
-            incomingEdgesTo.forEach((cycleNode, edge) -> onNeighborNodeReplacedCallback.accept(incomingEdges.get(edge), cycleNode, replacementNode));
-            outgoingEdgesOf.forEach((cycleNode, edge) -> onNeighborNodeReplacedCallback.accept(outgoingEdges.get(edge), cycleNode, replacementNode));
-
             AnalysisLogHandler.debug(LOGGER, String.format(" > Removed cycle: %s", cycle));
         }
 
         return true;
     }
 
+    /**
+     * Replaces a cycle which was found by an earlier reduction of the same graph, without searching for cycles again.
+     *
+     * @param graph The graph to reduce.
+     * @param cycle The nodes of the cycle.
+     * @return The node which replaced the cycle.
+     */
+    public V replay(final G graph, final List<V> cycle) {
+        return replaceCycle(graph, cycle);
+    }
+
+    private V replaceCycle(final G graph, final List<V> cycle) {
+        return VertexSetReplacer.replace(graph, cycle, vertexReplacerFunction, onNeighborNodeReplacedCallback);
+    }
+
     private List<List<V>> updateRemainingCyclesAfterReplacement(final List<List<V>> cycles, final List<V> replacedCycle, final V replacementNode) {
         cycles.remove(replacedCycle);
 
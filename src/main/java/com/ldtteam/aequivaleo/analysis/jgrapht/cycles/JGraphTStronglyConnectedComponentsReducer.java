@@ -0,0 +1,91 @@
+package com.ldtteam.aequivaleo.analysis.jgrapht.cycles;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.ldtteam.aequivaleo.analysis.jgrapht.core.IAnalysisEdge;
+import com.ldtteam.aequivaleo.utils.AnalysisLogHandler;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.util.TriConsumer;
+import org.jgrapht.Graph;
+import org.jgrapht.alg.connectivity.KosarajuStrongConnectivityInspector;
+import org.jgrapht.alg.interfaces.StrongConnectivityAlgorithm;
+
+import java.util.*;
+import java.util.function.BiFunction;
+
+/**
+ * Reduces a graph to a directed acyclic graph by collapsing every non-trivial strongly connected component
+ * into a single replacement vertex.
+ * <p>
+ * Unlike {@link JGraphTCyclesReducer} this does not enumerate simple cycles, it runs in time linear to the size of the graph.
+ * The internal structure of each component is left to the replacement vertex.
+ */
+public class JGraphTStronglyConnectedComponentsReducer<G extends Graph<V, E>, V, E extends IAnalysisEdge>
+{
+
+    private static final Logger LOGGER = LogManager.getLogger();
+
+    private final BiFunction<G, List<V>, V> vertexReplacerFunction;
+    private final TriConsumer<V, V, V>      onNeighborNodeReplacedCallback;
+
+    public JGraphTStronglyConnectedComponentsReducer(
+      final BiFunction<G, List<V>, V> vertexReplacerFunction,
+      final TriConsumer<V, V, V> onNeighborNodeReplacedCallback) {
+        this.vertexReplacerFunction = vertexReplacerFunction;
+        this.onNeighborNodeReplacedCallback = onNeighborNodeReplacedCallback;
+    }
+
+    public void reduce(final G graph) {
+        reduceOnce(graph);
+    }
+
+    @VisibleForTesting
+    public boolean reduceOnce(final G graph) {
+        AnalysisLogHandler.debug(LOGGER, "Reducing the graph using strongly connected components");
+
+        final StrongConnectivityAlgorithm<V, E> inspector = new KosarajuStrongConnectivityInspector<>(graph);
+
+        final List<Set<V>> components = new ArrayList<>();
+        for (Set<V> component : inspector.stronglyConnectedSets())
+        {
+            if (component.size() > 1)
+            {
+                components.add(component);
+            }
+        }
+
+        if (components.isEmpty())
+        {
+            AnalysisLogHandler.debug(LOGGER, " > Reducing skipped.");
+            return false;
+        }
+
+        //Components are disjoint, so replacing one never changes the members of another.
+        components.sort(Comparator.comparing(Set::size));
+        for (final Set<V> component : components)
+        {
+            AnalysisLogHandler.debug(LOGGER, String.format(" > Removing component: %s", component));
+
+            replaceComponent(graph, component);
+
+            AnalysisLogHandler.debug(LOGGER, String.format(" > Removed component: %s", component));
+        }
+
+        return true;
+    }
+
+    /**
+     * Replaces a component which was found by an earlier reduction of the same graph, without searching for components again.
+     *
+     * @param graph     The graph to reduce.
+     * @param component The nodes of the component, in the order they are passed to the replacement vertex.
+     * @return The node which replaced the component.
+     */
+    public V replay(final G graph, final List<V> component) {
+        return replaceComponent(graph, new LinkedHashSet<>(component));
+    }
+
+    private V replaceComponent(final G graph, final Set<V> component) {
+        return VertexSetReplacer.replace(graph, new ArrayList<>(component), vertexReplacerFunction, onNeighborNodeReplacedCallback);
+    }
+}
@@ -0,0 +1,111 @@
+package com.ldtteam.aequivaleo.analysis.jgrapht.cycles;
+
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Multimap;
+import com.ldtteam.aequivaleo.analysis.jgrapht.core.IAnalysisEdge;
+import com.ldtteam.aequivaleo.utils.AnalysisLogHandler;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.util.TriConsumer;
+import org.jgrapht.Graph;
+
+import java.util.*;
+import java.util.function.BiFunction;
+
+/**
+ * Replaces a set of vertices in a graph with a single vertex, used by the cycle and strongly connected component reducers.
+ */
+final class VertexSetReplacer
+{
+
+    private static final Logger LOGGER = LogManager.getLogger();
+
+    private VertexSetReplacer()
+    {
+        throw new IllegalStateException("Can not instantiate an instance of: VertexSetReplacer. This is a utility class");
+    }
+
+    /**
+     * Replaces the given vertices with a new vertex.
+     * Edges between the vertices are dropped, parallel edges from or to the same neighbor are merged into one edge carrying their combined weight.
+     *
+     * @param graph                          The graph to modify.
+     * @param vertices                       The vertices to replace, in the order they are passed to the replacer function.
+     * @param vertexReplacerFunction         Creates the replacement vertex.
+     * @param onNeighborNodeReplacedCallback Informed for every neighbor of the vertices, about the vertex it was connected to and its replacement.
+     * @return The vertex which replaced the given vertices.
+     */
+    static <G extends Graph<V, E>, V, E extends IAnalysisEdge> V replace(
+      final G graph,
+      final List<V> vertices,
+      final BiFunction<G, List<V>, V> vertexReplacerFunction,
+      final TriConsumer<V, V, V> onNeighborNodeReplacedCallback) {
+        final V replacementNode = vertexReplacerFunction.apply(graph, vertices);
+        final Set<V> members = new HashSet<>(vertices);
+
+        final Map<E, V> incomingEdges = Maps.newHashMap();
+        final Map<E, V> outgoingEdges = Maps.newHashMap();
+        final Multimap<V, E> incomingEdgesTo = HashMultimap.create();
+        final Multimap<V, E> incomingEdgesOf = HashMultimap.create();
+        final Multimap<V, E> outgoingEdgesOf = HashMultimap.create();
+        final Multimap<V, E> outgoingEdgesTo = HashMultimap.create();
+
+        //Collect all the edges which are relevant to keep.
+        for (V v : members)
+        {
+            for (E e : graph.incomingEdgesOf(v))
+            {
+                if (!members.contains(graph.getEdgeSource(e)))
+                {
+                    incomingEdgesTo.put(v, e);
+                    incomingEdgesOf.put(graph.getEdgeSource(e), e);
+                    incomingEdges.put(e, graph.getEdgeSource(e));
+                }
+            }
+
+            for (E edge : graph.outgoingEdgesOf(v))
+            {
+                if (!members.contains(graph.getEdgeTarget(edge)))
+                {
+                    outgoingEdgesOf.put(v, edge);
+                    outgoingEdgesTo.put(graph.getEdgeTarget(edge), edge);
+                    outgoingEdges.put(edge, graph.getEdgeTarget(edge));
+                }
+            }
+        }
+
+        AnalysisLogHandler.debug(LOGGER, String.format("  > Detected: %s as incoming edges to keep.", incomingEdges));
+        AnalysisLogHandler.debug(LOGGER, String.format("  > Detected: %s as outgoing edges to keep.", outgoingEdges));
+
+        //Create the new construct.
+        graph.addVertex(replacementNode);
+        for (V incomingSource : incomingEdgesOf.keySet())
+        {
+            double newEdgeWeight = 0.0;
+            for (E e : incomingEdgesOf.get(incomingSource))
+            {
+                newEdgeWeight += e.getWeight();
+            }
+            graph.addEdge(incomingSource, replacementNode);
+            graph.setEdgeWeight(incomingSource, replacementNode, newEdgeWeight);
+        }
+        for (V outgoingTarget : outgoingEdgesTo.keySet())
+        {
+            double newEdgeWeight = 0.0;
+            for (E e : outgoingEdgesTo.get(outgoingTarget))
+            {
+                newEdgeWeight += e.getWeight();
+            }
+            graph.addEdge(replacementNode, outgoingTarget);
+            graph.setEdgeWeight(replacementNode, outgoingTarget, newEdgeWeight);
+        }
+
+        graph.removeAllVertices(members);
+
+        incomingEdgesTo.forEach((member, edge) -> onNeighborNodeReplacedCallback.accept(incomingEdges.get(edge), member, replacementNode));
+        outgoingEdgesOf.forEach((member, edge) -> onNeighborNodeReplacedCallback.accept(outgoingEdges.get(edge), member, replacementNode));
+
+        return replacementNode;
+    }
+}
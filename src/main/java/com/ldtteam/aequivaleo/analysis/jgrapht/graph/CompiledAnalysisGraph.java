@@ -0,0 +1,541 @@
+package com.ldtteam.aequivaleo.analysis.jgrapht.graph;
+
+import com.ldtteam.aequivaleo.analysis.jgrapht.aequivaleo.IEdge;
+import com.ldtteam.aequivaleo.analysis.jgrapht.aequivaleo.IGraph;
+import com.ldtteam.aequivaleo.analysis.jgrapht.aequivaleo.INode;
+import org.jetbrains.annotations.NotNull;
+import org.jgrapht.GraphType;
+import org.jgrapht.graph.AbstractGraph;
+import org.jgrapht.graph.DefaultGraphType;
+
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * Immutable compressed sparse row representation of an analysis graph.
+ * <p>
+ * Nodes and edges are assigned an int index once, adjacency and weights are stored in primitive arrays.
+ * The per node edge sets are preallocated views over those arrays, so the lookups done during value propagation
+ * do neither hash nor allocate.
+ * <p>
+ * Code which knows it runs on a compiled graph can skip the {@link IGraph} methods entirely: the edges of a node occupy
+ * a contiguous range of slots, see {@link #getOutgoingStart(int)} and {@link #getIncomingStart(int)}, and for each slot
+ * the index of the neighbour and the weight of the edge are read directly from an array.
+ * Iteration order of vertices and edges is the same as the order in the graph this was compiled from.
+ * <p>
+ * Any attempt to modify the graph results in an {@link UnsupportedOperationException}.
+ */
+public class CompiledAnalysisGraph extends AbstractGraph<INode, IEdge> implements IGraph
+{
+    private static final GraphType TYPE = DefaultGraphType.directedMultigraph().asWeighted().asUnmodifiable();
+
+    private final INode[]             nodes;
+    private final Map<INode, Integer> nodeIndices;
+    private final IEdge[]             edges;
+    private final Map<IEdge, Integer> edgeIndices;
+    private final int[]               edgeSources;
+    private final int[]               edgeTargets;
+    private final double[]            edgeWeights;
+
+    private final int[]       outgoingEdges;
+    private final int[]       incomingEdges;
+    private final int[]       outgoingOffsets;
+    private final int[]       incomingOffsets;
+    private final int[]       outgoingTargets;
+    private final int[]       incomingSources;
+    private final double[]    outgoingWeights;
+    private final double[]    incomingWeights;
+    private final EdgeRange[] outgoingRanges;
+    private final EdgeRange[] incomingRanges;
+
+    private final Set<INode> vertexSet;
+    private final Set<IEdge> edgeSet;
+
+    private CompiledAnalysisGraph(final IGraph graph)
+    {
+        final int nodeCount = graph.vertexSet().size();
+        final int edgeCount = graph.edgeSet().size();
+
+        this.nodes = new INode[nodeCount];
+        this.nodeIndices = new LinkedHashMap<>(nodeCount * 2);
+        int nodeIndex = 0;
+        for (INode node : graph.vertexSet())
+        {
+            nodes[nodeIndex] = node;
+            nodeIndices.put(node, nodeIndex);
+            nodeIndex++;
+        }
+
+        this.edges = new IEdge[edgeCount];
+        this.edgeIndices = new IdentityHashMap<>(edgeCount);
+        this.edgeSources = new int[edgeCount];
+        this.edgeTargets = new int[edgeCount];
+        this.edgeWeights = new double[edgeCount];
+        int edgeIndex = 0;
+        for (IEdge edge : graph.edgeSet())
+        {
+            edges[edgeIndex] = edge;
+            edgeIndices.put(edge, edgeIndex);
+            edgeSources[edgeIndex] = nodeIndices.get(graph.getEdgeSource(edge));
+            edgeTargets[edgeIndex] = nodeIndices.get(graph.getEdgeTarget(edge));
+            edgeWeights[edgeIndex] = graph.getEdgeWeight(edge);
+            edgeIndex++;
+        }
+
+        this.outgoingEdges = new int[edgeCount];
+        this.incomingEdges = new int[edgeCount];
+        this.outgoingOffsets = new int[nodeCount + 1];
+        this.incomingOffsets = new int[nodeCount + 1];
+        this.outgoingTargets = new int[edgeCount];
+        this.incomingSources = new int[edgeCount];
+        this.outgoingWeights = new double[edgeCount];
+        this.incomingWeights = new double[edgeCount];
+        this.outgoingRanges = new EdgeRange[nodeCount];
+        this.incomingRanges = new EdgeRange[nodeCount];
+        int outgoingCursor = 0;
+        int incomingCursor = 0;
+        for (int i = 0; i < nodeCount; i++)
+        {
+            final int outgoingStart = outgoingCursor;
+            for (IEdge edge : graph.outgoingEdgesOf(nodes[i]))
+            {
+                final int index = edgeIndices.get(edge);
+                outgoingEdges[outgoingCursor] = index;
+                outgoingTargets[outgoingCursor] = edgeTargets[index];
+                outgoingWeights[outgoingCursor] = edgeWeights[index];
+                outgoingCursor++;
+            }
+            outgoingOffsets[i + 1] = outgoingCursor;
+            outgoingRanges[i] = new EdgeRange(outgoingEdges, outgoingStart, outgoingCursor);
+
+            final int incomingStart = incomingCursor;
+            for (IEdge edge : graph.incomingEdgesOf(nodes[i]))
+            {
+                final int index = edgeIndices.get(edge);
+                incomingEdges[incomingCursor] = index;
+                incomingSources[incomingCursor] = edgeSources[index];
+                incomingWeights[incomingCursor] = edgeWeights[index];
+                incomingCursor++;
+            }
+            incomingOffsets[i + 1] = incomingCursor;
+            incomingRanges[i] = new EdgeRange(incomingEdges, incomingStart, incomingCursor);
+        }
+
+        this.vertexSet = Collections.unmodifiableSet(nodeIndices.keySet());
+        this.edgeSet = new EdgeArraySet();
+    }
+
+    /**
+     * Compiles the given graph into its compressed representation.
+     * The given graph is not modified, and later changes to it are not reflected in the compiled graph.
+     *
+     * @param graph The graph to compile.
+     * @return The compiled graph.
+     */
+    public static CompiledAnalysisGraph compile(final IGraph graph)
+    {
+        return new CompiledAnalysisGraph(graph);
+    }
+
+    /**
+     * The index of the given node, which is its position in the iteration order of {@link #vertexSet()}.
+     *
+     * @param vertex The node.
+     * @return The index of the node.
+     * @throws IllegalArgumentException When the node is not part of this graph.
+     */
+    public int indexOf(final INode vertex)
+    {
+        final Integer index = nodeIndices.get(vertex);
+        if (index == null)
+        {
+            throw new IllegalArgumentException("no such vertex in graph: " + vertex);
+        }
+        return index;
+    }
+
+    public int getNodeCount()
+    {
+        return nodes.length;
+    }
+
+    public INode getNode(final int index)
+    {
+        return nodes[index];
+    }
+
+    /**
+     * The first slot of the outgoing edges of the given node.
+     * The outgoing edges of a node occupy the slots from this one up to, but excluding, {@link #getOutgoingEnd(int)}.
+     *
+     * @param node The index of the node.
+     * @return The first slot.
+     */
+    public int getOutgoingStart(final int node)
+    {
+        return outgoingOffsets[node];
+    }
+
+    public int getOutgoingEnd(final int node)
+    {
+        return outgoingOffsets[node + 1];
+    }
+
+    /**
+     * The index of the node targeted by the outgoing edge in the given slot.
+     *
+     * @param slot The slot of the outgoing edge.
+     * @return The index of the target node.
+     */
+    public int getOutgoingTarget(final int slot)
+    {
+        return outgoingTargets[slot];
+    }
+
+    public double getOutgoingWeight(final int slot)
+    {
+        return outgoingWeights[slot];
+    }
+
+    public IEdge getOutgoingEdge(final int slot)
+    {
+        return edges[outgoingEdges[slot]];
+    }
+
+    /**
+     * The first slot of the incoming edges of the given node.
+     * The incoming edges of a node occupy the slots from this one up to, but excluding, {@link #getIncomingEnd(int)}.
+     *
+     * @param node The index of the node.
+     * @return The first slot.
+     */
+    public int getIncomingStart(final int node)
+    {
+        return incomingOffsets[node];
+    }
+
+    public int getIncomingEnd(final int node)
+    {
+        return incomingOffsets[node + 1];
+    }
+
+    /**
+     * The index of the node which is the source of the incoming edge in the given slot.
+     *
+     * @param slot The slot of the incoming edge.
+     * @return The index of the source node.
+     */
+    public int getIncomingSource(final int slot)
+    {
+        return incomingSources[slot];
+    }
+
+    public double getIncomingWeight(final int slot)
+    {
+        return incomingWeights[slot];
+    }
+
+    public IEdge getIncomingEdge(final int slot)
+    {
+        return edges[incomingEdges[slot]];
+    }
+
+    @Override
+    public Set<IEdge> getAllEdges(final INode sourceVertex, final INode targetVertex)
+    {
+        final Integer source = nodeIndices.get(sourceVertex);
+        final Integer target = nodeIndices.get(targetVertex);
+        if (source == null || target == null)
+        {
+            return null;
+        }
+
+        final Set<IEdge> result = new LinkedHashSet<>();
+        for (int i = outgoingOffsets[source]; i < outgoingOffsets[source + 1]; i++)
+        {
+            if (outgoingTargets[i] == target)
+            {
+                result.add(edges[outgoingEdges[i]]);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public IEdge getEdge(final INode sourceVertex, final INode targetVertex)
+    {
+        final Integer source = nodeIndices.get(sourceVertex);
+        final Integer target = nodeIndices.get(targetVertex);
+        if (source == null || target == null)
+        {
+            return null;
+        }
+
+        for (int i = outgoingOffsets[source]; i < outgoingOffsets[source + 1]; i++)
+        {
+            if (outgoingTargets[i] == target)
+            {
+                return edges[outgoingEdges[i]];
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public Supplier<INode> getVertexSupplier()
+    {
+        return null;
+    }
+
+    @Override
+    public Supplier<IEdge> getEdgeSupplier()
+    {
+        return null;
+    }
+
+    @Override
+    public IEdge addEdge(final INode sourceVertex, final INode targetVertex)
+    {
+        throw immutable();
+    }
+
+    @Override
+    public boolean addEdge(final INode sourceVertex, final INode targetVertex, final IEdge iEdge)
+    {
+        throw immutable();
+    }
+
+    @Override
+    public INode addVertex()
+    {
+        throw immutable();
+    }
+
+    @Override
+    public boolean addVertex(final INode iNode)
+    {
+        throw immutable();
+    }
+
+    @Override
+    public boolean containsEdge(final IEdge iEdge)
+    {
+        return edgeIndices.containsKey(iEdge);
+    }
+
+    @Override
+    public boolean containsVertex(final INode iNode)
+    {
+        return nodeIndices.containsKey(iNode);
+    }
+
+    @Override
+    public Set<IEdge> edgeSet()
+    {
+        return edgeSet;
+    }
+
+    @Override
+    public int degreeOf(final INode vertex)
+    {
+        return inDegreeOf(vertex) + outDegreeOf(vertex);
+    }
+
+    @Override
+    public Set<IEdge> edgesOf(final INode vertex)
+    {
+        final Set<IEdge> result = new LinkedHashSet<>(incomingEdgesOf(vertex));
+        result.addAll(outgoingEdgesOf(vertex));
+        return Collections.unmodifiableSet(result);
+    }
+
+    @Override
+    public int inDegreeOf(final INode vertex)
+    {
+        return incomingRanges[indexOf(vertex)].size();
+    }
+
+    @Override
+    public Set<IEdge> incomingEdgesOf(final INode vertex)
+    {
+        return incomingRanges[indexOf(vertex)];
+    }
+
+    @Override
+    public int outDegreeOf(final INode vertex)
+    {
+        return outgoingRanges[indexOf(vertex)].size();
+    }
+
+    @Override
+    public Set<IEdge> outgoingEdgesOf(final INode vertex)
+    {
+        return outgoingRanges[indexOf(vertex)];
+    }
+
+    @Override
+    public IEdge removeEdge(final INode sourceVertex, final INode targetVertex)
+    {
+        throw immutable();
+    }
+
+    @Override
+    public boolean removeEdge(final IEdge iEdge)
+    {
+        throw immutable();
+    }
+
+    @Override
+    public boolean removeVertex(final INode iNode)
+    {
+        throw immutable();
+    }
+
+    @Override
+    public Set<INode> vertexSet()
+    {
+        return vertexSet;
+    }
+
+    @Override
+    public INode getEdgeSource(final IEdge iEdge)
+    {
+        return nodes[edgeSources[edgeIndexOf(iEdge)]];
+    }
+
+    @Override
+    public INode getEdgeTarget(final IEdge iEdge)
+    {
+        return nodes[edgeTargets[edgeIndexOf(iEdge)]];
+    }
+
+    @Override
+    public GraphType getType()
+    {
+        return TYPE;
+    }
+
+    @Override
+    public double getEdgeWeight(final IEdge iEdge)
+    {
+        return edgeWeights[edgeIndexOf(iEdge)];
+    }
+
+    @Override
+    public void setEdgeWeight(final IEdge iEdge, final double weight)
+    {
+        throw immutable();
+    }
+
+    private int edgeIndexOf(final IEdge edge)
+    {
+        final Integer index = edgeIndices.get(edge);
+        if (index == null)
+        {
+            throw new IllegalArgumentException("no such edge in graph: " + edge);
+        }
+        return index;
+    }
+
+    private static UnsupportedOperationException immutable()
+    {
+        return new UnsupportedOperationException("A compiled analysis graph can not be modified.");
+    }
+
+    /**
+     * Read only view over a slice of one of the adjacency arrays.
+     */
+    private final class EdgeRange extends AbstractSet<IEdge>
+    {
+        private final int[] adjacency;
+        private final int   start;
+        private final int   end;
+
+        private EdgeRange(final int[] adjacency, final int start, final int end)
+        {
+            this.adjacency = adjacency;
+            this.start = start;
+            this.end = end;
+        }
+
+        @NotNull
+        @Override
+        public Iterator<IEdge> iterator()
+        {
+            return new Iterator<>() {
+                private int cursor = start;
+
+                @Override
+                public boolean hasNext()
+                {
+                    return cursor < end;
+                }
+
+                @Override
+                public IEdge next()
+                {
+                    if (cursor >= end)
+                    {
+                        throw new NoSuchElementException();
+                    }
+                    return edges[adjacency[cursor++]];
+                }
+            };
+        }
+
+        @Override
+        public int size()
+        {
+            return end - start;
+        }
+
+        @Override
+        public boolean contains(final Object o)
+        {
+            if (!(o instanceof IEdge))
+            {
+                return false;
+            }
+
+            final Integer index = edgeIndices.get(o);
+            if (index == null)
+            {
+                return false;
+            }
+
+            for (int i = start; i < end; i++)
+            {
+                if (adjacency[i] == index)
+                {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Read only view over all edges, in index order.
+     */
+    private final class EdgeArraySet extends AbstractSet<IEdge>
+    {
+        @NotNull
+        @Override
+        public Iterator<IEdge> iterator()
+        {
+            return Arrays.asList(edges).iterator();
+        }
+
+        @Override
+        public int size()
+        {
+            return edges.length;
+        }
+
+        @Override
+        public boolean contains(final Object o)
+        {
+            return o instanceof IEdge && edgeIndices.containsKey(o);
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.ldtteam.aequivaleo.analysis.jgrapht.graph;
+
+import com.ldtteam.aequivaleo.analysis.jgrapht.aequivaleo.IEdge;
+import com.ldtteam.aequivaleo.analysis.jgrapht.aequivaleo.IGraph;
+import com.ldtteam.aequivaleo.analysis.jgrapht.aequivaleo.INode;
+import org.jgrapht.graph.MaskSubgraph;
+
+import java.util.Set;
+
+/**
+ * A read only view of a graph, which hides a set of its edges.
+ * Changes to the underlying graph are visible through the view.
+ */
+public class EdgeMaskedGraph extends MaskSubgraph<INode, IEdge> implements IGraph
+{
+    public EdgeMaskedGraph(final IGraph base, final Set<IEdge> maskedEdges)
+    {
+        super(base, node -> false, maskedEdges::contains);
+    }
+}
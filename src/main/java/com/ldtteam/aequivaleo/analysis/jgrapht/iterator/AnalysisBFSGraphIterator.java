@@ -34,18 +34,87 @@ public class AnalysisBFSGraphIterator extends CrossComponentIterator<INode, IEdg
     {
         super(iteratingGraph, sourceGraphNode);
 
+        this.depthMap.putAll(calculateDepthMap(iteratingGraph, sourceGraphNode));
+        this.startNode = sourceGraphNode;
+        this.analysisGraph = analysisGraph;
+
+        if (this.getGraph() != this.analysisGraph) {
+            validateGraphs();
+        }
+    }
+
+    /**
+     * Calculates the depth map of the given graph, starting at the given node.
+     *
+     * @param iteratingGraph The graph to calculate the depth map for.
+     * @param sourceGraphNode The node to start at.
+     * @return The depth map.
+     */
+    public static Map<INode, Integer> calculateDepthMap(final IGraph iteratingGraph, final INode sourceGraphNode)
+    {
         final DepthMapBFSIterator depthMapBFSIterator = new DepthMapBFSIterator(iteratingGraph, sourceGraphNode);
         while(depthMapBFSIterator.hasNext())
         {
             depthMapBFSIterator.next();
         }
-        this.depthMap.putAll(depthMapBFSIterator.getDepthMap());
-        this.startNode = sourceGraphNode;
-        this.analysisGraph = analysisGraph;
+        return depthMapBFSIterator.getDepthMap();
+    }
 
-        if (this.getGraph() != this.analysisGraph) {
-            validateGraphs();
+    /**
+     * Calculates the order in which this iterator visits the nodes of the given graph, when none of them have been analyzed yet.
+     * A node counts as calculable once all of its sources in the graph have been visited, the queues are otherwise handled like the iterator does.
+     * The order only depends on the topology of the graph, and can thus be replayed without iterating again.
+     *
+     * @param iteratingGraph The graph to calculate the order for.
+     * @param sourceGraphNode The node to start at.
+     * @return The nodes reachable from the start node, in visiting order.
+     */
+    public static List<INode> calculateVisitOrder(final IGraph iteratingGraph, final INode sourceGraphNode)
+    {
+        final Map<INode, Integer> depthMap = calculateDepthMap(iteratingGraph, sourceGraphNode);
+        final Set<INode> seen = new HashSet<>();
+        final Set<INode> visited = new HashSet<>();
+        final Queue<INode> completeQueue = new ArrayDeque<>();
+        final PriorityQueue<INode> incompleteQueue = new PriorityQueue<>(Comparator.comparing(n -> depthMap.getOrDefault(n, Integer.MAX_VALUE)));
+        final List<INode> order = new ArrayList<>();
+
+        seen.add(sourceGraphNode);
+        completeQueue.offer(sourceGraphNode);
+        while (!completeQueue.isEmpty() || !incompleteQueue.isEmpty())
+        {
+            final INode vertex = completeQueue.isEmpty() ? incompleteQueue.poll() : completeQueue.poll();
+            visited.add(vertex);
+            order.add(vertex);
+
+            for (IEdge edge : iteratingGraph.outgoingEdgesOf(vertex))
+            {
+                final INode target = iteratingGraph.getEdgeTarget(edge);
+                if (seen.add(target))
+                {
+                    if (areSourcesVisited(iteratingGraph, target, visited))
+                        completeQueue.offer(target);
+                    else
+                        incompleteQueue.offer(target);
+                }
+                else if (incompleteQueue.contains(target) && areSourcesVisited(iteratingGraph, target, visited))
+                {
+                    incompleteQueue.remove(target);
+                    completeQueue.offer(target);
+                }
+            }
+        }
+
+        return order;
+    }
+
+    private static boolean areSourcesVisited(final IGraph iteratingGraph, final INode vertex, final Set<INode> visited)
+    {
+        for (IEdge edge : iteratingGraph.incomingEdgesOf(vertex))
+        {
+            if (!visited.contains(iteratingGraph.getEdgeSource(edge)))
+                return false;
         }
+        return true;
     }
 
     public void validateGraphs() {
@@ -0,0 +1,274 @@
+package com.ldtteam.aequivaleo.analysis.jgrapht.iterator;
+
+import com.google.common.collect.Maps;
+import com.ldtteam.aequivaleo.analysis.jgrapht.aequivaleo.IEdge;
+import com.ldtteam.aequivaleo.analysis.jgrapht.aequivaleo.IGraph;
+import com.ldtteam.aequivaleo.analysis.jgrapht.aequivaleo.INode;
+import com.ldtteam.aequivaleo.analysis.jgrapht.graph.CompiledAnalysisGraph;
+import com.ldtteam.aequivaleo.api.util.StreamUtils;
+import com.ldtteam.aequivaleo.utils.AnalysisLogHandler;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * Level synchronous alternative to the {@link AnalysisBFSGraphIterator}.
+ * <p>
+ * Splits the part of the graph which is reachable from the start node into wavefronts. Each node is placed one level
+ * below the deepest of its reachable parents, so nodes of the same wavefront never share an edge and can determine
+ * their result and notify their neighbors concurrently.
+ * Since a node only ever sees the final values of all its reachable parents, the outcome does not depend on how the
+ * nodes of a wavefront are scheduled.
+ * <p>
+ * Only acyclic graphs can be processed, use {@link #canProcess()} to check this before calling {@link #process(boolean, Consumer)}.
+ */
+public class WavefrontAnalysisProcessor
+{
+    private static final Logger LOGGER = LogManager.getLogger();
+
+    private final IGraph            graph;
+    private final List<List<INode>> wavefronts;
+
+    public WavefrontAnalysisProcessor(final IGraph graph, final INode startNode)
+    {
+        this(graph, collectReachableNodes(graph, startNode));
+    }
+
+    /**
+     * Creates a processor which only handles the given nodes.
+     * Parents outside the given nodes are considered to be processed already.
+     *
+     * @param graph The graph to process.
+     * @param nodes The nodes to process.
+     */
+    public WavefrontAnalysisProcessor(final IGraph graph, final Collection<INode> nodes)
+    {
+        this.graph = graph;
+        this.wavefronts = buildWavefronts(graph, nodes instanceof Set ? (Set<INode>) nodes : new LinkedHashSet<>(nodes));
+    }
+
+    /**
+     * Indicates if the graph could be split into wavefronts.
+     *
+     * @return {@code true} when the processed nodes do not contain a cycle.
+     */
+    public boolean canProcess()
+    {
+        return !wavefronts.isEmpty();
+    }
+
+    /**
+     * Processes all wavefronts in order.
+     *
+     * @param parallel    {@code true} to run the nodes of a single wavefront in parallel.
+     * @param onProcessed Callback invoked on the calling thread for every node, once its wavefront completed.
+     */
+    public void process(final boolean parallel, final Consumer<INode> onProcessed)
+    {
+        if (!canProcess())
+        {
+            throw new IllegalStateException("The processed nodes contain a cycle. They can not be processed in wavefronts.");
+        }
+
+        for (int i = 0; i < wavefronts.size(); i++)
+        {
+            final List<INode> wavefront = wavefronts.get(i);
+            AnalysisLogHandler.debug(LOGGER, String.format("Processing wavefront: %d containing: %d nodes.", i, wavefront.size()));
+
+            if (!parallel || wavefront.size() == 1)
+            {
+                wavefront.forEach(this::processNode);
+            }
+            else
+            {
+                StreamUtils.execute(() -> wavefront.parallelStream().forEach(this::processNode));
+            }
+
+            wavefront.forEach(onProcessed);
+        }
+    }
+
+    private void processNode(final INode node)
+    {
+        node.determineResult(graph);
+        node.onReached(graph);
+    }
+
+    private static Set<INode> collectReachableNodes(final IGraph graph, final INode startNode)
+    {
+        if (graph instanceof CompiledAnalysisGraph compiledGraph)
+        {
+            return collectReachableNodes(compiledGraph, startNode);
+        }
+
+        final Set<INode> reachable = new LinkedHashSet<>();
+        final Queue<INode> queue = new ArrayDeque<>();
+        reachable.add(startNode);
+        queue.offer(startNode);
+        while (!queue.isEmpty())
+        {
+            final INode node = queue.poll();
+            for (IEdge edge : graph.outgoingEdgesOf(node))
+            {
+                final INode target = graph.getEdgeTarget(edge);
+                if (reachable.add(target))
+                {
+                    queue.offer(target);
+                }
+            }
+        }
+
+        return reachable;
+    }
+
+    private static Set<INode> collectReachableNodes(final CompiledAnalysisGraph graph, final INode startNode)
+    {
+        final Set<INode> reachable = new LinkedHashSet<>();
+        final boolean[] reached = new boolean[graph.getNodeCount()];
+        final int[] queue = new int[graph.getNodeCount()];
+        int head = 0;
+        int tail = 0;
+        reachable.add(startNode);
+        queue[tail++] = graph.indexOf(startNode);
+        reached[queue[0]] = true;
+        while (head < tail)
+        {
+            final int node = queue[head++];
+            for (int slot = graph.getOutgoingStart(node); slot < graph.getOutgoingEnd(node); slot++)
+            {
+                final int target = graph.getOutgoingTarget(slot);
+                if (!reached[target])
+                {
+                    reached[target] = true;
+                    queue[tail++] = target;
+                    reachable.add(graph.getNode(target));
+                }
+            }
+        }
+
+        return reachable;
+    }
+
+    private static List<List<INode>> buildWavefronts(final IGraph graph, final Set<INode> nodes)
+    {
+        if (graph instanceof CompiledAnalysisGraph compiledGraph)
+        {
+            return buildWavefronts(compiledGraph, nodes);
+        }
+
+        //Parents outside the processed nodes either can not be reached, and will never produce a value,
+        //or are already processed. Either way they are not waited on.
+        final Map<INode, Integer> remainingParentEdges = Maps.newHashMap();
+        List<INode> current = new ArrayList<>();
+        for (INode node : nodes)
+        {
+            int count = 0;
+            for (IEdge edge : graph.incomingEdgesOf(node))
+            {
+                if (nodes.contains(graph.getEdgeSource(edge)))
+                {
+                    count++;
+                }
+            }
+            remainingParentEdges.put(node, count);
+
+            if (count == 0)
+            {
+                current.add(node);
+            }
+        }
+
+        final List<List<INode>> wavefronts = new ArrayList<>();
+        int assignedNodes = 0;
+        while (!current.isEmpty())
+        {
+            wavefronts.add(current);
+            assignedNodes += current.size();
+
+            final List<INode> next = new ArrayList<>();
+            for (INode node : current)
+            {
+                for (IEdge edge : graph.outgoingEdgesOf(node))
+                {
+                    final INode target = graph.getEdgeTarget(edge);
+                    if (remainingParentEdges.containsKey(target) && remainingParentEdges.merge(target, -1, Integer::sum) == 0)
+                    {
+                        next.add(target);
+                    }
+                }
+            }
+            current = next;
+        }
+
+        if (assignedNodes != nodes.size())
+        {
+            return Collections.emptyList();
+        }
+
+        return wavefronts;
+    }
+
+    private static List<List<INode>> buildWavefronts(final CompiledAnalysisGraph graph, final Set<INode> nodes)
+    {
+        //Same as the generic variant, but counts the parent edges in an array indexed by node.
+        //Nodes which are not processed keep a negative count, so they are never scheduled.
+        final int[] remainingParentEdges = new int[graph.getNodeCount()];
+        Arrays.fill(remainingParentEdges, -1);
+        for (INode node : nodes)
+        {
+            remainingParentEdges[graph.indexOf(node)] = 0;
+        }
+
+        List<INode> current = new ArrayList<>();
+        for (INode node : nodes)
+        {
+            final int index = graph.indexOf(node);
+            int count = 0;
+            for (int slot = graph.getIncomingStart(index); slot < graph.getIncomingEnd(index); slot++)
+            {
+                if (remainingParentEdges[graph.getIncomingSource(slot)] >= 0)
+                {
+                    count++;
+                }
+            }
+            remainingParentEdges[index] = count;
+
+            if (count == 0)
+            {
+                current.add(node);
+            }
+        }
+
+        final List<List<INode>> wavefronts = new ArrayList<>();
+        int assignedNodes = 0;
+        while (!current.isEmpty())
+        {
+            wavefronts.add(current);
+            assignedNodes += current.size();
+
+            final List<INode> next = new ArrayList<>();
+            for (INode node : current)
+            {
+                final int index = graph.indexOf(node);
+                for (int slot = graph.getOutgoingStart(index); slot < graph.getOutgoingEnd(index); slot++)
+                {
+                    final int target = graph.getOutgoingTarget(slot);
+                    if (remainingParentEdges[target] > 0 && --remainingParentEdges[target] == 0)
+                    {
+                        next.add(graph.getNode(target));
+                    }
+                }
+            }
+            current = next;
+        }
+
+        if (assignedNodes != nodes.size())
+        {
+            return Collections.emptyList();
+        }
+
+        return wavefronts;
+    }
+}
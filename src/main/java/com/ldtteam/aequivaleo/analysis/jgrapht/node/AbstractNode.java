@@ -4,6 +4,7 @@ import com.google.common.collect.*;
 import com.ldtteam.aequivaleo.analysis.jgrapht.aequivaleo.IEdge;
 import com.ldtteam.aequivaleo.analysis.jgrapht.aequivaleo.IGraph;
 import com.ldtteam.aequivaleo.analysis.jgrapht.aequivaleo.INode;
+import com.ldtteam.aequivaleo.analysis.jgrapht.graph.CompiledAnalysisGraph;
 import com.ldtteam.aequivaleo.api.compound.CompoundInstance;
 import com.ldtteam.aequivaleo.api.compound.type.group.ICompoundTypeGroup;
 import com.ldtteam.aequivaleo.api.mediation.IMediationCandidate;
@@ -24,14 +25,17 @@ public abstract class AbstractNode implements INode {
 
     private static final Logger LOGGER = LogManager.getLogger();
 
+    //Results and candidates stay sets: they are handed to the mediation engines and type groups of the api as is.
+    //Sums are only accumulated in CompoundVectors inside a single node, and converted once when the node stores its result.
     @Nullable
     private Set<CompoundInstance> result = null;
 
     private boolean currentIsForced = true;
     @Nullable
     private Set<CompoundInstance> baseResult = null;
+    //Candidates can be delivered concurrently by the parents of this node during parallel propagation.
     @NotNull
-    private final Multimap<INode, Optional<Set<CompoundInstance>>> candidates = HashMultimap.create();
+    private final SetMultimap<INode, Optional<Set<CompoundInstance>>> candidates = Multimaps.synchronizedSetMultimap(HashMultimap.create());
 
     @NotNull
     @Override
@@ -41,21 +45,25 @@ public abstract class AbstractNode implements INode {
 
     @Override
     public void addCandidateResult(final INode neighbor, final IEdge sourceEdge, final Optional<Set<CompoundInstance>> instances) {
-        if (neighbor == this) {
-            this.candidates.removeAll(this);
-        }
+        synchronized (candidates) {
+            if (neighbor == this) {
+                this.candidates.removeAll(this);
+            }
 
-        this.candidates.put(neighbor, instances);
+            this.candidates.put(neighbor, instances);
+        }
     }
 
     @NotNull
     @Override
     public Set<Set<CompoundInstance>> getCandidates() {
         Set<Set<CompoundInstance>> set = new HashSet<>();
-        for (Optional<Set<CompoundInstance>> compoundInstances : candidates.values()) {
-            if (compoundInstances.isPresent()) {
-                Set<CompoundInstance> instances = compoundInstances.get();
-                set.add(instances);
+        synchronized (candidates) {
+            for (Optional<Set<CompoundInstance>> compoundInstances : candidates.values()) {
+                if (compoundInstances.isPresent()) {
+                    Set<CompoundInstance> instances = compoundInstances.get();
+                    set.add(instances);
+                }
             }
         }
         return set;
@@ -65,9 +73,11 @@ public abstract class AbstractNode implements INode {
     @Override
     public Set<INode> getAnalyzedNeighbors() {
         List<INode> list = new ArrayList<>();
-        for (INode n : candidates.keySet()) {
-            if (n != this) {
-                list.add(n);
+        synchronized (candidates) {
+            for (INode n : candidates.keySet()) {
+                if (n != this) {
+                    list.add(n);
+                }
             }
         }
         return ImmutableSet.copyOf(list);
@@ -75,6 +85,18 @@ public abstract class AbstractNode implements INode {
 
     @Override
     public void onReached(final IGraph graph) {
+        if (graph instanceof CompiledAnalysisGraph compiledGraph) {
+            final int index = compiledGraph.indexOf(this);
+            for (int slot = compiledGraph.getOutgoingStart(index); slot < compiledGraph.getOutgoingEnd(index); slot++) {
+                compiledGraph.getNode(compiledGraph.getOutgoingTarget(slot)).addCandidateResult(
+                        this,
+                        compiledGraph.getOutgoingEdge(slot),
+                        getResultingValue()
+                );
+            }
+            return;
+        }
+
         for (IEdge accessibleWeightEdge : graph.outgoingEdgesOf(this)) {
             INode v = graph.getEdgeTarget(accessibleWeightEdge);
             v.addCandidateResult(
@@ -98,11 +120,21 @@ public abstract class AbstractNode implements INode {
         this.baseResult = compoundInstances;
     }
 
+    @Override
+    public void resetAnalysisState() {
+        synchronized (candidates) {
+            this.candidates.clear();
+        }
+        this.result = null;
+        this.currentIsForced = true;
+    }
+
     @Override
     public void determineResult(final IGraph graph) {
         AnalysisLogHandler.debug(LOGGER, String.format("Determining the result of: %s", this));
+        final Set<Set<CompoundInstance>> candidateSets = getCandidates();
         //Short circuit empty result.
-        if (getCandidates().size() == 0) {
+        if (candidateSets.size() == 0) {
             if (result != null) {
                 AnalysisLogHandler.debug(LOGGER, String.format("  > No candidates available. Using current value: %s", this.result));
 
@@ -129,8 +161,8 @@ public abstract class AbstractNode implements INode {
 
         //If we have only one other data set we have nothing to choose from.
         //So we take that.
-        if (getCandidates().size() == 1) {
-            this.result = getCandidates().iterator().next();
+        if (candidateSets.size() == 1) {
+            this.result = candidateSets.iterator().next();
             this.currentIsForced = false;
 
             if (this.baseResult != null) {
@@ -186,13 +218,14 @@ public abstract class AbstractNode implements INode {
             workingResult.addAll(compoundInstances);
         }
 
-        this.result = workingResult;
         this.currentIsForced = false;
 
         if (this.baseResult != null) {
-            this.result = CompoundInstanceUtils.merge(this.result, this.baseResult);
+            workingResult = CompoundInstanceUtils.merge(workingResult, this.baseResult);
         }
 
+        this.result = workingResult;
+
         AnalysisLogHandler.debug(LOGGER, String.format("  > Mediation completed. Determined value is: %s", this.result));
     }
 }
@@ -11,6 +11,7 @@ import com.ldtteam.aequivaleo.api.compound.type.group.ICompoundTypeGroup;
 import com.ldtteam.aequivaleo.api.mediation.IMediationCandidate;
 import com.ldtteam.aequivaleo.api.mediation.IMediationContext;
 import com.ldtteam.aequivaleo.api.util.GroupingUtils;
+import com.ldtteam.aequivaleo.compound.vector.CompoundVector;
 import com.ldtteam.aequivaleo.mediation.SimpleMediationCandidate;
 import com.ldtteam.aequivaleo.mediation.SimpleMediationContext;
 import com.ldtteam.aequivaleo.utils.AnalysisLogHandler;
@@ -126,7 +127,7 @@ public class CliqueNode
     }
 
     @Override
-    public void addCandidateResult(final INode neighbor, final IEdge sourceEdge, final Optional<Set<CompoundInstance>> instances) {
+    public synchronized void addCandidateResult(final INode neighbor, final IEdge sourceEdge, final Optional<Set<CompoundInstance>> instances) {
         if (!ioGraph.containsVertex(neighbor)) {
             return;
         }
@@ -135,12 +136,11 @@ public class CliqueNode
 
         for (IEdge iEdge : ioGraph.outgoingEdgesOf(neighbor)) {
             INode edgeTarget = ioGraph.getEdgeTarget(iEdge);
+            final double factor = ioGraph.getEdgeWeight(ioGraph.getEdge(neighbor, edgeTarget)) / totalOutgoingEdgeWeight;
             final Optional<Set<CompoundInstance>> workingSet = instances.map(innerInstances -> {
                         Set<CompoundInstance> set = new HashSet<>();
                         for (CompoundInstance ci : innerInstances) {
-                            CompoundInstance instance = new CompoundInstance(ci.getType(),
-                                    ci.getAmount() * (ioGraph.getEdgeWeight(ioGraph.getEdge(neighbor, edgeTarget))
-                                            / totalOutgoingEdgeWeight));
+                            CompoundInstance instance = new CompoundInstance(ci.getType(), ci.getAmount() * factor);
                             set.add(instance);
                         }
                         return set;
@@ -202,6 +202,15 @@ public class CliqueNode
         }
     }
 
+    @Override
+    public synchronized void resetAnalysisState() {
+        candidates.clear();
+        finalResult = null;
+        for (IContainerNode node : innerCliqueNodes) {
+            node.resetAnalysisState();
+        }
+    }
+
     @Override
     public void determineResult(final IGraph graph) {
         final Set<INode> startingNodes = new HashSet<>();
@@ -319,7 +328,7 @@ public class CliqueNode
     }
 
     @Override
-    public void onOutgoingEdgeDisable(final INode target, final IEdge edge) {
+    public synchronized void onOutgoingEdgeDisable(final INode target, final IEdge edge) {
         ioGraph.vertexSet().forEach(sourceNode -> {
             if (ioGraph.containsEdge(sourceNode, target)) {
                 disabledIoGraphEdges.put(sourceNode, target, ioGraph.getEdge(sourceNode, target));
@@ -329,7 +338,7 @@ public class CliqueNode
     }
 
     @Override
-    public void onOutgoingEdgeEnabled(final INode target, final IEdge edge) {
+    public synchronized void onOutgoingEdgeEnabled(final INode target, final IEdge edge) {
         final Set<INode> sourceNodes = new HashSet<>(disabledIoGraphEdges.rowKeySet());
 
         sourceNodes.forEach(sourceNode -> {
@@ -449,7 +458,7 @@ public class CliqueNode
     }
 
     @Override
-    public Set<CompoundInstance> getInputInstances(final IRecipeNode recipeNode) {
+    public synchronized Set<CompoundInstance> getInputInstances(final IRecipeNode recipeNode) {
         if (!ioGraph.containsVertex(recipeNode)) {
             return Collections.emptySet();
         }
@@ -463,18 +472,11 @@ public class CliqueNode
             }
         }
 
-        Set<CompoundInstance> compoundedResult = new HashSet<>();
-        for (Collection<CompoundInstance> sameType : GroupingUtils.groupByUsingList(result, CompoundInstance::getType)) {
-            if (!sameType.isEmpty()) {
-                CompoundInstance instance = new CompoundInstance(sameType.iterator().next().getType(), sameType.stream().mapToDouble(CompoundInstance::getAmount).sum());
-                compoundedResult.add(instance);
-            }
-        }
-        return compoundedResult;
+        return CompoundVector.of(result).toInstances();
     }
 
     @Override
-    public Set<IRecipeInputNode> getInputNodes(final IRecipeNode recipeNode) {
+    public synchronized Set<IRecipeInputNode> getInputNodes(final IRecipeNode recipeNode) {
         if (!ioGraph.containsVertex(recipeNode)) {
             return Collections.emptySet();
         }
@@ -492,7 +494,7 @@ public class CliqueNode
     }
 
     @Override
-    public Set<CompoundInstance> getResidueInstances(final IRecipeNode recipeNode) {
+    public synchronized Set<CompoundInstance> getResidueInstances(final IRecipeNode recipeNode) {
         if (!ioGraph.containsVertex(recipeNode)) {
             return Collections.emptySet();
         }
@@ -506,13 +508,6 @@ public class CliqueNode
             }
         }
 
-        Set<CompoundInstance> compoundedResult = new HashSet<>();
-        for (Collection<CompoundInstance> sameType : GroupingUtils.groupByUsingList(result, CompoundInstance::getType)) {
-            if (!sameType.isEmpty()) {
-                CompoundInstance instance = new CompoundInstance(sameType.iterator().next().getType(), sameType.stream().mapToDouble(CompoundInstance::getAmount).sum());
-                compoundedResult.add(instance);
-            }
-        }
-        return compoundedResult;
+        return CompoundVector.of(result).toInstances();
     }
 }
@@ -6,10 +6,11 @@ import com.ldtteam.aequivaleo.analysis.jgrapht.aequivaleo.*;
 import com.ldtteam.aequivaleo.analysis.jgrapht.cycles.JGraphTCyclesReducer;
 import com.ldtteam.aequivaleo.analysis.jgrapht.edge.Edge;
 import com.ldtteam.aequivaleo.analysis.jgrapht.graph.AequivaleoGraph;
+import com.ldtteam.aequivaleo.analysis.jgrapht.graph.EdgeMaskedGraph;
 import com.ldtteam.aequivaleo.analysis.jgrapht.iterator.AnalysisBFSGraphIterator;
 import com.ldtteam.aequivaleo.api.compound.CompoundInstance;
 import com.ldtteam.aequivaleo.api.compound.container.ICompoundContainer;
-import com.ldtteam.aequivaleo.api.util.GroupingUtils;
+import com.ldtteam.aequivaleo.compound.vector.CompoundVector;
 import com.ldtteam.aequivaleo.utils.AnalysisLogHandler;
 import com.ldtteam.aequivaleo.utils.GraphUtils;
 import org.apache.logging.log4j.LogManager;
@@ -17,6 +18,7 @@ import org.apache.logging.log4j.Logger;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 public class InnerNode
@@ -30,14 +32,52 @@ public class InnerNode
     private final Multimap<INode, Optional<Set<CompoundInstance>>> candidates = ArrayListMultimap.create();
     private final Table<INode, INode, IEdge> disabledIoGraphEdges = HashBasedTable.create();
 
+    //The evaluation plan of the inner analysis, only depends on the topology so it is build once and reused.
+    private IGraph workingGraph = null;
+    private final Map<INode, IGraph> startNodeWorkingGraphs = new HashMap<>();
+    private final Map<INode, List<INode>> startNodeVisitOrders = new HashMap<>();
+
     public InnerNode(
             final IGraph sourceGraph,
             final List<INode> innerVertices
     ) {
-        setupGraphs(sourceGraph, Sets.newHashSet(innerVertices));
+        this(sourceGraph, innerVertices, InnerNode::reduceInnerCycles);
+    }
+
+    /**
+     * Creates a new inner node, whose inner graph is reduced by the given reducer.
+     * <p>
+     * The inner analysis runs a pass over the inner graph per node which received a value, and tolerates cycles in the
+     * inner graph. A reducer which leaves cycles in place thus only trades nested inner nodes for longer passes.
+     * The order of each pass is calculated once per start node, and replayed on later analyses.
+     *
+     * @param sourceGraph        The graph which contains the inner vertices.
+     * @param innerVertices      The vertices this node replaces.
+     * @param innerGraphReducer  Reduces the inner graph, after it was build.
+     */
+    public InnerNode(
+            final IGraph sourceGraph,
+            final List<INode> innerVertices,
+            final Consumer<IGraph> innerGraphReducer
+    ) {
+        setupGraphs(sourceGraph, Sets.newHashSet(innerVertices), innerGraphReducer);
         AnalysisLogHandler.debug(LOGGER, String.format("Created inner graph node: %s", toString()));
     }
 
+    /**
+     * Reduces the simple cycles of the given inner graph into nested inner nodes, leaving a graph which is a single cycle as is.
+     *
+     * @param innerGraph The inner graph.
+     */
+    public static void reduceInnerCycles(final IGraph innerGraph) {
+        final JGraphTCyclesReducer<IGraph, INode, IEdge> cyclesReducer = new JGraphTCyclesReducer<>(
+                InnerNode::new,
+                INode::onNeighborReplaced,
+                false);
+
+        cyclesReducer.reduce(innerGraph);
+    }
+
     @Override
     public IGraph getIOGraph(final IGraph graph) {
         return ioGraph;
@@ -114,7 +154,7 @@ public class InnerNode
     }
 
     @Override
-    public void addCandidateResult(final INode neighbor, final IEdge sourceEdge, final Optional<Set<CompoundInstance>> instances) {
+    public synchronized void addCandidateResult(final INode neighbor, final IEdge sourceEdge, final Optional<Set<CompoundInstance>> instances) {
         if (!ioGraph.containsVertex(neighbor)) {
             return;
         }
@@ -126,11 +166,11 @@ public class InnerNode
                 .map(ioGraph::getEdgeTarget)
                 .findFirst()
                 .ifPresent(node -> {
+                    final double factor = ioGraph.getEdgeWeight(ioGraph.getEdge(neighbor, node)) / totalOutgoingEdgeWeight;
                     final Optional<Set<CompoundInstance>> workingSet = instances.map(innerInstances -> {
                         Set<CompoundInstance> set = new HashSet<>();
                         for (CompoundInstance ci : innerInstances) {
-                            CompoundInstance instance = new CompoundInstance(ci.getType(),
-                                    ci.getAmount() * (ioGraph.getEdgeWeight(ioGraph.getEdge(neighbor, node)) / totalOutgoingEdgeWeight));
+                            CompoundInstance instance = new CompoundInstance(ci.getType(), ci.getAmount() * factor);
                             set.add(instance);
                         }
                         return set;
@@ -183,6 +223,14 @@ public class InnerNode
         }
     }
 
+    @Override
+    public synchronized void resetAnalysisState() {
+        candidates.clear();
+        for (INode node : innerGraph.vertexSet()) {
+            node.resetAnalysisState();
+        }
+    }
+
     @Override
     public void determineResult(final IGraph graph) {
         final Set<INode> startingNodes = new HashSet<>();
@@ -198,83 +246,33 @@ public class InnerNode
             }
         }
 
-        final IGraph workingGraph = GraphUtils.mergeGraphs(this.innerGraph, this.ioGraph);
-
-        for (final INode startNode : startingNodes) {
-            //NOTE: Due to the way our system works, every node will have only one incoming edge!
-            final Set<IEdge> workingGraphIncomingEdges = Sets.newHashSet(workingGraph.incomingEdgesOf(startNode));
-            final Map<IEdge, INode> workingGraphSourceMap =
-                    new HashMap<>();
-            final Set<IEdge> innerGraphIncomingEdges = Sets.newHashSet(innerGraph.incomingEdgesOf(startNode));
-            final Map<IEdge, INode> innerGraphSourceMap =
-                    new HashMap<>();
-            for (IEdge edge : workingGraphIncomingEdges) {
-                if (workingGraphSourceMap.put(edge, workingGraph.getEdgeSource(edge)) != null) {
-                    throw new IllegalStateException("Duplicate edge.");
-                }
-            }
-            for (IEdge edge : innerGraphIncomingEdges) {
-                if (innerGraphSourceMap.put(edge, innerGraph.getEdgeSource(edge)) != null) {
-                    throw new IllegalStateException("Duplicate edge.");
-                }
-            }
-
-            //We remove the inner edge of all edge
-            for (IEdge incomingEdge : workingGraphIncomingEdges) {
-                workingGraph.removeEdge(incomingEdge);
-            }
-            for (IEdge incomingEdge : innerGraphIncomingEdges) {
-                innerGraph.removeEdge(incomingEdge);
-            }
+        final IGraph workingGraph = getWorkingGraph();
+        final StatCollector innerStatCollector = new StatCollector("Inner node analysis.", innerGraph.vertexSet().size()) {
 
-            for (Map.Entry<IEdge, INode> e : workingGraphSourceMap.entrySet()) {
-                IEdge key = e.getKey();
-                INode value = e.getValue();
-                value.onOutgoingEdgeDisable(startNode, key);
+            @Override
+            protected void logState() {
+                //Noop
             }
+        };
 
-            for (Map.Entry<IEdge, INode> e : innerGraphSourceMap.entrySet()) {
-                IEdge key = e.getKey();
-                INode value = e.getValue();
-                value.onOutgoingEdgeDisable(startNode, key);
+        for (final INode startNode : startingNodes) {
+            //The incoming edges of the start node are hidden by a view instead of being removed from the graphs.
+            //Neighbors which keep their own copy of these edges, like nested inner nodes, still need to be told about it.
+            final Map<IEdge, INode> incomingEdgeSources = new HashMap<>();
+            for (IEdge edge : workingGraph.incomingEdgesOf(startNode)) {
+                incomingEdgeSources.put(edge, workingGraph.getEdgeSource(edge));
             }
+            incomingEdgeSources.forEach((edge, source) -> source.onOutgoingEdgeDisable(startNode, edge));
 
             //Run inner analysis
-            final AnalysisBFSGraphIterator iterator = new AnalysisBFSGraphIterator(innerGraph, startNode, workingGraph);
-            final StatCollector innerStatCollector = new StatCollector("Inner node analysis.", innerGraph.vertexSet().size()) {
-
-                @Override
-                protected void logState() {
-                    //Noop
-                }
-            };
-            while (iterator.hasNext()) {
-                iterator.next().collectStats(innerStatCollector);
-            }
-
-            //Re-add the original edges that where removed.
-            for (Map.Entry<IEdge, INode> entry : workingGraphSourceMap.entrySet()) {
-                IEdge edge = entry.getKey();
-                INode source = entry.getValue();
-                workingGraph.addEdge(source, startNode, edge);
-            }
-            for (Map.Entry<IEdge, INode> entry : innerGraphSourceMap.entrySet()) {
-                IEdge edge = entry.getKey();
-                INode source = entry.getValue();
-                innerGraph.addEdge(source, startNode, edge);
-            }
-
-            for (Map.Entry<IEdge, INode> entry : workingGraphSourceMap.entrySet()) {
-                IEdge key = entry.getKey();
-                INode value = entry.getValue();
-                value.onOutgoingEdgeEnabled(startNode, key);
+            final IGraph analysisGraph = startNodeWorkingGraphs.computeIfAbsent(startNode, node -> new EdgeMaskedGraph(workingGraph, Sets.newHashSet(workingGraph.incomingEdgesOf(node))));
+            for (final INode node : getVisitOrder(startNode)) {
+                node.determineResult(analysisGraph);
+                node.onReached(analysisGraph);
+                node.collectStats(innerStatCollector);
             }
 
-            for (Map.Entry<IEdge, INode> entry : innerGraphSourceMap.entrySet()) {
-                IEdge edge = entry.getKey();
-                INode source = entry.getValue();
-                source.onOutgoingEdgeEnabled(startNode, edge);
-            }
+            incomingEdgeSources.forEach((edge, source) -> source.onOutgoingEdgeEnabled(startNode, edge));
 
             if (startingNodes.stream().allMatch(node -> node.getCandidates().size() == nodeCandidateCounts.get(node))) {
                 //The loop ran over every node in the network
@@ -299,33 +297,63 @@ public class InnerNode
                 ioGraph.setEdgeWeight(ioGraph.getEdgeSource(edge), newNeighbor, ioGraph.getEdgeWeight(edge));
             }
             ioGraph.removeVertex(originalNeighbor);
+            workingGraph = null;
+            startNodeWorkingGraphs.clear();
 
             validateIOGraph();
         }
     }
 
     @Override
-    public void onOutgoingEdgeDisable(final INode target, final IEdge edge) {
+    public synchronized void onOutgoingEdgeDisable(final INode target, final IEdge edge) {
         ioGraph.vertexSet().forEach(sourceNode -> {
             if (ioGraph.containsEdge(sourceNode, target)) {
-                disabledIoGraphEdges.put(sourceNode, target, ioGraph.getEdge(sourceNode, target));
-                ioGraph.removeEdge(sourceNode, target);
+                final IEdge disabledEdge = ioGraph.getEdge(sourceNode, target);
+                disabledIoGraphEdges.put(sourceNode, target, disabledEdge);
+                ioGraph.removeEdge(disabledEdge);
+                if (workingGraph != null) {
+                    workingGraph.removeEdge(disabledEdge);
+                }
             }
         });
     }
 
     @Override
-    public void onOutgoingEdgeEnabled(final INode target, final IEdge edge) {
+    public synchronized void onOutgoingEdgeEnabled(final INode target, final IEdge edge) {
         disabledIoGraphEdges.rowKeySet().forEach(sourceNode -> {
             if (disabledIoGraphEdges.contains(sourceNode, target)) {
-                ioGraph.addEdge(sourceNode, target, disabledIoGraphEdges.get(sourceNode, target));
+                final IEdge disabledEdge = disabledIoGraphEdges.get(sourceNode, target);
+                ioGraph.addEdge(sourceNode, target, disabledEdge);
+                if (workingGraph != null) {
+                    workingGraph.addEdge(sourceNode, target, disabledEdge);
+                }
                 disabledIoGraphEdges.remove(sourceNode, target);
             }
         });
     }
 
-    private void setupGraphs(final IGraph graph, final Set<INode> innerVertices) {
+    /**
+     * The order in which the inner graph is analyzed, when starting at the given node.
+     * The incoming edges of the start node are ignored, so the order starts at the node and covers everything reachable from it.
+     */
+    private List<INode> getVisitOrder(final INode startNode) {
+        return startNodeVisitOrders.computeIfAbsent(startNode, node -> AnalysisBFSGraphIterator.calculateVisitOrder(
+                new EdgeMaskedGraph(innerGraph, Sets.newHashSet(innerGraph.incomingEdgesOf(node))),
+                node
+        ));
+    }
+
+    private IGraph getWorkingGraph() {
+        if (workingGraph == null) {
+            workingGraph = GraphUtils.mergeGraphs(this.innerGraph, this.ioGraph);
+        }
+
+        return workingGraph;
+    }
+
+    private void setupGraphs(final IGraph graph, final Set<INode> innerVertices, final Consumer<IGraph> innerGraphReducer) {
         setupInnerGraph(graph, innerVertices);
+        innerGraphReducer.accept(innerGraph);
         setupIOGraph(graph, innerVertices);
 
         this.hash = Objects.hash(ioGraph, innerGraph);
@@ -344,13 +372,6 @@ public class InnerNode
                 }
             }
         }
-
-        final JGraphTCyclesReducer<IGraph, INode, IEdge> cyclesReducer = new JGraphTCyclesReducer<>(
-                InnerNode::new,
-                INode::onNeighborReplaced,
-                false);
-
-        cyclesReducer.reduce(innerGraph);
     }
 
     private void setupIOGraph(final IGraph graph, final Set<INode> innerVertices) {
@@ -442,7 +463,7 @@ public class InnerNode
     }
 
     @Override
-    public Set<CompoundInstance> getInputInstances(final IRecipeNode recipeNode) {
+    public synchronized Set<CompoundInstance> getInputInstances(final IRecipeNode recipeNode) {
         if (!ioGraph.containsVertex(recipeNode)) {
             return Collections.emptySet();
         }
@@ -456,19 +477,12 @@ public class InnerNode
             }
         }
 
-        Set<CompoundInstance> compoundedResult = new HashSet<>();
-        for (Collection<CompoundInstance> sameType : GroupingUtils.groupByUsingList(result, CompoundInstance::getType)) {
-            if (!sameType.isEmpty()) {
-                CompoundInstance instance = new CompoundInstance(sameType.iterator().next().getType(), sameType.stream().mapToDouble(CompoundInstance::getAmount).sum());
-                compoundedResult.add(instance);
-            }
-        }
-        return compoundedResult;
+        return CompoundVector.of(result).toInstances();
     }
 
 
     @Override
-    public Set<IRecipeInputNode> getInputNodes(final IRecipeNode recipeNode) {
+    public synchronized Set<IRecipeInputNode> getInputNodes(final IRecipeNode recipeNode) {
         if (!ioGraph.containsVertex(recipeNode)) {
             return Collections.emptySet();
         }
@@ -486,7 +500,7 @@ public class InnerNode
     }
 
     @Override
-    public Set<CompoundInstance> getResidueInstances(final IRecipeNode recipeNode) {
+    public synchronized Set<CompoundInstance> getResidueInstances(final IRecipeNode recipeNode) {
         if (!ioGraph.containsVertex(recipeNode)) {
             return Collections.emptySet();
         }
@@ -500,13 +514,6 @@ public class InnerNode
             }
         }
 
-        Set<CompoundInstance> compoundedResult = new HashSet<>();
-        for (Collection<CompoundInstance> sameType : GroupingUtils.groupByUsingList(result, CompoundInstance::getType)) {
-            if (!sameType.isEmpty()) {
-                CompoundInstance instance = new CompoundInstance(sameType.iterator().next().getType(), sameType.stream().mapToDouble(CompoundInstance::getAmount).sum());
-                compoundedResult.add(instance);
-            }
-        }
-        return compoundedResult;
+        return CompoundVector.of(result).toInstances();
     }
 }
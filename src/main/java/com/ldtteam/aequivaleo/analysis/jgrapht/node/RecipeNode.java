@@ -2,15 +2,13 @@ package com.ldtteam.aequivaleo.analysis.jgrapht.node;
 
 import com.ldtteam.aequivaleo.analysis.StatCollector;
 import com.ldtteam.aequivaleo.analysis.jgrapht.aequivaleo.*;
+import com.ldtteam.aequivaleo.analysis.jgrapht.graph.CompiledAnalysisGraph;
 import com.ldtteam.aequivaleo.api.compound.CompoundInstance;
-import com.ldtteam.aequivaleo.api.compound.type.ICompoundType;
-import com.ldtteam.aequivaleo.api.compound.type.group.ICompoundTypeGroup;
 import com.ldtteam.aequivaleo.api.recipe.equivalency.IEquivalencyRecipe;
-import com.ldtteam.aequivaleo.api.util.GroupingUtils;
+import com.ldtteam.aequivaleo.compound.vector.CompoundVector;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.*;
-import java.util.stream.Collectors;
 
 public class RecipeNode extends AbstractNode implements IRecipeNode
 {
@@ -55,91 +53,152 @@ public class RecipeNode extends AbstractNode implements IRecipeNode
     @Override
     public void determineResult(final IGraph graph)
     {
-        final Set<IRecipeResidueNode> requiredKnownOutputs = new HashSet<>();
-        for (IEdge iEdge : graph.incomingEdgesOf(this))
+        final CompoundVector summedCompounds = new CompoundVector();
+        if (graph instanceof CompiledAnalysisGraph compiledGraph)
         {
-            INode edgeSource = graph.getEdgeSource(iEdge);
-            if (edgeSource instanceof IRecipeResidueNode)
+            //The analysis graph holds at most one edge between two nodes, so every parent is visited exactly once.
+            final int index = compiledGraph.indexOf(this);
+            boolean atLeastOneValidIngredient = false;
+            for (int slot = compiledGraph.getIncomingStart(index); slot < compiledGraph.getIncomingEnd(index); slot++)
             {
-                IRecipeResidueNode iRecipeResidueNode = (IRecipeResidueNode) edgeSource;
-                requiredKnownOutputs.add(iRecipeResidueNode);
+                if (compiledGraph.getNode(compiledGraph.getIncomingSource(slot)) instanceof IRecipeInputNode inputNeighbor)
+                {
+                    atLeastOneValidIngredient |= addInputInstances(graph, inputNeighbor, compiledGraph.getIncomingWeight(slot), summedCompounds);
+                }
             }
-        }
-        final Set<IRecipeInputNode> inputNeighbors = new HashSet<>();
-        for (IEdge iEdge : graph.incomingEdgesOf(this))
-        {
-            INode edgeSource = graph.getEdgeSource(iEdge);
-            if (edgeSource instanceof IRecipeInputNode)
+
+            if (!atLeastOneValidIngredient) {
+                this.forceSetResult(null, false);
+                return;
+            }
+
+            for (int slot = compiledGraph.getIncomingStart(index); slot < compiledGraph.getIncomingEnd(index); slot++)
             {
-                IRecipeInputNode iRecipeInputNode = (IRecipeInputNode) edgeSource;
-                inputNeighbors.add(iRecipeInputNode);
+                if (compiledGraph.getNode(compiledGraph.getIncomingSource(slot)) instanceof IRecipeResidueNode requiredKnownOutput)
+                {
+                    subtractResidueInstances(requiredKnownOutput, compiledGraph.getIncomingWeight(slot), summedCompounds);
+                }
             }
         }
-
-        final Set<CompoundInstance> summedCompoundInstances = new HashSet<>();
-        boolean atLeastOneValidIngredient = false;
-        Map<ICompoundType, Double> map = new HashMap<>();
-        for (IRecipeInputNode inputNeighbor : inputNeighbors)
+        else
         {
-            for (CompoundInstance compoundInstance1 : inputNeighbor
-                                                        .getInputInstances(this))
+            final Set<IRecipeResidueNode> requiredKnownOutputs = new HashSet<>();
+            final Set<IRecipeInputNode> inputNeighbors = new HashSet<>();
+            for (IEdge iEdge : graph.incomingEdgesOf(this))
             {
-                if (!hasParentsWithMissingData(graph, compoundInstance1.getType().getGroup()) || compoundInstance1.getType()
-                                    .getGroup()
-                                    .shouldIncompleteRecipeBeProcessed(getRecipe()))
+                INode edgeSource = graph.getEdgeSource(iEdge);
+                if (edgeSource instanceof IRecipeResidueNode)
+                {
+                    IRecipeResidueNode iRecipeResidueNode = (IRecipeResidueNode) edgeSource;
+                    requiredKnownOutputs.add(iRecipeResidueNode);
+                }
+                if (edgeSource instanceof IRecipeInputNode)
                 {
-                    if (compoundInstance1.getType().getGroup().canContributeToRecipeAsInput(recipe, compoundInstance1))
-                    {
-                        atLeastOneValidIngredient = true;
-                        AbstractMap.SimpleEntry<ICompoundType, Double> iCompoundTypeDoubleSimpleEntry = new HashMap.SimpleEntry<>(compoundInstance1.getType(),
-                          compoundInstance1.getAmount()
-                             * graph.getEdgeWeight(graph.getEdge(inputNeighbor, this)));
-                        map.merge(iCompoundTypeDoubleSimpleEntry.getKey(), iCompoundTypeDoubleSimpleEntry.getValue(), Double::sum);
-                    }
+                    IRecipeInputNode iRecipeInputNode = (IRecipeInputNode) edgeSource;
+                    inputNeighbors.add(iRecipeInputNode);
                 }
             }
-        }
 
-        if (!atLeastOneValidIngredient) {
-            this.forceSetResult(null, false);
-            return;
-        }
+            boolean atLeastOneValidIngredient = false;
+            for (IRecipeInputNode inputNeighbor : inputNeighbors)
+            {
+                final double inputEdgeWeight = graph.getEdgeWeight(graph.getEdge(inputNeighbor, this));
+                atLeastOneValidIngredient |= addInputInstances(graph, inputNeighbor, inputEdgeWeight, summedCompounds);
+            }
+
+            if (!atLeastOneValidIngredient) {
+                this.forceSetResult(null, false);
+                return;
+            }
 
-        for (Map.Entry<ICompoundType, Double> entry : map
-                                                        .entrySet())
-        {
-            double amount = entry.getValue();
             for (final IRecipeResidueNode requiredKnownOutput : requiredKnownOutputs)
             {
-                for (final CompoundInstance compoundInstance : requiredKnownOutput.getResidueInstances(this))
-                {
-                    if (compoundInstance.getType().equals(entry.getKey()))
-                    {
-                        amount = Math.max(0, amount - (compoundInstance.getAmount() * graph.getEdgeWeight(graph.getEdge(requiredKnownOutput, this))));
-                    }
-                }
+                final double residueEdgeWeight = graph.getEdgeWeight(graph.getEdge(requiredKnownOutput, this));
+                subtractResidueInstances(requiredKnownOutput, residueEdgeWeight, summedCompounds);
             }
+        }
 
+        final Set<CompoundInstance> summedCompoundInstances = new HashSet<>();
+        summedCompounds.forEach((type, amount) -> {
             if (amount >= 0)
             {
-                CompoundInstance instance = new CompoundInstance(entry.getKey(), amount);
-                summedCompoundInstances.add(instance);
+                summedCompoundInstances.add(new CompoundInstance(type, amount));
             }
-        }
+        });
 
         this.forceSetResult(summedCompoundInstances, false);
     }
 
+    /**
+     * Adds the instances which the given input contributes to this recipe to the sum.
+     *
+     * @return {@code true} when at least one instance could contribute.
+     */
+    private boolean addInputInstances(final IGraph graph, final IRecipeInputNode inputNeighbor, final double inputEdgeWeight, final CompoundVector summedCompounds)
+    {
+        boolean atLeastOneValidIngredient = false;
+        for (CompoundInstance compoundInstance1 : inputNeighbor
+                                                    .getInputInstances(this))
+        {
+            if (!hasParentsWithMissingData(graph, compoundInstance1.getType().getGroup()) || compoundInstance1.getType()
+                                .getGroup()
+                                .shouldIncompleteRecipeBeProcessed(getRecipe()))
+            {
+                if (compoundInstance1.getType().getGroup().canContributeToRecipeAsInput(recipe, compoundInstance1))
+                {
+                    atLeastOneValidIngredient = true;
+                    summedCompounds.add(compoundInstance1.getType(), compoundInstance1.getAmount() * inputEdgeWeight);
+                }
+            }
+        }
+        return atLeastOneValidIngredient;
+    }
+
+    private void subtractResidueInstances(final IRecipeResidueNode requiredKnownOutput, final double residueEdgeWeight, final CompoundVector summedCompounds)
+    {
+        for (final CompoundInstance compoundInstance : requiredKnownOutput.getResidueInstances(this))
+        {
+            summedCompounds.subtractIfPresent(compoundInstance.getType(), compoundInstance.getAmount() * residueEdgeWeight);
+        }
+    }
+
     @Override
     public void onReached(final IGraph graph)
     {
         if (!this.getResultingValue().isPresent())
             return;
 
+        if (graph instanceof CompiledAnalysisGraph compiledGraph)
+        {
+            final int index = compiledGraph.indexOf(this);
+            double totalOutgoingEdgeWeight = 0;
+            boolean hasResultNeighbors = false;
+            for (int slot = compiledGraph.getOutgoingStart(index); slot < compiledGraph.getOutgoingEnd(index); slot++)
+            {
+                totalOutgoingEdgeWeight += compiledGraph.getOutgoingWeight(slot);
+                hasResultNeighbors |= compiledGraph.getNode(compiledGraph.getOutgoingTarget(slot)) instanceof IRecipeOutputNode;
+            }
+
+            if (!hasResultNeighbors)
+                return;
+
+            final Optional<Set<CompoundInstance>> candidate = createUnitCandidate(totalOutgoingEdgeWeight);
+            for (int slot = compiledGraph.getOutgoingStart(index); slot < compiledGraph.getOutgoingEnd(index); slot++)
+            {
+                if (compiledGraph.getNode(compiledGraph.getOutgoingTarget(slot)) instanceof IRecipeOutputNode neighbor)
+                {
+                    neighbor.addCandidateResult(this, compiledGraph.getOutgoingEdge(slot), candidate);
+                }
+            }
+            return;
+        }
+
         final Set<IRecipeOutputNode> resultNeighbors = new HashSet<>();
+        double totalOutgoingEdgeWeight = 0;
         for (IEdge weightEdge : graph
                                   .outgoingEdgesOf(this))
         {
+            totalOutgoingEdgeWeight += graph.getEdgeWeight(weightEdge);
             INode edgeTarget = graph.getEdgeTarget(weightEdge);
             if (edgeTarget instanceof IRecipeOutputNode)
             {
@@ -148,37 +207,31 @@ public class RecipeNode extends AbstractNode implements IRecipeNode
             }
         }
 
-        final double totalOutgoingEdgeWeight = graph.outgoingEdgesOf(this)
-                                                 .stream()
-                                                 .mapToDouble(graph::getEdgeWeight)
-                                                 .sum();
+        if (resultNeighbors.isEmpty())
+            return;
 
+        final Optional<Set<CompoundInstance>> candidate = createUnitCandidate(totalOutgoingEdgeWeight);
         for (IRecipeOutputNode neighbor : resultNeighbors)
         {
-            Set<CompoundInstance> set = new HashSet<>();
-            for (CompoundInstance totalCompoundInstance : getResultingValue().orElse(Collections.emptySet()))
-            {
-                final Double unitAmount = totalCompoundInstance.getAmount() / totalOutgoingEdgeWeight;
-                CompoundInstance compoundInstance = new CompoundInstance(totalCompoundInstance.getType(), unitAmount);
-                if (!compoundInstance.getType().getGroup().canContributeToRecipeAsOutput(recipe, compoundInstance))
-                {
-                    continue;
-                }
+            neighbor.addCandidateResult(this, graph.getEdge(this, neighbor), candidate);
+        }
+    }
 
-                set.add(compoundInstance);
+    /**
+     * The unit value is the same for every output, so it is computed once and shared between them.
+     */
+    private Optional<Set<CompoundInstance>> createUnitCandidate(final double totalOutgoingEdgeWeight)
+    {
+        final Set<CompoundInstance> unitInstances = new HashSet<>();
+        for (CompoundInstance totalCompoundInstance : getResultingValue().get())
+        {
+            final CompoundInstance compoundInstance = new CompoundInstance(totalCompoundInstance.getType(), totalCompoundInstance.getAmount() / totalOutgoingEdgeWeight);
+            if (compoundInstance.getType().getGroup().canContributeToRecipeAsOutput(recipe, compoundInstance))
+            {
+                unitInstances.add(compoundInstance);
             }
-
-            final Map<ICompoundTypeGroup, Collection<CompoundInstance>> groupedInstances = GroupingUtils.groupByUsingSetToMap(
-              set,
-              compoundInstance -> compoundInstance.getType().getGroup()
-            );
-
-            final Set<CompoundInstance> reducedSet = groupedInstances.entrySet().stream()
-              .flatMap(entry -> entry.getKey().adaptRecipeResult(this.recipe, entry.getValue()).stream())
-              .collect(Collectors.toSet());
-
-            neighbor.addCandidateResult(this, graph.getEdge(this, neighbor), Optional.of(set));
         }
+        return Optional.of(Collections.unmodifiableSet(unitInstances));
     }
 
     @Override
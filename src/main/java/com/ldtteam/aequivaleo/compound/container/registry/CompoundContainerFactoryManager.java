@@ -175,6 +175,27 @@ public class CompoundContainerFactoryManager implements ICompoundContainerFactor
         containerFactory.write(object, buffer);
     }
 
+    /**
+     * Writes the given container like {@link #write(ICompoundContainer, FriendlyByteBuf)}, but identifies its factory by
+     * its registry name. The numeric id of a factory is only valid in the running session, so this form is used where
+     * the written data needs to be the same across restarts.
+     *
+     * @param object The container to write.
+     * @param buffer The buffer to write into.
+     */
+    public void writeWithRegistryName(final ICompoundContainer<?> object, final FriendlyByteBuf buffer)
+    {
+        writeWithRegistryNameInternally(object, buffer);
+    }
+
+    private <T> void writeWithRegistryNameInternally(final ICompoundContainer<T> object, final FriendlyByteBuf buffer)
+    {
+        final ICompoundContainerFactory<T> containerFactory = this.getFactoryFor(object.getContents()).orElseThrow(() -> new JsonParseException("The given container can not be serialized. Its contained type: " + object.getContents().getClass().getCanonicalName() + " has no registered factory."));
+
+        buffer.writeResourceLocation(Objects.requireNonNull(getRegistry().getKey(containerFactory)));
+        containerFactory.write(object, buffer);
+    }
+
     @Override
     public ICompoundContainer<?> read(final FriendlyByteBuf buffer)
     {
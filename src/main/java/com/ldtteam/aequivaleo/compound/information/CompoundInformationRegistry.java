@@ -119,4 +119,19 @@ public class CompoundInformationRegistry implements ICompoundInformationRegistry
     {
         return ImmutableMap.copyOf(baseInformation);
     }
+
+    /**
+     * Creates an immutable snapshot of the current value, locking and base information.
+     * Later registrations are not reflected in the snapshot.
+     *
+     * @return The snapshot.
+     */
+    public CompoundInformationSnapshot snapshot()
+    {
+        return new CompoundInformationSnapshot(
+          ImmutableMap.copyOf(valueInformation),
+          ImmutableMap.copyOf(lockedInformation),
+          ImmutableMap.copyOf(baseInformation)
+        );
+    }
 }
@@ -0,0 +1,44 @@
+package com.ldtteam.aequivaleo.compound.information;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.ldtteam.aequivaleo.api.compound.CompoundInstance;
+import com.ldtteam.aequivaleo.api.compound.container.ICompoundContainer;
+
+/**
+ * Immutable view of the contents of a {@link CompoundInformationRegistry} at a single point in time.
+ * <p>
+ * The analysis takes one snapshot up front and uses it throughout, so lookups neither copy the backing maps of the
+ * registry nor observe registrations made while the analysis is running.
+ */
+public final class CompoundInformationSnapshot
+{
+    private final ImmutableMap<ICompoundContainer<?>, ImmutableSet<CompoundInstance>> valueInformation;
+    private final ImmutableMap<ICompoundContainer<?>, ImmutableSet<CompoundInstance>> lockingInformation;
+    private final ImmutableMap<ICompoundContainer<?>, ImmutableSet<CompoundInstance>> baseInformation;
+
+    CompoundInformationSnapshot(
+      final ImmutableMap<ICompoundContainer<?>, ImmutableSet<CompoundInstance>> valueInformation,
+      final ImmutableMap<ICompoundContainer<?>, ImmutableSet<CompoundInstance>> lockingInformation,
+      final ImmutableMap<ICompoundContainer<?>, ImmutableSet<CompoundInstance>> baseInformation)
+    {
+        this.valueInformation = valueInformation;
+        this.lockingInformation = lockingInformation;
+        this.baseInformation = baseInformation;
+    }
+
+    public ImmutableMap<ICompoundContainer<?>, ImmutableSet<CompoundInstance>> getValueInformation()
+    {
+        return valueInformation;
+    }
+
+    public ImmutableMap<ICompoundContainer<?>, ImmutableSet<CompoundInstance>> getLockingInformation()
+    {
+        return lockingInformation;
+    }
+
+    public ImmutableMap<ICompoundContainer<?>, ImmutableSet<CompoundInstance>> getBaseInformation()
+    {
+        return baseInformation;
+    }
+}
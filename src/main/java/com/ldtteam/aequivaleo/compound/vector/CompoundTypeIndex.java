@@ -0,0 +1,73 @@
+package com.ldtteam.aequivaleo.compound.vector;
+
+import com.google.common.collect.Maps;
+import com.ldtteam.aequivaleo.api.compound.type.ICompoundType;
+import com.ldtteam.aequivaleo.api.util.ModRegistries;
+
+import java.util.Map;
+
+/**
+ * Maps compound types to the slot they occupy in a {@link CompoundVector}.
+ * <p>
+ * Uses the synchronization id of the type in the compound type registry, so that the slots of the registered types
+ * are small and dense. Types without a usable id get a slot above {@link CompoundVector#MAX_DENSE_INDEX}.
+ */
+public final class CompoundTypeIndex
+{
+    private static final Map<ICompoundType, Integer> INDICES = Maps.newConcurrentMap();
+    private static final Map<Integer, ICompoundType> TYPES   = Maps.newConcurrentMap();
+    private static int nextFallbackIndex = CompoundVector.MAX_DENSE_INDEX;
+
+    private CompoundTypeIndex()
+    {
+        throw new IllegalStateException("Can not instantiate an instance of: CompoundTypeIndex. This is a utility class");
+    }
+
+    /**
+     * Gets the slot of the given type.
+     *
+     * @param type The type to get the slot for.
+     * @return The slot of the type, never negative.
+     */
+    public static int indexOf(final ICompoundType type)
+    {
+        final Integer index = INDICES.get(type);
+        if (index != null)
+        {
+            return index;
+        }
+
+        return assignIndex(type);
+    }
+
+    /**
+     * Drops all assigned slots.
+     * Needs to be invoked when the compound type registry changes, since synchronization ids are only stable for
+     * the current registry contents.
+     */
+    public static synchronized void invalidate()
+    {
+        INDICES.clear();
+        TYPES.clear();
+        nextFallbackIndex = CompoundVector.MAX_DENSE_INDEX;
+    }
+
+    private static synchronized int assignIndex(final ICompoundType type)
+    {
+        final Integer existing = INDICES.get(type);
+        if (existing != null)
+        {
+            return existing;
+        }
+
+        int index = ModRegistries.COMPOUND_TYPE.get().getSynchronizationIdOf(type);
+        if (index < 0 || index >= CompoundVector.MAX_DENSE_INDEX || TYPES.containsKey(index))
+        {
+            index = nextFallbackIndex++;
+        }
+
+        TYPES.put(index, type);
+        INDICES.put(type, index);
+        return index;
+    }
+}
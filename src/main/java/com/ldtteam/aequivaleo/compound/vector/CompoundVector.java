@@ -0,0 +1,237 @@
+package com.ldtteam.aequivaleo.compound.vector;
+
+import com.ldtteam.aequivaleo.api.compound.CompoundInstance;
+import com.ldtteam.aequivaleo.api.compound.type.ICompoundType;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.ObjDoubleConsumer;
+
+/**
+ * Mutable accumulator for compound amounts, keyed by compound type.
+ * <p>
+ * Amounts are stored as primitive doubles in a slot per type, see {@link CompoundTypeIndex}.
+ * As long as all slots are below {@link #MAX_DENSE_INDEX} the slot is the array index. Once a type with a larger
+ * slot is added the vector switches to a sparse layout, which only stores the present types.
+ * <p>
+ * Instances are not thread safe and are meant to be used as short-lived working storage during the analysis,
+ * results are converted back into {@link CompoundInstance}s via {@link #toInstances()}.
+ */
+public final class CompoundVector
+{
+    public static final int MAX_DENSE_INDEX = 256;
+
+    private static final int DEFAULT_CAPACITY = 8;
+
+    private ICompoundType[] types;
+    private double[]        amounts;
+    //Slot of each entry when sparse, null when dense.
+    private int[]           indices;
+    private int             size;
+
+    public CompoundVector()
+    {
+        this.types = new ICompoundType[DEFAULT_CAPACITY];
+        this.amounts = new double[DEFAULT_CAPACITY];
+    }
+
+    /**
+     * Creates a new vector which contains the sum of the given instances per type.
+     *
+     * @param instances The instances to sum.
+     * @return The vector.
+     */
+    public static CompoundVector of(final Collection<CompoundInstance> instances)
+    {
+        final CompoundVector vector = new CompoundVector();
+        vector.addAll(instances, 1d);
+        return vector;
+    }
+
+    /**
+     * Adds the given amount to the amount of the type.
+     * A type which is added with an amount of zero is still considered present.
+     *
+     * @param type   The type.
+     * @param amount The amount to add.
+     */
+    public void add(final ICompoundType type, final double amount)
+    {
+        final int position = positionOf(type, true);
+        amounts[position] += amount;
+    }
+
+    /**
+     * Adds the amounts of all given instances, multiplied by the given factor.
+     *
+     * @param instances The instances to add.
+     * @param factor    The factor to multiply the amounts with.
+     */
+    public void addAll(final Collection<CompoundInstance> instances, final double factor)
+    {
+        for (CompoundInstance instance : instances)
+        {
+            add(instance.getType(), instance.getAmount() * factor);
+        }
+    }
+
+    /**
+     * Subtracts the given amount from the type, without going below zero.
+     * Types which are not present are left untouched.
+     *
+     * @param type   The type.
+     * @param amount The amount to subtract.
+     */
+    public void subtractIfPresent(final ICompoundType type, final double amount)
+    {
+        final int position = positionOf(type, false);
+        if (position >= 0)
+        {
+            amounts[position] = Math.max(0, amounts[position] - amount);
+        }
+    }
+
+    public boolean contains(final ICompoundType type)
+    {
+        return positionOf(type, false) >= 0;
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    public boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    /**
+     * Invokes the consumer for every present type and its amount.
+     *
+     * @param consumer The consumer.
+     */
+    public void forEach(final ObjDoubleConsumer<ICompoundType> consumer)
+    {
+        final int limit = indices == null ? types.length : size;
+        for (int i = 0; i < limit; i++)
+        {
+            if (types[i] != null)
+            {
+                consumer.accept(types[i], amounts[i]);
+            }
+        }
+    }
+
+    /**
+     * Converts this vector into a set of compound instances, one per present type.
+     *
+     * @return The instances.
+     */
+    public Set<CompoundInstance> toInstances()
+    {
+        final Set<CompoundInstance> instances = new HashSet<>(Math.max(16, (int) (size / .75f) + 1));
+        forEach((type, amount) -> instances.add(new CompoundInstance(type, amount)));
+        return instances;
+    }
+
+    private int positionOf(final ICompoundType type, final boolean create)
+    {
+        final int index = CompoundTypeIndex.indexOf(type);
+        if (indices == null)
+        {
+            if (index < MAX_DENSE_INDEX)
+            {
+                return densePositionOf(type, index, create);
+            }
+
+            if (!create)
+            {
+                return -1;
+            }
+
+            convertToSparse();
+        }
+
+        return sparsePositionOf(type, index, create);
+    }
+
+    private int densePositionOf(final ICompoundType type, final int index, final boolean create)
+    {
+        if (index < types.length && types[index] != null)
+        {
+            return index;
+        }
+
+        if (!create)
+        {
+            return -1;
+        }
+
+        if (index >= types.length)
+        {
+            final int capacity = Math.min(MAX_DENSE_INDEX, Math.max(types.length * 2, Integer.highestOneBit(index) * 2));
+            types = Arrays.copyOf(types, capacity);
+            amounts = Arrays.copyOf(amounts, capacity);
+        }
+
+        types[index] = type;
+        size++;
+        return index;
+    }
+
+    private int sparsePositionOf(final ICompoundType type, final int index, final boolean create)
+    {
+        for (int i = 0; i < size; i++)
+        {
+            if (indices[i] == index)
+            {
+                return i;
+            }
+        }
+
+        if (!create)
+        {
+            return -1;
+        }
+
+        if (size == types.length)
+        {
+            final int capacity = types.length * 2;
+            types = Arrays.copyOf(types, capacity);
+            amounts = Arrays.copyOf(amounts, capacity);
+            indices = Arrays.copyOf(indices, capacity);
+        }
+
+        types[size] = type;
+        amounts[size] = 0;
+        indices[size] = index;
+        return size++;
+    }
+
+    private void convertToSparse()
+    {
+        final int capacity = Math.max(DEFAULT_CAPACITY, size * 2);
+        final ICompoundType[] sparseTypes = new ICompoundType[capacity];
+        final double[] sparseAmounts = new double[capacity];
+        final int[] sparseIndices = new int[capacity];
+
+        int position = 0;
+        for (int i = 0; i < types.length; i++)
+        {
+            if (types[i] != null)
+            {
+                sparseTypes[position] = types[i];
+                sparseAmounts[position] = amounts[i];
+                sparseIndices[position] = i;
+                position++;
+            }
+        }
+
+        this.types = sparseTypes;
+        this.amounts = sparseAmounts;
+        this.indices = sparseIndices;
+    }
+}
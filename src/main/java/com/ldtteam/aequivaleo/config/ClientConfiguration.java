@@ -9,6 +9,8 @@ import net.minecraftforge.common.ForgeConfigSpec;
  */
 public class ClientConfiguration extends AbstractAequivaleoConfiguration
 {
+    public ForgeConfigSpec.BooleanValue cacheSyncedResults;
+
     /**
      * Builds client configuration.
      *
@@ -16,5 +18,8 @@ public class ClientConfiguration extends AbstractAequivaleoConfiguration
      */
     protected ClientConfiguration(final ForgeConfigSpec.Builder builder)
     {
+        createCategory(builder, "cache");
+        cacheSyncedResults = defineBoolean(builder, "cache.synced", true);
+        finishCategory(builder);
     }
 }
\ No newline at end of file
@@ -13,6 +13,10 @@ public class CommonConfiguration extends AbstractAequivaleoConfiguration
 
     public ForgeConfigSpec.BooleanValue jsonPrettyPrint;
     public ForgeConfigSpec.IntValue networkBatchingSize;
+    public ForgeConfigSpec.IntValue networkBatchBytes;
+    public ForgeConfigSpec.IntValue networkBytesPerTick;
+    public ForgeConfigSpec.BooleanValue networkCompactFormat;
+    public ForgeConfigSpec.BooleanValue networkCompression;
     public ForgeConfigSpec.BooleanValue debugAnalysisLog;
     public ForgeConfigSpec.ConfigValue<List<? extends String>> blackListedDimensions;
 
@@ -21,6 +25,10 @@ public class CommonConfiguration extends AbstractAequivaleoConfiguration
 
         createCategory(builder, "networking");
         networkBatchingSize = defineInteger(builder, "batch.size", 1000);
+        networkBatchBytes = defineInteger(builder, "batch.bytes", 262144, 1024, 1000000);
+        networkBytesPerTick = defineInteger(builder, "pacing.bytes", 1048576, 1024, Integer.MAX_VALUE);
+        networkCompactFormat = defineBoolean(builder, "format.compact", true);
+        networkCompression = defineBoolean(builder, "format.compress", true);
         finishCategory(builder);
         createCategory(builder, "analysis");
         createCategory(builder, "dimensions");
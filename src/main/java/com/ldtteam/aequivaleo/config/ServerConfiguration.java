@@ -1,5 +1,6 @@
 package com.ldtteam.aequivaleo.config;
 
+import com.ldtteam.aequivaleo.analysis.jgrapht.cycles.CycleReductionMode;
 import com.ldtteam.aequivaleo.api.config.AbstractAequivaleoConfiguration;
 import com.ldtteam.aequivaleo.utils.IngredientLogLevel;
 import net.minecraftforge.common.ForgeConfigSpec;
@@ -15,6 +16,17 @@ public class ServerConfiguration extends AbstractAequivaleoConfiguration
     public ForgeConfigSpec.BooleanValue allowNoneSimpleIngredients;
     public ForgeConfigSpec.EnumValue<IngredientLogLevel> ingredientLogLevelEnumValue;
     public ForgeConfigSpec.IntValue maxCacheFilesToKeep;
+    public ForgeConfigSpec.BooleanValue useGlobalCache;
+    public ForgeConfigSpec.ConfigValue<String> globalCacheDirectory;
+    public ForgeConfigSpec.IntValue maxGlobalCacheFilesToKeep;
+    public ForgeConfigSpec.BooleanValue cacheComponents;
+    public ForgeConfigSpec.BooleanValue cacheReducedTopology;
+    public ForgeConfigSpec.BooleanValue serveStaleResults;
+    public ForgeConfigSpec.EnumValue<CycleReductionMode> cycleReductionMode;
+    public ForgeConfigSpec.BooleanValue parallelPropagation;
+    public ForgeConfigSpec.BooleanValue incrementalAnalysis;
+    public ForgeConfigSpec.BooleanValue parallelGraphConstruction;
+    public ForgeConfigSpec.BooleanValue collapseEquivalenceClasses;
 
     protected ServerConfiguration(final ForgeConfigSpec.Builder builder)
     {
@@ -28,6 +40,19 @@ public class ServerConfiguration extends AbstractAequivaleoConfiguration
         finishCategory(builder);
         createCategory(builder, "cache");
         maxCacheFilesToKeep = defineInteger(builder, "cache.max", 5, 1, Integer.MAX_VALUE);
+        useGlobalCache = defineBoolean(builder, "cache.global.enabled", false);
+        globalCacheDirectory = defineString(builder, "cache.global.directory", "");
+        maxGlobalCacheFilesToKeep = defineInteger(builder, "cache.global.max", 20, 1, Integer.MAX_VALUE);
+        cacheComponents = defineBoolean(builder, "cache.components", false);
+        cacheReducedTopology = defineBoolean(builder, "cache.topology", false);
+        serveStaleResults = defineBoolean(builder, "cache.stale", false);
+        finishCategory(builder);
+        createCategory(builder, "analysis");
+        cycleReductionMode = defineEnum(builder, "analysis.cycles.mode", CycleReductionMode.SIMPLE_CYCLES);
+        parallelPropagation = defineBoolean(builder, "analysis.propagation.parallel", false);
+        incrementalAnalysis = defineBoolean(builder, "analysis.incremental", false);
+        parallelGraphConstruction = defineBoolean(builder, "analysis.graph.parallel", false);
+        collapseEquivalenceClasses = defineBoolean(builder, "analysis.cliques.equivalence-classes", false);
         finishCategory(builder);
     }
 }
\ No newline at end of file
@@ -4,20 +4,25 @@ import com.ldtteam.aequivaleo.api.util.Constants;
 import com.ldtteam.aequivaleo.network.messages.CompoundTypeSyncedRegistryNetworkPacket;
 import com.ldtteam.aequivaleo.network.messages.IMessage;
 import com.ldtteam.aequivaleo.network.messages.PartialSyncResultsMessage;
+import com.ldtteam.aequivaleo.network.messages.SyncAcknowledgedMessage;
 import com.ldtteam.aequivaleo.network.messages.SyncCompletedMessage;
+import com.ldtteam.aequivaleo.network.messages.SyncOfferMessage;
 import net.minecraft.world.entity.Entity;
 import net.minecraft.server.level.ServerPlayer;
 import net.minecraft.network.FriendlyByteBuf;
 import net.minecraft.resources.ResourceLocation;
 import net.minecraft.world.level.chunk.LevelChunk;
 import net.minecraftforge.fml.LogicalSide;
+import net.minecraftforge.network.ConnectionData;
 import net.minecraftforge.network.NetworkEvent;
+import net.minecraftforge.network.NetworkHooks;
 import net.minecraftforge.network.NetworkRegistry;
 import net.minecraftforge.network.PacketDistributor;
 import net.minecraftforge.network.simple.SimpleChannel;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.util.Set;
 import java.util.function.Function;
 
 /**
@@ -27,12 +32,24 @@ public class NetworkChannel
 {
     private static final Logger LOGGER = LogManager.getLogger();
 
-    private static final String LATEST_PROTO_VER = "1.0";
-    private static final String        ACCEPTED_PROTO_VERS = LATEST_PROTO_VER;
+    /**
+     * The protocol of released clients, which replace their results with every sync and read the results data without a leading format.
+     */
+    public static final int PROTOCOL_LEGACY = 1;
+    /**
+     * The current protocol. Clients acknowledge the generation of the results they were synced, are offered the
+     * fingerprint of the results before syncing them, and read results data which starts with its format, see {@link com.ldtteam.aequivaleo.utils.SyncDataFormat}.
+     */
+    public static final int PROTOCOL_LATEST = 2;
+
+    private static final String LATEST_PROTO_VER = PROTOCOL_LATEST + ".0";
+    //Legacy clients are sent full syncs in the legacy format, in the messages they understand.
+    private static final Set<String> ACCEPTED_CLIENT_PROTO_VERS = Set.of(PROTOCOL_LEGACY + ".0", LATEST_PROTO_VER);
     /**
      * Forge network channel
      */
     private final        SimpleChannel rawChannel;
+    private final        ResourceLocation channelName;
 
     /**
      * Creates a new instance of network channel.
@@ -42,10 +59,39 @@ public class NetworkChannel
      */
     public NetworkChannel(final String channelName)
     {
-        rawChannel = NetworkRegistry.newSimpleChannel(new ResourceLocation(Constants.MOD_ID, channelName), () -> LATEST_PROTO_VER, ACCEPTED_PROTO_VERS::equals, ACCEPTED_PROTO_VERS::equals);
+        this.channelName = new ResourceLocation(Constants.MOD_ID, channelName);
+        rawChannel = NetworkRegistry.newSimpleChannel(this.channelName, () -> LATEST_PROTO_VER, LATEST_PROTO_VER::equals, ACCEPTED_CLIENT_PROTO_VERS::contains);
         registerCommonMessages();
     }
 
+    /**
+     * The protocol the client of the given player speaks on this channel.
+     * Connections without handshake data, like the one of the integrated server, speak the latest protocol.
+     *
+     * @param player The player.
+     * @return The major protocol version.
+     */
+    public int getProtocolVersion(final ServerPlayer player)
+    {
+        final ConnectionData connectionData = NetworkHooks.getConnectionData(player.connection.connection);
+        if (connectionData == null)
+            return PROTOCOL_LATEST;
+
+        final String version = connectionData.getChannels().get(channelName);
+        if (version == null)
+            return PROTOCOL_LATEST;
+
+        try
+        {
+            return Integer.parseInt(version.substring(0, version.indexOf('.') < 0 ? version.length() : version.indexOf('.')));
+        }
+        catch (NumberFormatException e)
+        {
+            LOGGER.warn("Player: " + player.getScoreboardName() + " connected with an unknown protocol version: " + version);
+            return PROTOCOL_LATEST;
+        }
+    }
+
     /**
      * Registers all common messages.
      */
@@ -55,6 +101,8 @@ public class NetworkChannel
         registerMessage(++idx, PartialSyncResultsMessage.class, PartialSyncResultsMessage::new);
         registerMessage(++idx, SyncCompletedMessage.class, SyncCompletedMessage::new);
         registerMessage(++idx, CompoundTypeSyncedRegistryNetworkPacket.class, CompoundTypeSyncedRegistryNetworkPacket::new);
+        registerMessage(++idx, SyncAcknowledgedMessage.class, SyncAcknowledgedMessage::new);
+        registerMessage(++idx, SyncOfferMessage.class, SyncOfferMessage::new);
     }
 
     /**
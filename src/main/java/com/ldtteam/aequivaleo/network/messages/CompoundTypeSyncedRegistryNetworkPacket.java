@@ -4,6 +4,7 @@ import com.google.common.collect.Lists;
 import com.ldtteam.aequivaleo.api.compound.type.ICompoundType;
 import com.ldtteam.aequivaleo.api.plugin.IAequivaleoPlugin;
 import com.ldtteam.aequivaleo.api.util.ModRegistries;
+import com.ldtteam.aequivaleo.compound.vector.CompoundTypeIndex;
 import com.ldtteam.aequivaleo.plugin.PluginManger;
 import com.mojang.serialization.Codec;
 import com.mojang.serialization.DataResult;
@@ -75,6 +76,7 @@ public class CompoundTypeSyncedRegistryNetworkPacket implements IMessage
     public void onExecute(final NetworkEvent.Context ctxIn, final boolean isLogicalServer)
     {
         ModRegistries.COMPOUND_TYPE.get().forceLoad(payLoad);
+        CompoundTypeIndex.invalidate();
 
         PluginManger.getInstance().getPlugins().forEach(
                 IAequivaleoPlugin::onCompoundTypeRegistrySync
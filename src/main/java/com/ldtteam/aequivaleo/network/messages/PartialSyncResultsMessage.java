@@ -2,8 +2,12 @@ package com.ldtteam.aequivaleo.network.messages;
 
 import com.ldtteam.aequivaleo.api.compound.CompoundInstance;
 import com.ldtteam.aequivaleo.api.compound.container.ICompoundContainer;
+import com.ldtteam.aequivaleo.network.NetworkChannel;
 import com.ldtteam.aequivaleo.network.splitting.NetworkSplittingManager;
 import com.ldtteam.aequivaleo.utils.IOUtils;
+import com.ldtteam.aequivaleo.utils.SyncDataFormat;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
 import net.minecraft.network.FriendlyByteBuf;
 import net.minecraftforge.fml.LogicalSide;
 import net.minecraftforge.network.NetworkEvent;
@@ -19,6 +23,8 @@ public class PartialSyncResultsMessage implements IMessage
 {
     private int communicationId = -1;
     private List<Map.Entry<ICompoundContainer<?>, Set<CompoundInstance>>> compoundData = new ArrayList<>();
+    @Nullable
+    private ByteBuf encodedCompoundData = null;
 
     public PartialSyncResultsMessage(
       @NotNull final FriendlyByteBuf buffer
@@ -34,16 +40,66 @@ public class PartialSyncResultsMessage implements IMessage
         this.compoundData = compoundData;
     }
 
+    /**
+     * Creates a message from data which was already encoded with {@link #encode(List)}, so that the same data can be
+     * sent to several players without encoding it for each of them.
+     * The message does not take ownership of the data, the caller releases it once the message was sent.
+     *
+     * @param communicationId     The id of the split message this message is part of.
+     * @param encodedCompoundData The encoded data.
+     */
+    public PartialSyncResultsMessage(
+      final int communicationId,
+      final ByteBuf encodedCompoundData)
+    {
+        this.communicationId = communicationId;
+        this.encodedCompoundData = encodedCompoundData;
+    }
+
+    /**
+     * Encodes the given data in the form it is sent in.
+     *
+     * @param compoundData The data to encode.
+     * @return A buffer with the encoded data, which needs to be released by the caller.
+     */
+    public static ByteBuf encode(final List<Map.Entry<ICompoundContainer<?>, Set<CompoundInstance>>> compoundData)
+    {
+        final FriendlyByteBuf buffer = new FriendlyByteBuf(Unpooled.buffer());
+        SyncDataFormat.write(buffer, compoundData);
+        return buffer;
+    }
+
+    /**
+     * Encodes the given data for clients of the {@link NetworkChannel#PROTOCOL_LEGACY} protocol, which read the entries
+     * without a leading format.
+     *
+     * @param compoundData The data to encode.
+     * @return A buffer with the encoded data, which needs to be released by the caller.
+     */
+    public static ByteBuf encodeLegacy(final List<Map.Entry<ICompoundContainer<?>, Set<CompoundInstance>>> compoundData)
+    {
+        final FriendlyByteBuf buffer = new FriendlyByteBuf(Unpooled.buffer());
+        IOUtils.writeCompoundDataEntries(buffer, compoundData);
+        return buffer;
+    }
+
     @Override
     public void toBytes(final FriendlyByteBuf buf)
     {
         buf.writeVarInt(this.communicationId);
-        IOUtils.writeCompoundDataEntries(buf, compoundData);
+        if (encodedCompoundData != null)
+        {
+            //Copied without moving the reader index, the same data is written for every recipient.
+            buf.writeBytes(encodedCompoundData, encodedCompoundData.readerIndex(), encodedCompoundData.readableBytes());
+            return;
+        }
+
+        SyncDataFormat.write(buf, compoundData);
     }
 
     private void fromBytes(final FriendlyByteBuf buffer) {
         communicationId = buffer.readVarInt();
-        IOUtils.readCompoundData(buffer, compoundData);
+        SyncDataFormat.read(buffer, compoundData);
     }
 
     @Nullable
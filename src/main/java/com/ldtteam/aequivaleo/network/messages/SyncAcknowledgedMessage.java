@@ -0,0 +1,66 @@
+package com.ldtteam.aequivaleo.network.messages;
+
+import com.ldtteam.aequivaleo.results.EquivalencyResults;
+import net.minecraft.core.Registry;
+import net.minecraft.network.FriendlyByteBuf;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraftforge.fml.LogicalSide;
+import net.minecraftforge.network.NetworkEvent;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Sent by a client after it processed a sync of the results of a world, with the generation of the results it now has.
+ */
+public class SyncAcknowledgedMessage implements IMessage
+{
+    private ResourceLocation worldKeyName;
+    private long generation = EquivalencyResults.NO_GENERATION;
+
+    public SyncAcknowledgedMessage(@NotNull final FriendlyByteBuf buffer)
+    {
+        this.fromBytes(buffer);
+    }
+
+    public SyncAcknowledgedMessage(final ResourceLocation worldKeyName, final long generation)
+    {
+        this.worldKeyName = worldKeyName;
+        this.generation = generation;
+    }
+
+    @Override
+    public void toBytes(final FriendlyByteBuf buf)
+    {
+        buf.writeResourceLocation(worldKeyName);
+        buf.writeLong(generation);
+    }
+
+    public void fromBytes(final FriendlyByteBuf buf)
+    {
+        worldKeyName = buf.readResourceLocation();
+        generation = buf.readLong();
+    }
+
+    @Nullable
+    @Override
+    public LogicalSide getExecutionSide()
+    {
+        return LogicalSide.SERVER;
+    }
+
+    @Override
+    public void onExecute(final NetworkEvent.Context ctxIn, final boolean isLogicalServer)
+    {
+        final ServerPlayer player = ctxIn.getSender();
+        if (player == null)
+            return;
+
+        EquivalencyResults.onAcknowledged(
+          player,
+          ResourceKey.create(Registry.DIMENSION_REGISTRY, worldKeyName),
+          generation
+        );
+    }
+}
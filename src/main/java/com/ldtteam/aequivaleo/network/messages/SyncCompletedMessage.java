@@ -1,40 +1,71 @@
 package com.ldtteam.aequivaleo.network.messages;
 
+import com.ldtteam.aequivaleo.Aequivaleo;
 import com.ldtteam.aequivaleo.api.compound.CompoundInstance;
 import com.ldtteam.aequivaleo.api.compound.container.ICompoundContainer;
+import com.ldtteam.aequivaleo.network.NetworkChannel;
 import com.ldtteam.aequivaleo.network.splitting.NetworkSplittingManager;
 import com.ldtteam.aequivaleo.plugin.PluginManger;
+import com.ldtteam.aequivaleo.results.ClientResultsCache;
 import com.ldtteam.aequivaleo.results.EquivalencyResults;
 import net.minecraft.core.Registry;
 import net.minecraft.network.FriendlyByteBuf;
 import net.minecraft.resources.ResourceKey;
 import net.minecraft.resources.ResourceLocation;
 import net.minecraft.world.level.Level;
+import net.minecraftforge.api.distmarker.Dist;
+import net.minecraftforge.fml.DistExecutor;
 import net.minecraftforge.fml.LogicalSide;
 import net.minecraftforge.network.NetworkEvent;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.stream.Collectors;
 
 public class SyncCompletedMessage implements IMessage
 {
+    private static final Logger LOGGER = LogManager.getLogger();
 
     private int communicationId = -1;
     private ResourceLocation worldKeyName;
+    private long baseGeneration = EquivalencyResults.NO_GENERATION;
+    private long generation = EquivalencyResults.NO_GENERATION;
+    private long fingerprint = 0;
+    //Only known on the server, the protocol of the client the message is sent to.
+    private int protocolVersion = NetworkChannel.PROTOCOL_LATEST;
 
     public SyncCompletedMessage(@NotNull final FriendlyByteBuf buffer)
     {
         this.fromBytes(buffer);
     }
 
-    public SyncCompletedMessage(final int communicationId, final ResourceLocation worldKeyName)
+    public SyncCompletedMessage(final int communicationId, final ResourceLocation worldKeyName, final long baseGeneration, final long generation, final long fingerprint)
     {
         this.communicationId = communicationId;
         this.worldKeyName = worldKeyName;
+        this.baseGeneration = baseGeneration;
+        this.generation = generation;
+        this.fingerprint = fingerprint;
+    }
+
+    /**
+     * Creates a message for a client which speaks the given protocol, it is written without the fields the protocol does not know.
+     * Legacy clients always replace their results with the synced ones, so they may only be sent full syncs.
+     *
+     * @param communicationId The id of the split message this message completes.
+     * @param worldKeyName    The world of the results.
+     * @param generation      The generation of the results.
+     * @param fingerprint     The fingerprint of the results.
+     * @param protocolVersion The protocol of the client.
+     */
+    public SyncCompletedMessage(final int communicationId, final ResourceLocation worldKeyName, final long generation, final long fingerprint, final int protocolVersion)
+    {
+        this(communicationId, worldKeyName, EquivalencyResults.NO_GENERATION, generation, fingerprint);
+        this.protocolVersion = protocolVersion;
     }
 
     @Override
@@ -42,12 +73,21 @@ public class SyncCompletedMessage implements IMessage
     {
         buf.writeVarInt(communicationId);
         buf.writeResourceLocation(worldKeyName);
+        if (protocolVersion <= NetworkChannel.PROTOCOL_LEGACY)
+            return;
+
+        buf.writeLong(baseGeneration);
+        buf.writeLong(generation);
+        buf.writeLong(fingerprint);
     }
 
     public void fromBytes(final FriendlyByteBuf buf)
     {
         communicationId = buf.readVarInt();
         worldKeyName = buf.readResourceLocation();
+        baseGeneration = buf.readLong();
+        generation = buf.readLong();
+        fingerprint = buf.readLong();
     }
 
     @Nullable
@@ -69,15 +109,24 @@ public class SyncCompletedMessage implements IMessage
 
         final ResourceKey<Level> worldKey = ResourceKey.create(Registry.DIMENSION_REGISTRY, worldKeyName);
 
-        EquivalencyResults.getInstance(
-          worldKey
-        ).set(partialPackets.stream().collect(
-          Collectors.toMap(
-            Map.Entry::getKey,
-            Map.Entry::getValue
-          )
-        ));
+        final EquivalencyResults results = EquivalencyResults.getInstance(worldKey);
+        final EquivalencyResults.ApplyResult applyResult = results.apply(baseGeneration, generation, fingerprint, partialPackets);
+        long acknowledgedGeneration = results.getGeneration();
+        switch (applyResult)
+        {
+            case APPLIED -> {
+                DistExecutor.unsafeRunWhenOn(Dist.CLIENT, () -> () -> ClientResultsCache.store(worldKey, results));
+                PluginManger.getInstance().run(iAequivaleoPlugin -> iAequivaleoPlugin.onDataSynced(worldKey));
+            }
+            case BASE_MISMATCH ->
+              LOGGER.warn("Received changes to the results of: " + worldKeyName + " relative to generation: " + baseGeneration + " but has generation: " + results.getGeneration());
+            case FINGERPRINT_MISMATCH -> {
+                //The results this client has differ from what the server based the changes on, only a full sync can fix that.
+                LOGGER.warn("The results of: " + worldKeyName + " do not match the fingerprint of generation: " + generation + ". Requesting a full sync.");
+                acknowledgedGeneration = EquivalencyResults.NO_GENERATION;
+            }
+        }
 
-        PluginManger.getInstance().run(iAequivaleoPlugin -> iAequivaleoPlugin.onDataSynced(worldKey));
+        Aequivaleo.getInstance().getNetworkChannel().sendToServer(new SyncAcknowledgedMessage(worldKeyName, acknowledgedGeneration));
     }
 }
@@ -0,0 +1,87 @@
+package com.ldtteam.aequivaleo.network.messages;
+
+import com.ldtteam.aequivaleo.Aequivaleo;
+import com.ldtteam.aequivaleo.plugin.PluginManger;
+import com.ldtteam.aequivaleo.results.ClientResultsCache;
+import com.ldtteam.aequivaleo.results.EquivalencyResults;
+import net.minecraft.core.Registry;
+import net.minecraft.network.FriendlyByteBuf;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.world.level.Level;
+import net.minecraftforge.api.distmarker.Dist;
+import net.minecraftforge.fml.DistExecutor;
+import net.minecraftforge.fml.LogicalSide;
+import net.minecraftforge.network.NetworkEvent;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collections;
+
+/**
+ * Sent to a player who joins, with the generation and fingerprint of the results of a world.
+ * If the client has results with the same fingerprint, it uses them instead of waiting for a sync.
+ * Either way it acknowledges the generation it ends up with, and the server syncs it if that is not the offered one.
+ */
+public class SyncOfferMessage implements IMessage
+{
+    private ResourceLocation worldKeyName;
+    private long generation = EquivalencyResults.NO_GENERATION;
+    private long fingerprint = 0;
+
+    public SyncOfferMessage(@NotNull final FriendlyByteBuf buffer)
+    {
+        this.fromBytes(buffer);
+    }
+
+    public SyncOfferMessage(final ResourceLocation worldKeyName, final long generation, final long fingerprint)
+    {
+        this.worldKeyName = worldKeyName;
+        this.generation = generation;
+        this.fingerprint = fingerprint;
+    }
+
+    @Override
+    public void toBytes(final FriendlyByteBuf buf)
+    {
+        buf.writeResourceLocation(worldKeyName);
+        buf.writeLong(generation);
+        buf.writeLong(fingerprint);
+    }
+
+    public void fromBytes(final FriendlyByteBuf buf)
+    {
+        worldKeyName = buf.readResourceLocation();
+        generation = buf.readLong();
+        fingerprint = buf.readLong();
+    }
+
+    @Nullable
+    @Override
+    public LogicalSide getExecutionSide()
+    {
+        return LogicalSide.CLIENT;
+    }
+
+    @Override
+    public void onExecute(final NetworkEvent.Context ctxIn, final boolean isLogicalServer)
+    {
+        final ResourceKey<Level> worldKey = ResourceKey.create(Registry.DIMENSION_REGISTRY, worldKeyName);
+        final EquivalencyResults results = EquivalencyResults.getInstance(worldKey);
+
+        if (results.getGeneration() != generation)
+        {
+            //Results which are still loaded from an earlier connection only need to take over the offered generation.
+            final boolean applied = results.getFingerprint() == fingerprint && !results.isEmpty()
+              ? results.apply(results.getGeneration(), generation, fingerprint, Collections.emptyList()) == EquivalencyResults.ApplyResult.APPLIED
+              : Boolean.TRUE.equals(DistExecutor.unsafeCallWhenOn(Dist.CLIENT, () -> () -> ClientResultsCache.load(worldKey, results, generation, fingerprint)));
+
+            if (applied)
+            {
+                PluginManger.getInstance().run(iAequivaleoPlugin -> iAequivaleoPlugin.onDataSynced(worldKey));
+            }
+        }
+
+        Aequivaleo.getInstance().getNetworkChannel().sendToServer(new SyncAcknowledgedMessage(worldKeyName, results.getGeneration()));
+    }
+}
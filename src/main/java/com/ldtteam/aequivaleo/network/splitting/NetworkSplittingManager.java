@@ -6,17 +6,20 @@ import com.google.common.cache.RemovalListener;
 import com.google.common.collect.Lists;
 import com.ldtteam.aequivaleo.Aequivaleo;
 import com.ldtteam.aequivaleo.network.messages.IMessage;
+import io.netty.buffer.ByteBuf;
+import net.minecraft.server.level.ServerPlayer;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiFunction;
-import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -41,26 +44,70 @@ public class NetworkSplittingManager
     {
     }
 
-    public <T, M extends IMessage, E extends IMessage> void sendSplit(
+    /**
+     * Sends the same split message to several players. Each batch is encoded once, and the encoded data is shared
+     * between the messages of all players. Batches are limited by entry count and by their encoded size, a batch which
+     * encodes larger than the configured size is split and encoded again.
+     * <p>
+     * The messages are queued in the {@link PacedMessageSender}, which sends them over the following ticks.
+     *
+     * @param source                     The data to send.
+     * @param batchEncoder               Encodes a batch of the data, the returned buffer is released once all messages which use it were sent.
+     * @param messageBuilder             Builds the message of a batch from the communication id and the encoded batch.
+     * @param terminationMessageProducer Builds the message which completes the split message.
+     * @param recipients                 The players to send the message to.
+     */
+    public <T, M extends IMessage, E extends IMessage> void broadcastSplit(
       @NotNull final List<T> source,
-      @NotNull final BiFunction< Integer, List<T>, M> messageBuilder,
+      @NotNull final Function<List<T>, ByteBuf> batchEncoder,
+      @NotNull final BiFunction<Integer, ByteBuf, M> messageBuilder,
       @NotNull final Function<Integer, E> terminationMessageProducer,
-      @NotNull final Consumer<IMessage> messageSender
+      @NotNull final List<ServerPlayer> recipients
     ) {
+        if (recipients.isEmpty())
+            return;
+
         final int communicationId = messageCounter.incrementAndGet();
-        if (Aequivaleo.getInstance().getConfiguration().getCommon().networkBatchingSize.get() <= 0) {
-            messageSender.accept(messageBuilder.apply(communicationId, source));
-            messageSender.accept(terminationMessageProducer.apply(communicationId));
+        final int configuredBatchSize = Aequivaleo.getInstance().getConfiguration().getCommon().networkBatchingSize.get();
+        final int batchSize = configuredBatchSize <= 0 ? Math.max(1, source.size()) : configuredBatchSize;
+        final int maxBatchBytes = Aequivaleo.getInstance().getConfiguration().getCommon().networkBatchBytes.get();
+
+        final Deque<List<T>> batches = new ArrayDeque<>();
+        for (int startIndex = 0; startIndex < source.size(); startIndex += batchSize)
+        {
+            batches.add(source.subList(startIndex, Math.min(source.size(), startIndex + batchSize)));
+        }
+
+        while (!batches.isEmpty())
+        {
+            final List<T> batch = batches.poll();
+            final ByteBuf encodedBatch = batchEncoder.apply(batch);
+            final int encodedSize = encodedBatch.readableBytes();
+            if (encodedSize > maxBatchBytes && batch.size() > 1)
+            {
+                encodedBatch.release();
+
+                //Split into parts which are expected to fit, in reverse so that the parts are sent in order.
+                final int partCount = Math.min(batch.size(), (int) Math.ceil(encodedSize / (double) maxBatchBytes));
+                final int partSize = (int) Math.ceil(batch.size() / (double) partCount);
+                for (int endIndex = batch.size(); endIndex > 0; endIndex -= partSize)
+                {
+                    batches.addFirst(batch.subList(Math.max(0, endIndex - partSize), endIndex));
+                }
+                continue;
+            }
+
+            for (final ServerPlayer recipient : recipients)
+            {
+                PacedMessageSender.getInstance().enqueue(recipient, messageBuilder.apply(communicationId, encodedBatch), encodedBatch.retain(), encodedSize);
+            }
+            encodedBatch.release();
         }
 
-        final int batchSize = Aequivaleo.getInstance().getConfiguration().getCommon().networkBatchingSize.get();
-        final int messageCount = (int) Math.ceil(source.size() / (double) batchSize);
-        for (int listIndex = 0; listIndex < messageCount; listIndex++)
+        for (final ServerPlayer recipient : recipients)
         {
-            List<T> subSource = source.subList(batchSize * listIndex, Math.min(source.size(), batchSize * (listIndex + 1)));
-            messageSender.accept(messageBuilder.apply(communicationId, subSource));
+            PacedMessageSender.getInstance().enqueue(recipient, terminationMessageProducer.apply(communicationId), null, 0);
         }
-        messageSender.accept(terminationMessageProducer.apply(communicationId));
     }
 
     public void receivedPartialMessage(
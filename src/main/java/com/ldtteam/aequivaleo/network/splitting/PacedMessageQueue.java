@@ -0,0 +1,162 @@
+package com.ldtteam.aequivaleo.network.splitting;
+
+import com.ldtteam.aequivaleo.network.messages.IMessage;
+import io.netty.buffer.ByteBuf;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+
+/**
+ * The queues behind the {@link PacedMessageSender}, independent of how messages reach their recipients.
+ * <p>
+ * Recipients are served round robin, one message at a time. A recipient which was served is moved to the back, so the
+ * recipient which was cut off by the budget of one tick is served first in the next one.
+ *
+ * @param <R> The type of the recipients.
+ */
+final class PacedMessageQueue<R>
+{
+    /**
+     * Delivers the queued messages.
+     *
+     * @param <R> The type of the recipients.
+     */
+    interface ITransport<R>
+    {
+        boolean isConnected(R recipient);
+
+        boolean isWritable(R recipient);
+
+        void send(R recipient, IMessage message);
+    }
+
+    private final ITransport<R>                 transport;
+    private final Map<UUID, RecipientQueue<R>>  queues = new HashMap<>();
+    private final Deque<RecipientQueue<R>>      order  = new ArrayDeque<>();
+
+    PacedMessageQueue(final ITransport<R> transport)
+    {
+        this.transport = transport;
+    }
+
+    void enqueue(@NotNull final UUID id, @NotNull final R recipient, @NotNull final IMessage message, @Nullable final ByteBuf sharedData, final int size)
+    {
+        queues.computeIfAbsent(id, key -> {
+            final RecipientQueue<R> queue = new RecipientQueue<>(key, recipient);
+            order.addLast(queue);
+            return queue;
+        }).messages.add(new QueuedMessage(message, sharedData, size));
+    }
+
+    void cancel(@NotNull final UUID id)
+    {
+        final RecipientQueue<R> queue = queues.remove(id);
+        if (queue != null)
+        {
+            order.remove(queue);
+            queue.release();
+        }
+    }
+
+    boolean isEmpty()
+    {
+        return queues.isEmpty();
+    }
+
+    /**
+     * Sends queued messages until the given budget is used up. A message which does not fit into the remaining budget
+     * waits for the next call, unless nothing was sent yet, so that messages larger than the budget still make progress.
+     *
+     * @param byteBudget The number of bytes which may be sent.
+     */
+    void send(final long byteBudget)
+    {
+        long remainingBytes = byteBudget;
+        boolean sentAny = false;
+        //The number of queues in a row which could not be served, once all of them were skipped nothing can be sent anymore.
+        int skippedQueues = 0;
+        while (!order.isEmpty() && skippedQueues < order.size())
+        {
+            final RecipientQueue<R> queue = order.poll();
+            if (!transport.isConnected(queue.recipient))
+            {
+                queues.remove(queue.id);
+                queue.release();
+                continue;
+            }
+
+            if (!transport.isWritable(queue.recipient))
+            {
+                order.addLast(queue);
+                skippedQueues++;
+                continue;
+            }
+
+            final QueuedMessage message = queue.messages.peek();
+            if (sentAny && message.size() > remainingBytes)
+            {
+                order.addFirst(queue);
+                return;
+            }
+
+            queue.messages.poll();
+            try
+            {
+                transport.send(queue.recipient, message.message());
+            }
+            finally
+            {
+                message.release();
+            }
+
+            remainingBytes -= message.size();
+            sentAny = true;
+            skippedQueues = 0;
+
+            if (queue.messages.isEmpty())
+            {
+                queues.remove(queue.id);
+            }
+            else
+            {
+                order.addLast(queue);
+            }
+
+            if (remainingBytes <= 0)
+            {
+                return;
+            }
+        }
+    }
+
+    private static final class RecipientQueue<R>
+    {
+        private final UUID                 id;
+        private final R                    recipient;
+        private final Deque<QueuedMessage> messages = new ArrayDeque<>();
+
+        private RecipientQueue(final UUID id, final R recipient)
+        {
+            this.id = id;
+            this.recipient = recipient;
+        }
+
+        private void release()
+        {
+            messages.forEach(QueuedMessage::release);
+            messages.clear();
+        }
+    }
+
+    private record QueuedMessage(IMessage message, @Nullable ByteBuf sharedData, int size)
+    {
+        private void release()
+        {
+            if (sharedData != null)
+            {
+                sharedData.release();
+            }
+        }
+    }
+}
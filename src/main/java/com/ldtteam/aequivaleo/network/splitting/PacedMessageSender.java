@@ -0,0 +1,106 @@
+package com.ldtteam.aequivaleo.network.splitting;
+
+import com.ldtteam.aequivaleo.Aequivaleo;
+import com.ldtteam.aequivaleo.api.util.Constants;
+import com.ldtteam.aequivaleo.network.messages.IMessage;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraftforge.event.TickEvent;
+import net.minecraftforge.event.entity.player.PlayerEvent;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+import net.minecraftforge.fml.common.Mod;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.UUID;
+
+/**
+ * Sends queued messages to players over several server ticks, instead of writing all of them at once.
+ * <p>
+ * Each tick at most the configured number of bytes is sent, round robin over the players with queued messages, and
+ * only to players whose connection is writable. A reload which syncs results to many players thus no longer fills the
+ * buffers of every connection at once.
+ */
+@Mod.EventBusSubscriber(modid = Constants.MOD_ID)
+public final class PacedMessageSender
+{
+    private static final PacedMessageSender INSTANCE = new PacedMessageSender();
+
+    public static PacedMessageSender getInstance()
+    {
+        return INSTANCE;
+    }
+
+    private final PacedMessageQueue<ServerPlayer> queue = new PacedMessageQueue<>(new PacedMessageQueue.ITransport<>()
+    {
+        @Override
+        public boolean isConnected(final ServerPlayer recipient)
+        {
+            return !recipient.hasDisconnected();
+        }
+
+        @Override
+        public boolean isWritable(final ServerPlayer recipient)
+        {
+            final Channel channel = recipient.connection.connection.channel();
+            return channel == null || channel.isWritable();
+        }
+
+        @Override
+        public void send(final ServerPlayer recipient, final IMessage message)
+        {
+            Aequivaleo.getInstance().getNetworkChannel().sendToPlayer(message, recipient);
+        }
+    });
+
+    private PacedMessageSender()
+    {
+    }
+
+    /**
+     * Queues a message for the given player.
+     *
+     * @param player     The player.
+     * @param message    The message.
+     * @param sharedData Data the message shares with other messages, released once the message was sent or dropped. Can be null.
+     * @param size       The approximate size of the message in bytes.
+     */
+    public synchronized void enqueue(@NotNull final ServerPlayer player, @NotNull final IMessage message, @Nullable final ByteBuf sharedData, final int size)
+    {
+        queue.enqueue(player.getUUID(), player, message, sharedData, size);
+    }
+
+    /**
+     * Drops all messages queued for the given player.
+     *
+     * @param playerId The id of the player.
+     */
+    public synchronized void cancel(@NotNull final UUID playerId)
+    {
+        queue.cancel(playerId);
+    }
+
+    @SubscribeEvent
+    public static void onServerTick(final TickEvent.ServerTickEvent event)
+    {
+        if (event.phase == TickEvent.Phase.END)
+        {
+            getInstance().sendQueuedMessages();
+        }
+    }
+
+    @SubscribeEvent
+    public static void onPlayerLoggedOut(final PlayerEvent.PlayerLoggedOutEvent event)
+    {
+        getInstance().cancel(event.getEntity().getUUID());
+    }
+
+    private synchronized void sendQueuedMessages()
+    {
+        if (queue.isEmpty())
+            return;
+
+        queue.send(Aequivaleo.getInstance().getConfiguration().getCommon().networkBytesPerTick.get());
+    }
+}
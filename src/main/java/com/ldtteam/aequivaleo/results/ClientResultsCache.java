@@ -0,0 +1,90 @@
+package com.ldtteam.aequivaleo.results;
+
+import com.ldtteam.aequivaleo.Aequivaleo;
+import com.ldtteam.aequivaleo.api.compound.CompoundInstance;
+import com.ldtteam.aequivaleo.api.compound.container.ICompoundContainer;
+import com.ldtteam.aequivaleo.utils.CacheWriteQueue;
+import com.ldtteam.aequivaleo.utils.WorldCacheUtils;
+import net.minecraft.client.Minecraft;
+import net.minecraft.client.multiplayer.ServerData;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.world.level.Level;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Keeps the results synced by a server on the disk of the client, keyed by the address of the server and the fingerprint
+ * of the results. When the client joins the same server again, and its results did not change, the cached results are
+ * used instead of a full sync.
+ * <p>
+ * Only used on the client, and only referenced through {@link net.minecraftforge.fml.DistExecutor}, so that a dedicated
+ * server never loads it. In single player the results are shared with the integrated server, so nothing is cached.
+ */
+public final class ClientResultsCache
+{
+    private static final Logger LOGGER = LogManager.getLogger();
+
+    private ClientResultsCache()
+    {
+        throw new IllegalStateException("Can not instantiate an instance of: ClientResultsCache. This is a utility class");
+    }
+
+    /**
+     * Loads the cached results of the given world with the given fingerprint, if the client has them.
+     *
+     * @param worldKey    The world.
+     * @param results     The results to load the cached results into.
+     * @param generation  The generation the server published the results as.
+     * @param fingerprint The fingerprint of the results.
+     * @return True when cached results were loaded.
+     */
+    public static boolean load(@NotNull final ResourceKey<Level> worldKey, @NotNull final EquivalencyResults results, final long generation, final long fingerprint)
+    {
+        final Optional<String> serverId = getServerId();
+        if (serverId.isEmpty())
+            return false;
+
+        final Optional<Map<ICompoundContainer<?>, Set<CompoundInstance>>> cachedResults = WorldCacheUtils.loadClientCachedResults(serverId.get(), worldKey, fingerprint);
+        if (cachedResults.isEmpty())
+            return false;
+
+        LOGGER.info("Using cached results for: " + worldKey.location() + " from: " + serverId.get());
+        return results.apply(EquivalencyResults.NO_GENERATION, generation, fingerprint, new ArrayList<>(cachedResults.get().entrySet())) == EquivalencyResults.ApplyResult.APPLIED;
+    }
+
+    /**
+     * Writes the current results of the given world to the cache, off the main thread.
+     *
+     * @param worldKey The world.
+     * @param results  The results of the world.
+     */
+    public static void store(@NotNull final ResourceKey<Level> worldKey, @NotNull final EquivalencyResults results)
+    {
+        getServerId().ifPresent(serverId -> {
+            final long fingerprint = results.getFingerprint();
+            final Map<ICompoundContainer<?>, Set<CompoundInstance>> data = results.getRawData();
+            CacheWriteQueue.getInstance().submit(
+              "client#" + serverId + "#" + worldKey.location(),
+              () -> WorldCacheUtils.writeClientCachedResults(serverId, worldKey, fingerprint, data)
+            );
+        });
+    }
+
+    private static Optional<String> getServerId()
+    {
+        if (!Aequivaleo.getInstance().getConfiguration().getClient().cacheSyncedResults.get())
+            return Optional.empty();
+
+        final ServerData serverData = Minecraft.getInstance().getCurrentServer();
+        if (serverData == null || Minecraft.getInstance().hasSingleplayerServer())
+            return Optional.empty();
+
+        return Optional.of(serverData.ip);
+    }
+}
@@ -1,5 +1,6 @@
 package com.ldtteam.aequivaleo.results;
 
+import com.google.common.collect.ImmutableTable;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Table;
@@ -14,21 +15,31 @@ import com.ldtteam.aequivaleo.api.results.IResultsInformationCache;
 import com.ldtteam.aequivaleo.api.util.Constants;
 import com.ldtteam.aequivaleo.api.util.GroupingUtils;
 import com.ldtteam.aequivaleo.api.util.StreamUtils;
+import com.ldtteam.aequivaleo.network.NetworkChannel;
 import com.ldtteam.aequivaleo.network.messages.PartialSyncResultsMessage;
 import com.ldtteam.aequivaleo.network.messages.SyncCompletedMessage;
+import com.ldtteam.aequivaleo.network.messages.SyncOfferMessage;
 import com.ldtteam.aequivaleo.network.splitting.NetworkSplittingManager;
+import com.ldtteam.aequivaleo.network.splitting.PacedMessageSender;
 import net.minecraft.resources.ResourceKey;
+import net.minecraft.server.MinecraftServer;
 import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.world.item.Item;
+import net.minecraft.world.item.ItemStack;
 import net.minecraft.world.level.Level;
+import net.minecraft.world.level.material.Fluid;
 import net.minecraftforge.event.entity.player.PlayerEvent;
 import net.minecraftforge.eventbus.api.SubscribeEvent;
 import net.minecraftforge.fml.common.Mod;
+import net.minecraftforge.server.ServerLifecycleHooks;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
 @SuppressWarnings({"UnstableApiUsage", "deprecation"})
@@ -41,15 +52,29 @@ public class EquivalencyResults implements IResultsInformationCache, IEquivalenc
 
     private static final Map<ResourceKey<Level>, EquivalencyResults> WORLD_INSTANCES = Maps.newConcurrentMap();
 
-    private       Map<ICompoundContainer<?>, Set<CompoundInstance>>                       rawData          = Maps.newConcurrentMap();
-    private final Table<ICompoundContainer<?>, ICompoundTypeGroup, Object>           processedData    = Tables.newCustomTable(
-      new ConcurrentHashMap<>(),
-      ConcurrentHashMap::new
-    );
-    private final Table<ICompoundTypeGroup, ICompoundContainer<?>, Set<CompoundInstance>> groupedInstances = Tables.newCustomTable(
-      new ConcurrentHashMap<>(),
-      ConcurrentHashMap::new
-    );
+    /**
+     * The generation of results which have never been published, clients with this generation receive a full sync.
+     */
+    public static final long NO_GENERATION = 0;
+
+    //The number of published generations whose results are kept to compute deltas against.
+    private static final int RETAINED_GENERATIONS = 3;
+
+    //Randomly seeded, so that a generation acknowledged before a restart of the server is never mistaken for a current one.
+    private static final AtomicLong GENERATION_COUNTER = new AtomicLong(new Random().nextLong());
+
+    //Replaced as a whole on every update, so readers always see the data of a single analysis.
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+
+    //The results are never modified once published, so keeping them only costs the maps, not the instances.
+    private final Map<Long, Map<ICompoundContainer<?>, Set<CompoundInstance>>> publishedData = new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<Long, Map<ICompoundContainer<?>, Set<CompoundInstance>>> eldest)
+        {
+            return size() > RETAINED_GENERATIONS;
+        }
+    };
+    private final Map<UUID, PlayerSyncState> playerSyncStates = new HashMap<>();
 
     private EquivalencyResults()
     {
@@ -70,27 +95,90 @@ public class EquivalencyResults implements IResultsInformationCache, IEquivalenc
         }
     }
 
+    @SubscribeEvent
+    public static void onPlayerLoggedOut(final PlayerEvent.PlayerLoggedOutEvent playerLoggedOutEvent)
+    {
+        WORLD_INSTANCES.values().forEach(results -> results.forgetPlayer(playerLoggedOutEvent.getEntity().getUUID()));
+    }
+
     @NotNull
     @Override
     public Set<CompoundInstance> dataFor(@NotNull final ICompoundContainer<?> container){
-        final ICompoundContainer<?> unitContainer = container.getContentsCount() == 1d ? container :
-                                                                                                     IAequivaleoAPI.Holder.getInstance().getCompoundContainerFactoryManager().wrapInContainer(container.getContents(), 1d);
+        final Snapshot snapshot = this.snapshot;
+        final int entry = snapshot.index().find(container.getContents());
 
-        if (!rawData.containsKey(unitContainer)) {
-            final Set<?> alternatives = ResultsAdapterHandlerRegistry.getInstance().produceAlternatives(container.getContents());
-            for (final Object alternative : alternatives)
+        final Set<CompoundInstance> data;
+        if (entry >= 0) {
+            data = snapshot.index().getData(entry);
+        }
+        else if (entry == ResultsIndex.NOT_FOUND) {
+            data = null;
+        }
+        else {
+            final ICompoundContainer<?> unitContainer = container.getContentsCount() == 1d ? container :
+                                                                                                         IAequivaleoAPI.Holder.getInstance().getCompoundContainerFactoryManager().wrapInContainer(container.getContents(), 1d);
+            data = snapshot.rawData().get(unitContainer);
+        }
+
+        if (data == null) {
+            return alternativeDataFor(container.getContents());
+        }
+
+        return data;
+    }
+
+    @NotNull
+    @Override
+    public Set<CompoundInstance> dataFor(@NotNull final Item item)
+    {
+        return indexedDataFor(item);
+    }
+
+    @NotNull
+    @Override
+    public Set<CompoundInstance> dataFor(@NotNull final ItemStack stack)
+    {
+        return indexedDataFor(stack);
+    }
+
+    @NotNull
+    @Override
+    public Set<CompoundInstance> dataFor(@NotNull final Fluid fluid)
+    {
+        return indexedDataFor(fluid);
+    }
+
+    @NotNull
+    private Set<CompoundInstance> indexedDataFor(@NotNull final Object object)
+    {
+        final Snapshot snapshot = this.snapshot;
+        final int entry = snapshot.index().find(object);
+        if (entry >= 0) {
+            return snapshot.index().getData(entry);
+        }
+
+        if (entry == ResultsIndex.UNSUPPORTED) {
+            //For example empty stacks, which the container factories handle themselves.
+            return dataFor(IAequivaleoAPI.Holder.getInstance().getCompoundContainerFactoryManager().wrapInContainer(object, 1d));
+        }
+
+        return alternativeDataFor(object);
+    }
+
+    @NotNull
+    private Set<CompoundInstance> alternativeDataFor(@NotNull final Object contents)
+    {
+        final Set<?> alternatives = ResultsAdapterHandlerRegistry.getInstance().produceAlternatives(contents);
+        for (final Object alternative : alternatives)
+        {
+            final Set<CompoundInstance> result = this.dataFor(alternative);
+            if (!result.isEmpty())
             {
-                final Set<CompoundInstance> result = this.dataFor(alternative);
-                if (!result.isEmpty())
-                {
-                    return result;
-                }
+                return result;
             }
-
-            return Collections.emptySet();
         }
 
-        return rawData.get(unitContainer);
+        return Collections.emptySet();
     }
 
     @SuppressWarnings("unchecked")
@@ -98,10 +186,24 @@ public class EquivalencyResults implements IResultsInformationCache, IEquivalenc
     @Override
     public <R> Optional<R> mappedDataFor(@NotNull final ICompoundTypeGroup group, @NotNull final ICompoundContainer<?> container)
     {
-        final ICompoundContainer<?> unitContainer = container.getContentsCount() == 1d ? container :
-                                                                                                     IAequivaleoAPI.Holder.getInstance().getCompoundContainerFactoryManager().wrapInContainer(container.getContents(), 1d);
+        final Snapshot snapshot = this.snapshot;
+        final int entry = snapshot.index().find(container.getContents());
+
+        final Object storedEntry;
+        if (entry >= 0) {
+            storedEntry = snapshot.index().getMappedData(entry, group);
+        }
+        else if (entry == ResultsIndex.NOT_FOUND) {
+            storedEntry = null;
+        }
+        else {
+            final ICompoundContainer<?> unitContainer = container.getContentsCount() == 1d ? container :
+                                                                                                         IAequivaleoAPI.Holder.getInstance().getCompoundContainerFactoryManager().wrapInContainer(container.getContents(), 1d);
+            storedEntry = snapshot.processedData().get(unitContainer, group);
+        }
 
-        if (!processedData.contains(unitContainer, group)) {
+        //Mapped data is never stored as null, so a missing entry means there is no data for the container.
+        if (storedEntry == null) {
             final Set<?> alternatives = ResultsAdapterHandlerRegistry.getInstance().produceAlternatives(container.getContents());
             for (final Object alternative : alternatives)
             {
@@ -115,10 +217,6 @@ public class EquivalencyResults implements IResultsInformationCache, IEquivalenc
             return Optional.empty();
         }
 
-        final Object storedEntry = processedData.get(unitContainer, group);
-        if (storedEntry == null)
-            return Optional.empty();
-
         try {
             final R targetObject = (R) storedEntry;
             return Optional.of(targetObject);
@@ -130,13 +228,13 @@ public class EquivalencyResults implements IResultsInformationCache, IEquivalenc
 
     @Override
     public Map<ICompoundContainer<?>, Set<CompoundInstance>> getAllDataOf(final ICompoundTypeGroup group) {
-        return Collections.unmodifiableMap(this.groupedInstances.row(group));
+        return Collections.unmodifiableMap(this.snapshot.groupedInstances().row(group));
     }
 
     @Override
     @SuppressWarnings("unchecked")
     public <R>  Map<ICompoundContainer<?>, R> getAllMappedDataOf(final ICompoundTypeGroup group) {
-        final Map<ICompoundContainer<?>, Object> targetMap = this.processedData.column(group);
+        final Map<ICompoundContainer<?>, Object> targetMap = this.snapshot.processedData().column(group);
 
         final Map<ICompoundContainer<?>, R> resultsMap = targetMap
           .entrySet()
@@ -162,14 +260,133 @@ public class EquivalencyResults implements IResultsInformationCache, IEquivalenc
         return Collections.unmodifiableMap(resultsMap);
     }
 
+    public boolean isEmpty()
+    {
+        return snapshot.rawData().isEmpty();
+    }
+
+    /**
+     * The generation of the current results. Every publish on the server gets a new generation, clients take over the
+     * generation of the results they were synced.
+     *
+     * @return The generation of the current results.
+     */
+    public long getGeneration()
+    {
+        return snapshot.generation();
+    }
+
+    /**
+     * The fingerprint of the current results, computed on the server. Unlike the generation it only depends on the
+     * content of the results, so it can be used to find results cached by a client in an earlier session.
+     *
+     * @return The fingerprint of the current results.
+     */
+    public long getFingerprint()
+    {
+        return snapshot.fingerprint();
+    }
+
+    /**
+     * All current results, keyed by the unit containers they belong to.
+     *
+     * @return An unmodifiable map with the current results.
+     */
+    public Map<ICompoundContainer<?>, Set<CompoundInstance>> getRawData()
+    {
+        return snapshot.rawData();
+    }
+
+    /**
+     * Replaces the results, publishing them as a new generation.
+     *
+     * @param data The new results.
+     */
     public void set(@NotNull final Map<ICompoundContainer<?>, Set<CompoundInstance>> data)
     {
-        this.rawData = new ConcurrentHashMap<>(data);
-        this.processedData.clear();
-        this.groupedInstances.clear();
+        long generation;
+        do
+        {
+            generation = GENERATION_COUNTER.incrementAndGet();
+        }
+        while (generation == NO_GENERATION);
+
+        set(data, generation, ResultsFingerprint.of(data));
+    }
+
+    /**
+     * Applies a synced change set to the results.
+     * The results are only replaced if the fingerprint of the results after the changes matches the given one.
+     *
+     * @param baseGeneration The generation the changes were computed against, or {@link #NO_GENERATION} if they contain all results.
+     * @param generation     The generation of the results after the changes are applied.
+     * @param fingerprint    The fingerprint of the results after the changes are applied.
+     * @param changes        The changed entries, an entry without instances removes the container.
+     * @return Whether the changes were applied, or why not.
+     */
+    public ApplyResult apply(
+      final long baseGeneration,
+      final long generation,
+      final long fingerprint,
+      @NotNull final List<Map.Entry<ICompoundContainer<?>, Set<CompoundInstance>>> changes)
+    {
+        final Map<ICompoundContainer<?>, Set<CompoundInstance>> data;
+        if (baseGeneration == NO_GENERATION)
+        {
+            data = Maps.newHashMapWithExpectedSize(changes.size());
+        }
+        else if (baseGeneration == snapshot.generation())
+        {
+            data = new HashMap<>(snapshot.rawData());
+        }
+        else
+        {
+            return ApplyResult.BASE_MISMATCH;
+        }
+
+        for (final Map.Entry<ICompoundContainer<?>, Set<CompoundInstance>> change : changes)
+        {
+            if (change.getValue().isEmpty())
+            {
+                data.remove(change.getKey());
+            }
+            else
+            {
+                data.put(change.getKey(), change.getValue());
+            }
+        }
+
+        if (ResultsFingerprint.of(data) != fingerprint)
+        {
+            return ApplyResult.FINGERPRINT_MISMATCH;
+        }
+
+        set(data, generation, fingerprint);
+        return ApplyResult.APPLIED;
+    }
+
+    /**
+     * Replaces the results. The new tables are built completely before they are published, readers either see the old
+     * or the new results, never a partially filled table.
+     *
+     * @param data        The new results.
+     * @param generation  The generation of the new results.
+     * @param fingerprint The fingerprint of the new results.
+     */
+    private void set(@NotNull final Map<ICompoundContainer<?>, Set<CompoundInstance>> data, final long generation, final long fingerprint)
+    {
+        final Map<ICompoundContainer<?>, Set<CompoundInstance>> rawData = new ConcurrentHashMap<>(data);
+        final Table<ICompoundContainer<?>, ICompoundTypeGroup, Object> processedData = Tables.newCustomTable(
+          new ConcurrentHashMap<>(),
+          ConcurrentHashMap::new
+        );
+        final Table<ICompoundTypeGroup, ICompoundContainer<?>, Set<CompoundInstance>> groupedInstances = Tables.newCustomTable(
+          new ConcurrentHashMap<>(),
+          ConcurrentHashMap::new
+        );
 
         StreamUtils.execute(
-          () -> this.rawData.entrySet().parallelStream().forEach(e -> {
+          () -> rawData.entrySet().parallelStream().forEach(e -> {
               final Map<ICompoundTypeGroup, Collection<CompoundInstance>> instancesGroupedByGroup =
                 GroupingUtils.groupByUsingSetToMap(e.getValue(), i -> i.getType().getGroup());
 
@@ -205,23 +422,322 @@ public class EquivalencyResults implements IResultsInformationCache, IEquivalenc
               });
           })
         );
+
+        synchronized (this)
+        {
+            this.snapshot = new Snapshot(
+              generation,
+              fingerprint,
+              Collections.unmodifiableMap(rawData),
+              Tables.unmodifiableTable(processedData),
+              Tables.unmodifiableTable(groupedInstances),
+              ResultsIndex.build(rawData, processedData)
+            );
+            this.publishedData.put(generation, this.snapshot.rawData());
+        }
     }
 
+    /**
+     * Sends the current results to all players, only sending the entries which changed since the generation each player has.
+     */
     public static void updateAllPlayers() {
-        WORLD_INSTANCES.forEach((key, data) -> NetworkSplittingManager.getInstance().sendSplit(
-          Lists.newArrayList(data.rawData.entrySet()),
-          PartialSyncResultsMessage::new,
-          integer -> new SyncCompletedMessage(integer, key.location()),
-          message -> Aequivaleo.getInstance().getNetworkChannel().sendToEveryone(message)
-        ));
+        final MinecraftServer server = ServerLifecycleHooks.getCurrentServer();
+        if (server == null)
+            return;
+
+        final List<ServerPlayer> players = server.getPlayerList().getPlayers();
+        WORLD_INSTANCES.forEach((key, data) -> data.syncTo(key, players));
+    }
+
+    /**
+     * Sends the current results of the given worlds to all players, like {@link #updateAllPlayers()}.
+     *
+     * @param worlds The worlds whose results changed.
+     */
+    public static void updateAllPlayers(@NotNull final Collection<ResourceKey<Level>> worlds) {
+        final MinecraftServer server = ServerLifecycleHooks.getCurrentServer();
+        if (server == null)
+            return;
+
+        final List<ServerPlayer> players = server.getPlayerList().getPlayers();
+        worlds.forEach(key -> getInstance(key).syncTo(key, players));
     }
 
+    /**
+     * Syncs the current results to the given player, for example because the player just joined.
+     * The client is first offered the fingerprint of the results, and only receives them if it has not cached them yet.
+     *
+     * @param player The player.
+     */
     public static void updatePlayer(@NotNull final ServerPlayer player) {
-        WORLD_INSTANCES.forEach((key, data) -> NetworkSplittingManager.getInstance().sendSplit(
-          Lists.newArrayList(data.rawData.entrySet()),
-          PartialSyncResultsMessage::new,
-          integer -> new SyncCompletedMessage(integer, key.location()),
-          message -> Aequivaleo.getInstance().getNetworkChannel().sendToPlayer(message, player)
-        ));
+        PacedMessageSender.getInstance().cancel(player.getUUID());
+        WORLD_INSTANCES.forEach((key, data) -> {
+            data.forgetPlayer(player.getUUID());
+            data.offerTo(key, player);
+        });
+    }
+
+    /**
+     * Invoked when a client acknowledges the generation of the results it now has.
+     * If the client did not end up with the current generation, and no other sync is still on its way, it is synced again.
+     *
+     * @param player     The player whose client acknowledged the generation.
+     * @param worldKey   The world of the results.
+     * @param generation The generation the client has.
+     */
+    public static void onAcknowledged(@NotNull final ServerPlayer player, @NotNull final ResourceKey<Level> worldKey, final long generation)
+    {
+        final EquivalencyResults results = WORLD_INSTANCES.get(worldKey);
+        if (results == null)
+            return;
+
+        final List<PendingSync> pendingSyncs;
+        synchronized (results)
+        {
+            final PlayerSyncState state = results.playerSyncStates.get(player.getUUID());
+            if (state == null || --state.pendingSyncs > 0)
+                return;
+
+            state.pendingSyncs = 0;
+            if (generation == NO_GENERATION && state.fullSyncGeneration == results.snapshot.generation())
+            {
+                //A full sync can not be repaired by another one, it would only be sent again and again.
+                LOGGER.error("Player: " + player.getScoreboardName() + " rejected the full sync of generation: " + state.fullSyncGeneration + " of: " + worldKey.location() + ". Not syncing again.");
+                state.generation = state.fullSyncGeneration;
+                return;
+            }
+
+            state.generation = generation;
+            if (generation == results.snapshot.generation())
+                return;
+
+            LOGGER.debug("Player: " + player.getScoreboardName() + " has generation: " + generation + " of: " + worldKey.location() + ". Syncing again.");
+            pendingSyncs = results.prepareSync(List.of(player));
+        }
+
+        send(worldKey, pendingSyncs);
+    }
+
+    private synchronized void forgetPlayer(final UUID playerId)
+    {
+        playerSyncStates.remove(playerId);
+    }
+
+    private void offerTo(final ResourceKey<Level> worldKey, final ServerPlayer player)
+    {
+        final Snapshot snapshot;
+        final boolean offered;
+        final List<PendingSync> pendingSyncs;
+        synchronized (this)
+        {
+            snapshot = this.snapshot;
+            offered = snapshot.generation() != NO_GENERATION
+              && Aequivaleo.getInstance().getNetworkChannel().getProtocolVersion(player) >= NetworkChannel.PROTOCOL_LATEST;
+            if (!offered)
+            {
+                pendingSyncs = prepareSync(List.of(player));
+            }
+            else
+            {
+                //The client acknowledges the offer like a sync. If it had no cached results, it is synced once it did.
+                final PlayerSyncState state = playerSyncStates.computeIfAbsent(player.getUUID(), id -> new PlayerSyncState());
+                state.synced = true;
+                state.generation = snapshot.generation();
+                state.pendingSyncs++;
+                pendingSyncs = Collections.emptyList();
+            }
+        }
+
+        if (offered)
+        {
+            Aequivaleo.getInstance().getNetworkChannel().sendToPlayer(
+              new SyncOfferMessage(worldKey.location(), snapshot.generation(), snapshot.fingerprint()),
+              player
+            );
+        }
+        send(worldKey, pendingSyncs);
+    }
+
+    private void syncTo(final ResourceKey<Level> worldKey, final List<ServerPlayer> players)
+    {
+        final List<PendingSync> pendingSyncs;
+        synchronized (this)
+        {
+            pendingSyncs = prepareSync(players);
+        }
+        send(worldKey, pendingSyncs);
+    }
+
+    /**
+     * Determines which players need which changes, and records the generation they will have once the changes arrive.
+     * Only captures the published results, the changes are computed and encoded by {@link #send(ResourceKey, List)}
+     * outside of the lock.
+     */
+    private List<PendingSync> prepareSync(final List<ServerPlayer> players)
+    {
+        final Snapshot snapshot = this.snapshot;
+        final Map<SyncGroup, List<ServerPlayer>> playersByGroup = new HashMap<>();
+        for (final ServerPlayer player : players)
+        {
+            final PlayerSyncState state = playerSyncStates.computeIfAbsent(player.getUUID(), id -> new PlayerSyncState());
+            if (state.synced && state.generation == snapshot.generation())
+                continue;
+
+            //A pending sync is usually applied before this one and is then a valid base. If the syncs overtake each
+            //other the client rejects this one, acknowledges the generation it has, and is synced again.
+            //Legacy clients can only replace their results, they always get a full sync.
+            final int protocolVersion = Aequivaleo.getInstance().getNetworkChannel().getProtocolVersion(player);
+            final long baseGeneration = protocolVersion >= NetworkChannel.PROTOCOL_LATEST && publishedData.containsKey(state.generation) ? state.generation : NO_GENERATION;
+            playersByGroup.computeIfAbsent(new SyncGroup(baseGeneration, Math.min(protocolVersion, NetworkChannel.PROTOCOL_LATEST)), group -> new ArrayList<>()).add(player);
+
+            state.synced = true;
+            state.generation = snapshot.generation();
+            state.pendingSyncs++;
+            if (baseGeneration == NO_GENERATION)
+            {
+                state.fullSyncGeneration = snapshot.generation();
+            }
+        }
+
+        final List<PendingSync> pendingSyncs = new ArrayList<>(playersByGroup.size());
+        playersByGroup.forEach((group, recipients) -> pendingSyncs.add(new PendingSync(
+          snapshot,
+          group.baseGeneration(),
+          group.baseGeneration() == NO_GENERATION ? null : publishedData.get(group.baseGeneration()),
+          group.protocolVersion(),
+          recipients)));
+        return pendingSyncs;
+    }
+
+    private static void send(final ResourceKey<Level> worldKey, final List<PendingSync> pendingSyncs)
+    {
+        //Players which need the same changes share the encoded messages.
+        for (final PendingSync pendingSync : pendingSyncs)
+        {
+            final Snapshot snapshot = pendingSync.snapshot();
+            final List<Map.Entry<ICompoundContainer<?>, Set<CompoundInstance>>> changes = pendingSync.baseData() == null
+              ? Lists.newArrayList(snapshot.rawData().entrySet())
+              : changesBetween(pendingSync.baseData(), snapshot.rawData());
+
+            if (pendingSync.baseData() != null)
+            {
+                LOGGER.info("Syncing " + changes.size() + " of " + snapshot.rawData().size() + " entries relative to generation: " + pendingSync.baseGeneration());
+            }
+
+            if (pendingSync.protocolVersion() < NetworkChannel.PROTOCOL_LATEST)
+            {
+                NetworkSplittingManager.getInstance().broadcastSplit(
+                  changes,
+                  PartialSyncResultsMessage::encodeLegacy,
+                  PartialSyncResultsMessage::new,
+                  integer -> new SyncCompletedMessage(integer, worldKey.location(), snapshot.generation(), snapshot.fingerprint(), pendingSync.protocolVersion()),
+                  pendingSync.recipients()
+                );
+                continue;
+            }
+
+            NetworkSplittingManager.getInstance().broadcastSplit(
+              changes,
+              PartialSyncResultsMessage::encode,
+              PartialSyncResultsMessage::new,
+              integer -> new SyncCompletedMessage(integer, worldKey.location(), pendingSync.baseGeneration(), snapshot.generation(), snapshot.fingerprint()),
+              pendingSync.recipients()
+            );
+        }
+    }
+
+    /**
+     * Computes the entries which need to be synced to turn the base results into the current ones.
+     * Entries are compared exactly, an entry without instances removes the container.
+     *
+     * @param baseData    The results the client has.
+     * @param currentData The results the client should have.
+     * @return The changed entries.
+     */
+    static List<Map.Entry<ICompoundContainer<?>, Set<CompoundInstance>>> changesBetween(
+      final Map<ICompoundContainer<?>, Set<CompoundInstance>> baseData,
+      final Map<ICompoundContainer<?>, Set<CompoundInstance>> currentData)
+    {
+        final List<Map.Entry<ICompoundContainer<?>, Set<CompoundInstance>>> changes = Lists.newArrayList();
+        currentData.forEach((container, instances) -> {
+            if (!instances.equals(baseData.get(container)))
+            {
+                changes.add(new AbstractMap.SimpleImmutableEntry<>(container, instances));
+            }
+        });
+        baseData.keySet().stream()
+          .filter(container -> !currentData.containsKey(container))
+          .forEach(container -> changes.add(new AbstractMap.SimpleImmutableEntry<>(container, Collections.emptySet())));
+        return changes;
+    }
+
+    /**
+     * The outcome of applying a synced change set.
+     */
+    public enum ApplyResult
+    {
+        /**
+         * The changes were applied.
+         */
+        APPLIED,
+        /**
+         * The current results are not of the generation the changes were computed against.
+         */
+        BASE_MISMATCH,
+        /**
+         * The results after the changes do not match the fingerprint computed on the server, they were not applied.
+         */
+        FINGERPRINT_MISMATCH
+    }
+
+    /**
+     * The generation a client of a player has, or will have once the syncs still on their way are applied.
+     */
+    private static final class PlayerSyncState
+    {
+        private boolean synced             = false;
+        private long    generation         = NO_GENERATION;
+        private int     pendingSyncs       = 0;
+        private long    fullSyncGeneration = NO_GENERATION;
+    }
+
+    /**
+     * A sync to the given players, captured under the lock so that it can be encoded outside of it.
+     *
+     * @param snapshot        The results to sync.
+     * @param baseGeneration  The generation the players have, or {@link #NO_GENERATION} for a full sync.
+     * @param baseData        The results of the base generation, or null for a full sync.
+     * @param protocolVersion The protocol the players speak.
+     * @param recipients      The players.
+     */
+    private record PendingSync(
+      Snapshot snapshot,
+      long baseGeneration,
+      @Nullable Map<ICompoundContainer<?>, Set<CompoundInstance>> baseData,
+      int protocolVersion,
+      List<ServerPlayer> recipients)
+    {
+    }
+
+    /**
+     * Players which need the same changes in the same protocol share the encoded messages.
+     */
+    private record SyncGroup(long baseGeneration, int protocolVersion)
+    {
+    }
+
+    /**
+     * The results of a single analysis. Never modified once it is published.
+     * The index answers lookups of items and fluids without wrapping them in a container first.
+     */
+    private record Snapshot(
+      long generation,
+      long fingerprint,
+      Map<ICompoundContainer<?>, Set<CompoundInstance>> rawData,
+      Table<ICompoundContainer<?>, ICompoundTypeGroup, Object> processedData,
+      Table<ICompoundTypeGroup, ICompoundContainer<?>, Set<CompoundInstance>> groupedInstances,
+      ResultsIndex index)
+    {
+        private static final Snapshot EMPTY = new Snapshot(NO_GENERATION, 0, Collections.emptyMap(), ImmutableTable.of(), ImmutableTable.of(), ResultsIndex.EMPTY);
     }
 }
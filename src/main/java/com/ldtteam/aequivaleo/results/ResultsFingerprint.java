@@ -0,0 +1,70 @@
+package com.ldtteam.aequivaleo.results;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import com.ldtteam.aequivaleo.api.compound.CompoundInstance;
+import com.ldtteam.aequivaleo.api.compound.container.ICompoundContainer;
+import com.ldtteam.aequivaleo.api.util.PacketBufferUtils;
+import com.ldtteam.aequivaleo.compound.container.registry.CompoundContainerFactoryManager;
+import io.netty.buffer.Unpooled;
+import net.minecraft.network.FriendlyByteBuf;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Computes a fingerprint of a set of results which is stable across restarts and between server and client.
+ * <p>
+ * Hash codes of containers and compound types are not stable, so the fingerprint is computed over the synced form of
+ * each entry instead. The hashes of the entries and of the instances in an entry are summed, so the order in which a
+ * map or set is iterated does not matter.
+ */
+final class ResultsFingerprint
+{
+    private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+
+    private ResultsFingerprint()
+    {
+        throw new IllegalStateException("Can not instantiate an instance of: ResultsFingerprint. This is a utility class");
+    }
+
+    static long of(final Map<ICompoundContainer<?>, Set<CompoundInstance>> data)
+    {
+        final FriendlyByteBuf buffer = new FriendlyByteBuf(Unpooled.buffer());
+
+        long fingerprint = 0;
+        for (final Map.Entry<ICompoundContainer<?>, Set<CompoundInstance>> entry : data.entrySet())
+        {
+            buffer.clear();
+            CompoundContainerFactoryManager.getInstance().write(entry.getKey(), buffer);
+            final long containerHash = hash(buffer);
+
+            long instancesHash = 0;
+            for (final CompoundInstance instance : entry.getValue())
+            {
+                buffer.clear();
+                PacketBufferUtils.writeCompoundInstance(instance, buffer);
+                instancesHash += hash(buffer);
+            }
+
+            fingerprint += HASH_FUNCTION.newHasher()
+              .putLong(containerHash)
+              .putLong(instancesHash)
+              .putInt(entry.getValue().size())
+              .hash()
+              .asLong();
+        }
+
+        buffer.release();
+        return HASH_FUNCTION.newHasher()
+          .putLong(fingerprint)
+          .putInt(data.size())
+          .hash()
+          .asLong();
+    }
+
+    private static long hash(final FriendlyByteBuf buffer)
+    {
+        return HASH_FUNCTION.hashBytes(buffer.array(), buffer.arrayOffset() + buffer.readerIndex(), buffer.readableBytes()).asLong();
+    }
+}
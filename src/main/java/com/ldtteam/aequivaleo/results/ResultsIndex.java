@@ -0,0 +1,216 @@
+package com.ldtteam.aequivaleo.results;
+
+import com.google.common.collect.Table;
+import com.ldtteam.aequivaleo.api.compound.CompoundInstance;
+import com.ldtteam.aequivaleo.api.compound.container.ICompoundContainer;
+import com.ldtteam.aequivaleo.api.compound.type.group.ICompoundTypeGroup;
+import com.ldtteam.aequivaleo.api.util.RegistryUtils;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.world.item.Item;
+import net.minecraft.world.item.ItemStack;
+import net.minecraft.world.level.material.Fluid;
+import net.minecraftforge.fluids.FluidStack;
+import net.minecraftforge.registries.ForgeRegistries;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Read optimized, frozen index over the results of the most common in game objects: items, item stacks, fluids and fluid stacks.
+ * <p>
+ * Entries are keyed by a compact key made up of the kind of object, its registry id and the hash of its NBT, and stored
+ * in primitive arrays using open addressing with linear probing. Looking up an object does not wrap it in a container,
+ * so neither the object is copied nor its NBT saved. Since the key is only a hash, every hit is verified against the
+ * stored object.
+ */
+final class ResultsIndex
+{
+    /**
+     * Returned by {@link #find(Object)} for objects which are not covered by the index.
+     */
+    static final int UNSUPPORTED = -2;
+
+    /**
+     * Returned by {@link #find(Object)} for covered objects without results.
+     */
+    static final int NOT_FOUND = -1;
+
+    static final ResultsIndex EMPTY = new ResultsIndex(0);
+
+    private static final long KIND_ITEM        = 1;
+    private static final long KIND_ITEM_STACK  = 2;
+    private static final long KIND_FLUID       = 3;
+    private static final long KIND_FLUID_STACK = 4;
+
+    private final long[]                               keys;
+    //Entry index + 1 per slot, 0 marks an empty slot.
+    private final int[]                                slots;
+    private final int                                  mask;
+    private final Object[]                             contents;
+    private final Set<CompoundInstance>[]              data;
+    private final Map<ICompoundTypeGroup, Object>[]    mappedData;
+    private       int                                  size;
+
+    @SuppressWarnings("unchecked")
+    private ResultsIndex(final int expectedSize)
+    {
+        final int capacity = Integer.highestOneBit(Math.max(4, expectedSize) * 2 - 1) << 1;
+        this.keys = new long[capacity];
+        this.slots = new int[capacity];
+        this.mask = capacity - 1;
+        this.contents = new Object[expectedSize];
+        this.data = new Set[expectedSize];
+        this.mappedData = new Map[expectedSize];
+    }
+
+    /**
+     * Builds the index of the given results.
+     *
+     * @param rawData       The results, keyed by unit containers.
+     * @param processedData The processed results.
+     * @return The index.
+     */
+    static ResultsIndex build(
+      final Map<ICompoundContainer<?>, Set<CompoundInstance>> rawData,
+      final Table<ICompoundContainer<?>, ICompoundTypeGroup, Object> processedData)
+    {
+        int coveredCount = 0;
+        for (ICompoundContainer<?> container : rawData.keySet())
+        {
+            if (keyOf(container.getContents()) != 0)
+            {
+                coveredCount++;
+            }
+        }
+
+        final ResultsIndex index = new ResultsIndex(coveredCount);
+        rawData.forEach((container, instances) -> {
+            final long key = keyOf(container.getContents());
+            if (key != 0)
+            {
+                index.add(key, container.getContents(), instances, Map.copyOf(processedData.row(container)));
+            }
+        });
+        return index;
+    }
+
+    private void add(final long key, final Object object, final Set<CompoundInstance> instances, final Map<ICompoundTypeGroup, Object> mapped)
+    {
+        int slot = slotOf(key);
+        while (slots[slot] != 0)
+        {
+            slot = (slot + 1) & mask;
+        }
+
+        contents[size] = object;
+        data[size] = instances;
+        mappedData[size] = mapped;
+        keys[slot] = key;
+        slots[slot] = ++size;
+    }
+
+    /**
+     * Finds the entry of the given object.
+     *
+     * @param object The object, for example the contents of a container.
+     * @return The entry, {@link #NOT_FOUND} if the object has no results, or {@link #UNSUPPORTED} if the object is not covered by this index.
+     */
+    int find(final Object object)
+    {
+        final long key = keyOf(object);
+        if (key == 0)
+            return UNSUPPORTED;
+
+        int slot = slotOf(key);
+        int entry;
+        while ((entry = slots[slot]) != 0)
+        {
+            if (keys[slot] == key && matches(contents[entry - 1], object))
+            {
+                return entry - 1;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return NOT_FOUND;
+    }
+
+    Set<CompoundInstance> getData(final int entry)
+    {
+        return data[entry];
+    }
+
+    @Nullable
+    Object getMappedData(final int entry, final ICompoundTypeGroup group)
+    {
+        return mappedData[entry].get(group);
+    }
+
+    private int slotOf(final long key)
+    {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    /**
+     * The compact key of an object, combining its kind, registry id and the hash of its NBT.
+     *
+     * @param object The object.
+     * @return The key, or 0 if the object is not covered.
+     */
+    private static long keyOf(final Object object)
+    {
+        if (object instanceof final ItemStack stack)
+        {
+            return stack.isEmpty() ? 0 : key(KIND_ITEM_STACK, RegistryUtils.getId(ForgeRegistries.ITEMS, stack.getItem()), tagHash(stack.getTag()));
+        }
+        if (object instanceof final Item item)
+        {
+            return key(KIND_ITEM, RegistryUtils.getId(ForgeRegistries.ITEMS, item), 0);
+        }
+        if (object instanceof final FluidStack stack)
+        {
+            return stack.isEmpty() ? 0 : key(KIND_FLUID_STACK, RegistryUtils.getId(ForgeRegistries.FLUIDS, stack.getFluid()), tagHash(stack.getTag()));
+        }
+        if (object instanceof final Fluid fluid)
+        {
+            return key(KIND_FLUID, RegistryUtils.getId(ForgeRegistries.FLUIDS, fluid), 0);
+        }
+        return 0;
+    }
+
+    private static long key(final long kind, final int registryId, final int tagHash)
+    {
+        return (kind << 60) | ((long) (registryId & 0x0FFFFFFF) << 32) | (tagHash & 0xFFFFFFFFL);
+    }
+
+    private static int tagHash(@Nullable final CompoundTag tag)
+    {
+        return tag == null || tag.isEmpty() ? 0 : tag.hashCode();
+    }
+
+    private static boolean matches(final Object stored, final Object object)
+    {
+        if (stored == object)
+            return true;
+
+        if (stored instanceof final ItemStack storedStack && object instanceof final ItemStack stack)
+        {
+            return storedStack.getItem() == stack.getItem() && tagsMatch(storedStack.getTag(), stack.getTag());
+        }
+        if (stored instanceof final FluidStack storedStack && object instanceof final FluidStack stack)
+        {
+            return storedStack.getFluid() == stack.getFluid() && tagsMatch(storedStack.getTag(), stack.getTag());
+        }
+        return false;
+    }
+
+    private static boolean tagsMatch(@Nullable final CompoundTag left, @Nullable final CompoundTag right)
+    {
+        if (left == null || left.isEmpty())
+            return right == null || right.isEmpty();
+
+        return Objects.equals(left, right);
+    }
+}
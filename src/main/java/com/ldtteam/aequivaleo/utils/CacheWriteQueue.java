@@ -0,0 +1,159 @@
+package com.ldtteam.aequivaleo.utils;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes cache files on a dedicated low priority thread, so that publishing the results of an analysis does not wait on the disk.
+ * <p>
+ * Writes are keyed by what they write. A write which is submitted while an older write with the same key is still pending
+ * replaces it, so overlapping reloads only ever write their newest results and the queue never holds more than one
+ * write per key.
+ */
+public final class CacheWriteQueue
+{
+    private static final Logger LOGGER = LogManager.getLogger();
+
+    private static final CacheWriteQueue INSTANCE = new CacheWriteQueue();
+
+    //Shutdown must not hang on a stuck disk, anything not written by then is simply analyzed again on the next start.
+    private static final long FLUSH_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    private final Object                lock          = new Object();
+    private final Map<String, Runnable> pendingWrites = new LinkedHashMap<>();
+    private       boolean               writing       = false;
+    private       Thread                worker        = null;
+
+    private CacheWriteQueue()
+    {
+    }
+
+    public static CacheWriteQueue getInstance()
+    {
+        return INSTANCE;
+    }
+
+    /**
+     * Queues the given write.
+     *
+     * @param key   The key of the write, a pending write with the same key is replaced.
+     * @param write The write to perform.
+     */
+    public void submit(final String key, final Runnable write)
+    {
+        synchronized (lock)
+        {
+            //Remove first, so that the replacing write is also queued behind the writes submitted in the meantime.
+            if (pendingWrites.remove(key) != null)
+            {
+                LOGGER.info(String.format("Replacing the pending cache write for: %s with newer data.", key));
+            }
+            pendingWrites.put(key, write);
+
+            if (worker == null)
+            {
+                worker = new Thread(this::processWrites, "Aequivaleo cache writer");
+                worker.setDaemon(true);
+                worker.setPriority(Thread.MIN_PRIORITY);
+                worker.setContextClassLoader(Thread.currentThread().getContextClassLoader());
+                worker.start();
+            }
+
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * Blocks until all pending writes are written, or until the flush timeout elapsed.
+     */
+    public void flush()
+    {
+        synchronized (lock)
+        {
+            if (!pendingWrites.isEmpty() || writing)
+            {
+                LOGGER.info(String.format("Waiting for %d pending cache writes.", pendingWrites.size() + (writing ? 1 : 0)));
+            }
+
+            final long deadline = System.currentTimeMillis() + FLUSH_TIMEOUT_MILLIS;
+            while ((!pendingWrites.isEmpty() || writing) && worker != null)
+            {
+                final long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0)
+                {
+                    LOGGER.warn(String.format("Timed out while waiting for %d pending cache writes.", pendingWrites.size() + (writing ? 1 : 0)));
+                    return;
+                }
+
+                try
+                {
+                    lock.wait(remaining);
+                }
+                catch (InterruptedException e)
+                {
+                    LOGGER.warn("Interrupted while waiting for pending cache writes.");
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void processWrites()
+    {
+        try
+        {
+            while (true)
+            {
+                final Runnable write;
+                synchronized (lock)
+                {
+                    writing = false;
+                    lock.notifyAll();
+
+                    while (pendingWrites.isEmpty())
+                    {
+                        try
+                        {
+                            lock.wait();
+                        }
+                        catch (InterruptedException e)
+                        {
+                            return;
+                        }
+                    }
+
+                    final Iterator<Runnable> iterator = pendingWrites.values().iterator();
+                    write = iterator.next();
+                    iterator.remove();
+                    writing = true;
+                }
+
+                try
+                {
+                    write.run();
+                }
+                catch (Throwable throwable)
+                {
+                    //A broken write, even one failing with an error, must not take the writer and with it every later write down.
+                    LOGGER.error("Failed to write cache data.", throwable);
+                }
+            }
+        }
+        finally
+        {
+            synchronized (lock)
+            {
+                //Pending writes are picked up by a new worker on the next submit, flush no longer waits on this one.
+                writing = false;
+                worker = null;
+                lock.notifyAll();
+            }
+        }
+    }
+}
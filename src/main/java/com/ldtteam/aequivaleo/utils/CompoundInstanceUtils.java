@@ -1,10 +1,9 @@
 package com.ldtteam.aequivaleo.utils;
 
 import com.ldtteam.aequivaleo.api.compound.CompoundInstance;
-import com.ldtteam.aequivaleo.api.compound.type.ICompoundType;
+import com.ldtteam.aequivaleo.compound.vector.CompoundVector;
 
 import java.util.*;
-import java.util.stream.Collectors;
 
 public class CompoundInstanceUtils {
 
@@ -17,27 +16,11 @@ public class CompoundInstanceUtils {
         if (right.length == 0)
             return new HashSet<>(left);
 
-        final Map<ICompoundType, Double> sumCount = new HashMap<>();
-        for (CompoundInstance i : left) {
-            if (sumCount.containsKey(i.getType())) {
-                sumCount.put(i.getType(), sumCount.get(i.getType()) + i.getAmount());
-            } else {
-                sumCount.put(i.getType(), i.getAmount());
-            }
-        }
-
+        final CompoundVector sumCount = CompoundVector.of(left);
         for (Set<CompoundInstance> mergeSource : right) {
-            for (CompoundInstance i : mergeSource) {
-                if (sumCount.containsKey(i.getType())) {
-                    sumCount.put(i.getType(), sumCount.get(i.getType()) + i.getAmount());
-                } else {
-                    sumCount.put(i.getType(), i.getAmount());
-                }
-            }
+            sumCount.addAll(mergeSource, 1d);
         }
 
-        return sumCount.entrySet().stream()
-                .map(e -> new CompoundInstance(e.getKey(), e.getValue()))
-                .collect(Collectors.toSet());
+        return sumCount.toInstances();
     }
 }
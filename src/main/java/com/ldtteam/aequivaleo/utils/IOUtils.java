@@ -25,12 +25,17 @@ public class IOUtils
         buf.writeVarInt(compoundData.size());
         for (final Map.Entry<ICompoundContainer<?>, Set<CompoundInstance>> entry : compoundData)
         {
-            CompoundContainerFactoryManager.getInstance().write(entry.getKey(), buf);
-            buf.writeVarInt(entry.getValue().size());
-            for (final CompoundInstance compoundInstance : entry.getValue())
-            {
-                PacketBufferUtils.writeCompoundInstance(compoundInstance, buf);
-            }
+            writeCompoundDataEntry(buf, entry);
+        }
+    }
+
+    public static void writeCompoundDataEntry(final FriendlyByteBuf buf, final Map.Entry<ICompoundContainer<?>, Set<CompoundInstance>> entry)
+    {
+        CompoundContainerFactoryManager.getInstance().write(entry.getKey(), buf);
+        buf.writeVarInt(entry.getValue().size());
+        for (final CompoundInstance compoundInstance : entry.getValue())
+        {
+            PacketBufferUtils.writeCompoundInstance(compoundInstance, buf);
         }
     }
 
@@ -39,19 +44,24 @@ public class IOUtils
         final int containerCount = buffer.readVarInt();
         for (int i = 0; i < containerCount; i++)
         {
-            final ICompoundContainer<?> container = CompoundContainerFactoryManager.getInstance().read(buffer);
-            final int compoundCount = buffer.readVarInt();
-            final Set<CompoundInstance> instances = Sets.newHashSet();
-            for (int j = 0; j < compoundCount; j++)
-            {
-                instances.add(
-                  PacketBufferUtils.readCompoundInstance(
-                    buffer
-                  )
-                );
-            }
-
-            compoundData.add(new AbstractMap.SimpleEntry<>(container, instances));
+            compoundData.add(readCompoundDataEntry(buffer));
         }
     }
+
+    public static Map.Entry<ICompoundContainer<?>, Set<CompoundInstance>> readCompoundDataEntry(final FriendlyByteBuf buffer)
+    {
+        final ICompoundContainer<?> container = CompoundContainerFactoryManager.getInstance().read(buffer);
+        final int compoundCount = buffer.readVarInt();
+        final Set<CompoundInstance> instances = Sets.newHashSet();
+        for (int j = 0; j < compoundCount; j++)
+        {
+            instances.add(
+              PacketBufferUtils.readCompoundInstance(
+                buffer
+              )
+            );
+        }
+
+        return new AbstractMap.SimpleEntry<>(container, instances);
+    }
 }
@@ -0,0 +1,385 @@
+package com.ldtteam.aequivaleo.utils;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.ldtteam.aequivaleo.api.compound.CompoundInstance;
+import com.ldtteam.aequivaleo.api.compound.container.ICompoundContainer;
+import com.ldtteam.aequivaleo.api.compound.container.factory.ICompoundContainerFactory;
+import com.ldtteam.aequivaleo.api.compound.type.ICompoundType;
+import com.ldtteam.aequivaleo.api.registry.ISyncedRegistry;
+import com.ldtteam.aequivaleo.api.util.ModRegistries;
+import com.ldtteam.aequivaleo.api.util.StreamUtils;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import net.minecraft.network.FriendlyByteBuf;
+import net.minecraftforge.fml.ModList;
+import net.minecraftforge.forgespi.language.IModInfo;
+import net.minecraftforge.registries.ForgeRegistry;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Reads and writes the on disk format of the results cache.
+ * <p>
+ * Layout of a cache file:
+ * <ul>
+ *     <li>int magic, int version, long type table hash, long mod set hash; see {@link Environment}</li>
+ *     <li>the blocks, each a deflate compressed run of entries as written by {@link IOUtils#writeCompoundDataEntry(FriendlyByteBuf, Map.Entry)}</li>
+ *     <li>the block table, per block: long offset, int compressed length, int uncompressed length, int entry count</li>
+ *     <li>the footer: long block table offset, int block count, int entry count, int CRC32 of everything before it, int magic</li>
+ * </ul>
+ * Since the block table is written last the writer only ever holds a single block in memory.
+ */
+public final class ResultsCacheFormat
+{
+    private static final int MAGIC   = 0x41455143;
+    private static final int VERSION = 3;
+
+    private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+
+    private static final int HEADER_SIZE      = 2 * Integer.BYTES + 2 * Long.BYTES;
+    private static final int BLOCK_ENTRY_SIZE = Long.BYTES + 3 * Integer.BYTES;
+    private static final int FOOTER_SIZE      = Long.BYTES + 4 * Integer.BYTES;
+    private static final int BLOCK_SIZE       = 1 << 20;
+
+    private ResultsCacheFormat()
+    {
+        throw new IllegalStateException("Can not instantiate an instance of: ResultsCacheFormat. This is a utility class");
+    }
+
+    /**
+     * Writes the given data to a temporary file next to the target, and moves it in place once it is complete.
+     * A partially written file thus never ends up under the name of the target, even if several writers target the same file.
+     *
+     * @param target      The cache file.
+     * @param environment The environment the data was produced in.
+     * @param data        The data to write.
+     * @throws IOException When writing or moving the file fails.
+     */
+    public static void write(final Path target, final Environment environment, final Map<ICompoundContainer<?>, Set<CompoundInstance>> data) throws IOException
+    {
+        final Path temporaryFile = Files.createTempFile(target.toAbsolutePath().getParent(), target.getFileName().toString(), ".tmp");
+        try
+        {
+            try (FileChannel channel = FileChannel.open(temporaryFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING))
+            {
+                final BlockWriter writer = new BlockWriter(channel, environment);
+                for (Map.Entry<ICompoundContainer<?>, Set<CompoundInstance>> entry : data.entrySet())
+                {
+                    writer.write(entry);
+                }
+                writer.finish();
+                channel.force(false);
+            }
+
+            moveIntoPlace(temporaryFile, target);
+        }
+        finally
+        {
+            Files.deleteIfExists(temporaryFile);
+        }
+    }
+
+    /**
+     * Copies an existing cache file, using the same temporary file and move as {@link #write(Path, Environment, Map)}.
+     *
+     * @param source The cache file to copy.
+     * @param target The location to copy it to.
+     * @throws IOException When copying or moving the file fails.
+     */
+    public static void copy(final Path source, final Path target) throws IOException
+    {
+        final Path temporaryFile = Files.createTempFile(target.toAbsolutePath().getParent(), target.getFileName().toString(), ".tmp");
+        try
+        {
+            Files.copy(source, temporaryFile, StandardCopyOption.REPLACE_EXISTING);
+            moveIntoPlace(temporaryFile, target);
+        }
+        finally
+        {
+            Files.deleteIfExists(temporaryFile);
+        }
+    }
+
+    static void moveIntoPlace(final Path temporaryFile, final Path target) throws IOException
+    {
+        try
+        {
+            Files.move(temporaryFile, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        }
+        catch (AtomicMoveNotSupportedException e)
+        {
+            Files.move(temporaryFile, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Validates and decodes the contents of a cache file.
+     * The blocks are decompressed and decoded in parallel, straight from the given buffer.
+     *
+     * The entries reference compound types and container factories by their numeric ids, so they are only decoded
+     * if the environment the file was written in is accepted.
+     *
+     * @param data        The contents of the cache file, for example a mapped view of it.
+     * @param environment Decides whether the environment the file was written in is compatible with the current one.
+     * @return The entries, or null if the data is not in the current cache format or its environment is not accepted.
+     * @throws IllegalStateException When the data is in the current format, but truncated or corrupt.
+     */
+    @Nullable
+    public static List<Map.Entry<ICompoundContainer<?>, Set<CompoundInstance>>> read(final ByteBuffer data, final Predicate<Environment> environment)
+    {
+        final int size = data.limit();
+        if (size < HEADER_SIZE + FOOTER_SIZE || data.getInt(0) != MAGIC || data.getInt(Integer.BYTES) != VERSION || data.getInt(size - Integer.BYTES) != MAGIC)
+            return null;
+
+        if (!environment.test(new Environment(data.getLong(2 * Integer.BYTES), data.getLong(2 * Integer.BYTES + Long.BYTES))))
+            return null;
+
+        final CRC32 checksum = new CRC32();
+        final ByteBuffer checkedData = data.duplicate();
+        checkedData.position(0).limit(size - 2 * Integer.BYTES);
+        checksum.update(checkedData);
+        if ((int) checksum.getValue() != data.getInt(size - 2 * Integer.BYTES))
+            throw new IllegalStateException("The checksum of the cache file does not match its contents.");
+
+        final int footerStart = size - FOOTER_SIZE;
+        final long blockTableOffset = data.getLong(footerStart);
+        final int blockCount = data.getInt(footerStart + Long.BYTES);
+        final int entryCount = data.getInt(footerStart + Long.BYTES + Integer.BYTES);
+        if (blockCount < 0 || entryCount < 0 || blockTableOffset + (long) blockCount * BLOCK_ENTRY_SIZE != footerStart)
+            throw new IllegalStateException("The block table of the cache file is corrupt.");
+
+        final int[] offsets = new int[blockCount];
+        final int[] compressedLengths = new int[blockCount];
+        final int[] uncompressedLengths = new int[blockCount];
+        final int[] firstEntries = new int[blockCount + 1];
+        for (int i = 0; i < blockCount; i++)
+        {
+            final int tableEntry = (int) blockTableOffset + i * BLOCK_ENTRY_SIZE;
+            final long offset = data.getLong(tableEntry);
+            compressedLengths[i] = data.getInt(tableEntry + Long.BYTES);
+            uncompressedLengths[i] = data.getInt(tableEntry + Long.BYTES + Integer.BYTES);
+            final int blockEntryCount = data.getInt(tableEntry + Long.BYTES + 2 * Integer.BYTES);
+            if (offset < HEADER_SIZE || compressedLengths[i] < 0 || uncompressedLengths[i] < 0 || blockEntryCount < 0
+                  || offset + compressedLengths[i] > blockTableOffset)
+                throw new IllegalStateException("The block table of the cache file is corrupt.");
+
+            offsets[i] = (int) offset;
+            firstEntries[i + 1] = firstEntries[i] + blockEntryCount;
+        }
+        if (firstEntries[blockCount] != entryCount)
+            throw new IllegalStateException("The entry count of the cache file does not match its block table.");
+
+        @SuppressWarnings("unchecked")
+        final Map.Entry<ICompoundContainer<?>, Set<CompoundInstance>>[] entries = new Map.Entry[entryCount];
+        StreamUtils.execute(() -> IntStream.range(0, blockCount).parallel().forEach(block -> {
+            final ByteBuffer compressed = data.duplicate();
+            compressed.position(offsets[block]).limit(offsets[block] + compressedLengths[block]);
+
+            final FriendlyByteBuf buffer = new FriendlyByteBuf(Unpooled.wrappedBuffer(inflate(compressed, uncompressedLengths[block])));
+            for (int i = firstEntries[block]; i < firstEntries[block + 1]; i++)
+            {
+                entries[i] = IOUtils.readCompoundDataEntry(buffer);
+            }
+        }));
+
+        return Arrays.asList(entries);
+    }
+
+    private static byte[] inflate(final ByteBuffer compressed, final int uncompressedLength)
+    {
+        final byte[] result = new byte[uncompressedLength];
+        final Inflater inflater = new Inflater();
+        try
+        {
+            inflater.setInput(compressed);
+            int position = 0;
+            while (position < result.length)
+            {
+                final int read = inflater.inflate(result, position, result.length - position);
+                if (read == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary()))
+                    throw new IllegalStateException("A block of the cache file is truncated.");
+
+                position += read;
+            }
+        }
+        catch (DataFormatException e)
+        {
+            throw new IllegalStateException("A block of the cache file is corrupt.", e);
+        }
+        finally
+        {
+            inflater.end();
+        }
+        return result;
+    }
+
+    /**
+     * Encodes entries into a block, and compresses and appends the block to the channel once it is full.
+     */
+    private static final class BlockWriter
+    {
+        private final FileChannel     channel;
+        private final CRC32           checksum          = new CRC32();
+        private final Deflater        deflater          = new Deflater(Deflater.BEST_SPEED);
+        private final byte[]          compressionBuffer = new byte[64 * 1024];
+        private final ByteBuf         block             = Unpooled.buffer(BLOCK_SIZE);
+        private final FriendlyByteBuf blockBuffer       = new FriendlyByteBuf(block);
+        private final ByteBuf         blockTable        = Unpooled.buffer();
+
+        private long position;
+        private int  blockCount;
+        private int  blockEntryCount;
+        private int  entryCount;
+
+        private BlockWriter(final FileChannel channel, final Environment environment) throws IOException
+        {
+            this.channel = channel;
+
+            final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putInt(VERSION).putLong(environment.types()).putLong(environment.mods()).flip();
+            writeChecked(header);
+        }
+
+        private void write(final Map.Entry<ICompoundContainer<?>, Set<CompoundInstance>> entry) throws IOException
+        {
+            IOUtils.writeCompoundDataEntry(blockBuffer, entry);
+            blockEntryCount++;
+            entryCount++;
+
+            if (block.readableBytes() >= BLOCK_SIZE)
+            {
+                flushBlock();
+            }
+        }
+
+        private void finish() throws IOException
+        {
+            try
+            {
+                flushBlock();
+
+                final long blockTableOffset = position;
+                writeChecked(blockTable.nioBuffer());
+
+                final ByteBuffer footer = ByteBuffer.allocate(FOOTER_SIZE - 2 * Integer.BYTES);
+                footer.putLong(blockTableOffset).putInt(blockCount).putInt(entryCount).flip();
+                writeChecked(footer);
+
+                final ByteBuffer trailer = ByteBuffer.allocate(2 * Integer.BYTES);
+                trailer.putInt((int) checksum.getValue()).putInt(MAGIC).flip();
+                write(trailer);
+            }
+            finally
+            {
+                deflater.end();
+            }
+        }
+
+        private void flushBlock() throws IOException
+        {
+            if (blockEntryCount == 0)
+                return;
+
+            final long blockOffset = position;
+            final int uncompressedLength = block.readableBytes();
+
+            deflater.reset();
+            deflater.setInput(block.array(), block.arrayOffset() + block.readerIndex(), uncompressedLength);
+            deflater.finish();
+            while (!deflater.finished())
+            {
+                final int length = deflater.deflate(compressionBuffer);
+                writeChecked(ByteBuffer.wrap(compressionBuffer, 0, length));
+            }
+
+            blockTable.writeLong(blockOffset);
+            blockTable.writeInt((int) (position - blockOffset));
+            blockTable.writeInt(uncompressedLength);
+            blockTable.writeInt(blockEntryCount);
+
+            blockCount++;
+            blockEntryCount = 0;
+            block.clear();
+        }
+
+        private void writeChecked(final ByteBuffer buffer) throws IOException
+        {
+            checksum.update(buffer.duplicate());
+            write(buffer);
+        }
+
+        private void write(final ByteBuffer buffer) throws IOException
+        {
+            while (buffer.hasRemaining())
+            {
+                position += channel.write(buffer);
+            }
+        }
+    }
+
+    /**
+     * Identifies the environment a cache file was written in.
+     *
+     * @param types The hash of the numeric ids of the compound types and container factories, which the entries are encoded with.
+     * @param mods  The hash of the set of loaded mods.
+     */
+    public record Environment(long types, long mods)
+    {
+        /**
+         * Determines the environment of the running game.
+         *
+         * @return The current environment.
+         */
+        public static Environment current()
+        {
+            final Hasher typeHasher = HASH_FUNCTION.newHasher();
+            final ISyncedRegistry<ICompoundType> types = ModRegistries.COMPOUND_TYPE.get();
+            types.stream()
+              .sorted(Comparator.comparingInt(types::getSynchronizationIdOf))
+              .forEach(type -> typeHasher
+                .putInt(types.getSynchronizationIdOf(type))
+                .putString(String.valueOf(type.getRegistryName()), StandardCharsets.UTF_8));
+
+            @SuppressWarnings("unchecked")
+            final ForgeRegistry<ICompoundContainerFactory<?>> factories = (ForgeRegistry<ICompoundContainerFactory<?>>) ModRegistries.CONTAINER_FACTORY.get();
+            factories.getValues().stream()
+              .sorted(Comparator.comparingInt(factories::getID))
+              .forEach(factory -> typeHasher
+                .putInt(factories.getID(factory))
+                .putString(String.valueOf(factories.getKey(factory)), StandardCharsets.UTF_8));
+
+            final Hasher modHasher = HASH_FUNCTION.newHasher();
+            ModList.get().getMods().stream()
+              .map(IModInfo::getModId)
+              .sorted()
+              .forEach(modId -> modHasher.putString(modId, StandardCharsets.UTF_8).putByte((byte) 0));
+
+            return new Environment(typeHasher.hash().asLong(), modHasher.hash().asLong());
+        }
+
+        /**
+         * Checks whether the entries written in the other environment decode to the same types and containers in this one.
+         *
+         * @param other The other environment.
+         * @return True when both have the same types.
+         */
+        public boolean hasSameTypes(final Environment other)
+        {
+            return types == other.types;
+        }
+    }
+}
@@ -0,0 +1,281 @@
+package com.ldtteam.aequivaleo.utils;
+
+import com.google.common.collect.Sets;
+import com.ldtteam.aequivaleo.Aequivaleo;
+import com.ldtteam.aequivaleo.api.compound.CompoundInstance;
+import com.ldtteam.aequivaleo.api.compound.container.ICompoundContainer;
+import com.ldtteam.aequivaleo.api.compound.type.ICompoundType;
+import com.ldtteam.aequivaleo.api.util.ModRegistries;
+import com.ldtteam.aequivaleo.api.util.RegistryUtils;
+import com.ldtteam.aequivaleo.compound.container.registry.CompoundContainerFactoryManager;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.DecoderException;
+import net.minecraft.network.FriendlyByteBuf;
+import net.minecraftforge.registries.ForgeRegistry;
+
+import java.util.*;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Reads and writes the results data of sync messages.
+ * <p>
+ * The data starts with a format byte, followed by the data in that format:
+ * <ul>
+ *     <li>{@link #LEGACY}: the entries as written by {@link IOUtils#writeCompoundDataEntries(FriendlyByteBuf, List)}</li>
+ *     <li>{@link #COMPACT}: varint entry count, the containers of the entries as written by their factories, varint type
+ *     count, and per compound type its varint synchronization id, a varint instance count and per instance the varint
+ *     distance to the entry of the previous instance of the type followed by the amount</li>
+ *     <li>{@link #COMPACT_DEFLATED}: varint uncompressed length, varint compressed length and the deflated compact data</li>
+ * </ul>
+ * Amounts are almost always small numbers with few decimals. The compact format writes them as a zigzag encoded varlong of
+ * the amount in thousandths, shifted left by one. Amounts which can not be represented exactly that way are written as a
+ * varlong 1, followed by the double.
+ */
+public final class SyncDataFormat
+{
+    static final byte LEGACY           = 0;
+    static final byte COMPACT          = 1;
+    static final byte COMPACT_DEFLATED = 2;
+
+    private static final double FIXED_POINT_SCALE     = 1000d;
+    private static final long   MAX_FIXED_POINT       = 1L << 52;
+    private static final int    COMPRESSION_THRESHOLD = 1024;
+    private static final int    MAX_INFLATED_LENGTH   = 1 << 26;
+
+    private SyncDataFormat()
+    {
+        throw new IllegalStateException("Can not instantiate an instance of: SyncDataFormat. This is a utility class");
+    }
+
+    /**
+     * Writes the given entries in the format selected by the common configuration.
+     *
+     * @param buf          The buffer to write to.
+     * @param compoundData The entries to write.
+     */
+    public static void write(final FriendlyByteBuf buf, final List<Map.Entry<ICompoundContainer<?>, Set<CompoundInstance>>> compoundData)
+    {
+        if (!Aequivaleo.getInstance().getConfiguration().getCommon().networkCompactFormat.get())
+        {
+            buf.writeByte(LEGACY);
+            IOUtils.writeCompoundDataEntries(buf, compoundData);
+            return;
+        }
+
+        final FriendlyByteBuf compactData = new FriendlyByteBuf(Unpooled.buffer());
+        try
+        {
+            writeCompact(compactData, compoundData);
+            if (!Aequivaleo.getInstance().getConfiguration().getCommon().networkCompression.get()
+                  || compactData.readableBytes() < COMPRESSION_THRESHOLD
+                  || !writeDeflated(buf, compactData))
+            {
+                buf.writeByte(COMPACT);
+                buf.writeBytes(compactData);
+            }
+        }
+        finally
+        {
+            compactData.release();
+        }
+    }
+
+    /**
+     * Reads entries written by {@link #write(FriendlyByteBuf, List)}, in any of the formats.
+     *
+     * @param buf          The buffer to read from.
+     * @param compoundData The list to add the entries to.
+     */
+    public static void read(final FriendlyByteBuf buf, final List<Map.Entry<ICompoundContainer<?>, Set<CompoundInstance>>> compoundData)
+    {
+        final byte format = buf.readByte();
+        switch (format)
+        {
+            case LEGACY -> IOUtils.readCompoundData(buf, compoundData);
+            case COMPACT -> readCompact(buf, compoundData);
+            case COMPACT_DEFLATED -> readCompact(inflate(buf), compoundData);
+            default -> throw new DecoderException("Unknown results sync format: " + format);
+        }
+    }
+
+    private static void writeCompact(final FriendlyByteBuf buf, final List<Map.Entry<ICompoundContainer<?>, Set<CompoundInstance>>> compoundData)
+    {
+        final Map<ICompoundType, Column> columns = new LinkedHashMap<>();
+
+        buf.writeVarInt(compoundData.size());
+        for (int entryIndex = 0; entryIndex < compoundData.size(); entryIndex++)
+        {
+            final Map.Entry<ICompoundContainer<?>, Set<CompoundInstance>> entry = compoundData.get(entryIndex);
+            CompoundContainerFactoryManager.getInstance().write(entry.getKey(), buf);
+            for (final CompoundInstance instance : entry.getValue())
+            {
+                columns.computeIfAbsent(instance.getType(), type -> new Column()).add(entryIndex, instance.getAmount());
+            }
+        }
+
+        buf.writeVarInt(columns.size());
+        columns.forEach((type, column) -> {
+            buf.writeVarInt(ModRegistries.COMPOUND_TYPE.get().getSynchronizationIdOf(type));
+            buf.writeVarInt(column.size);
+
+            int previousEntryIndex = 0;
+            for (int i = 0; i < column.size; i++)
+            {
+                buf.writeVarInt(column.entryIndices[i] - previousEntryIndex);
+                previousEntryIndex = column.entryIndices[i];
+                writeAmount(buf, column.amounts[i]);
+            }
+        });
+    }
+
+    private static void readCompact(final FriendlyByteBuf buf, final List<Map.Entry<ICompoundContainer<?>, Set<CompoundInstance>>> compoundData)
+    {
+        final int entryCount = buf.readVarInt();
+        final List<Set<CompoundInstance>> instances = new ArrayList<>(entryCount);
+        for (int i = 0; i < entryCount; i++)
+        {
+            final Set<CompoundInstance> entryInstances = Sets.newHashSet();
+            compoundData.add(new AbstractMap.SimpleEntry<>(CompoundContainerFactoryManager.getInstance().read(buf), entryInstances));
+            instances.add(entryInstances);
+        }
+
+        final ForgeRegistry<ICompoundType> registry = RegistryUtils.getFull(ModRegistries.COMPOUND_TYPE.get().getBackingRegistryKey());
+        final int typeCount = buf.readVarInt();
+        for (int i = 0; i < typeCount; i++)
+        {
+            final ICompoundType type = registry.getValue(buf.readVarInt());
+            final int instanceCount = buf.readVarInt();
+
+            int entryIndex = 0;
+            for (int j = 0; j < instanceCount; j++)
+            {
+                entryIndex += buf.readVarInt();
+                instances.get(entryIndex).add(new CompoundInstance(type, readAmount(buf)));
+            }
+        }
+    }
+
+    private static void writeAmount(final FriendlyByteBuf buf, final double amount)
+    {
+        final double scaled = amount * FIXED_POINT_SCALE;
+        final long fixedPoint = (long) scaled;
+        if (fixedPoint == scaled && Math.abs(fixedPoint) < MAX_FIXED_POINT && Double.doubleToLongBits(fixedPoint / FIXED_POINT_SCALE) == Double.doubleToLongBits(amount))
+        {
+            buf.writeVarLong(((fixedPoint << 1) ^ (fixedPoint >> 63)) << 1);
+            return;
+        }
+
+        buf.writeVarLong(1);
+        buf.writeDouble(amount);
+    }
+
+    private static double readAmount(final FriendlyByteBuf buf)
+    {
+        final long code = buf.readVarLong();
+        if ((code & 1) != 0)
+            return buf.readDouble();
+
+        final long zigzag = code >>> 1;
+        return ((zigzag >>> 1) ^ -(zigzag & 1)) / FIXED_POINT_SCALE;
+    }
+
+    private static boolean writeDeflated(final FriendlyByteBuf buf, final ByteBuf data)
+    {
+        final byte[] input = new byte[data.readableBytes()];
+        data.getBytes(data.readerIndex(), input);
+
+        final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        final ByteBuf compressed = Unpooled.buffer(input.length / 2);
+        try
+        {
+            deflater.setInput(input);
+            deflater.finish();
+
+            final byte[] chunk = new byte[8192];
+            while (!deflater.finished())
+            {
+                compressed.writeBytes(chunk, 0, deflater.deflate(chunk));
+            }
+
+            //Not worth it, the client would only spend time inflating.
+            if (compressed.readableBytes() >= input.length)
+                return false;
+
+            buf.writeByte(COMPACT_DEFLATED);
+            buf.writeVarInt(input.length);
+            buf.writeVarInt(compressed.readableBytes());
+            buf.writeBytes(compressed);
+            return true;
+        }
+        finally
+        {
+            deflater.end();
+            compressed.release();
+        }
+    }
+
+    private static FriendlyByteBuf inflate(final FriendlyByteBuf buf)
+    {
+        final int inflatedLength = buf.readVarInt();
+        if (inflatedLength < 0 || inflatedLength > MAX_INFLATED_LENGTH)
+            throw new DecoderException("Compressed results sync data is too large: " + inflatedLength);
+
+        final byte[] compressed = new byte[buf.readVarInt()];
+        buf.readBytes(compressed);
+
+        final byte[] inflated = new byte[inflatedLength];
+        final Inflater inflater = new Inflater();
+        try
+        {
+            inflater.setInput(compressed);
+            int length = 0;
+            while (length < inflatedLength && !inflater.finished())
+            {
+                final int read = inflater.inflate(inflated, length, inflatedLength - length);
+                if (read == 0 && (inflater.needsInput() || inflater.needsDictionary()))
+                    break;
+
+                length += read;
+            }
+
+            if (length != inflatedLength)
+                throw new DecoderException("Compressed results sync data is truncated.");
+        }
+        catch (DataFormatException e)
+        {
+            throw new DecoderException("Failed to inflate results sync data.", e);
+        }
+        finally
+        {
+            inflater.end();
+        }
+
+        return new FriendlyByteBuf(Unpooled.wrappedBuffer(inflated));
+    }
+
+    /**
+     * The instances of a single compound type, in the order of the entries they belong to.
+     */
+    private static final class Column
+    {
+        private int[]    entryIndices = new int[16];
+        private double[] amounts      = new double[16];
+        private int      size         = 0;
+
+        private void add(final int entryIndex, final double amount)
+        {
+            if (size == entryIndices.length)
+            {
+                entryIndices = Arrays.copyOf(entryIndices, size * 2);
+                amounts = Arrays.copyOf(amounts, size * 2);
+            }
+
+            entryIndices[size] = entryIndex;
+            amounts[size] = amount;
+            size++;
+        }
+    }
+}
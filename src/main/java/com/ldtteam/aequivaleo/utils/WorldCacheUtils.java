@@ -2,70 +2,78 @@ package com.ldtteam.aequivaleo.utils;
 
 import com.ldtteam.aequivaleo.Aequivaleo;
 import com.ldtteam.aequivaleo.analysis.IAnalysisOwner;
+import com.ldtteam.aequivaleo.analysis.jgrapht.cache.ReducedTopology;
 import com.ldtteam.aequivaleo.api.compound.CompoundInstance;
 import com.ldtteam.aequivaleo.api.compound.container.ICompoundContainer;
-import io.netty.buffer.ByteBuf;
+import com.ldtteam.aequivaleo.api.util.Constants;
 import io.netty.buffer.Unpooled;
 import net.minecraft.network.FriendlyByteBuf;
-import org.apache.commons.io.FileUtils;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.world.level.Level;
+import net.minecraftforge.fml.loading.FMLPaths;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.jetbrains.annotations.NotNull;
 
 import java.io.File;
-import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.function.Predicate;
 
 public class WorldCacheUtils
 {
 
     private static final Logger LOGGER = LogManager.getLogger();
+
+    private static final String CACHE_FILE_EXTENSION = ".bin-cache";
+    private static final String COMPONENT_DIRECTORY  = "components";
+    private static final String TOPOLOGY_DIRECTORY   = "topology";
+    private static final String CLIENT_DIRECTORY     = "client";
+
     private WorldCacheUtils()
     {
         throw new IllegalStateException("Can not instantiate an instance of: WorldCacheUtils. This is a utility class");
     }
 
     @SuppressWarnings("ResultOfMethodCallIgnored")
-    public static void writeCachedResults(final IAnalysisOwner analysisOwner, final int id, final Map<ICompoundContainer<?>, Set<CompoundInstance>> data) {
+    public static void writeCachedResults(final IAnalysisOwner analysisOwner, final String id, final Map<ICompoundContainer<?>, Set<CompoundInstance>> data) {
         //final File aequivaleoDirectory = new File(world.getChunkSource().level.getServer().storageSource.getDimensionPath(world.dimension()).toAbsolutePath().toFile().getAbsolutePath(), Constants.MOD_ID);
         //final File cacheDirectory = analysisOwner.getCacheDirectory(); //new File(aequivaleoDirectory, "cache");
         final File worldCacheDirectory = analysisOwner.getCacheDirectory(); /* new File(cacheDirectory,
           String.format("%s_%s", analysisOwner.getLevelIdentifier().location().getNamespace(), analysisOwner.getLevelIdentifier().location().getPath()));*/
-        final File cacheFile = new File(worldCacheDirectory, String.format("%d.bin-cache", id));
+        final File cacheFile = new File(worldCacheDirectory, id + CACHE_FILE_EXTENSION);
 
         worldCacheDirectory.mkdirs();
 
-        try
-        {
-            if (cacheFile.exists())
-                cacheFile.delete();
-
-            cacheFile.createNewFile();
-        }
-        catch (IOException e)
-        {
-            LOGGER.fatal(String.format("Failed to create cache file: %s", cacheFile.getAbsolutePath()), e);
-            return;
-        }
-
-        final ByteBuf buf = Unpooled.buffer();
-        final FriendlyByteBuf buffer = new FriendlyByteBuf(buf);
-        final List<Map.Entry<ICompoundContainer<?>, Set<CompoundInstance>>> dataToWrite = new ArrayList<>(data.entrySet());
-
-        IOUtils.writeCompoundDataEntries(buffer, dataToWrite);
         try {
-            FileUtils.writeByteArrayToFile(cacheFile, buf.array());
-        }
-        catch (FileNotFoundException e) {
-            LOGGER.fatal(String.format("Failed to find cache file:%s", cacheFile.getAbsolutePath()), e);
+            ResultsCacheFormat.write(cacheFile.toPath(), ResultsCacheFormat.Environment.current(), data);
         }
         catch (IOException ioe) {
             LOGGER.fatal(String.format("Exception while writing cache file: %s", cacheFile.getAbsolutePath()), ioe);
+            return;
         }
 
         cleanupCacheDirectory(analysisOwner);
+
+        getGlobalCacheDirectory().ifPresent(globalCacheDirectory -> {
+            final File globalCacheFile = new File(globalCacheDirectory, cacheFile.getName());
+            globalCacheDirectory.mkdirs();
+
+            try {
+                ResultsCacheFormat.copy(cacheFile.toPath(), globalCacheFile.toPath());
+            }
+            catch (IOException ioe) {
+                LOGGER.error(String.format("Exception while writing global cache file: %s", globalCacheFile.getAbsolutePath()), ioe);
+                return;
+            }
+
+            cleanupCacheDirectory(globalCacheDirectory, Aequivaleo.getInstance().getConfiguration().getServer().maxGlobalCacheFilesToKeep.get());
+        });
     }
 
     @SuppressWarnings("ResultOfMethodCallIgnored")
@@ -75,68 +83,252 @@ public class WorldCacheUtils
         final File worldCacheDirectory = analysisOwner.getCacheDirectory(); /* new File(cacheDirectory,
           String.format("%s_%s", analysisOwner.getLevelIdentifier().location().getNamespace(), analysisOwner.getLevelIdentifier().location().getPath()));*/
 
-        if (!worldCacheDirectory.exists())
+        cleanupCacheDirectory(worldCacheDirectory, Aequivaleo.getInstance().getConfiguration().getServer().maxCacheFilesToKeep.get());
+    }
+
+    @SuppressWarnings("ResultOfMethodCallIgnored")
+    private static void cleanupCacheDirectory(final File cacheDirectory, final int maxCacheFilesToKeep) {
+        if (!cacheDirectory.exists())
             return;
 
-        final List<File> cacheFiles = Arrays.asList(Objects.requireNonNull(worldCacheDirectory.listFiles()));
+        //Only completed cache files, temporary files might still be written by another server.
+        final List<File> cacheFiles = Arrays.asList(Objects.requireNonNull(cacheDirectory.listFiles((directory, name) -> name.endsWith(CACHE_FILE_EXTENSION))));
 
-        if (cacheFiles.size() > Aequivaleo.getInstance().getConfiguration().getServer().maxCacheFilesToKeep.get()) {
+        if (cacheFiles.size() > maxCacheFilesToKeep) {
             cacheFiles
               .stream()
               .sorted(Comparator.comparing(File::lastModified).reversed())
-              .skip(Aequivaleo.getInstance().getConfiguration().getServer().maxCacheFilesToKeep.get())
+              .skip(maxCacheFilesToKeep)
               .forEach(File::delete);
         }
     }
 
     @NotNull
     @SuppressWarnings("ResultOfMethodCallIgnored")
-    public static Optional<Map<ICompoundContainer<?>, Set<CompoundInstance>>> loadCachedResults(final IAnalysisOwner analysisOwner, final int id) {
+    public static Optional<Map<ICompoundContainer<?>, Set<CompoundInstance>>> loadCachedResults(final IAnalysisOwner analysisOwner, final String id) {
         //final File aequivaleoDirectory = new File(world.getChunkSource().level.getServer().storageSource.getDimensionPath(world.dimension()).toAbsolutePath().toFile().getAbsolutePath(), Constants.MOD_ID);
         //final File cacheDirectory = analysisOwner.getCacheDirectory(); //new File(aequivaleoDirectory, "cache");
         final File worldCacheDirectory = analysisOwner.getCacheDirectory(); /* new File(cacheDirectory,
           String.format("%s_%s", analysisOwner.getLevelIdentifier().location().getNamespace(), analysisOwner.getLevelIdentifier().location().getPath()));*/
-        final File cacheFile = new File(worldCacheDirectory, String.format("%d.bin-cache", id));
+        final File cacheFile = new File(worldCacheDirectory, id + CACHE_FILE_EXTENSION);
 
         worldCacheDirectory.mkdirs();
 
-        if (!cacheFile.exists())
+        final ResultsCacheFormat.Environment environment = ResultsCacheFormat.Environment.current();
+        final Optional<Map<ICompoundContainer<?>, Set<CompoundInstance>>> results = loadCachedResults(cacheFile, environment::hasSameTypes);
+        if (results.isPresent())
+            return results;
+
+        return getGlobalCacheDirectory().flatMap(globalCacheDirectory -> {
+            final Optional<Map<ICompoundContainer<?>, Set<CompoundInstance>>> globalResults = loadCachedResults(new File(globalCacheDirectory, cacheFile.getName()), environment::hasSameTypes);
+            globalResults.ifPresent(r -> LOGGER.info(String.format("Found results in the global cache directory: %s", globalCacheDirectory.getAbsolutePath())));
+            return globalResults;
+        });
+    }
+
+    /**
+     * Loads the most recently written cache file of the given owner, regardless of the analysis it belongs to.
+     * Only files written with the same mods and compound types are considered, results of another mod set would be
+     * decoded against the wrong types.
+     *
+     * @param analysisOwner The owner whose cache is searched.
+     * @return The results of the most recent analysis which is still cached.
+     */
+    @NotNull
+    public static Optional<Map<ICompoundContainer<?>, Set<CompoundInstance>>> loadMostRecentCachedResults(final IAnalysisOwner analysisOwner) {
+        final File worldCacheDirectory = analysisOwner.getCacheDirectory();
+        if (!worldCacheDirectory.exists())
             return Optional.empty();
 
-        byte[] data = new byte[0];
+        final ResultsCacheFormat.Environment environment = ResultsCacheFormat.Environment.current();
+        return Arrays.stream(Objects.requireNonNull(worldCacheDirectory.listFiles((directory, name) -> name.endsWith(CACHE_FILE_EXTENSION))))
+          .sorted(Comparator.comparing(File::lastModified).reversed())
+          .map(cacheFile -> loadCachedResults(cacheFile, environment::equals))
+          .flatMap(Optional::stream)
+          .findFirst();
+    }
+
+    @SuppressWarnings("ResultOfMethodCallIgnored")
+    public static void writeCachedComponentResults(final IAnalysisOwner analysisOwner, final String id, final Map<ICompoundContainer<?>, Set<CompoundInstance>> data) {
+        final File componentCacheDirectory = new File(analysisOwner.getCacheDirectory(), COMPONENT_DIRECTORY);
+        final File cacheFile = new File(componentCacheDirectory, id + CACHE_FILE_EXTENSION);
+
+        componentCacheDirectory.mkdirs();
+
         try {
-            data = FileUtils.readFileToByteArray(cacheFile);
+            ResultsCacheFormat.write(cacheFile.toPath(), ResultsCacheFormat.Environment.current(), data);
+        }
+        catch (IOException ioe) {
+            LOGGER.fatal(String.format("Exception while writing component cache file: %s", cacheFile.getAbsolutePath()), ioe);
         }
-        catch (FileNotFoundException e) {
-            LOGGER.fatal(String.format("Failed to find cache file:%s", cacheFile.getAbsolutePath()), e);
+    }
+
+    @NotNull
+    public static Optional<Map<ICompoundContainer<?>, Set<CompoundInstance>>> loadCachedComponentResults(final IAnalysisOwner analysisOwner, final String id) {
+        return loadCachedResults(new File(new File(analysisOwner.getCacheDirectory(), COMPONENT_DIRECTORY), id + CACHE_FILE_EXTENSION), ResultsCacheFormat.Environment.current()::hasSameTypes);
+    }
+
+    /**
+     * Removes all component cache files which do not belong to one of the given components.
+     *
+     * @param analysisOwner The owner whose component cache is cleaned.
+     * @param ids           The ids of the components of the current analysis.
+     */
+    @SuppressWarnings("ResultOfMethodCallIgnored")
+    public static void cleanupComponentCacheDirectory(final IAnalysisOwner analysisOwner, final Set<String> ids) {
+        final File componentCacheDirectory = new File(analysisOwner.getCacheDirectory(), COMPONENT_DIRECTORY);
+        if (!componentCacheDirectory.exists())
+            return;
+
+        Arrays.stream(Objects.requireNonNull(componentCacheDirectory.listFiles((directory, name) -> name.endsWith(CACHE_FILE_EXTENSION))))
+          .filter(file -> !ids.contains(file.getName().substring(0, file.getName().length() - CACHE_FILE_EXTENSION.length())))
+          .forEach(File::delete);
+    }
+
+    @SuppressWarnings("ResultOfMethodCallIgnored")
+    public static void writeCachedTopology(final IAnalysisOwner analysisOwner, final String id, final ReducedTopology topology) {
+        final File topologyCacheDirectory = new File(analysisOwner.getCacheDirectory(), TOPOLOGY_DIRECTORY);
+        final File cacheFile = new File(topologyCacheDirectory, id + CACHE_FILE_EXTENSION);
+
+        topologyCacheDirectory.mkdirs();
+
+        final FriendlyByteBuf buffer = new FriendlyByteBuf(Unpooled.buffer());
+        topology.write(buffer);
+
+        try {
+            final Path temporaryFile = Files.createTempFile(topologyCacheDirectory.toPath(), cacheFile.getName(), ".tmp");
+            try {
+                try (FileChannel channel = FileChannel.open(temporaryFile, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                    final ByteBuffer data = buffer.nioBuffer();
+                    while (data.hasRemaining()) {
+                        channel.write(data);
+                    }
+                    channel.force(false);
+                }
+
+                ResultsCacheFormat.moveIntoPlace(temporaryFile, cacheFile.toPath());
+            }
+            finally {
+                Files.deleteIfExists(temporaryFile);
+            }
         }
         catch (IOException ioe) {
-            LOGGER.fatal(String.format("Exception while reading cache file: %s", cacheFile.getAbsolutePath()), ioe);
+            LOGGER.error(String.format("Exception while writing topology cache file: %s", cacheFile.getAbsolutePath()), ioe);
+            return;
         }
 
-        if (data.length == 0)
+        cleanupCacheDirectory(topologyCacheDirectory, Aequivaleo.getInstance().getConfiguration().getServer().maxCacheFilesToKeep.get());
+    }
+
+    @NotNull
+    public static Optional<ReducedTopology> loadCachedTopology(final IAnalysisOwner analysisOwner, final String id) {
+        final File cacheFile = new File(new File(analysisOwner.getCacheDirectory(), TOPOLOGY_DIRECTORY), id + CACHE_FILE_EXTENSION);
+        if (!cacheFile.exists())
+            return Optional.empty();
+
+        final ReducedTopology topology;
+        try {
+            topology = ReducedTopology.read(new FriendlyByteBuf(Unpooled.wrappedBuffer(Files.readAllBytes(cacheFile.toPath()))));
+        }
+        catch (Exception exception) {
+            LOGGER.error(String.format("Exception while reading topology cache file: %s", cacheFile.getAbsolutePath()), exception);
             return Optional.empty();
+        }
+
+        if (topology == null) {
+            LOGGER.warn(String.format("Ignoring topology cache file with an unknown format: %s", cacheFile.getAbsolutePath()));
+        }
+        return Optional.ofNullable(topology);
+    }
+
+    /**
+     * Writes results synced by a server to the client cache. Only the most recent results of a world are kept per server.
+     *
+     * @param serverId    The identity of the server, for example its address.
+     * @param worldKey    The world the results belong to.
+     * @param fingerprint The fingerprint of the results.
+     * @param data        The results.
+     */
+    @SuppressWarnings("ResultOfMethodCallIgnored")
+    public static void writeClientCachedResults(final String serverId, final ResourceKey<Level> worldKey, final long fingerprint, final Map<ICompoundContainer<?>, Set<CompoundInstance>> data) {
+        final File serverCacheDirectory = getClientCacheDirectory(serverId);
+        final String worldPrefix = getClientCacheFilePrefix(worldKey);
+        final File cacheFile = new File(serverCacheDirectory, worldPrefix + HexFormat.of().toHexDigits(fingerprint) + CACHE_FILE_EXTENSION);
 
-        final ByteBuf buf = Unpooled.wrappedBuffer(data);
-        final FriendlyByteBuf buffer = new FriendlyByteBuf(buf);
+        serverCacheDirectory.mkdirs();
 
-        final List<Map.Entry<ICompoundContainer<?>, Set<CompoundInstance>>> resultData = new ArrayList<>();
         try {
-            IOUtils.readCompoundData(buffer, resultData);
-            buf.release();
+            ResultsCacheFormat.write(cacheFile.toPath(), ResultsCacheFormat.Environment.current(), data);
+        }
+        catch (IOException ioe) {
+            LOGGER.error(String.format("Exception while writing client cache file: %s", cacheFile.getAbsolutePath()), ioe);
+            return;
+        }
+
+        Arrays.stream(Objects.requireNonNull(serverCacheDirectory.listFiles((directory, name) -> name.startsWith(worldPrefix) && name.endsWith(CACHE_FILE_EXTENSION))))
+          .filter(file -> !file.getName().equals(cacheFile.getName()))
+          .forEach(File::delete);
+    }
+
+    @NotNull
+    public static Optional<Map<ICompoundContainer<?>, Set<CompoundInstance>>> loadClientCachedResults(final String serverId, final ResourceKey<Level> worldKey, final long fingerprint) {
+        return loadCachedResults(new File(getClientCacheDirectory(serverId), getClientCacheFilePrefix(worldKey) + HexFormat.of().toHexDigits(fingerprint) + CACHE_FILE_EXTENSION),
+          ResultsCacheFormat.Environment.current()::hasSameTypes);
+    }
+
+    private static File getClientCacheDirectory(final String serverId) {
+        return FMLPaths.GAMEDIR.get().resolve(Constants.MOD_ID).resolve(CLIENT_DIRECTORY).resolve(serverId.replaceAll("[^a-zA-Z0-9._-]", "_")).toFile();
+    }
+
+    private static String getClientCacheFilePrefix(final ResourceKey<Level> worldKey) {
+        return String.format("%s_%s_", worldKey.location().getNamespace(), worldKey.location().getPath().replace('/', '_'));
+    }
+
+    @NotNull
+    private static Optional<Map<ICompoundContainer<?>, Set<CompoundInstance>>> loadCachedResults(final File cacheFile, final Predicate<ResultsCacheFormat.Environment> environment) {
+        if (!cacheFile.exists())
+            return Optional.empty();
+
+        final List<Map.Entry<ICompoundContainer<?>, Set<CompoundInstance>>> resultData;
+        try (FileChannel channel = FileChannel.open(cacheFile.toPath(), StandardOpenOption.READ)) {
+            resultData = ResultsCacheFormat.read(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), environment);
+        }
+        catch (IOException ioe) {
+            LOGGER.fatal(String.format("Exception while reading cache file: %s", cacheFile.getAbsolutePath()), ioe);
+            return Optional.empty();
         }
         catch (Exception exception) {
             LOGGER.fatal(String.format("Exception while reading cache data: %s", cacheFile.getAbsolutePath()), exception);
             return Optional.empty();
         }
 
-        return Optional.of(
-          resultData
-            .stream()
-            .collect(Collectors.toMap(
-              Map.Entry::getKey,
-              Map.Entry::getValue
-            ))
-        );
+        if (resultData == null) {
+            LOGGER.warn(String.format("Ignoring cache file with an unknown format or from another environment: %s", cacheFile.getAbsolutePath()));
+            return Optional.empty();
+        }
+
+        final Map<ICompoundContainer<?>, Set<CompoundInstance>> results = new HashMap<>(Math.max(16, (int) (resultData.size() / .75f) + 1));
+        for (Map.Entry<ICompoundContainer<?>, Set<CompoundInstance>> entry : resultData)
+        {
+            results.put(entry.getKey(), entry.getValue());
+        }
+        return Optional.of(results);
+    }
+
+    /**
+     * The cache directory shared by all worlds, if enabled.
+     * Cache files are keyed by the content of the analysis, so any world with the same recipes and values can use them.
+     *
+     * @return The shared cache directory.
+     */
+    private static Optional<File> getGlobalCacheDirectory() {
+        if (!Aequivaleo.getInstance().getConfiguration().getServer().useGlobalCache.get())
+            return Optional.empty();
+
+        final String configuredDirectory = Aequivaleo.getInstance().getConfiguration().getServer().globalCacheDirectory.get();
+        if (configuredDirectory.isBlank())
+            return Optional.of(FMLPaths.GAMEDIR.get().resolve(Constants.MOD_ID).resolve("cache").toFile());
+
+        return Optional.of(new File(configuredDirectory));
     }
 }
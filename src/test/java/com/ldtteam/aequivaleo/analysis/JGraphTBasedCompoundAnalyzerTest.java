@@ -1,11 +1,11 @@
 package com.ldtteam.aequivaleo.analysis;
 
-import com.google.common.base.Suppliers;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 import com.ldtteam.aequivaleo.Aequivaleo;
+import com.ldtteam.aequivaleo.analysis.jgrapht.cycles.CycleReductionMode;
 import com.ldtteam.aequivaleo.api.compound.CompoundInstance;
 import com.ldtteam.aequivaleo.api.compound.container.ICompoundContainer;
 import com.ldtteam.aequivaleo.api.compound.container.factory.ICompoundContainerFactory;
@@ -20,6 +20,7 @@ import com.ldtteam.aequivaleo.api.util.GroupingUtils;
 import com.ldtteam.aequivaleo.api.util.ModRegistries;
 import com.ldtteam.aequivaleo.compound.container.registry.CompoundContainerFactoryManager;
 import com.ldtteam.aequivaleo.compound.information.CompoundInformationRegistry;
+import com.ldtteam.aequivaleo.compound.vector.CompoundTypeIndex;
 import com.ldtteam.aequivaleo.config.CommonConfiguration;
 import com.ldtteam.aequivaleo.config.Configuration;
 import com.ldtteam.aequivaleo.config.ServerConfiguration;
@@ -30,34 +31,56 @@ import net.minecraft.resources.ResourceLocation;
 import net.minecraft.world.level.Level;
 import net.minecraftforge.common.ForgeConfigSpec;
 import net.minecraftforge.fml.ModList;
-import net.minecraftforge.registries.IForgeRegistry;
+import net.minecraftforge.registries.ForgeRegistry;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TestName;
 import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
 import org.mockito.stubbing.Answer;
 import org.powermock.core.classloader.annotations.PowerMockIgnore;
 import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.core.classloader.annotations.SuppressStaticInitializationFor;
 import org.powermock.modules.junit4.PowerMockRunner;
+import org.powermock.modules.junit4.PowerMockRunnerDelegate;
 
 import java.util.*;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
-import static org.junit.Assert.assertEquals;
-import static org.junit.Assert.assertNull;
+import static org.junit.Assert.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.powermock.api.mockito.PowerMockito.*;
 
 @RunWith(PowerMockRunner.class)
+@PowerMockRunnerDelegate(Parameterized.class)
 @SuppressStaticInitializationFor({"net.minecraft.world.level.Level"})
 @PowerMockIgnore({"jdk.internal.reflect.*", "org.apache.log4j.*", "org.apache.commons.logging.*", "javax.management.*", "org.apache.logging.*", "com.sun.org.apache.xerces.*", "javax.xml.*", "org.xml.*", "javax.management.*"})
 @PrepareForTest({Aequivaleo.class, ModList.class})
 public class JGraphTBasedCompoundAnalyzerTest
 {
+    @Parameterized.Parameters(name = "parallelPropagation={0}, cycleReductionMode={1}")
+    public static Collection<Object[]> parameters()
+    {
+        final List<Object[]> parameters = new ArrayList<>();
+        for (final boolean parallelPropagation : new boolean[] {false, true})
+        {
+            for (final CycleReductionMode cycleReductionMode : CycleReductionMode.values())
+            {
+                parameters.add(new Object[] {parallelPropagation, cycleReductionMode});
+            }
+        }
+        return parameters;
+    }
+
+    @Parameterized.Parameter
+    public boolean parallelPropagation;
+
+    @Parameterized.Parameter(1)
+    public CycleReductionMode cycleReductionMode;
+
     ResourceKey<Level>           key;
     JGraphTBasedCompoundAnalyzer analyzer;
 
@@ -70,6 +93,8 @@ public class JGraphTBasedCompoundAnalyzerTest
 
     ICompoundInformationRegistry input;
 
+    ServerConfiguration serverConfig;
+
     @Rule
     public TestName currentTestName = new TestName();
 
@@ -78,7 +103,7 @@ public class JGraphTBasedCompoundAnalyzerTest
     public void setUp()
     {
         key = mock(ResourceKey.class);
-        when(key.location()).thenReturn(new ResourceLocation(Constants.MOD_ID, currentTestName.getMethodName().toLowerCase()));
+        when(key.location()).thenReturn(new ResourceLocation(Constants.MOD_ID, testId()));
         analyzer = new JGraphTBasedCompoundAnalyzer(Lists.newArrayList(new TestAnalysisOwner(currentTestName, key)), true, false);
 
         input = CompoundInformationRegistry.getInstance(key);
@@ -88,11 +113,23 @@ public class JGraphTBasedCompoundAnalyzerTest
         when(Aequivaleo.getInstance()).thenReturn(mod);
 
         Configuration config = mock(Configuration.class);
-        ServerConfiguration serverConfig = mock(ServerConfiguration.class);
+        serverConfig = mock(ServerConfiguration.class);
         ForgeConfigSpec.BooleanValue alwaysFalseConfig = mock(ForgeConfigSpec.BooleanValue.class);
         when(alwaysFalseConfig.get()).thenReturn(false);
         serverConfig.exportGraph = alwaysFalseConfig;
         serverConfig.writeResultsToLog = alwaysFalseConfig;
+        ForgeConfigSpec.BooleanValue parallelPropagationConfig = mock(ForgeConfigSpec.BooleanValue.class);
+        when(parallelPropagationConfig.get()).thenReturn(parallelPropagation);
+        serverConfig.parallelPropagation = parallelPropagationConfig;
+        serverConfig.incrementalAnalysis = alwaysFalseConfig;
+        serverConfig.parallelGraphConstruction = alwaysFalseConfig;
+        serverConfig.collapseEquivalenceClasses = alwaysFalseConfig;
+        serverConfig.useGlobalCache = alwaysFalseConfig;
+        serverConfig.cacheComponents = alwaysFalseConfig;
+        serverConfig.cacheReducedTopology = alwaysFalseConfig;
+        ForgeConfigSpec.EnumValue<CycleReductionMode> cycleReductionModeConfig = mock(ForgeConfigSpec.EnumValue.class);
+        when(cycleReductionModeConfig.get()).thenReturn(cycleReductionMode);
+        serverConfig.cycleReductionMode = cycleReductionModeConfig;
         when(config.getServer()).thenReturn(serverConfig);
 
         CommonConfiguration commonConfiguration = mock(CommonConfiguration.class);
@@ -103,14 +140,17 @@ public class JGraphTBasedCompoundAnalyzerTest
 
         when(mod.getConfiguration()).thenReturn(config);
 
-        List<ICompoundContainerFactory<?>> containerFactories = ImmutableList.of(new StringCompoundContainer.Factory());
-        ModRegistries.CONTAINER_FACTORY = Suppliers.memoize(() -> mock(IForgeRegistry.class));
-        when(ModRegistries.CONTAINER_FACTORY.get().iterator()).thenReturn(containerFactories.iterator());
+        final ICompoundContainerFactory<?> stringFactory = new StringCompoundContainer.Factory();
+        List<ICompoundContainerFactory<?>> containerFactories = ImmutableList.of(stringFactory);
+        final ForgeRegistry<ICompoundContainerFactory<?>> factoryRegistry = mock(ForgeRegistry.class);
+        when(factoryRegistry.iterator()).thenAnswer((Answer<Iterator<ICompoundContainerFactory<?>>>) invocation -> containerFactories.iterator());
+        when(factoryRegistry.getKey(stringFactory)).thenReturn(new ResourceLocation(Constants.MOD_ID, "string"));
+        ModRegistries.CONTAINER_FACTORY = () -> factoryRegistry;
         CompoundContainerFactoryManager.getInstance().bake();
 
         when(typeUnknownIsZero.getGroup()).thenReturn(groupUnknownIsZero);
         when(typeUnknownIsZero.toString()).thenReturn("Type:Zero");
-        when(typeUnknownIsZero.getRegistryName()).thenReturn(new ResourceLocation(Constants.MOD_ID, currentTestName.getMethodName().toLowerCase() + "_zero"));
+        when(typeUnknownIsZero.getRegistryName()).thenReturn(new ResourceLocation(Constants.MOD_ID, testId() + "_zero"));
         when(groupUnknownIsZero.canContributeToRecipeAsInput(any(), any())).thenReturn(true);
         when(groupUnknownIsZero.isValidFor(any(), any())).thenReturn(true);
         when(groupUnknownIsZero.canContributeToRecipeAsOutput(any(), any())).thenReturn(true);
@@ -131,7 +171,7 @@ public class JGraphTBasedCompoundAnalyzerTest
 
         when(typeUnknownIsInvalid.getGroup()).thenReturn(groupUnknownIsInvalid);
         when(typeUnknownIsInvalid.toString()).thenReturn("Type:Invalid");
-        when(typeUnknownIsZero.getRegistryName()).thenReturn(new ResourceLocation(Constants.MOD_ID, currentTestName.getMethodName().toLowerCase() + "_invalid"));
+        when(typeUnknownIsInvalid.getRegistryName()).thenReturn(new ResourceLocation(Constants.MOD_ID, testId() + "_invalid"));
         when(groupUnknownIsInvalid.canContributeToRecipeAsInput(any(), any())).thenReturn(true);
         when(groupUnknownIsInvalid.isValidFor(any(), any())).thenReturn(true);
         when(groupUnknownIsInvalid.canContributeToRecipeAsOutput(any(), any())).thenReturn(true);
@@ -169,6 +209,7 @@ public class JGraphTBasedCompoundAnalyzerTest
         when(typeReg.getAllKnownRegistryNames()).thenReturn(Sets.newHashSet(new ResourceLocation("zero"), new ResourceLocation("invalid")));
         when(typeReg.iterator()).thenAnswer((Answer<Iterator<ICompoundType>>) invocation -> Sets.newHashSet(typeUnknownIsZero, typeUnknownIsInvalid).iterator());
         ModRegistries.COMPOUND_TYPE = () -> typeReg;
+        CompoundTypeIndex.invalidate();
 
         final ModList modList = mock(ModList.class);
         when(modList.getMods()).thenReturn(Collections.emptyList());
@@ -180,6 +221,7 @@ public class JGraphTBasedCompoundAnalyzerTest
     {
         CompoundInformationRegistry.getInstance(key).reset();
         EquivalencyRecipeRegistry.getInstance(key).reset();
+        AnalysisSnapshotManager.removeSnapshot(key);
     }
 
     @Test
@@ -187,7 +229,7 @@ public class JGraphTBasedCompoundAnalyzerTest
     {
         input.registerLocking("A", s(cz( 1.0)));
 
-        final Map<ICompoundContainer<?>, Set<CompoundInstance>> result = analyzer.calculateAndGet();
+        final Map<ICompoundContainer<?>, Set<CompoundInstance>> result = calculateAndGet();
 
         assertEquals(s(cz( 1.0)), result.get(cc("A")));
     }
@@ -197,7 +239,7 @@ public class JGraphTBasedCompoundAnalyzerTest
     {
         input.registerBase("A", s(cz( 1.0)));
 
-        final Map<ICompoundContainer<?>, Set<CompoundInstance>> result = analyzer.calculateAndGet();
+        final Map<ICompoundContainer<?>, Set<CompoundInstance>> result = calculateAndGet();
 
         assertEquals(s(), result.getOrDefault(cc("A"), s()));
     }
@@ -208,7 +250,7 @@ public class JGraphTBasedCompoundAnalyzerTest
         input.registerLocking("A", s(cz( 1.0)));
         input.registerBase("A", s(ci(1.0)));
 
-        final Map<ICompoundContainer<?>, Set<CompoundInstance>> result = analyzer.calculateAndGet();
+        final Map<ICompoundContainer<?>, Set<CompoundInstance>> result = calculateAndGet();
 
         assertEquals(s(cz(1)), result.getOrDefault(cc("A"), s()));
     }
@@ -219,7 +261,7 @@ public class JGraphTBasedCompoundAnalyzerTest
         input.registerValue("A", s(cz( 1.0)));
         input.registerBase("A", s(ci(1.0)));
 
-        final Map<ICompoundContainer<?>, Set<CompoundInstance>> result = analyzer.calculateAndGet();
+        final Map<ICompoundContainer<?>, Set<CompoundInstance>> result = calculateAndGet();
 
         assertEquals(s(cz(1), ci(1)), result.getOrDefault(cc("A"), s()));
     }
@@ -230,7 +272,7 @@ public class JGraphTBasedCompoundAnalyzerTest
         input.registerValue("A", s(cz( 1.0)));
         input.registerBase("A", s(cz(1.0)));
 
-        final Map<ICompoundContainer<?>, Set<CompoundInstance>> result = analyzer.calculateAndGet();
+        final Map<ICompoundContainer<?>, Set<CompoundInstance>> result = calculateAndGet();
 
         assertEquals(s(cz(2)), result.getOrDefault(cc("A"), s()));
     }
@@ -243,7 +285,7 @@ public class JGraphTBasedCompoundAnalyzerTest
         registerRecipe("1x log to 4x plank", s(cc("log", 1)), s(cc("plank", 4)));
         registerRecipe("4x plank to 1x workbench", s(cc("plank", 4)), s(cc("workbench", 1)));
 
-        final Map<ICompoundContainer<?>, Set<CompoundInstance>> result = analyzer.calculateAndGet();
+        final Map<ICompoundContainer<?>, Set<CompoundInstance>> result = calculateAndGet();
         assertEquals(s(cz(32)), result.get(cc("log")));
         assertEquals(s(cz(8)), result.get(cc("plank")));
         assertEquals(s(cz(32)), result.get(cc("workbench")));
@@ -258,7 +300,7 @@ public class JGraphTBasedCompoundAnalyzerTest
         registerRecipe("nothing to 1x c4", s(), s(cc("c4", 1)));
         registerRecipe("2x a1 to 1x b2", s(cc("a1", 2)), s(cc("b2", 1)));
 
-        final Map<ICompoundContainer<?>, Set<CompoundInstance>> result = analyzer.calculateAndGet();
+        final Map<ICompoundContainer<?>, Set<CompoundInstance>> result = calculateAndGet();
         assertEquals(s(cz(1)), result.get(cc("a1")));
         assertEquals(s(cz(2)), result.get(cc("b2")));
         assertEquals(s(cz(4)), result.get(cc("c4")));
@@ -273,7 +315,7 @@ public class JGraphTBasedCompoundAnalyzerTest
 
         input.registerLocking("b2", s(cz( 20)));
 
-        final Map<ICompoundContainer<?>, Set<CompoundInstance>> result = analyzer.calculateAndGet();
+        final Map<ICompoundContainer<?>, Set<CompoundInstance>> result = calculateAndGet();
 
         assertEquals(s(cz(1)), result.get(cc("a1")));
         assertEquals(s(cz(20)), result.get(cc("b2")));
@@ -288,7 +330,7 @@ public class JGraphTBasedCompoundAnalyzerTest
         input.registerValue("b2", s(cz( 0)));
         input.registerLocking("b2", s(cz( 20)));
 
-        final Map<ICompoundContainer<?>, Set<CompoundInstance>> result = analyzer.calculateAndGet();
+        final Map<ICompoundContainer<?>, Set<CompoundInstance>> result = calculateAndGet();
 
         assertEquals(s(cz(1)), result.get(cc("a1")));
         assertEquals(s(cz(20)), result.get(cc("b2")));
@@ -303,7 +345,7 @@ public class JGraphTBasedCompoundAnalyzerTest
         registerRecipe("2x b2 to 1x c", s(cc("b2", 2)), s(cc("c", 1)));
         registerRecipe("1x c to 1x d", s(cc("c", 2)), s(cc("d", 1)));
 
-        final Map<ICompoundContainer<?>, Set<CompoundInstance>> result = analyzer.calculateAndGet();
+        final Map<ICompoundContainer<?>, Set<CompoundInstance>> result = calculateAndGet();
 
         assertEquals(s(cz(1)), result.get(cc("a1")));
         assertEquals(s(cz(2)), result.get(cc("b2")));
@@ -317,7 +359,7 @@ public class JGraphTBasedCompoundAnalyzerTest
         registerRecipe("1x wood to 4x planks", s(cc("wood", 1)), s(cc("planks", 4)));
         registerRecipe("4x planks to 1x workbench", s(cc("planks", 4)), s(cc("workbench", 1)));
 
-        final Map<ICompoundContainer<?>, Set<CompoundInstance>> result = analyzer.calculateAndGet();
+        final Map<ICompoundContainer<?>, Set<CompoundInstance>> result = calculateAndGet();
 
         assertNull( result.get(cc("wood")));
         assertEquals(s(cz(1)), result.get(cc("planks")));
@@ -356,7 +398,7 @@ public class JGraphTBasedCompoundAnalyzerTest
             }
         }
 
-        final Map<ICompoundContainer<?>, Set<CompoundInstance>> result = analyzer.calculateAndGet();
+        final Map<ICompoundContainer<?>, Set<CompoundInstance>> result = calculateAndGet();
         assertNull( result.get(cc("wood")));
         for (char i : "ABCD".toCharArray()) {
             assertEquals(s(cz(32)), result.get(cc("wood" + i)));
@@ -378,7 +420,7 @@ public class JGraphTBasedCompoundAnalyzerTest
         registerRecipe("1x b1 to 1x c1", s(cc("b1", 1)), s(cc("c1", 1)));
 
 
-        final Map<ICompoundContainer<?>, Set<CompoundInstance>> result = analyzer.calculateAndGet();
+        final Map<ICompoundContainer<?>, Set<CompoundInstance>> result = calculateAndGet();
 
         assertEquals(s(cz(1)), result.get(cc("a1")));
         assertEquals(s(cz(1)), result.get(cc("b1")));
@@ -393,7 +435,7 @@ public class JGraphTBasedCompoundAnalyzerTest
         registerRecipe("(1x a1 + 1x invalid2) to 1x invalid1", s(cc("a1", 1), cc("invalid2", 1)), s(cc("invalid1", 1)));
         registerRecipe("(1x a1 + 1x invalid3) to 1x invalid2", s(cc("a1", 1), cc("invalid3", 1)), s(cc("invalid2", 1)));
 
-        final Map<ICompoundContainer<?>, Set<CompoundInstance>> result = analyzer.calculateAndGet();
+        final Map<ICompoundContainer<?>, Set<CompoundInstance>> result = calculateAndGet();
 
         assertEquals(s(cz(1)), result.get(cc("a1")));
         assertEquals(s(cz(3)), result.get(cc("b")));
@@ -410,7 +452,7 @@ public class JGraphTBasedCompoundAnalyzerTest
         registerRecipe("(1x a1 + 1x invalid2) to 1x invalid1", s(cc("a1", 1), cc("invalid2", 1)), s(cc("invalid1", 1)));
         registerRecipe("(1x a1 + 1x invalid3) to 1x invalid2", s(cc("a1", 1), cc("invalid3", 1)), s(cc("invalid2", 1)));
 
-        final Map<ICompoundContainer<?>, Set<CompoundInstance>> result = analyzer.calculateAndGet();
+        final Map<ICompoundContainer<?>, Set<CompoundInstance>> result = calculateAndGet();
 
         assertEquals(s(ci(1)), result.get(cc("a1")));
         assertNull( result.get(cc("b")));
@@ -427,7 +469,7 @@ public class JGraphTBasedCompoundAnalyzerTest
         registerRecipe("(1x a1 + 1x invalid2) to 1x invalid1", s(cc("a1", 1), cc("invalid2", 1)), s(cc("invalid1", 1)));
         registerRecipe("(1x a1 + 1x invalid3) to 1x invalid2", s(cc("a1", 1), cc("invalid3", 1)), s(cc("invalid2", 1)));
 
-        final Map<ICompoundContainer<?>, Set<CompoundInstance>> result = analyzer.calculateAndGet();
+        final Map<ICompoundContainer<?>, Set<CompoundInstance>> result = calculateAndGet();
 
         assertEquals(s(ci(1), cz(1)), result.get(cc("a1")));
         assertEquals(s(cz(3)), result.get(cc("b")));
@@ -444,7 +486,7 @@ public class JGraphTBasedCompoundAnalyzerTest
         registerRecipe("1x invalid1 to 1x b2", s(cc("invalid1", 1)), s(cc("b", 1)));
         registerRecipe("(1x a1 + 1x invalid2) to 1x invalid1", s(cc("a1", 1), cc("invalid2", 1)), s(cc("invalid1", 1)));
 
-        final Map<ICompoundContainer<?>, Set<CompoundInstance>> result = analyzer.calculateAndGet();
+        final Map<ICompoundContainer<?>, Set<CompoundInstance>> result = calculateAndGet();
 
         assertEquals(s(cz(1)), result.get(cc("a1")));
         assertEquals(s(cz(2)), result.get(cc("b2")));
@@ -460,7 +502,7 @@ public class JGraphTBasedCompoundAnalyzerTest
         registerRecipe("1x invalid1 to 1x b2", s(cc("invalid1", 1)), s(cc("b", 1)));
         registerRecipe("(1x a1 + 1x invalid2) to 1x invalid1", s(cc("a1", 1), cc("invalid2", 1)), s(cc("invalid1", 1)));
 
-        final Map<ICompoundContainer<?>, Set<CompoundInstance>> result = analyzer.calculateAndGet();
+        final Map<ICompoundContainer<?>, Set<CompoundInstance>> result = calculateAndGet();
 
         assertEquals(s(ci(1)), result.get(cc("a1")));
         assertEquals(s(ci(2)), result.get(cc("b2")));
@@ -476,7 +518,7 @@ public class JGraphTBasedCompoundAnalyzerTest
         registerRecipe("1x invalid1 to 1x b2", s(cc("invalid1", 1)), s(cc("b", 1)));
         registerRecipe("(1x a1 + 1x invalid2) to 1x invalid1", s(cc("a1", 1), cc("invalid2", 1)), s(cc("invalid1", 1)));
 
-        final Map<ICompoundContainer<?>, Set<CompoundInstance>> result = analyzer.calculateAndGet();
+        final Map<ICompoundContainer<?>, Set<CompoundInstance>> result = calculateAndGet();
 
         assertEquals(s(cz(1), ci(1)), result.get(cc("a1")));
         assertEquals(s(cz(2), ci(2)), result.get(cc("b2")));
@@ -491,7 +533,7 @@ public class JGraphTBasedCompoundAnalyzerTest
         registerRecipe("2x a1 to 1x b2", s(cc("a1", 2)), s(cc("b2", 1)));
         registerRecipe("1x invalid to 1x b2", s(cc("invalid", 1)), s(cc("b2", 1)));
 
-        final Map<ICompoundContainer<?>, Set<CompoundInstance>> result = analyzer.calculateAndGet();
+        final Map<ICompoundContainer<?>, Set<CompoundInstance>> result = calculateAndGet();
 
         assertEquals(s(cz(1)), result.get(cc("a1")));
         assertEquals(s(cz(2)), result.get(cc("b2")));
@@ -505,7 +547,7 @@ public class JGraphTBasedCompoundAnalyzerTest
         registerRecipe("2x a1 to 1x b2", s(cc("a1", 2)), s(cc("b2", 1)));
         registerRecipe("1x invalid to 1x b2", s(cc("invalid", 1)), s(cc("b2", 1)));
 
-        final Map<ICompoundContainer<?>, Set<CompoundInstance>> result = analyzer.calculateAndGet();
+        final Map<ICompoundContainer<?>, Set<CompoundInstance>> result = calculateAndGet();
 
         assertEquals(s(ci(1)), result.get(cc("a1")));
         assertEquals(s(ci(2)), result.get(cc("b2")));
@@ -519,7 +561,7 @@ public class JGraphTBasedCompoundAnalyzerTest
         registerRecipe("2x a1 to 1x b2", s(cc("a1", 2)), s(cc("b2", 1)));
         registerRecipe("1x invalid to 1x b2", s(cc("invalid", 1)), s(cc("b2", 1)));
 
-        final Map<ICompoundContainer<?>, Set<CompoundInstance>> result = analyzer.calculateAndGet();
+        final Map<ICompoundContainer<?>, Set<CompoundInstance>> result = calculateAndGet();
 
         assertEquals(s(cz(1), ci(1)), result.get(cc("a1")));
         assertEquals(s(cz(2), ci(2)), result.get(cc("b2")));
@@ -535,7 +577,7 @@ public class JGraphTBasedCompoundAnalyzerTest
         registerRecipe("(1x a1 + 1x invalid1) to 1x c1", s(cc("a1"), cc("invalid1")), s(cc("c1")));
         registerRecipe("1x d2 to 1x c1", s(cc("d2")), s(cc("c1")));
 
-        final Map<ICompoundContainer<?>, Set<CompoundInstance>> result = analyzer.calculateAndGet();
+        final Map<ICompoundContainer<?>, Set<CompoundInstance>> result = calculateAndGet();
 
         assertEquals(s(cz(2)), result.get(cc("a1")));
         assertEquals(s(cz(1)), result.get(cc("b2")));
@@ -555,7 +597,7 @@ public class JGraphTBasedCompoundAnalyzerTest
         registerRecipe("(1x a1 + 1x invalid1) to 1x c1", s(cc("a1"), cc("invalid1")), s(cc("c1")));
         registerRecipe("1x d2 to 1x c1", s(cc("d2")), s(cc("c1")));
 
-        final Map<ICompoundContainer<?>, Set<CompoundInstance>> result = analyzer.calculateAndGet();
+        final Map<ICompoundContainer<?>, Set<CompoundInstance>> result = calculateAndGet();
 
         assertEquals(s(ci(2)), result.get(cc("a1")));
         assertEquals(s(ci(1)), result.get(cc("b2")));
@@ -575,7 +617,7 @@ public class JGraphTBasedCompoundAnalyzerTest
         registerRecipe("(1x a1 + 1x invalid1) to 1x c1", s(cc("a1"), cc("invalid1")), s(cc("c1")));
         registerRecipe("1x d2 to 1x c1", s(cc("d2")), s(cc("c1")));
 
-        final Map<ICompoundContainer<?>, Set<CompoundInstance>> result = analyzer.calculateAndGet();
+        final Map<ICompoundContainer<?>, Set<CompoundInstance>> result = calculateAndGet();
 
         assertEquals(s(cz(2), ci(2)), result.get(cc("a1")));
         assertEquals(s(cz(1), ci(1)), result.get(cc("b2")));
@@ -593,7 +635,7 @@ public class JGraphTBasedCompoundAnalyzerTest
         registerRecipe("1x cycle-1 to 1x cycle-2", s(cc("cycle-1")), s(cc("cycle-2")));
         registerRecipe("1x cycle-2 to 1x cycle-1", s(cc("cycle-2")), s(cc("cycle-1")));
 
-        final Map<ICompoundContainer<?>, Set<CompoundInstance>> result = analyzer.calculateAndGet();
+        final Map<ICompoundContainer<?>, Set<CompoundInstance>> result = calculateAndGet();
 
         assertEquals(s(cz(1)), result.get(cc("a1")));
         assertEquals(s(cz(1)), result.get(cc("cycle-1")));
@@ -611,7 +653,7 @@ public class JGraphTBasedCompoundAnalyzerTest
         registerRecipe("1x cycle-4 to 1x cycle-5", s(cc("cycle-4")), s(cc("cycle-5")));
         registerRecipe("1x cycle-5 to 1x cycle-1", s(cc("cycle-5")), s(cc("cycle-1")));
 
-        final Map<ICompoundContainer<?>, Set<CompoundInstance>> result = analyzer.calculateAndGet();
+        final Map<ICompoundContainer<?>, Set<CompoundInstance>> result = calculateAndGet();
 
         assertEquals(s(cz(1)), result.get(cc("a1")));
         assertEquals(s(cz(1)), result.get(cc("cycle-1")));
@@ -621,6 +663,55 @@ public class JGraphTBasedCompoundAnalyzerTest
         assertEquals(s(cz(1)), result.get(cc("cycle-5")));
     }
 
+    @Test
+    public void testGenerateValuesOverlappingCycleRecipe() {
+        input.registerValue("a1", s(cz( 1)));
+
+        //Two cycles which share cycle-2, simple cycle reduction nests them while component reduction keeps them in one inner node.
+        registerRecipe("1x a1 to 1x cycle-1", s(cc("a1")), s(cc("cycle-1")));
+        registerRecipe("1x cycle-1 to 1x cycle-2", s(cc("cycle-1")), s(cc("cycle-2")));
+        registerRecipe("1x cycle-2 to 1x cycle-1", s(cc("cycle-2")), s(cc("cycle-1")));
+        registerRecipe("1x cycle-2 to 1x cycle-3", s(cc("cycle-2")), s(cc("cycle-3")));
+        registerRecipe("1x cycle-3 to 1x cycle-2", s(cc("cycle-3")), s(cc("cycle-2")));
+
+        final Map<ICompoundContainer<?>, Set<CompoundInstance>> result = calculateAndGet();
+
+        assertEquals(s(cz(1)), result.get(cc("a1")));
+        assertEquals(s(cz(1)), result.get(cc("cycle-1")));
+        assertEquals(s(cz(1)), result.get(cc("cycle-2")));
+        assertEquals(s(cz(1)), result.get(cc("cycle-3")));
+    }
+
+    @Test
+    public void testGenerateValuesEquivalenceClassesDoNotChangeResults() {
+        input.registerValue("log", s(cz( 32)));
+
+        //A tag like star around log, a chained pair hanging off it, and a one directional conversion out of the chain.
+        registerRecipe("1x log to 1x logA", s(cc("log")), s(cc("logA")));
+        registerRecipe("1x logA to 1x log", s(cc("logA")), s(cc("log")));
+        registerRecipe("1x log to 1x logB", s(cc("log")), s(cc("logB")));
+        registerRecipe("1x logB to 1x log", s(cc("logB")), s(cc("log")));
+        registerRecipe("1x logB to 1x logC", s(cc("logB")), s(cc("logC")));
+        registerRecipe("1x logC to 1x logB", s(cc("logC")), s(cc("logB")));
+        registerRecipe("1x logC to 1x logD", s(cc("logC")), s(cc("logD")));
+        registerRecipe("1x log to 4x plank", s(cc("log", 1)), s(cc("plank", 4)));
+
+        final Map<ICompoundContainer<?>, Set<CompoundInstance>> result = calculateAndGet();
+
+        ForgeConfigSpec.BooleanValue alwaysTrueConfig = mock(ForgeConfigSpec.BooleanValue.class);
+        when(alwaysTrueConfig.get()).thenReturn(true);
+        serverConfig.collapseEquivalenceClasses = alwaysTrueConfig;
+
+        final Map<ICompoundContainer<?>, Set<CompoundInstance>> collapsedResult =
+          new JGraphTBasedCompoundAnalyzer(Lists.newArrayList(new TestAnalysisOwner(currentTestName, key)), true, false).calculateAndGet();
+
+        assertEquals(result, collapsedResult);
+        for (String log : new String[] {"log", "logA", "logB", "logC", "logD"}) {
+            assertEquals(s(cz(32)), collapsedResult.get(cc(log)));
+        }
+        assertEquals(s(cz(8)), collapsedResult.get(cc("plank")));
+    }
+
     @Test
     public void testGenerateValuesFuelAndMatter() {
         final String coal = "coal";
@@ -664,7 +755,7 @@ public class JGraphTBasedCompoundAnalyzerTest
         addConversion(1, rMatter, Collections.singletonList(rMatterBlock));
         addConversion(4, rMatterBlock, Arrays.asList(rMatter, rMatter, rMatter, rMatter));
 
-        final Map<ICompoundContainer<?>, Set<CompoundInstance>> result = analyzer.calculateAndGet();
+        final Map<ICompoundContainer<?>, Set<CompoundInstance>> result = calculateAndGet();
 
         assertEquals(s(ci(128)), result.get(cc(coal)));
         assertEquals(s(ci(512)), result.get(cc(aCoal)));
@@ -682,6 +773,78 @@ public class JGraphTBasedCompoundAnalyzerTest
 
 
 
+    @Test
+    public void testIncrementalAnalysisEqualsFullAnalysisAfterValueChange()
+    {
+        ForgeConfigSpec.BooleanValue alwaysTrueConfig = mock(ForgeConfigSpec.BooleanValue.class);
+        when(alwaysTrueConfig.get()).thenReturn(true);
+        serverConfig.incrementalAnalysis = alwaysTrueConfig;
+
+        //The cycle between a1 and b2 puts a container with a value inside an inner node.
+        input.registerValue("log", s(cz(32)));
+        input.registerValue("a1", s(cz(1)));
+        registerRecipe("1x log to 4x plank", s(cc("log", 1)), s(cc("plank", 4)));
+        registerRecipe("4x plank to 1x workbench", s(cc("plank", 4)), s(cc("workbench", 1)));
+        registerRecipe("2x a1 to 1x b2", s(cc("a1", 2)), s(cc("b2", 1)));
+        registerRecipe("1x b2 to 2x a1", s(cc("b2", 1)), s(cc("a1", 2)));
+        registerRecipe("1x b2 1x plank to 1x c", s(cc("b2", 1), cc("plank", 1)), s(cc("c", 1)));
+
+        new JGraphTBasedCompoundAnalyzer(Lists.newArrayList(new TestAnalysisOwner(currentTestName, key)), false, false).calculateAndGet();
+        final AnalysisSnapshot snapshot = AnalysisSnapshotManager.removeSnapshot(key);
+        assertNotNull(snapshot);
+        AnalysisSnapshotManager.setSnapshot(key, snapshot);
+
+        input.registerValue("log", s(cz(64)));
+        input.registerValue("a1", s(cz(3)));
+
+        final Map<ICompoundContainer<?>, Set<CompoundInstance>> incrementalResult =
+          new JGraphTBasedCompoundAnalyzer(Lists.newArrayList(new TestAnalysisOwner(currentTestName, key)), false, false).calculateAndGet();
+        final AnalysisSnapshot incrementalSnapshot = AnalysisSnapshotManager.removeSnapshot(key);
+        assertNotNull(incrementalSnapshot);
+        assertSame(snapshot.getAnalysisGraph(), incrementalSnapshot.getAnalysisGraph());
+
+        final Map<ICompoundContainer<?>, Set<CompoundInstance>> fullResult =
+          new JGraphTBasedCompoundAnalyzer(Lists.newArrayList(new TestAnalysisOwner(currentTestName, key)), true, false).calculateAndGet();
+
+        assertEquals(fullResult, incrementalResult);
+        assertEquals(s(cz(64)), incrementalResult.get(cc("log")));
+        assertEquals(s(cz(16)), incrementalResult.get(cc("plank")));
+    }
+
+    /**
+     * Runs the analyzer of the current test. When propagating in parallel or reducing strongly connected components, the
+     * same input is analyzed sequentially with simple cycle reduction as well, and both analyses have to produce identical results.
+     */
+    @SuppressWarnings("unchecked")
+    public Map<ICompoundContainer<?>, Set<CompoundInstance>> calculateAndGet()
+    {
+        final Map<ICompoundContainer<?>, Set<CompoundInstance>> result = analyzer.calculateAndGet();
+        if (parallelPropagation || cycleReductionMode != CycleReductionMode.SIMPLE_CYCLES)
+        {
+            final ForgeConfigSpec.BooleanValue parallelPropagationConfig = serverConfig.parallelPropagation;
+            final ForgeConfigSpec.EnumValue<CycleReductionMode> cycleReductionModeConfig = serverConfig.cycleReductionMode;
+            ForgeConfigSpec.BooleanValue alwaysFalseConfig = mock(ForgeConfigSpec.BooleanValue.class);
+            when(alwaysFalseConfig.get()).thenReturn(false);
+            ForgeConfigSpec.EnumValue<CycleReductionMode> simpleCyclesConfig = mock(ForgeConfigSpec.EnumValue.class);
+            when(simpleCyclesConfig.get()).thenReturn(CycleReductionMode.SIMPLE_CYCLES);
+            serverConfig.parallelPropagation = alwaysFalseConfig;
+            serverConfig.cycleReductionMode = simpleCyclesConfig;
+
+            assertEquals(new JGraphTBasedCompoundAnalyzer(Lists.newArrayList(new TestAnalysisOwner(currentTestName, key)), true, false).calculateAndGet(), result);
+            serverConfig.parallelPropagation = parallelPropagationConfig;
+            serverConfig.cycleReductionMode = cycleReductionModeConfig;
+        }
+        return result;
+    }
+
+    /**
+     * The name of the current test, usable as resource location path. The parameters of the test are part of its name.
+     */
+    public String testId()
+    {
+        return currentTestName.getMethodName().toLowerCase().replaceAll("[^a-z0-9_]", "_");
+    }
+
     public void registerRecipe(final String name, Set<ICompoundContainer<?>> inputs, Set<ICompoundContainer<?>> outputs)
     {
         EquivalencyRecipeRegistry.getInstance(key).register(
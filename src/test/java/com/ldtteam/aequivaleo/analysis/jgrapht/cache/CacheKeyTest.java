@@ -0,0 +1,215 @@
+package com.ldtteam.aequivaleo.analysis.jgrapht.cache;
+
+import com.ldtteam.aequivaleo.analysis.jgrapht.aequivaleo.IGraph;
+import com.ldtteam.aequivaleo.analysis.jgrapht.aequivaleo.INode;
+import com.ldtteam.aequivaleo.analysis.jgrapht.graph.AequivaleoGraph;
+import com.ldtteam.aequivaleo.analysis.jgrapht.node.ContainerNode;
+import com.ldtteam.aequivaleo.analysis.jgrapht.node.IngredientNode;
+import com.ldtteam.aequivaleo.analysis.jgrapht.node.RecipeNode;
+import com.ldtteam.aequivaleo.analysis.jgrapht.node.SourceNode;
+import com.ldtteam.aequivaleo.api.compound.CompoundInstance;
+import com.ldtteam.aequivaleo.api.compound.container.ICompoundContainer;
+import com.ldtteam.aequivaleo.api.compound.type.ICompoundType;
+import com.ldtteam.aequivaleo.api.recipe.equivalency.ingredient.SimpleIngredientBuilder;
+import com.ldtteam.aequivaleo.api.util.Constants;
+import com.ldtteam.aequivaleo.compound.information.CompoundInformationRegistry;
+import com.ldtteam.aequivaleo.compound.information.CompoundInformationSnapshot;
+import com.ldtteam.aequivaleo.testing.TestRegistries;
+import com.ldtteam.aequivaleo.testing.compound.container.testing.StringCompoundContainer;
+import com.ldtteam.aequivaleo.testing.recipe.equivalency.TestingEquivalencyRecipe;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.world.level.Level;
+import net.minecraftforge.fml.ModList;
+import net.minecraftforge.forgespi.language.IModInfo;
+import org.apache.maven.artifact.versioning.DefaultArtifactVersion;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.powermock.core.classloader.annotations.PowerMockIgnore;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.core.classloader.annotations.SuppressStaticInitializationFor;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+import static org.powermock.api.mockito.PowerMockito.mock;
+import static org.powermock.api.mockito.PowerMockito.when;
+
+@RunWith(PowerMockRunner.class)
+@SuppressStaticInitializationFor({"net.minecraft.world.level.Level"})
+@PowerMockIgnore({"jdk.internal.reflect.*", "org.apache.log4j.*", "org.apache.commons.logging.*", "javax.management.*", "org.apache.logging.*"})
+@PrepareForTest({ModList.class})
+public class CacheKeyTest
+{
+    ModList modList;
+
+    final List<ResourceKey<Level>> informationKeys = new ArrayList<>();
+
+    @Before
+    public void setUp()
+    {
+        modList = mock(ModList.class);
+        when(modList.getMods()).thenReturn(Collections.emptyList());
+    }
+
+    @After
+    public void tearDown()
+    {
+        informationKeys.forEach(key -> CompoundInformationRegistry.getInstance(key).reset());
+    }
+
+    @Test
+    public void nodeIdentityOnlyDependsOnContent()
+    {
+        TestRegistries.setUp("a");
+
+        assertEquals(NodeIdentity.of(container("log")), NodeIdentity.of(container("log")));
+        assertNotEquals(NodeIdentity.of(container("log")), NodeIdentity.of(container("plank")));
+        assertEquals(NodeIdentity.of(new SourceNode()), NodeIdentity.of(new SourceNode()));
+        assertEquals(NodeIdentity.of(recipe("log", "plank")), NodeIdentity.of(recipe("log", "plank")));
+        assertNotEquals(NodeIdentity.of(recipe("log", "plank")), NodeIdentity.of(recipe("plank", "log")));
+        assertNotEquals(NodeIdentity.of(container("log")), NodeIdentity.of(ingredient("log")));
+    }
+
+    @Test
+    public void fingerprintIsIndependentOfNodeInstancesAndInsertionOrder()
+    {
+        TestRegistries.setUp("a");
+
+        final IGraph forwardGraph = graph(false);
+        final GraphFingerprint forward = GraphFingerprint.of(forwardGraph, forwardGraph.vertexSet());
+        final IGraph reverseGraph = graph(true);
+        final GraphFingerprint reverse = GraphFingerprint.of(reverseGraph, reverseGraph.vertexSet());
+
+        assertEquals(forward.getLow(), reverse.getLow());
+        assertEquals(forward.getHigh(), reverse.getHigh());
+        assertEquals(forward.getVertexCount(), reverse.getVertexCount());
+        assertEquals(forward.getEdgeCount(), reverse.getEdgeCount());
+    }
+
+    @Test
+    public void fingerprintChangesWithEdgeWeight()
+    {
+        TestRegistries.setUp("a");
+
+        final IGraph graph = graph(false);
+        final GraphFingerprint original = GraphFingerprint.of(graph, graph.vertexSet());
+        final INode log = graph.vertexSet().stream().filter(container("log")::equals).findFirst().orElseThrow();
+        final INode plank = graph.vertexSet().stream().filter(container("plank")::equals).findFirst().orElseThrow();
+        graph.setEdgeWeight(log, plank, 4d);
+
+        assertNotEquals(original.getLow(), GraphFingerprint.of(graph, graph.vertexSet()).getLow());
+    }
+
+    @Test
+    public void keyIsStableAcrossTypeInstances()
+    {
+        //Every set up creates new type instances with new identity hash codes, but the same registry names.
+        final List<ICompoundType> firstTypes = TestRegistries.setUp("a", "b");
+        final IGraph firstGraph = graph(false);
+        final CacheKey first = new CacheKey(modList, GraphFingerprint.of(firstGraph, firstGraph.vertexSet()), information(firstTypes, 1d, 2d));
+
+        final List<ICompoundType> secondTypes = TestRegistries.setUp("a", "b");
+        final IGraph secondGraph = graph(true);
+        final CacheKey second = new CacheKey(modList, GraphFingerprint.of(secondGraph, secondGraph.vertexSet()), information(secondTypes, 1d, 2d));
+
+        assertNotEquals(firstTypes.get(0).hashCode(), secondTypes.get(0).hashCode());
+        assertEquals(first, second);
+    }
+
+    @Test
+    public void keyChangesWhenAmountsAreSwappedBetweenTypes()
+    {
+        final List<ICompoundType> types = TestRegistries.setUp("a", "b");
+        final IGraph graph = graph(false);
+        final GraphFingerprint fingerprint = GraphFingerprint.of(graph, graph.vertexSet());
+
+        assertNotEquals(
+          new CacheKey(modList, fingerprint, information(types, 1d, 2d)),
+          new CacheKey(modList, fingerprint, information(types, 2d, 1d)));
+    }
+
+    @Test
+    public void componentAndTopologyKeysChangeWithTheVersionOfAnyMod()
+    {
+        final List<ICompoundType> types = TestRegistries.setUp("a", "b");
+        final IGraph graph = graph(false);
+        final GraphFingerprint fingerprint = GraphFingerprint.of(graph, graph.vertexSet());
+        final CompoundInformationSnapshot information = information(types, 1d, 2d);
+        final Set<ICompoundContainer<?>> containers = Set.of(new StringCompoundContainer("log", 1));
+
+        when(modList.getMods()).thenReturn(List.of(mod(Constants.MOD_ID, "1.0"), mod("other", "1.0")));
+        final CacheKey component = CacheKey.forComponent(modList, fingerprint, information, containers);
+        final CacheKey topology = CacheKey.forTopology(modList, fingerprint, "settings");
+
+        when(modList.getMods()).thenReturn(List.of(mod(Constants.MOD_ID, "1.0"), mod("other", "2.0")));
+        assertNotEquals(component, CacheKey.forComponent(modList, fingerprint, information, containers));
+        assertNotEquals(topology, CacheKey.forTopology(modList, fingerprint, "settings"));
+    }
+
+    private IGraph graph(final boolean reverseInsertion)
+    {
+        final List<INode> nodes = new ArrayList<>(List.of(new SourceNode(), container("log"), container("plank")));
+        if (reverseInsertion)
+        {
+            Collections.reverse(nodes);
+        }
+
+        final IGraph graph = new AequivaleoGraph();
+        nodes.forEach(graph::addVertex);
+
+        final INode source = nodes.stream().filter(SourceNode.class::isInstance).findFirst().orElseThrow();
+        final INode log = nodes.stream().filter(container("log")::equals).findFirst().orElseThrow();
+        final INode plank = nodes.stream().filter(container("plank")::equals).findFirst().orElseThrow();
+        graph.addEdge(source, log);
+        graph.setEdgeWeight(source, log, 1d);
+        graph.addEdge(log, plank);
+        graph.setEdgeWeight(log, plank, 2d);
+        return graph;
+    }
+
+    private static IModInfo mod(final String modId, final String version)
+    {
+        final IModInfo info = mock(IModInfo.class);
+        when(info.getModId()).thenReturn(modId);
+        when(info.getVersion()).thenReturn(new DefaultArtifactVersion(version));
+        return info;
+    }
+
+    private CompoundInformationSnapshot information(final List<ICompoundType> types, final double firstAmount, final double secondAmount)
+    {
+        @SuppressWarnings("unchecked")
+        final ResourceKey<Level> key = mock(ResourceKey.class);
+        when(key.location()).thenReturn(new ResourceLocation(Constants.MOD_ID, "cache_key_" + informationKeys.size()));
+        informationKeys.add(key);
+
+        final CompoundInformationRegistry registry = CompoundInformationRegistry.getInstance(key);
+        registry.registerValue(new StringCompoundContainer("log", 1), Set.of(
+          new CompoundInstance(types.get(0), firstAmount),
+          new CompoundInstance(types.get(1), secondAmount)));
+        return registry.snapshot();
+    }
+
+    private static ContainerNode container(final String content)
+    {
+        return new ContainerNode(new StringCompoundContainer(content, 1));
+    }
+
+    private static IngredientNode ingredient(final String content)
+    {
+        return new IngredientNode(new SimpleIngredientBuilder().from(new StringCompoundContainer(content, 1)).createIngredient());
+    }
+
+    private static RecipeNode recipe(final String input, final String output)
+    {
+        final Set<ICompoundContainer<?>> outputs = Set.of(new StringCompoundContainer(output, 1));
+        return new RecipeNode(new TestingEquivalencyRecipe(
+          input + "_to_" + output,
+          Set.of(new SimpleIngredientBuilder().from(new StringCompoundContainer(input, 1)).createIngredient()),
+          Collections.emptySet(),
+          outputs));
+    }
+}
@@ -0,0 +1,203 @@
+package com.ldtteam.aequivaleo.analysis.jgrapht.cache;
+
+import com.ldtteam.aequivaleo.Aequivaleo;
+import com.ldtteam.aequivaleo.analysis.jgrapht.aequivaleo.IEdge;
+import com.ldtteam.aequivaleo.analysis.jgrapht.aequivaleo.IGraph;
+import com.ldtteam.aequivaleo.analysis.jgrapht.aequivaleo.INode;
+import com.ldtteam.aequivaleo.analysis.jgrapht.cycles.JGraphTCyclesReducer;
+import com.ldtteam.aequivaleo.analysis.jgrapht.cycles.JGraphTStronglyConnectedComponentsReducer;
+import com.ldtteam.aequivaleo.analysis.jgrapht.graph.AequivaleoGraph;
+import com.ldtteam.aequivaleo.analysis.jgrapht.node.ContainerNode;
+import com.ldtteam.aequivaleo.analysis.jgrapht.node.InnerNode;
+import com.ldtteam.aequivaleo.analysis.jgrapht.node.SourceNode;
+import com.ldtteam.aequivaleo.config.CommonConfiguration;
+import com.ldtteam.aequivaleo.config.Configuration;
+import com.ldtteam.aequivaleo.testing.TestRegistries;
+import com.ldtteam.aequivaleo.testing.compound.container.testing.StringCompoundContainer;
+import io.netty.buffer.Unpooled;
+import net.minecraft.network.FriendlyByteBuf;
+import net.minecraftforge.common.ForgeConfigSpec;
+import org.jetbrains.annotations.Nullable;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.powermock.core.classloader.annotations.PowerMockIgnore;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.core.classloader.annotations.SuppressStaticInitializationFor;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+import static org.powermock.api.mockito.PowerMockito.*;
+
+@RunWith(PowerMockRunner.class)
+@SuppressStaticInitializationFor({"net.minecraft.world.World"})
+@PowerMockIgnore({"jdk.internal.reflect.*", "org.apache.log4j.*", "org.apache.commons.logging.*", "javax.management.*", "org.apache.logging.*"})
+@PrepareForTest({Aequivaleo.class})
+public class ReducedTopologyTest
+{
+    @Before
+    public void setUp()
+    {
+        mockStatic(Aequivaleo.class);
+        Aequivaleo mod = mock(Aequivaleo.class);
+        when(Aequivaleo.getInstance()).thenReturn(mod);
+
+        Configuration config = mock(Configuration.class);
+        CommonConfiguration commonConfiguration = mock(CommonConfiguration.class);
+        ForgeConfigSpec.BooleanValue alwaysFalseConfig = mock(ForgeConfigSpec.BooleanValue.class);
+        when(alwaysFalseConfig.get()).thenReturn(false);
+        commonConfiguration.debugAnalysisLog = alwaysFalseConfig;
+        when(config.getCommon()).thenReturn(commonConfiguration);
+        when(mod.getConfiguration()).thenReturn(config);
+
+        TestRegistries.setUp("a");
+    }
+
+    @Test
+    public void replayEqualsFreshReduction()
+    {
+        final IGraph reducedGraph = graph();
+        final GraphFingerprint reducedFingerprint = GraphFingerprint.of(reducedGraph, reducedGraph.vertexSet());
+        final ReducedTopology.Recorder recorder = new ReducedTopology.Recorder(reducedFingerprint::getIdentity);
+        new JGraphTStronglyConnectedComponentsReducer<IGraph, INode, IEdge>(
+          (graph, nodes) -> createInnerNode(graph, nodes, recorder),
+          INode::onNeighborReplaced).reduce(reducedGraph);
+
+        final FriendlyByteBuf buffer = new FriendlyByteBuf(Unpooled.buffer());
+        recorder.build().write(buffer);
+        final ReducedTopology topology = ReducedTopology.read(buffer);
+        assertNotNull(topology);
+
+        final IGraph replayedGraph = graph();
+        final GraphFingerprint replayedFingerprint = GraphFingerprint.of(replayedGraph, replayedGraph.vertexSet());
+        final Map<NodeIdentity, INode> nodes = ReducedTopology.indexNodes(replayedGraph.vertexSet(), replayedFingerprint::getIdentity).orElseThrow();
+        assertTrue(topology.canReplay(nodes));
+
+        topology.replay(
+          replayedGraph,
+          nodes,
+          (clique, recipesToRemove, inputNodesToDelete) -> {
+              throw new IllegalStateException("The graph has no cliques.");
+          },
+          (graph, iNodes, innerGraphReducer) -> graph == replayedGraph
+            ? new JGraphTStronglyConnectedComponentsReducer<IGraph, INode, IEdge>((sourceGraph, vertices) -> new InnerNode(sourceGraph, vertices, innerGraphReducer), INode::onNeighborReplaced)
+                .replay(graph, iNodes)
+            : new JGraphTCyclesReducer<IGraph, INode, IEdge>((sourceGraph, vertices) -> new InnerNode(sourceGraph, vertices, innerGraphReducer), INode::onNeighborReplaced)
+                .replay(graph, iNodes));
+
+        //The dense component contains several cycles, so its inner graph is reduced as well and needs to be replayed too.
+        assertTrue(topology.getStepCount() > 1);
+        assertEquals(describeVertices(reducedGraph), describeVertices(replayedGraph));
+        assertEquals(describeEdges(reducedGraph), describeEdges(replayedGraph));
+    }
+
+    @Test
+    public void canNotReplayOnOtherGraph()
+    {
+        final IGraph reducedGraph = graph();
+        final GraphFingerprint reducedFingerprint = GraphFingerprint.of(reducedGraph, reducedGraph.vertexSet());
+        final ReducedTopology.Recorder recorder = new ReducedTopology.Recorder(reducedFingerprint::getIdentity);
+        new JGraphTStronglyConnectedComponentsReducer<IGraph, INode, IEdge>(
+          (graph, nodes) -> createInnerNode(graph, nodes, recorder),
+          INode::onNeighborReplaced).reduce(reducedGraph);
+
+        final IGraph otherGraph = new AequivaleoGraph();
+        otherGraph.addVertex(container("log"));
+        final Map<NodeIdentity, INode> nodes = ReducedTopology.indexNodes(otherGraph.vertexSet(), NodeIdentity::of).orElseThrow();
+
+        assertFalse(recorder.build().canReplay(nodes));
+    }
+
+    /**
+     * Mirrors how the analyzer records inner nodes, reducing the cycles of their inner graphs.
+     */
+    private static INode createInnerNode(final IGraph graph, final List<INode> nodes, @Nullable final ReducedTopology.Recorder recorder)
+    {
+        final Consumer<IGraph> innerGraphReducer = innerGraph -> new JGraphTCyclesReducer<IGraph, INode, IEdge>(
+          (sourceGraph, vertices) -> createInnerNode(sourceGraph, vertices, recorder),
+          INode::onNeighborReplaced,
+          false).reduce(innerGraph);
+
+        if (recorder != null)
+        {
+            recorder.beginInner();
+        }
+        final INode innerNode = new InnerNode(graph, nodes, innerGraphReducer);
+        if (recorder != null)
+        {
+            recorder.recordInner(nodes, innerNode);
+        }
+        return innerNode;
+    }
+
+    /**
+     * A source, a complete component of three containers and a container behind it.
+     */
+    private static IGraph graph()
+    {
+        final IGraph graph = new AequivaleoGraph();
+        final INode source = new SourceNode();
+        final INode appendix = container("appendix");
+        final List<INode> component = List.of(container("log"), container("plank"), container("stick"));
+        graph.addVertex(source);
+        graph.addVertex(appendix);
+        component.forEach(graph::addVertex);
+
+        for (INode from : component)
+        {
+            for (INode to : component)
+            {
+                if (from != to)
+                {
+                    graph.addEdge(from, to);
+                    graph.setEdgeWeight(from, to, 2d);
+                }
+            }
+        }
+        graph.addEdge(source, component.get(0));
+        graph.setEdgeWeight(source, component.get(0), 1d);
+        graph.addEdge(component.get(2), appendix);
+        graph.setEdgeWeight(component.get(2), appendix, 4d);
+        return graph;
+    }
+
+    private static INode container(final String content)
+    {
+        return new ContainerNode(new StringCompoundContainer(content, 1));
+    }
+
+    private static Set<String> describeVertices(final IGraph graph)
+    {
+        return graph.vertexSet().stream().map(ReducedTopologyTest::describe).collect(Collectors.toSet());
+    }
+
+    private static Set<String> describeEdges(final IGraph graph)
+    {
+        return graph.edgeSet().stream()
+          .map(edge -> describe(graph.getEdgeSource(edge)) + "->" + describe(graph.getEdgeTarget(edge)) + ":" + graph.getEdgeWeight(edge))
+          .collect(Collectors.toSet());
+    }
+
+    /**
+     * Describes a node including the nesting of inner nodes, independent of the node instances.
+     */
+    private static String describe(final INode node)
+    {
+        if (node instanceof final InnerNode innerNode)
+        {
+            return innerNode.getInnerNodes().stream()
+              .map(ReducedTopologyTest::describe)
+              .sorted()
+              .collect(Collectors.joining(",", "inner[", "]"));
+        }
+        if (node instanceof final ContainerNode containerNode)
+        {
+            return containerNode.getWrapper().map(wrapper -> String.valueOf(wrapper.getContents())).orElse("?");
+        }
+        return node.toString();
+    }
+}
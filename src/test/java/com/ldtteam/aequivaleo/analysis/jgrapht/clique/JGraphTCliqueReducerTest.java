@@ -0,0 +1,203 @@
+package com.ldtteam.aequivaleo.analysis.jgrapht.clique;
+
+import com.ldtteam.aequivaleo.Aequivaleo;
+import com.ldtteam.aequivaleo.analysis.jgrapht.aequivaleo.IGraph;
+import com.ldtteam.aequivaleo.analysis.jgrapht.aequivaleo.INode;
+import com.ldtteam.aequivaleo.analysis.jgrapht.aequivaleo.IRecipeNode;
+import com.ldtteam.aequivaleo.analysis.jgrapht.graph.AequivaleoGraph;
+import com.ldtteam.aequivaleo.analysis.jgrapht.node.CliqueNode;
+import com.ldtteam.aequivaleo.analysis.jgrapht.node.ContainerNode;
+import com.ldtteam.aequivaleo.analysis.jgrapht.node.IngredientNode;
+import com.ldtteam.aequivaleo.analysis.jgrapht.node.RecipeNode;
+import com.ldtteam.aequivaleo.api.compound.container.ICompoundContainer;
+import com.ldtteam.aequivaleo.api.recipe.equivalency.ingredient.IRecipeIngredient;
+import com.ldtteam.aequivaleo.api.recipe.equivalency.ingredient.SimpleIngredientBuilder;
+import com.ldtteam.aequivaleo.config.CommonConfiguration;
+import com.ldtteam.aequivaleo.config.Configuration;
+import com.ldtteam.aequivaleo.testing.compound.container.testing.StringCompoundContainer;
+import com.ldtteam.aequivaleo.testing.recipe.equivalency.TestingEquivalencyRecipe;
+import net.minecraftforge.common.ForgeConfigSpec;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.powermock.core.classloader.annotations.PowerMockIgnore;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.core.classloader.annotations.SuppressStaticInitializationFor;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+import static org.powermock.api.mockito.PowerMockito.*;
+
+@RunWith(PowerMockRunner.class)
+@SuppressStaticInitializationFor({"net.minecraft.world.World"})
+@PowerMockIgnore({"jdk.internal.reflect.*", "org.apache.log4j.*", "org.apache.commons.logging.*", "javax.management.*", "org.apache.logging.*"})
+@PrepareForTest({Aequivaleo.class})
+public class JGraphTCliqueReducerTest
+{
+    private IGraph graph;
+    private Map<INode, INode> ingredients;
+
+    @Before
+    public void setUp()
+    {
+        mockStatic(Aequivaleo.class);
+        Aequivaleo mod = mock(Aequivaleo.class);
+        when(Aequivaleo.getInstance()).thenReturn(mod);
+
+        Configuration config = mock(Configuration.class);
+        CommonConfiguration commonConfiguration = mock(CommonConfiguration.class);
+        ForgeConfigSpec.BooleanValue alwaysFalseConfig = mock(ForgeConfigSpec.BooleanValue.class);
+        when(alwaysFalseConfig.get()).thenReturn(false);
+        commonConfiguration.debugAnalysisLog = alwaysFalseConfig;
+        when(config.getCommon()).thenReturn(commonConfiguration);
+        when(mod.getConfiguration()).thenReturn(config);
+
+        graph = new AequivaleoGraph();
+        ingredients = new HashMap<>();
+    }
+
+    @Test
+    public void reduceTagStarCollapsesIntoOneClique()
+    {
+        final INode tag = container("tag");
+        final Set<INode> members = new HashSet<>();
+        members.add(tag);
+        for (char i : "ABCD".toCharArray())
+        {
+            final INode entry = container("entry" + i);
+            members.add(entry);
+            conversion(tag, entry);
+            conversion(entry, tag);
+        }
+
+        reducer(true).reduce(graph);
+
+        assertEquals(1, graph.vertexSet().size());
+        assertEquals(members, singleClique().getInnerNodes());
+    }
+
+    @Test
+    public void reduceChainedPairsMergeTransitively()
+    {
+        final List<INode> chain = new ArrayList<>();
+        for (char i : "ABCD".toCharArray())
+        {
+            chain.add(container("chain" + i));
+        }
+        for (int i = 1; i < chain.size(); i++)
+        {
+            conversion(chain.get(i - 1), chain.get(i));
+            conversion(chain.get(i), chain.get(i - 1));
+        }
+
+        reducer(true).reduce(graph);
+
+        assertEquals(1, graph.vertexSet().size());
+        assertEquals(new HashSet<>(chain), singleClique().getInnerNodes());
+    }
+
+    @Test
+    public void reduceOneDirectionalEdgeDoesNotCollapse()
+    {
+        final INode a = container("a");
+        final INode b = container("b");
+        final INode c = container("c");
+        conversion(a, b);
+        conversion(b, a);
+        final INode oneDirectional = conversion(b, c);
+
+        reducer(true).reduce(graph);
+
+        assertEquals(Set.of(a, b), singleClique().getInnerNodes());
+        assertTrue(graph.containsVertex(c));
+        assertTrue(graph.containsVertex(oneDirectional));
+        assertTrue(graph.containsEdge(oneDirectional, c));
+    }
+
+    @Test
+    public void reduceWithoutEquivalenceClassesKeepsOneDirectionalEdge()
+    {
+        final INode a = container("a");
+        final INode b = container("b");
+        final INode c = container("c");
+        conversion(a, b);
+        conversion(b, a);
+        final INode oneDirectional = conversion(b, c);
+
+        reducer(false).reduce(graph);
+
+        assertEquals(Set.of(a, b), singleClique().getInnerNodes());
+        assertTrue(graph.containsVertex(c));
+        assertTrue(graph.containsVertex(oneDirectional));
+    }
+
+    private CliqueNode singleClique()
+    {
+        final List<CliqueNode> cliques = graph.vertexSet()
+          .stream()
+          .filter(CliqueNode.class::isInstance)
+          .map(CliqueNode.class::cast)
+          .collect(Collectors.toList());
+        assertEquals(1, cliques.size());
+        return cliques.get(0);
+    }
+
+    private static JGraphTCliqueReducer<IGraph> reducer(final boolean collapseEquivalenceClasses)
+    {
+        return new JGraphTCliqueReducer<>(
+          (graph, iNodes, iRecipeNodes, iRecipeInputNodes) -> new CliqueNode(graph, iNodes),
+          sets -> {
+              //Mirrors the short circuits of the analyzer, all recipes used here are of the same type.
+              if (sets.size() <= 1)
+              {
+                  return new HashSet<>();
+              }
+
+              final Set<IRecipeNode> recipes = new HashSet<>();
+              sets.forEach(recipes::addAll);
+              return recipes;
+          },
+          INode::onNeighborReplaced,
+          collapseEquivalenceClasses);
+    }
+
+    private INode container(final String name)
+    {
+        final INode node = new ContainerNode(new StringCompoundContainer(name, 1));
+        graph.addVertex(node);
+        return node;
+    }
+
+    /**
+     * Adds a 1:1 conversion from the source to the target, through the shared ingredient node of the source.
+     */
+    private INode conversion(final INode source, final INode target)
+    {
+        final ICompoundContainer<?> input = ((ContainerNode) source).getWrapper().orElseThrow();
+        final ICompoundContainer<?> output = ((ContainerNode) target).getWrapper().orElseThrow();
+        final IRecipeIngredient ingredient = new SimpleIngredientBuilder().from(input).createIngredient();
+
+        final INode ingredientNode = ingredients.computeIfAbsent(source, s -> {
+            final INode node = new IngredientNode(ingredient);
+            graph.addVertex(node);
+            graph.addEdge(source, node);
+            graph.setEdgeWeight(source, node, 1d);
+            return node;
+        });
+
+        final INode recipeNode = new RecipeNode(new TestingEquivalencyRecipe(
+          input + "_to_" + output,
+          Set.of(ingredient),
+          Collections.emptySet(),
+          Set.of(output)));
+        graph.addVertex(recipeNode);
+        graph.addEdge(ingredientNode, recipeNode);
+        graph.setEdgeWeight(ingredientNode, recipeNode, 1d);
+        graph.addEdge(recipeNode, target);
+        graph.setEdgeWeight(recipeNode, target, 1d);
+        return recipeNode;
+    }
+}
@@ -0,0 +1,129 @@
+package com.ldtteam.aequivaleo.analysis.jgrapht.cycles;
+
+import com.ldtteam.aequivaleo.Aequivaleo;
+import com.ldtteam.aequivaleo.analysis.jgrapht.edge.Edge;
+import com.ldtteam.aequivaleo.analysis.jgrapht.graph.SimpleAnalysisGraph;
+import com.ldtteam.aequivaleo.config.CommonConfiguration;
+import com.ldtteam.aequivaleo.config.Configuration;
+import net.minecraftforge.common.ForgeConfigSpec;
+import org.jgrapht.Graph;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.powermock.core.classloader.annotations.PowerMockIgnore;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.core.classloader.annotations.SuppressStaticInitializationFor;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+import java.util.List;
+import java.util.TreeSet;
+
+import static org.junit.Assert.*;
+import static org.powermock.api.mockito.PowerMockito.*;
+
+@RunWith(PowerMockRunner.class)
+@SuppressStaticInitializationFor({"net.minecraft.world.World"})
+@PowerMockIgnore({"jdk.internal.reflect.*", "org.apache.log4j.*", "org.apache.commons.logging.*", "javax.management.*"})
+@PrepareForTest({Aequivaleo.class})
+public class JGraphTStronglyConnectedComponentsReducerTest
+{
+
+    JGraphTStronglyConnectedComponentsReducer<Graph<String, Edge>, String, Edge> reducer;
+
+    @Before
+    public void setUp()
+    {
+        mockStatic(Aequivaleo.class);
+        Aequivaleo mod = mock(Aequivaleo.class);
+        when(Aequivaleo.getInstance()).thenReturn(mod);
+
+        Configuration config = mock(Configuration.class);
+        CommonConfiguration commonConfiguration = mock(CommonConfiguration.class);
+        ForgeConfigSpec.BooleanValue alwaysTrueConfig = mock(ForgeConfigSpec.BooleanValue.class);
+        when(alwaysTrueConfig.get()).thenReturn(true);
+        commonConfiguration.debugAnalysisLog = alwaysTrueConfig;
+        when(config.getCommon()).thenReturn(commonConfiguration);
+        when(mod.getConfiguration()).thenReturn(config);
+
+        reducer = new JGraphTStronglyConnectedComponentsReducer<>(
+          (graph, vertices) -> new TreeSet<>(vertices).toString(),
+          (s, s2, s3) -> {
+              //Do not care.
+          });
+    }
+
+    @Test
+    public void reduceAcyclicGraphDoesNothing() {
+        final Graph<String, Edge> graph = new SimpleAnalysisGraph<>(Edge::new);
+        graph.addVertex("a");
+        graph.addVertex("b");
+        graph.addEdge("a", "b");
+
+        assertFalse(reducer.reduceOnce(graph));
+        assertEquals(2, graph.vertexSet().size());
+        assertEquals(1, graph.edgeSet().size());
+    }
+
+    @Test
+    public void reduceOnlyCycleToSingleNode() {
+        final Graph<String, Edge> graph = new SimpleAnalysisGraph<>(Edge::new);
+        graph.addVertex("cycle-1");
+        graph.addVertex("cycle-2");
+        graph.addEdge("cycle-1", "cycle-2");
+        graph.addEdge("cycle-2", "cycle-1");
+
+        assertTrue(reducer.reduceOnce(graph));
+
+        assertEquals(1, graph.vertexSet().size());
+        assertEquals(0, graph.edgeSet().size());
+        assertTrue(graph.containsVertex("[cycle-1, cycle-2]"));
+    }
+
+    @Test
+    public void reduceOverlappingCyclesToSingleNode() {
+        final Graph<String, Edge> graph = new SimpleAnalysisGraph<>(Edge::new);
+        graph.addVertex("prefix");
+        graph.addVertex("cycle-a-1");
+        graph.addVertex("cycle-ab-2");
+        graph.addVertex("cycle-b-1");
+        graph.addVertex("appendix");
+
+        graph.addEdge("prefix", "cycle-a-1");
+        graph.addEdge("cycle-a-1", "cycle-ab-2");
+        graph.addEdge("cycle-ab-2", "cycle-a-1");
+        graph.addEdge("cycle-b-1", "cycle-ab-2");
+        graph.addEdge("cycle-ab-2", "cycle-b-1");
+        graph.addEdge("cycle-b-1", "appendix");
+
+        reducer.reduce(graph);
+
+        final String replacement = "[cycle-a-1, cycle-ab-2, cycle-b-1]";
+        assertEquals(3, graph.vertexSet().size());
+        assertEquals(2, graph.edgeSet().size());
+        assertNotNull(graph.getEdge("prefix", replacement));
+        assertNotNull(graph.getEdge(replacement, "appendix"));
+    }
+
+    @Test
+    public void reduceSeparateComponentsIndependently() {
+        final Graph<String, Edge> graph = new SimpleAnalysisGraph<>(Edge::new);
+        for (String vertex : List.of("a-1", "a-2", "b-1", "b-2"))
+        {
+            graph.addVertex(vertex);
+        }
+
+        graph.addEdge("a-1", "a-2");
+        graph.addEdge("a-2", "a-1");
+        graph.addEdge("b-1", "b-2");
+        graph.addEdge("b-2", "b-1");
+        graph.addEdge("a-2", "b-1");
+        graph.addEdge("a-1", "b-2");
+
+        reducer.reduce(graph);
+
+        assertEquals(2, graph.vertexSet().size());
+        assertEquals(1, graph.edgeSet().size());
+        assertEquals(2, graph.edgeSet().stream().mapToDouble(graph::getEdgeWeight).sum(), 0.000000d);
+        assertNotNull(graph.getEdge("[a-1, a-2]", "[b-1, b-2]"));
+    }
+}
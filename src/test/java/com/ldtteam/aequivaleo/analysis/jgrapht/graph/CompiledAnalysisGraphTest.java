@@ -0,0 +1,186 @@
+package com.ldtteam.aequivaleo.analysis.jgrapht.graph;
+
+import com.ldtteam.aequivaleo.Aequivaleo;
+import com.ldtteam.aequivaleo.analysis.jgrapht.aequivaleo.IEdge;
+import com.ldtteam.aequivaleo.analysis.jgrapht.aequivaleo.IGraph;
+import com.ldtteam.aequivaleo.analysis.jgrapht.aequivaleo.INode;
+import com.ldtteam.aequivaleo.analysis.jgrapht.node.ContainerNode;
+import com.ldtteam.aequivaleo.analysis.jgrapht.node.SourceNode;
+import com.ldtteam.aequivaleo.config.CommonConfiguration;
+import com.ldtteam.aequivaleo.config.Configuration;
+import com.ldtteam.aequivaleo.testing.compound.container.testing.StringCompoundContainer;
+import net.minecraftforge.common.ForgeConfigSpec;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.powermock.core.classloader.annotations.PowerMockIgnore;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.core.classloader.annotations.SuppressStaticInitializationFor;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+import static org.powermock.api.mockito.PowerMockito.*;
+
+@RunWith(PowerMockRunner.class)
+@SuppressStaticInitializationFor({"net.minecraft.world.World"})
+@PowerMockIgnore({"jdk.internal.reflect.*", "org.apache.log4j.*", "org.apache.commons.logging.*", "javax.management.*", "org.apache.logging.*"})
+@PrepareForTest({Aequivaleo.class})
+public class CompiledAnalysisGraphTest
+{
+    @Before
+    public void setUp()
+    {
+        mockStatic(Aequivaleo.class);
+        Aequivaleo mod = mock(Aequivaleo.class);
+        when(Aequivaleo.getInstance()).thenReturn(mod);
+
+        Configuration config = mock(Configuration.class);
+        CommonConfiguration commonConfiguration = mock(CommonConfiguration.class);
+        ForgeConfigSpec.BooleanValue alwaysFalseConfig = mock(ForgeConfigSpec.BooleanValue.class);
+        when(alwaysFalseConfig.get()).thenReturn(false);
+        commonConfiguration.debugAnalysisLog = alwaysFalseConfig;
+        when(config.getCommon()).thenReturn(commonConfiguration);
+        when(mod.getConfiguration()).thenReturn(config);
+    }
+
+    @Test
+    public void adjacencyAndWeightsMatchSourceGraph()
+    {
+        final IGraph graph = graph();
+        final CompiledAnalysisGraph compiledGraph = CompiledAnalysisGraph.compile(graph);
+
+        assertEquals(graph.vertexSet().size(), compiledGraph.getNodeCount());
+        assertEquals(new ArrayList<>(graph.vertexSet()), new ArrayList<>(compiledGraph.vertexSet()));
+
+        int index = 0;
+        for (INode node : graph.vertexSet())
+        {
+            assertEquals(index, compiledGraph.indexOf(node));
+            assertSame(node, compiledGraph.getNode(index));
+
+            final List<String> outgoing = new ArrayList<>();
+            for (int slot = compiledGraph.getOutgoingStart(index); slot < compiledGraph.getOutgoingEnd(index); slot++)
+            {
+                final IEdge edge = compiledGraph.getOutgoingEdge(slot);
+                assertSame(graph.getEdgeTarget(edge), compiledGraph.getNode(compiledGraph.getOutgoingTarget(slot)));
+                assertEquals(graph.getEdgeWeight(edge), compiledGraph.getOutgoingWeight(slot), 0d);
+                outgoing.add(describe(compiledGraph.getNode(compiledGraph.getOutgoingTarget(slot)), compiledGraph.getOutgoingWeight(slot)));
+            }
+            assertEquals(describeOutgoing(graph, node), outgoing);
+
+            final List<String> incoming = new ArrayList<>();
+            for (int slot = compiledGraph.getIncomingStart(index); slot < compiledGraph.getIncomingEnd(index); slot++)
+            {
+                final IEdge edge = compiledGraph.getIncomingEdge(slot);
+                assertSame(graph.getEdgeSource(edge), compiledGraph.getNode(compiledGraph.getIncomingSource(slot)));
+                assertEquals(graph.getEdgeWeight(edge), compiledGraph.getIncomingWeight(slot), 0d);
+                incoming.add(describe(compiledGraph.getNode(compiledGraph.getIncomingSource(slot)), compiledGraph.getIncomingWeight(slot)));
+            }
+            assertEquals(describeIncoming(graph, node), incoming);
+
+            index++;
+        }
+    }
+
+    @Test
+    public void edgeLookupsMatchSourceGraph()
+    {
+        final IGraph graph = graph();
+        final CompiledAnalysisGraph compiledGraph = CompiledAnalysisGraph.compile(graph);
+
+        for (IEdge edge : graph.edgeSet())
+        {
+            final INode source = graph.getEdgeSource(edge);
+            final INode target = graph.getEdgeTarget(edge);
+            assertSame(edge, compiledGraph.getEdge(source, target));
+            assertSame(source, compiledGraph.getEdgeSource(edge));
+            assertSame(target, compiledGraph.getEdgeTarget(edge));
+            assertEquals(graph.getEdgeWeight(edge), compiledGraph.getEdgeWeight(edge), 0d);
+        }
+
+        final INode log = node(graph, "log");
+        final INode stick = node(graph, "stick");
+        assertNull(compiledGraph.getEdge(stick, log));
+        assertEquals(graph.outgoingEdgesOf(log), compiledGraph.outgoingEdgesOf(log));
+        assertEquals(graph.incomingEdgesOf(stick), compiledGraph.incomingEdgesOf(stick));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void indexOfUnknownNodeIsRejected()
+    {
+        CompiledAnalysisGraph.compile(graph()).indexOf(container("unknown"));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void modificationIsRejected()
+    {
+        final IGraph graph = graph();
+        final CompiledAnalysisGraph compiledGraph = CompiledAnalysisGraph.compile(graph);
+        compiledGraph.setEdgeWeight(graph.edgeSet().iterator().next(), 2d);
+    }
+
+    /**
+     * A source, a log which is turned into planks and sticks, and planks which are turned into sticks.
+     */
+    private static IGraph graph()
+    {
+        final IGraph graph = new AequivaleoGraph();
+        final INode source = new SourceNode();
+        final INode log = container("log");
+        final INode plank = container("plank");
+        final INode stick = container("stick");
+        graph.addVertex(source);
+        graph.addVertex(log);
+        graph.addVertex(plank);
+        graph.addVertex(stick);
+
+        addEdge(graph, source, log, 1d);
+        addEdge(graph, log, plank, 4d);
+        addEdge(graph, log, stick, 8d);
+        addEdge(graph, plank, stick, 0.5d);
+        return graph;
+    }
+
+    private static void addEdge(final IGraph graph, final INode source, final INode target, final double weight)
+    {
+        graph.addEdge(source, target);
+        graph.setEdgeWeight(source, target, weight);
+    }
+
+    private static INode container(final String content)
+    {
+        return new ContainerNode(new StringCompoundContainer(content, 1));
+    }
+
+    private static INode node(final IGraph graph, final String content)
+    {
+        return graph.vertexSet().stream().filter(container(content)::equals).findFirst().orElseThrow();
+    }
+
+    private static List<String> describeOutgoing(final IGraph graph, final INode node)
+    {
+        final List<String> result = new ArrayList<>();
+        for (IEdge edge : graph.outgoingEdgesOf(node))
+        {
+            result.add(describe(graph.getEdgeTarget(edge), graph.getEdgeWeight(edge)));
+        }
+        return result;
+    }
+
+    private static List<String> describeIncoming(final IGraph graph, final INode node)
+    {
+        final List<String> result = new ArrayList<>();
+        for (IEdge edge : graph.incomingEdgesOf(node))
+        {
+            result.add(describe(graph.getEdgeSource(edge), graph.getEdgeWeight(edge)));
+        }
+        return result;
+    }
+
+    private static String describe(final INode node, final double weight)
+    {
+        return node + ":" + weight;
+    }
+}
@@ -0,0 +1,146 @@
+package com.ldtteam.aequivaleo.analysis.jgrapht.node;
+
+import com.ldtteam.aequivaleo.Aequivaleo;
+import com.ldtteam.aequivaleo.analysis.jgrapht.aequivaleo.IEdge;
+import com.ldtteam.aequivaleo.analysis.jgrapht.aequivaleo.IGraph;
+import com.ldtteam.aequivaleo.analysis.jgrapht.aequivaleo.INode;
+import com.ldtteam.aequivaleo.analysis.jgrapht.cycles.JGraphTStronglyConnectedComponentsReducer;
+import com.ldtteam.aequivaleo.analysis.jgrapht.graph.AequivaleoGraph;
+import com.ldtteam.aequivaleo.api.compound.CompoundInstance;
+import com.ldtteam.aequivaleo.api.compound.type.ICompoundType;
+import com.ldtteam.aequivaleo.config.CommonConfiguration;
+import com.ldtteam.aequivaleo.config.Configuration;
+import com.ldtteam.aequivaleo.testing.compound.container.testing.StringCompoundContainer;
+import net.minecraftforge.common.ForgeConfigSpec;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.powermock.core.classloader.annotations.PowerMockIgnore;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.core.classloader.annotations.SuppressStaticInitializationFor;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+import static org.powermock.api.mockito.PowerMockito.*;
+
+@RunWith(PowerMockRunner.class)
+@SuppressStaticInitializationFor({"net.minecraft.world.World"})
+@PowerMockIgnore({"jdk.internal.reflect.*", "org.apache.log4j.*", "org.apache.commons.logging.*", "javax.management.*", "org.apache.logging.*"})
+@PrepareForTest({Aequivaleo.class})
+public class InnerNodeTest
+{
+    private static final int COMPONENT_SIZE = 16;
+
+    @Before
+    public void setUp()
+    {
+        mockStatic(Aequivaleo.class);
+        Aequivaleo mod = mock(Aequivaleo.class);
+        when(Aequivaleo.getInstance()).thenReturn(mod);
+
+        Configuration config = mock(Configuration.class);
+        CommonConfiguration commonConfiguration = mock(CommonConfiguration.class);
+        ForgeConfigSpec.BooleanValue alwaysFalseConfig = mock(ForgeConfigSpec.BooleanValue.class);
+        when(alwaysFalseConfig.get()).thenReturn(false);
+        commonConfiguration.debugAnalysisLog = alwaysFalseConfig;
+        when(config.getCommon()).thenReturn(commonConfiguration);
+        when(mod.getConfiguration()).thenReturn(config);
+    }
+
+    @Test(timeout = 10000)
+    public void reduceDenseComponentWithoutInnerCycleReduction()
+    {
+        //A complete graph of this size has far too many simple cycles to ever enumerate them.
+        final IGraph graph = new AequivaleoGraph();
+        final INode prefix = new ContainerNode(new StringCompoundContainer("prefix", 1));
+        final INode appendix = new ContainerNode(new StringCompoundContainer("appendix", 1));
+        graph.addVertex(prefix);
+        graph.addVertex(appendix);
+
+        final List<INode> component = new ArrayList<>();
+        for (int i = 0; i < COMPONENT_SIZE; i++)
+        {
+            final INode node = new ContainerNode(new StringCompoundContainer("component-" + i, 1));
+            graph.addVertex(node);
+            component.add(node);
+        }
+
+        for (INode source : component)
+        {
+            for (INode target : component)
+            {
+                if (source != target)
+                {
+                    graph.addEdge(source, target);
+                    graph.setEdgeWeight(source, target, 1d);
+                }
+            }
+        }
+        graph.addEdge(prefix, component.get(0));
+        graph.addEdge(component.get(COMPONENT_SIZE - 1), appendix);
+
+        final JGraphTStronglyConnectedComponentsReducer<IGraph, INode, IEdge> reducer = new JGraphTStronglyConnectedComponentsReducer<>(
+          (sourceGraph, vertices) -> new InnerNode(sourceGraph, vertices, innerGraph -> {}),
+          INode::onNeighborReplaced);
+
+        reducer.reduce(graph);
+
+        assertEquals(3, graph.vertexSet().size());
+        final INode replacement = graph.vertexSet().stream()
+          .filter(InnerNode.class::isInstance)
+          .findFirst()
+          .orElseThrow();
+        assertEquals(new HashSet<>(component), ((InnerNode) replacement).getInnerNodes());
+        assertNotNull(graph.getEdge(prefix, replacement));
+        assertNotNull(graph.getEdge(replacement, appendix));
+    }
+
+    @Test
+    public void determineResultIgnoresTheIncomingEdgesOfTheStartNode()
+    {
+        final IGraph graph = new AequivaleoGraph();
+        final INode prefix = new ContainerNode(new StringCompoundContainer("prefix", 1));
+        graph.addVertex(prefix);
+
+        final List<INode> cycle = new ArrayList<>();
+        for (int i = 0; i < 3; i++)
+        {
+            final INode node = new ContainerNode(new StringCompoundContainer("cycle-" + i, 1));
+            graph.addVertex(node);
+            cycle.add(node);
+        }
+        for (int i = 0; i < cycle.size(); i++)
+        {
+            graph.addEdge(cycle.get(i), cycle.get((i + 1) % cycle.size()));
+            graph.setEdgeWeight(cycle.get(i), cycle.get((i + 1) % cycle.size()), 1d);
+        }
+        graph.addEdge(prefix, cycle.get(0));
+        graph.setEdgeWeight(prefix, cycle.get(0), 1d);
+
+        final InnerNode innerNode = new InnerNode(graph, cycle, innerGraph -> {});
+        final List<IEdge> ioEdges = new ArrayList<>(innerNode.getIOGraph(graph).edgeSet());
+        final Set<CompoundInstance> value = Set.of(new CompoundInstance(mock(ICompoundType.class), 1d));
+
+        innerNode.addCandidateResult(prefix, graph.getEdge(prefix, cycle.get(0)), Optional.of(value));
+        innerNode.determineResult(graph);
+
+        for (INode node : cycle)
+        {
+            assertEquals(Optional.of(value), node.getResultingValue());
+        }
+        //The edge closing the cycle leads back into the start node, it is hidden while the start node is analyzed.
+        assertEquals(Set.of(prefix), cycle.get(0).getAnalyzedNeighbors());
+        assertEquals(ioEdges, new ArrayList<>(innerNode.getIOGraph(graph).edgeSet()));
+
+        //A second analysis replays the cached orders.
+        innerNode.determineResult(graph);
+
+        for (INode node : cycle)
+        {
+            assertEquals(Optional.of(value), node.getResultingValue());
+        }
+        assertEquals(ioEdges, new ArrayList<>(innerNode.getIOGraph(graph).edgeSet()));
+    }
+}
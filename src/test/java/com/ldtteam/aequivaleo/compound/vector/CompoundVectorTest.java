@@ -0,0 +1,106 @@
+package com.ldtteam.aequivaleo.compound.vector;
+
+import com.ldtteam.aequivaleo.api.compound.CompoundInstance;
+import com.ldtteam.aequivaleo.api.compound.type.ICompoundType;
+import com.ldtteam.aequivaleo.api.util.ModRegistries;
+import com.ldtteam.aequivaleo.testing.TestRegistries;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.powermock.core.classloader.annotations.PowerMockIgnore;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.when;
+
+@RunWith(PowerMockRunner.class)
+@PowerMockIgnore({"jdk.internal.reflect.*", "org.apache.log4j.*", "org.apache.commons.logging.*", "javax.management.*", "org.apache.logging.*"})
+public class CompoundVectorTest
+{
+    ICompoundType first;
+    ICompoundType lastDense;
+    ICompoundType beyondDense;
+
+    @Before
+    public void setUp()
+    {
+        final List<ICompoundType> types = TestRegistries.setUp("first", "last_dense", "beyond_dense");
+        first = types.get(0);
+        lastDense = types.get(1);
+        beyondDense = types.get(2);
+
+        synchronizationId(lastDense, CompoundVector.MAX_DENSE_INDEX - 1);
+        synchronizationId(beyondDense, CompoundVector.MAX_DENSE_INDEX);
+        CompoundTypeIndex.invalidate();
+    }
+
+    @Test
+    public void lastDenseIndexUsesItsSynchronizationId()
+    {
+        assertEquals(CompoundVector.MAX_DENSE_INDEX - 1, CompoundTypeIndex.indexOf(lastDense));
+
+        final CompoundVector vector = new CompoundVector();
+        vector.add(first, 1d);
+        vector.add(lastDense, 2d);
+        vector.add(lastDense, 0.5d);
+
+        assertEquals(2, vector.size());
+        assertTrue(vector.contains(lastDense));
+        assertFalse(vector.contains(beyondDense));
+        assertEquals(Set.of(new CompoundInstance(first, 1d), new CompoundInstance(lastDense, 2.5d)), vector.toInstances());
+    }
+
+    @Test
+    public void typeAtMaxDenseIndexSwitchesToSparseAndKeepsAmounts()
+    {
+        assertTrue(CompoundTypeIndex.indexOf(beyondDense) >= CompoundVector.MAX_DENSE_INDEX);
+
+        final CompoundVector vector = new CompoundVector();
+        vector.add(first, 1d);
+        vector.add(lastDense, 2d);
+        vector.subtractIfPresent(beyondDense, 1d);
+        assertFalse(vector.contains(beyondDense));
+
+        vector.add(beyondDense, 3d);
+        vector.add(first, 1d);
+        vector.subtractIfPresent(lastDense, 0.5d);
+        vector.subtractIfPresent(beyondDense, 4d);
+
+        assertEquals(3, vector.size());
+        assertEquals(
+          Set.of(new CompoundInstance(first, 2d), new CompoundInstance(lastDense, 1.5d), new CompoundInstance(beyondDense, 0d)),
+          vector.toInstances());
+    }
+
+    @Test
+    public void invalidateDropsAssignedSlots()
+    {
+        assertEquals(1, CompoundTypeIndex.indexOf(first));
+
+        //Slots are kept until the registry changes, a new synchronization id only takes effect after invalidating.
+        synchronizationId(first, 7);
+        assertEquals(1, CompoundTypeIndex.indexOf(first));
+
+        CompoundTypeIndex.invalidate();
+        assertEquals(7, CompoundTypeIndex.indexOf(first));
+    }
+
+    @Test
+    public void invalidateResetsFallbackSlots()
+    {
+        final int fallbackIndex = CompoundTypeIndex.indexOf(beyondDense);
+        assertEquals(CompoundVector.MAX_DENSE_INDEX, fallbackIndex);
+
+        CompoundTypeIndex.invalidate();
+        synchronizationId(first, CompoundVector.MAX_DENSE_INDEX + 1);
+        assertEquals(fallbackIndex, CompoundTypeIndex.indexOf(first));
+        assertEquals(fallbackIndex + 1, CompoundTypeIndex.indexOf(beyondDense));
+    }
+
+    private static void synchronizationId(final ICompoundType type, final int id)
+    {
+        when(ModRegistries.COMPOUND_TYPE.get().getSynchronizationIdOf(type)).thenReturn(id);
+    }
+}
@@ -0,0 +1,176 @@
+package com.ldtteam.aequivaleo.network.splitting;
+
+import com.ldtteam.aequivaleo.network.messages.IMessage;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+
+public class PacedMessageQueueTest
+{
+    private final UUID first  = UUID.randomUUID();
+    private final UUID second = UUID.randomUUID();
+
+    private final Set<String>  disconnected = new HashSet<>();
+    private final Set<String>  blocked      = new HashSet<>();
+    private final List<String> sent         = new ArrayList<>();
+    private final Map<IMessage, String> names = new HashMap<>();
+
+    private PacedMessageQueue<String> queue;
+
+    @Before
+    public void setUp()
+    {
+        queue = new PacedMessageQueue<>(new PacedMessageQueue.ITransport<>()
+        {
+            @Override
+            public boolean isConnected(final String recipient)
+            {
+                return !disconnected.contains(recipient);
+            }
+
+            @Override
+            public boolean isWritable(final String recipient)
+            {
+                return !blocked.contains(recipient);
+            }
+
+            @Override
+            public void send(final String recipient, final IMessage message)
+            {
+                sent.add(recipient + ":" + names.get(message));
+            }
+        });
+    }
+
+    private IMessage message(final String name)
+    {
+        final IMessage message = mock(IMessage.class);
+        names.put(message, name);
+        return message;
+    }
+
+    @Test
+    public void sendStopsAtTheByteBudget()
+    {
+        queue.enqueue(first, "a", message("1"), null, 40);
+        queue.enqueue(first, "a", message("2"), null, 40);
+        queue.enqueue(first, "a", message("3"), null, 40);
+
+        queue.send(100);
+        assertEquals(List.of("a:1", "a:2"), sent);
+
+        queue.send(100);
+        assertEquals(List.of("a:1", "a:2", "a:3"), sent);
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void sendMakesProgressWithMessagesLargerThanTheBudget()
+    {
+        queue.enqueue(first, "a", message("1"), null, 500);
+        queue.enqueue(first, "a", message("2"), null, 500);
+
+        queue.send(100);
+        assertEquals(List.of("a:1"), sent);
+    }
+
+    @Test
+    public void sendServesRecipientsRoundRobin()
+    {
+        queue.enqueue(first, "a", message("1"), null, 10);
+        queue.enqueue(first, "a", message("2"), null, 10);
+        queue.enqueue(second, "b", message("1"), null, 10);
+        queue.enqueue(second, "b", message("2"), null, 10);
+
+        queue.send(1000);
+        assertEquals(List.of("a:1", "b:1", "a:2", "b:2"), sent);
+    }
+
+    @Test
+    public void sendContinuesWithTheRecipientCutOffByTheBudget()
+    {
+        queue.enqueue(first, "a", message("1"), null, 10);
+        queue.enqueue(first, "a", message("2"), null, 10);
+        queue.enqueue(second, "b", message("1"), null, 10);
+        queue.enqueue(second, "b", message("2"), null, 10);
+
+        queue.send(10);
+        assertEquals(List.of("a:1"), sent);
+
+        queue.send(10);
+        assertEquals(List.of("a:1", "b:1"), sent);
+
+        queue.send(10);
+        assertEquals(List.of("a:1", "b:1", "a:2"), sent);
+    }
+
+    @Test
+    public void sendSkipsRecipientsWhichAreNotWritable()
+    {
+        blocked.add("a");
+        queue.enqueue(first, "a", message("1"), null, 10);
+        queue.enqueue(second, "b", message("1"), null, 10);
+        queue.enqueue(second, "b", message("2"), null, 10);
+
+        queue.send(1000);
+        assertEquals(List.of("b:1", "b:2"), sent);
+        assertFalse(queue.isEmpty());
+
+        blocked.clear();
+        queue.send(1000);
+        assertEquals(List.of("b:1", "b:2", "a:1"), sent);
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void sendReleasesTheSharedDataOfSentMessages()
+    {
+        final ByteBuf shared = Unpooled.buffer();
+        queue.enqueue(first, "a", message("1"), shared.retain(), 10);
+        queue.enqueue(second, "b", message("1"), shared.retain(), 10);
+        shared.release();
+
+        queue.send(1000);
+        assertEquals(0, shared.refCnt());
+    }
+
+    @Test
+    public void cancelReleasesTheSharedDataOfQueuedMessages()
+    {
+        final ByteBuf shared = Unpooled.buffer();
+        queue.enqueue(first, "a", message("1"), shared.retain(), 10);
+        queue.enqueue(first, "a", message("2"), shared.retain(), 10);
+        queue.enqueue(second, "b", message("1"), shared.retain(), 10);
+        shared.release();
+
+        queue.cancel(first);
+        assertEquals(1, shared.refCnt());
+
+        queue.send(1000);
+        assertEquals(List.of("b:1"), sent);
+        assertEquals(0, shared.refCnt());
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void sendDropsAndReleasesTheMessagesOfDisconnectedRecipients()
+    {
+        final ByteBuf shared = Unpooled.buffer();
+        queue.enqueue(first, "a", message("1"), shared.retain(), 10);
+        queue.enqueue(first, "a", message("2"), shared.retain(), 10);
+        shared.release();
+
+        disconnected.add("a");
+        queue.send(1000);
+
+        assertTrue(sent.isEmpty());
+        assertEquals(0, shared.refCnt());
+        assertTrue(queue.isEmpty());
+    }
+}
@@ -0,0 +1,156 @@
+package com.ldtteam.aequivaleo.results;
+
+import com.ldtteam.aequivaleo.api.IAequivaleoAPI;
+import com.ldtteam.aequivaleo.api.compound.CompoundInstance;
+import com.ldtteam.aequivaleo.api.compound.container.ICompoundContainer;
+import com.ldtteam.aequivaleo.api.compound.type.ICompoundType;
+import com.ldtteam.aequivaleo.api.compound.type.group.ICompoundTypeGroup;
+import com.ldtteam.aequivaleo.api.util.Constants;
+import com.ldtteam.aequivaleo.api.util.StreamUtils;
+import com.ldtteam.aequivaleo.testing.TestRegistries;
+import com.ldtteam.aequivaleo.testing.compound.container.testing.StringCompoundContainer;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.world.level.Level;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.powermock.core.classloader.annotations.PowerMockIgnore;
+import org.powermock.core.classloader.annotations.SuppressStaticInitializationFor;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anySet;
+import static org.powermock.api.mockito.PowerMockito.mock;
+import static org.powermock.api.mockito.PowerMockito.when;
+
+@RunWith(PowerMockRunner.class)
+@SuppressStaticInitializationFor({"net.minecraft.world.level.Level"})
+@PowerMockIgnore({"jdk.internal.reflect.*", "org.apache.log4j.*", "org.apache.commons.logging.*", "javax.management.*", "org.apache.logging.*"})
+public class EquivalencyResultsTest
+{
+    private static int worldCounter = 0;
+
+    ICompoundType typeA;
+    ICompoundType typeB;
+
+    Map<ICompoundContainer<?>, Set<CompoundInstance>> base;
+    Map<ICompoundContainer<?>, Set<CompoundInstance>> current;
+
+    @Before
+    public void setUp()
+    {
+        StreamUtils.setup(mock(IAequivaleoAPI.class));
+
+        final List<ICompoundType> types = TestRegistries.setUp("a", "b");
+        typeA = types.get(0);
+        typeB = types.get(1);
+
+        base = new HashMap<>();
+        base.put(new StringCompoundContainer("log", 1), Set.of(new CompoundInstance(typeA, 1d), new CompoundInstance(typeB, 2d)));
+        base.put(new StringCompoundContainer("plank", 1), Set.of(new CompoundInstance(typeA, 0.25d)));
+        base.put(new StringCompoundContainer("stick", 1), Set.of(new CompoundInstance(typeA, 0.5d)));
+
+        //The amounts of the log are swapped between its types, the stick is removed and a fence is added.
+        current = new HashMap<>();
+        current.put(new StringCompoundContainer("log", 1), Set.of(new CompoundInstance(typeA, 2d), new CompoundInstance(typeB, 1d)));
+        current.put(new StringCompoundContainer("plank", 1), Set.of(new CompoundInstance(typeA, 0.25d)));
+        current.put(new StringCompoundContainer("fence", 1), Set.of(new CompoundInstance(typeA, 3d)));
+    }
+
+    @Test
+    public void changesContainOnlyChangedAndRemovedEntries()
+    {
+        final Map<ICompoundContainer<?>, Set<CompoundInstance>> changes = toMap(EquivalencyResults.changesBetween(base, current));
+
+        assertEquals(Set.of(new StringCompoundContainer("log", 1), new StringCompoundContainer("fence", 1), new StringCompoundContainer("stick", 1)), changes.keySet());
+        assertEquals(current.get(new StringCompoundContainer("log", 1)), changes.get(new StringCompoundContainer("log", 1)));
+        assertTrue(changes.get(new StringCompoundContainer("stick", 1)).isEmpty());
+    }
+
+    @Test
+    public void applyingChangesReproducesCurrentResults()
+    {
+        final EquivalencyResults results = EquivalencyResults.getInstance(world());
+        assertEquals(EquivalencyResults.ApplyResult.APPLIED, results.apply(EquivalencyResults.NO_GENERATION, 1, ResultsFingerprint.of(base), new ArrayList<>(base.entrySet())));
+        assertEquals(base, results.getRawData());
+
+        assertEquals(EquivalencyResults.ApplyResult.APPLIED, results.apply(1, 2, ResultsFingerprint.of(current), EquivalencyResults.changesBetween(base, current)));
+        assertEquals(current, results.getRawData());
+        assertEquals(2, results.getGeneration());
+        assertEquals(ResultsFingerprint.of(current), results.getFingerprint());
+    }
+
+    @Test
+    public void changesWhichDoNotMatchTheFingerprintAreRejected()
+    {
+        final EquivalencyResults results = EquivalencyResults.getInstance(world());
+        results.apply(EquivalencyResults.NO_GENERATION, 1, ResultsFingerprint.of(base), new ArrayList<>(base.entrySet()));
+
+        final List<Map.Entry<ICompoundContainer<?>, Set<CompoundInstance>>> incompleteChanges = EquivalencyResults.changesBetween(base, current);
+        incompleteChanges.removeIf(change -> change.getKey().equals(new StringCompoundContainer("log", 1)));
+
+        assertEquals(EquivalencyResults.ApplyResult.FINGERPRINT_MISMATCH, results.apply(1, 2, ResultsFingerprint.of(current), incompleteChanges));
+        assertEquals(base, results.getRawData());
+        assertEquals(1, results.getGeneration());
+    }
+
+    @Test
+    public void changesAgainstAnotherGenerationAreRejected()
+    {
+        final EquivalencyResults results = EquivalencyResults.getInstance(world());
+        results.apply(EquivalencyResults.NO_GENERATION, 1, ResultsFingerprint.of(base), new ArrayList<>(base.entrySet()));
+
+        assertEquals(EquivalencyResults.ApplyResult.BASE_MISMATCH, results.apply(3, 4, ResultsFingerprint.of(current), EquivalencyResults.changesBetween(base, current)));
+        assertEquals(base, results.getRawData());
+        assertEquals(1, results.getGeneration());
+    }
+
+    @Test
+    public void lookupsReflectOnlyThePublishedResults()
+    {
+        final ICompoundTypeGroup group = typeA.getGroup();
+        when(group.mapEntry(any(ICompoundContainer.class), anySet())).thenAnswer(invocation -> {
+            final Set<CompoundInstance> instances = invocation.getArgument(1);
+            return Optional.of(instances.stream().mapToDouble(CompoundInstance::getAmount).sum());
+        });
+
+        final EquivalencyResults results = EquivalencyResults.getInstance(world());
+        results.set(base);
+        final Map<ICompoundContainer<?>, Set<CompoundInstance>> baseDataOfGroup = results.getAllDataOf(group);
+
+        assertEquals(base.get(new StringCompoundContainer("stick", 1)), results.dataFor(new StringCompoundContainer("stick", 1)));
+        assertEquals(Optional.of(1d), results.mappedDataFor(group, new StringCompoundContainer("log", 1)));
+
+        assertEquals(EquivalencyResults.ApplyResult.APPLIED, results.apply(results.getGeneration(), results.getGeneration() + 1, ResultsFingerprint.of(current), EquivalencyResults.changesBetween(base, current)));
+
+        assertEquals(current.get(new StringCompoundContainer("log", 1)), results.dataFor(new StringCompoundContainer("log", 1)));
+        assertEquals(Optional.of(2d), results.mappedDataFor(group, new StringCompoundContainer("log", 1)));
+        assertTrue(results.dataFor(new StringCompoundContainer("stick", 1)).isEmpty());
+        assertEquals(Optional.empty(), results.mappedDataFor(group, new StringCompoundContainer("stick", 1)));
+        assertEquals(current.keySet(), results.getAllDataOf(group).keySet());
+        assertEquals(Map.of(new StringCompoundContainer("log", 1), 2d, new StringCompoundContainer("plank", 1), 0.25d, new StringCompoundContainer("fence", 1), 3d), results.getAllMappedDataOf(group));
+
+        //Views handed out before the change keep showing the results they were taken from.
+        assertEquals(base.keySet(), baseDataOfGroup.keySet());
+        assertEquals(Set.of(new CompoundInstance(typeA, 1d)), baseDataOfGroup.get(new StringCompoundContainer("log", 1)));
+    }
+
+    private static ResourceKey<Level> world()
+    {
+        @SuppressWarnings("unchecked")
+        final ResourceKey<Level> key = mock(ResourceKey.class);
+        when(key.location()).thenReturn(new ResourceLocation(Constants.MOD_ID, "equivalency_results_" + worldCounter++));
+        return key;
+    }
+
+    private static Map<ICompoundContainer<?>, Set<CompoundInstance>> toMap(final List<Map.Entry<ICompoundContainer<?>, Set<CompoundInstance>>> entries)
+    {
+        final Map<ICompoundContainer<?>, Set<CompoundInstance>> result = new HashMap<>();
+        entries.forEach(entry -> result.put(entry.getKey(), entry.getValue()));
+        return result;
+    }
+}
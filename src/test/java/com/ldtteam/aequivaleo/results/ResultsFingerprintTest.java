@@ -0,0 +1,71 @@
+package com.ldtteam.aequivaleo.results;
+
+import com.ldtteam.aequivaleo.api.compound.CompoundInstance;
+import com.ldtteam.aequivaleo.api.compound.container.ICompoundContainer;
+import com.ldtteam.aequivaleo.api.compound.type.ICompoundType;
+import com.ldtteam.aequivaleo.testing.TestRegistries;
+import com.ldtteam.aequivaleo.testing.compound.container.testing.StringCompoundContainer;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.powermock.core.classloader.annotations.PowerMockIgnore;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+@RunWith(PowerMockRunner.class)
+@PowerMockIgnore({"jdk.internal.reflect.*", "org.apache.log4j.*", "org.apache.commons.logging.*", "javax.management.*", "org.apache.logging.*"})
+public class ResultsFingerprintTest
+{
+    ICompoundType typeA;
+    ICompoundType typeB;
+
+    @Before
+    public void setUp()
+    {
+        final List<ICompoundType> types = TestRegistries.setUp("a", "b");
+        typeA = types.get(0);
+        typeB = types.get(1);
+    }
+
+    @Test
+    public void fingerprintIsIndependentOfIterationOrder()
+    {
+        final Map<ICompoundContainer<?>, Set<CompoundInstance>> forward = new LinkedHashMap<>();
+        forward.put(new StringCompoundContainer("log", 1), new LinkedHashSet<>(List.of(new CompoundInstance(typeA, 1d), new CompoundInstance(typeB, 2d))));
+        forward.put(new StringCompoundContainer("plank", 1), new LinkedHashSet<>(List.of(new CompoundInstance(typeA, 0.25d))));
+
+        final Map<ICompoundContainer<?>, Set<CompoundInstance>> reverse = new LinkedHashMap<>();
+        reverse.put(new StringCompoundContainer("plank", 1), new LinkedHashSet<>(List.of(new CompoundInstance(typeA, 0.25d))));
+        reverse.put(new StringCompoundContainer("log", 1), new LinkedHashSet<>(List.of(new CompoundInstance(typeB, 2d), new CompoundInstance(typeA, 1d))));
+
+        assertEquals(ResultsFingerprint.of(forward), ResultsFingerprint.of(reverse));
+    }
+
+    @Test
+    public void fingerprintChangesWithASingleAmount()
+    {
+        final Map<ICompoundContainer<?>, Set<CompoundInstance>> original = new HashMap<>();
+        original.put(new StringCompoundContainer("log", 1), Set.of(new CompoundInstance(typeA, 1d), new CompoundInstance(typeB, 2d)));
+        original.put(new StringCompoundContainer("plank", 1), Set.of(new CompoundInstance(typeA, 0.25d)));
+
+        final Map<ICompoundContainer<?>, Set<CompoundInstance>> changed = new HashMap<>(original);
+        changed.put(new StringCompoundContainer("plank", 1), Set.of(new CompoundInstance(typeA, 0.5d)));
+
+        assertNotEquals(ResultsFingerprint.of(original), ResultsFingerprint.of(changed));
+    }
+
+    @Test
+    public void fingerprintChangesWhenAmountsMoveBetweenTypes()
+    {
+        final Map<ICompoundContainer<?>, Set<CompoundInstance>> original = Map.of(
+          new StringCompoundContainer("log", 1), Set.of(new CompoundInstance(typeA, 1d), new CompoundInstance(typeB, 2d)));
+        final Map<ICompoundContainer<?>, Set<CompoundInstance>> swapped = Map.of(
+          new StringCompoundContainer("log", 1), Set.of(new CompoundInstance(typeA, 2d), new CompoundInstance(typeB, 1d)));
+
+        assertNotEquals(ResultsFingerprint.of(original), ResultsFingerprint.of(swapped));
+    }
+}
@@ -0,0 +1,177 @@
+package com.ldtteam.aequivaleo.results;
+
+import com.google.common.collect.HashBasedTable;
+import com.google.common.collect.Table;
+import com.ldtteam.aequivaleo.api.compound.CompoundInstance;
+import com.ldtteam.aequivaleo.api.compound.container.ICompoundContainer;
+import com.ldtteam.aequivaleo.api.compound.type.ICompoundType;
+import com.ldtteam.aequivaleo.api.compound.type.group.ICompoundTypeGroup;
+import com.ldtteam.aequivaleo.api.util.RegistryUtils;
+import com.ldtteam.aequivaleo.testing.TestRegistries;
+import com.ldtteam.aequivaleo.testing.compound.container.testing.StringCompoundContainer;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.world.item.Item;
+import net.minecraft.world.item.ItemStack;
+import org.jetbrains.annotations.Nullable;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.powermock.core.classloader.annotations.PowerMockIgnore;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.core.classloader.annotations.SuppressStaticInitializationFor;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.powermock.api.mockito.PowerMockito.*;
+
+@RunWith(PowerMockRunner.class)
+@SuppressStaticInitializationFor({"net.minecraftforge.registries.ForgeRegistries", "net.minecraft.world.item.Item", "net.minecraft.world.item.ItemStack"})
+@PowerMockIgnore({"jdk.internal.reflect.*", "org.apache.log4j.*", "org.apache.commons.logging.*", "javax.management.*", "org.apache.logging.*"})
+@PrepareForTest({RegistryUtils.class, ItemStack.class})
+public class ResultsIndexTest
+{
+    ICompoundType      type;
+    ICompoundTypeGroup group;
+
+    Item stone;
+    Item dirt;
+
+    final Map<ICompoundContainer<?>, Set<CompoundInstance>>             rawData       = new HashMap<>();
+    final Table<ICompoundContainer<?>, ICompoundTypeGroup, Object> processedData = HashBasedTable.create();
+
+    @Before
+    public void setUp()
+    {
+        type = TestRegistries.setUp("a").get(0);
+        group = type.getGroup();
+
+        mockStatic(RegistryUtils.class);
+        stone = item(1);
+        dirt = item(2);
+
+        add(stone, 1d);
+        add(stack(stone, null), 2d);
+        add(stack(stone, tag("a")), 3d);
+        add(stack(stone, tag("b")), 4d);
+        add(new StringCompoundContainer("log", 1), 5d);
+    }
+
+    @Test
+    public void itemsAndStacksAreFound()
+    {
+        final ResultsIndex index = ResultsIndex.build(rawData, processedData);
+
+        assertData(index, stone, 1d);
+        assertData(index, stack(stone, null), 2d);
+        //Stacks with an empty tag are the same as stacks without one.
+        assertData(index, stack(stone, new CompoundTag()), 2d);
+        assertData(index, stack(stone, tag("a")), 3d);
+        assertData(index, stack(stone, tag("b")), 4d);
+    }
+
+    @Test
+    public void missingAndUncoveredObjectsAreNotFound()
+    {
+        final ResultsIndex index = ResultsIndex.build(rawData, processedData);
+
+        assertEquals(ResultsIndex.NOT_FOUND, index.find(dirt));
+        assertEquals(ResultsIndex.NOT_FOUND, index.find(stack(dirt, null)));
+        assertEquals(ResultsIndex.NOT_FOUND, index.find(stack(stone, tag("c"))));
+        assertEquals(ResultsIndex.UNSUPPORTED, index.find("log"));
+
+        final ItemStack emptyStack = stack(stone, null);
+        when(emptyStack.isEmpty()).thenReturn(true);
+        assertEquals(ResultsIndex.UNSUPPORTED, index.find(emptyStack));
+        assertEquals(ResultsIndex.NOT_FOUND, ResultsIndex.EMPTY.find(stone));
+    }
+
+    @Test
+    public void indexMatchesContainerPath()
+    {
+        //Enough entries for the probe sequences of the table to run into each other.
+        for (int i = 0; i < 200; i++)
+        {
+            final Item item = item(100 + i);
+            add(item, i);
+            add(stack(item, tag("nbt_" + i)), i + 0.5d);
+        }
+
+        final ResultsIndex index = ResultsIndex.build(rawData, processedData);
+        rawData.forEach((container, instances) -> {
+            final int entry = index.find(copyOf(container.getContents()));
+            if (container instanceof StringCompoundContainer)
+            {
+                assertEquals(ResultsIndex.UNSUPPORTED, entry);
+                return;
+            }
+
+            assertTrue("Not found: " + container, entry >= 0);
+            assertEquals(instances, index.getData(entry));
+            assertEquals(processedData.get(container, group), index.getMappedData(entry, group));
+        });
+    }
+
+    private void assertData(final ResultsIndex index, final Object object, final double amount)
+    {
+        final int entry = index.find(object);
+        assertTrue(entry >= 0);
+        assertEquals(Set.of(new CompoundInstance(type, amount)), index.getData(entry));
+        assertEquals(amount, index.getMappedData(entry, group));
+    }
+
+    private void add(final Object contents, final double amount)
+    {
+        final ICompoundContainer<?> container = contents instanceof ICompoundContainer<?> existing ? existing : container(contents);
+        rawData.put(container, Set.of(new CompoundInstance(type, amount)));
+        processedData.put(container, group, amount);
+    }
+
+    /**
+     * A different, but equal, instance of the given object, so that lookups can not succeed by identity.
+     */
+    private static Object copyOf(final Object object)
+    {
+        if (object instanceof final ItemStack stack)
+        {
+            return stack(stack.getItem(), stack.getTag() == null ? null : stack.getTag().copy());
+        }
+        return object;
+    }
+
+    private static Item item(final int id)
+    {
+        final Item item = mock(Item.class);
+        when(RegistryUtils.getId(any(), eq(item))).thenReturn(id);
+        return item;
+    }
+
+    private static ItemStack stack(final Item item, @Nullable final CompoundTag tag)
+    {
+        final ItemStack stack = mock(ItemStack.class);
+        when(stack.isEmpty()).thenReturn(false);
+        when(stack.getItem()).thenReturn(item);
+        when(stack.getTag()).thenReturn(tag);
+        return stack;
+    }
+
+    private static CompoundTag tag(final String value)
+    {
+        final CompoundTag tag = new CompoundTag();
+        tag.putString("value", value);
+        return tag;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ICompoundContainer<?> container(final Object contents)
+    {
+        final ICompoundContainer<Object> container = mock(ICompoundContainer.class);
+        when(container.getContents()).thenReturn(contents);
+        when(container.getContentsCount()).thenReturn(1d);
+        when(container.toString()).thenReturn("Container:" + contents);
+        return container;
+    }
+}
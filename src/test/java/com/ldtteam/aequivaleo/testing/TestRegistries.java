@@ -0,0 +1,90 @@
+package com.ldtteam.aequivaleo.testing;
+
+import com.google.common.collect.ImmutableList;
+import com.ldtteam.aequivaleo.api.compound.container.factory.ICompoundContainerFactory;
+import com.ldtteam.aequivaleo.api.compound.type.ICompoundType;
+import com.ldtteam.aequivaleo.api.compound.type.group.ICompoundTypeGroup;
+import com.ldtteam.aequivaleo.api.registry.ISyncedRegistry;
+import com.ldtteam.aequivaleo.api.util.Constants;
+import com.ldtteam.aequivaleo.api.util.ModRegistries;
+import com.ldtteam.aequivaleo.compound.container.registry.CompoundContainerFactoryManager;
+import com.ldtteam.aequivaleo.compound.vector.CompoundTypeIndex;
+import com.ldtteam.aequivaleo.testing.compound.container.testing.StringCompoundContainer;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraftforge.registries.ForgeRegistry;
+import org.mockito.stubbing.Answer;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Sets up the container factory and compound type registries for tests which serialize containers and compound instances.
+ * <p>
+ * Only the {@link StringCompoundContainer} factory is registered. The compound types are mocks which only know their
+ * registry name, group and synchronization id. Tests which read compound instances through the backing forge registry
+ * of the types need to mock {@link com.ldtteam.aequivaleo.api.util.RegistryUtils#getFull} to return {@link #getTypeForgeRegistry()}.
+ */
+public final class TestRegistries
+{
+    private static ForgeRegistry<ICompoundType> typeForgeRegistry;
+
+    private TestRegistries()
+    {
+        throw new IllegalStateException("Can not instantiate an instance of: TestRegistries. This is a utility class");
+    }
+
+    /**
+     * Registers the string container factory, and creates the compound types with the given names.
+     *
+     * @param typeNames The paths of the registry names of the types.
+     * @return The types, their synchronization id is their index plus one.
+     */
+    @SuppressWarnings("unchecked")
+    public static List<ICompoundType> setUp(final String... typeNames)
+    {
+        final ICompoundContainerFactory<?> stringFactory = new StringCompoundContainer.Factory();
+        final List<ICompoundContainerFactory<?>> containerFactories = ImmutableList.of(stringFactory);
+        final ForgeRegistry<ICompoundContainerFactory<?>> factoryRegistry = mock(ForgeRegistry.class);
+        when(factoryRegistry.getID(stringFactory)).thenReturn(1);
+        when(factoryRegistry.getValue(1)).thenReturn(stringFactory);
+        when(factoryRegistry.getKey(stringFactory)).thenReturn(new ResourceLocation(Constants.MOD_ID, "string"));
+        when(factoryRegistry.iterator()).thenAnswer((Answer<Iterator<ICompoundContainerFactory<?>>>) invocation -> containerFactories.iterator());
+        ModRegistries.CONTAINER_FACTORY = () -> factoryRegistry;
+        CompoundContainerFactoryManager.getInstance().bake();
+
+        final List<ICompoundType> types = new ArrayList<>();
+        typeForgeRegistry = mock(ForgeRegistry.class);
+        final ISyncedRegistry<ICompoundType> typeRegistry = mock(ISyncedRegistry.class);
+        for (int i = 0; i < typeNames.length; i++)
+        {
+            final ICompoundType type = mock(ICompoundType.class);
+            final ICompoundTypeGroup group = mock(ICompoundTypeGroup.class);
+            final ResourceLocation name = new ResourceLocation(Constants.MOD_ID, typeNames[i]);
+            when(type.getGroup()).thenReturn(group);
+            when(type.getRegistryName()).thenReturn(name);
+            when(type.toString()).thenReturn("Type:" + typeNames[i]);
+            when(group.isValidFor(any(), any())).thenReturn(true);
+
+            when(typeRegistry.getSynchronizationIdOf(type)).thenReturn(i + 1);
+            when(typeRegistry.get(i + 1)).thenReturn(type);
+            when(typeRegistry.getRegistryNameOf(type)).thenReturn(name);
+            when(typeForgeRegistry.getValue(i + 1)).thenReturn(type);
+            types.add(type);
+        }
+        when(typeRegistry.iterator()).thenAnswer((Answer<Iterator<ICompoundType>>) invocation -> types.iterator());
+        ModRegistries.COMPOUND_TYPE = () -> typeRegistry;
+        CompoundTypeIndex.invalidate();
+
+        return types;
+    }
+
+    public static ForgeRegistry<ICompoundType> getTypeForgeRegistry()
+    {
+        return typeForgeRegistry;
+    }
+}
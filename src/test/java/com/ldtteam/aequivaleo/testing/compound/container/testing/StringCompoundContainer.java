@@ -104,12 +104,13 @@ public class StringCompoundContainer implements ICompoundContainer<String>
 
         @Override
         public void write(ICompoundContainer<String> object, FriendlyByteBuf buffer) {
-
+            buffer.writeUtf(object.getContents());
+            buffer.writeDouble(object.getContentsCount());
         }
 
         @Override
         public ICompoundContainer<String> read(FriendlyByteBuf buffer) {
-            return null;
+            return new StringCompoundContainer(buffer.readUtf(), buffer.readDouble());
         }
     }
 }
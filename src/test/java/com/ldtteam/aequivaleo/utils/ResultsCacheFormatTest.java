@@ -0,0 +1,116 @@
+package com.ldtteam.aequivaleo.utils;
+
+import com.ldtteam.aequivaleo.api.IAequivaleoAPI;
+import com.ldtteam.aequivaleo.api.compound.CompoundInstance;
+import com.ldtteam.aequivaleo.api.compound.container.ICompoundContainer;
+import com.ldtteam.aequivaleo.api.compound.type.ICompoundType;
+import com.ldtteam.aequivaleo.api.util.RegistryUtils;
+import com.ldtteam.aequivaleo.api.util.StreamUtils;
+import com.ldtteam.aequivaleo.testing.TestRegistries;
+import com.ldtteam.aequivaleo.testing.compound.container.testing.StringCompoundContainer;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.powermock.core.classloader.annotations.PowerMockIgnore;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.powermock.api.mockito.PowerMockito.*;
+
+@RunWith(PowerMockRunner.class)
+@PowerMockIgnore({"jdk.internal.reflect.*", "org.apache.log4j.*", "org.apache.commons.logging.*", "javax.management.*", "org.apache.logging.*"})
+@PrepareForTest({RegistryUtils.class})
+public class ResultsCacheFormatTest
+{
+    private static final ResultsCacheFormat.Environment ENVIRONMENT = new ResultsCacheFormat.Environment(1L, 2L);
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    ICompoundType typeA;
+    ICompoundType typeB;
+
+    @Before
+    public void setUp()
+    {
+        StreamUtils.setup(mock(IAequivaleoAPI.class));
+
+        final List<ICompoundType> types = TestRegistries.setUp("a", "b");
+        typeA = types.get(0);
+        typeB = types.get(1);
+
+        mockStatic(RegistryUtils.class);
+        when(RegistryUtils.getFull(any())).thenReturn(TestRegistries.getTypeForgeRegistry());
+    }
+
+    @Test
+    public void roundTripOverSeveralBlocks() throws IOException
+    {
+        //Large enough to be split over more than one block.
+        final Map<ICompoundContainer<?>, Set<CompoundInstance>> data = data(40000);
+        final Path cacheFile = write(data);
+
+        final List<Map.Entry<ICompoundContainer<?>, Set<CompoundInstance>>> entries = ResultsCacheFormat.read(ByteBuffer.wrap(Files.readAllBytes(cacheFile)), ENVIRONMENT::equals);
+        assertNotNull(entries);
+
+        final Map<ICompoundContainer<?>, Set<CompoundInstance>> readData = new HashMap<>();
+        entries.forEach(entry -> readData.put(entry.getKey(), entry.getValue()));
+        assertEquals(data.size(), entries.size());
+        assertEquals(data, readData);
+    }
+
+    @Test
+    public void otherEnvironmentIsNotRead() throws IOException
+    {
+        final Path cacheFile = write(data(10));
+
+        assertNull(ResultsCacheFormat.read(ByteBuffer.wrap(Files.readAllBytes(cacheFile)), environment -> false));
+        assertNull(ResultsCacheFormat.read(ByteBuffer.wrap(Files.readAllBytes(cacheFile)), new ResultsCacheFormat.Environment(3L, 2L)::hasSameTypes));
+        assertNotNull(ResultsCacheFormat.read(ByteBuffer.wrap(Files.readAllBytes(cacheFile)), new ResultsCacheFormat.Environment(1L, 3L)::hasSameTypes));
+    }
+
+    @Test
+    public void truncatedFileIsNotRead() throws IOException
+    {
+        final byte[] contents = Files.readAllBytes(write(data(1000)));
+
+        assertNull(ResultsCacheFormat.read(ByteBuffer.wrap(Arrays.copyOf(contents, contents.length - 1)), ENVIRONMENT::equals));
+        assertNull(ResultsCacheFormat.read(ByteBuffer.wrap(Arrays.copyOf(contents, contents.length / 2)), ENVIRONMENT::equals));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void corruptBlockFailsTheChecksum() throws IOException
+    {
+        final byte[] contents = Files.readAllBytes(write(data(1000)));
+        contents[contents.length / 2] ^= 0x10;
+
+        ResultsCacheFormat.read(ByteBuffer.wrap(contents), ENVIRONMENT::equals);
+    }
+
+    private Path write(final Map<ICompoundContainer<?>, Set<CompoundInstance>> data) throws IOException
+    {
+        final Path cacheFile = temporaryFolder.getRoot().toPath().resolve("results.bin-cache");
+        ResultsCacheFormat.write(cacheFile, ENVIRONMENT, data);
+        return cacheFile;
+    }
+
+    private Map<ICompoundContainer<?>, Set<CompoundInstance>> data(final int size)
+    {
+        final Map<ICompoundContainer<?>, Set<CompoundInstance>> data = new HashMap<>();
+        for (int i = 0; i < size; i++)
+        {
+            data.put(new StringCompoundContainer("entry_" + i, 1), Set.of(new CompoundInstance(typeA, i * 0.25d), new CompoundInstance(typeB, i / 3d)));
+        }
+        return data;
+    }
+}
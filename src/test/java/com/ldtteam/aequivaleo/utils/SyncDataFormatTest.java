@@ -0,0 +1,156 @@
+package com.ldtteam.aequivaleo.utils;
+
+import com.ldtteam.aequivaleo.Aequivaleo;
+import com.ldtteam.aequivaleo.api.compound.CompoundInstance;
+import com.ldtteam.aequivaleo.api.compound.container.ICompoundContainer;
+import com.ldtteam.aequivaleo.api.compound.type.ICompoundType;
+import com.ldtteam.aequivaleo.api.util.RegistryUtils;
+import com.ldtteam.aequivaleo.config.CommonConfiguration;
+import com.ldtteam.aequivaleo.config.Configuration;
+import com.ldtteam.aequivaleo.testing.TestRegistries;
+import com.ldtteam.aequivaleo.testing.compound.container.testing.StringCompoundContainer;
+import io.netty.buffer.Unpooled;
+import net.minecraft.network.FriendlyByteBuf;
+import net.minecraftforge.common.ForgeConfigSpec;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.powermock.core.classloader.annotations.PowerMockIgnore;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.powermock.api.mockito.PowerMockito.*;
+
+@RunWith(PowerMockRunner.class)
+@PowerMockIgnore({"jdk.internal.reflect.*", "org.apache.log4j.*", "org.apache.commons.logging.*", "javax.management.*", "org.apache.logging.*"})
+@PrepareForTest({Aequivaleo.class, RegistryUtils.class})
+public class SyncDataFormatTest
+{
+    ForgeConfigSpec.BooleanValue compactFormat;
+    ForgeConfigSpec.BooleanValue compression;
+
+    ICompoundType typeA;
+    ICompoundType typeB;
+
+    @Before
+    public void setUp()
+    {
+        mockStatic(Aequivaleo.class);
+        Aequivaleo mod = mock(Aequivaleo.class);
+        when(Aequivaleo.getInstance()).thenReturn(mod);
+
+        Configuration config = mock(Configuration.class);
+        CommonConfiguration commonConfiguration = mock(CommonConfiguration.class);
+        compactFormat = mock(ForgeConfigSpec.BooleanValue.class);
+        compression = mock(ForgeConfigSpec.BooleanValue.class);
+        when(compactFormat.get()).thenReturn(true);
+        when(compression.get()).thenReturn(false);
+        commonConfiguration.networkCompactFormat = compactFormat;
+        commonConfiguration.networkCompression = compression;
+        when(config.getCommon()).thenReturn(commonConfiguration);
+        when(mod.getConfiguration()).thenReturn(config);
+
+        final List<ICompoundType> types = TestRegistries.setUp("a", "b");
+        typeA = types.get(0);
+        typeB = types.get(1);
+
+        mockStatic(RegistryUtils.class);
+        when(RegistryUtils.getFull(any())).thenReturn(TestRegistries.getTypeForgeRegistry());
+    }
+
+    @Test
+    public void compactRoundTripKeepsAmountsExactly()
+    {
+        final List<Map.Entry<ICompoundContainer<?>, Set<CompoundInstance>>> data = List.of(
+          entry("fixed", new CompoundInstance(typeA, 1d), new CompoundInstance(typeB, 0.25d)),
+          entry("negative", new CompoundInstance(typeA, -3.5d), new CompoundInstance(typeB, 0.001d)),
+          entry("fallback", new CompoundInstance(typeA, 1d / 3d), new CompoundInstance(typeB, 1e20d)),
+          entry("tiny", new CompoundInstance(typeA, 1e-7d)),
+          entry("negativeZero", new CompoundInstance(typeA, -0d)),
+          entry("nan", new CompoundInstance(typeB, Double.NaN)),
+          entry("removed")
+        );
+
+        final FriendlyByteBuf buffer = write(data);
+        assertEquals(SyncDataFormat.COMPACT, buffer.getByte(buffer.readerIndex()));
+        assertSameData(data, read(buffer));
+    }
+
+    @Test
+    public void deflatedRoundTrip()
+    {
+        when(compression.get()).thenReturn(true);
+
+        final List<Map.Entry<ICompoundContainer<?>, Set<CompoundInstance>>> data = new ArrayList<>();
+        for (int i = 0; i < 500; i++)
+        {
+            data.add(entry("entry_" + i, new CompoundInstance(typeA, i * 0.5d), new CompoundInstance(typeB, i / 7d)));
+        }
+        data.add(entry("removed"));
+
+        final FriendlyByteBuf buffer = write(data);
+        assertEquals(SyncDataFormat.COMPACT_DEFLATED, buffer.getByte(buffer.readerIndex()));
+        assertSameData(data, read(buffer));
+    }
+
+    @Test
+    public void legacyRoundTrip()
+    {
+        when(compactFormat.get()).thenReturn(false);
+
+        final List<Map.Entry<ICompoundContainer<?>, Set<CompoundInstance>>> data = List.of(
+          entry("log", new CompoundInstance(typeA, 1d / 3d), new CompoundInstance(typeB, -0d)),
+          entry("removed")
+        );
+
+        final FriendlyByteBuf buffer = write(data);
+        assertEquals(SyncDataFormat.LEGACY, buffer.getByte(buffer.readerIndex()));
+        assertSameData(data, read(buffer));
+    }
+
+    private static FriendlyByteBuf write(final List<Map.Entry<ICompoundContainer<?>, Set<CompoundInstance>>> data)
+    {
+        final FriendlyByteBuf buffer = new FriendlyByteBuf(Unpooled.buffer());
+        SyncDataFormat.write(buffer, data);
+        return buffer;
+    }
+
+    private static List<Map.Entry<ICompoundContainer<?>, Set<CompoundInstance>>> read(final FriendlyByteBuf buffer)
+    {
+        final List<Map.Entry<ICompoundContainer<?>, Set<CompoundInstance>>> result = new ArrayList<>();
+        SyncDataFormat.read(buffer, result);
+        assertEquals(0, buffer.readableBytes());
+        return result;
+    }
+
+    private static Map.Entry<ICompoundContainer<?>, Set<CompoundInstance>> entry(final String content, final CompoundInstance... instances)
+    {
+        return new AbstractMap.SimpleImmutableEntry<>(new StringCompoundContainer(content, 1), Set.of(instances));
+    }
+
+    /**
+     * Compares the amounts by their bits, so that -0.0 and NaN have to survive the round trip as well.
+     */
+    private static void assertSameData(
+      final List<Map.Entry<ICompoundContainer<?>, Set<CompoundInstance>>> expected,
+      final List<Map.Entry<ICompoundContainer<?>, Set<CompoundInstance>>> actual)
+    {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++)
+        {
+            assertEquals(expected.get(i).getKey(), actual.get(i).getKey());
+            assertEquals(describe(expected.get(i).getValue()), describe(actual.get(i).getValue()));
+        }
+    }
+
+    private static Map<ICompoundType, Long> describe(final Set<CompoundInstance> instances)
+    {
+        final Map<ICompoundType, Long> result = new HashMap<>();
+        instances.forEach(instance -> result.put(instance.getType(), Double.doubleToRawLongBits(instance.getAmount())));
+        return result;
+    }
+}